@@ -49,7 +49,7 @@ public abstract class PublicChannelService<M extends PublicChatMessage, C extend
     @Override
     public CompletableFuture<Boolean> initialize() {
         log.info("initialize");
-        networkService.addDataServiceListener(this);
+        networkService.subscribeToDataService(getChatMessageClass(), this);
         networkService.getDataService().ifPresent(dataService ->
                 dataService.getAllAuthenticatedPayload().forEach(this::onAuthenticatedDataAdded));
         maybeAddDefaultChannels();
@@ -59,7 +59,7 @@ public abstract class PublicChannelService<M extends PublicChatMessage, C extend
     @Override
     public CompletableFuture<Boolean> shutdown() {
         log.info("shutdown");
-        networkService.removeDataServiceListener(this);
+        networkService.unsubscribeFromDataService(this);
         return CompletableFuture.completedFuture(true);
     }
 
@@ -140,4 +140,7 @@ public abstract class PublicChannelService<M extends PublicChatMessage, C extend
     }
 
     protected abstract void maybeAddDefaultChannels();
+
+    // Used to subscribe only to the chat messages of that service
+    protected abstract Class<M> getChatMessageClass();
 }
\ No newline at end of file
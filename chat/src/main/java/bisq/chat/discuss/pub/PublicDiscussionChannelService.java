@@ -79,6 +79,11 @@ public class PublicDiscussionChannelService extends PublicChannelService<PublicD
         return persistableStore.getChannels();
     }
 
+    @Override
+    protected Class<PublicDiscussionChatMessage> getChatMessageClass() {
+        return PublicDiscussionChatMessage.class;
+    }
+
     @Override
     protected PublicDiscussionChatMessage createNewChatMessage(String text,
                                                                Optional<Quotation> quotedMessage,
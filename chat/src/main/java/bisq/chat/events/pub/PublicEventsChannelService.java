@@ -79,6 +79,11 @@ public class PublicEventsChannelService extends PublicChannelService<PublicEvent
         return persistableStore.getChannels();
     }
 
+    @Override
+    protected Class<PublicEventsChatMessage> getChatMessageClass() {
+        return PublicEventsChatMessage.class;
+    }
+
     @Override
     protected PublicEventsChatMessage createNewChatMessage(String text,
                                                            Optional<Quotation> quotedMessage,
@@ -79,6 +79,11 @@ public class PublicSupportChannelService extends PublicChannelService<PublicSupp
         return persistableStore.getChannels();
     }
 
+    @Override
+    protected Class<PublicSupportChatMessage> getChatMessageClass() {
+        return PublicSupportChatMessage.class;
+    }
+
     @Override
     protected PublicSupportChatMessage createNewChatMessage(String text,
                                                             Optional<Quotation> quotedMessage,
@@ -112,6 +112,11 @@ public class PublicTradeChannelService extends PublicChannelService<PublicTradeC
         return persistableStore.getChannels();
     }
 
+    @Override
+    protected Class<PublicTradeChatMessage> getChatMessageClass() {
+        return PublicTradeChatMessage.class;
+    }
+
     @Override
     protected PublicTradeChatMessage createNewChatMessage(String text,
                                                           Optional<Quotation> quotedMessage,
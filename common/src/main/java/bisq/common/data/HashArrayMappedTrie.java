@@ -0,0 +1,414 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.common.data;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Immutable hash map implemented as hash array mapped trie. Changes return a new map which shares all nodes not on
+ * the path to the changed key with the previous one, so they cost O(log32 n) and taking a snapshot is a reference
+ * copy. Null keys and values are not supported.
+ */
+public final class HashArrayMappedTrie<K, V> extends AbstractMap<K, V> {
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    // Depth of the trie for 32 bit hashes plus one level of collision nodes
+    private static final int MAX_DEPTH = 8;
+    private static final HashArrayMappedTrie<?, ?> EMPTY = new HashArrayMappedTrie<>(new BitmapNode(0, new Object[0]), 0);
+
+    private final BitmapNode root;
+    private final int size;
+
+    @SuppressWarnings("unchecked")
+    public static <K, V> HashArrayMappedTrie<K, V> empty() {
+        return (HashArrayMappedTrie<K, V>) EMPTY;
+    }
+
+    private HashArrayMappedTrie(BitmapNode root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        if (key == null) {
+            return null;
+        }
+        Leaf leaf = root.find(key, hash(key), 0);
+        return leaf != null ? (V) leaf.getValue() : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key != null && root.find(key, hash(key), 0) != null;
+    }
+
+    /**
+     * @return A map with the value for the key added or replaced. This map is not changed.
+     */
+    public HashArrayMappedTrie<K, V> with(K key, V value) {
+        Objects.requireNonNull(key, "key must not be null");
+        Objects.requireNonNull(value, "value must not be null");
+        Change change = new Change();
+        BitmapNode newRoot = (BitmapNode) root.put(new Leaf(hash(key), key, value), 0, change);
+        return newRoot == root ? this : new HashArrayMappedTrie<>(newRoot, size + change.sizeDelta);
+    }
+
+    /**
+     * @return A map without the key. This map is not changed.
+     */
+    public HashArrayMappedTrie<K, V> without(Object key) {
+        if (key == null) {
+            return this;
+        }
+        Object newRoot = root.remove(key, hash(key), 0);
+        if (newRoot == root) {
+            return this;
+        }
+        return newRoot == null ? empty() : new HashArrayMappedTrie<>((BitmapNode) newRoot, size - 1);
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        for (Iterator<Entry<K, V>> iterator = new EntryIterator<>(root); iterator.hasNext(); ) {
+            Entry<K, V> entry = iterator.next();
+            action.accept(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                return new EntryIterator<>(root);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                if (!(o instanceof Entry)) {
+                    return false;
+                }
+                Entry<?, ?> entry = (Entry<?, ?>) o;
+                V value = get(entry.getKey());
+                return value != null && value.equals(entry.getValue());
+            }
+        };
+    }
+
+    private static int hash(Object key) {
+        int hashCode = key.hashCode();
+        return hashCode ^ (hashCode >>> 16);
+    }
+
+    private static int bit(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    private static Object[] insert(Object[] array, int index, Object element) {
+        Object[] result = new Object[array.length + 1];
+        System.arraycopy(array, 0, result, 0, index);
+        result[index] = element;
+        System.arraycopy(array, index, result, index + 1, array.length - index);
+        return result;
+    }
+
+    private static Object[] replace(Object[] array, int index, Object element) {
+        Object[] result = array.clone();
+        result[index] = element;
+        return result;
+    }
+
+    private static Object[] removeAt(Object[] array, int index) {
+        Object[] result = new Object[array.length - 1];
+        System.arraycopy(array, 0, result, 0, index);
+        System.arraycopy(array, index + 1, result, index, array.length - index - 1);
+        return result;
+    }
+
+    private static final class Change {
+        private int sizeDelta;
+    }
+
+    private static final class Leaf extends SimpleImmutableEntry<Object, Object> {
+        private final int hash;
+
+        private Leaf(int hash, Object key, Object value) {
+            super(key, value);
+            this.hash = hash;
+        }
+
+        private boolean matches(Object key, int hash) {
+            return this.hash == hash && getKey().equals(key);
+        }
+    }
+
+    private interface Node {
+        Leaf find(Object key, int hash, int shift);
+
+        Node put(Leaf leaf, int shift, Change change);
+
+        /**
+         * @return This node if the key is not contained, otherwise the node without the key, a single remaining Leaf
+         * which replaces the node in its parent, or null if the node got empty.
+         */
+        Object remove(Object key, int hash, int shift);
+
+        Object[] getSlots();
+    }
+
+    // Slots are Leafs or child Nodes, ordered by the bit index in the bitmap
+    private static final class BitmapNode implements Node {
+        private final int bitmap;
+        private final Object[] slots;
+
+        private BitmapNode(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        private int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        public Leaf find(Object key, int hash, int shift) {
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return null;
+            }
+            Object slot = slots[index(bit)];
+            if (slot instanceof Leaf) {
+                Leaf leaf = (Leaf) slot;
+                return leaf.matches(key, hash) ? leaf : null;
+            }
+            return ((Node) slot).find(key, hash, shift + BITS);
+        }
+
+        @Override
+        public Node put(Leaf leaf, int shift, Change change) {
+            int bit = bit(leaf.hash, shift);
+            int index = index(bit);
+            if ((bitmap & bit) == 0) {
+                change.sizeDelta = 1;
+                return new BitmapNode(bitmap | bit, insert(slots, index, leaf));
+            }
+            Object slot = slots[index];
+            if (slot instanceof Leaf) {
+                Leaf existing = (Leaf) slot;
+                if (existing.matches(leaf.getKey(), leaf.hash)) {
+                    return existing.getValue() == leaf.getValue() ?
+                            this :
+                            new BitmapNode(bitmap, replace(slots, index, leaf));
+                }
+                change.sizeDelta = 1;
+                return new BitmapNode(bitmap, replace(slots, index, createNode(existing, leaf, shift + BITS)));
+            }
+            Node child = (Node) slot;
+            Node newChild = child.put(leaf, shift + BITS, change);
+            return newChild == child ? this : new BitmapNode(bitmap, replace(slots, index, newChild));
+        }
+
+        @Override
+        public Object remove(Object key, int hash, int shift) {
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            int index = index(bit);
+            Object slot = slots[index];
+            Object newSlot;
+            if (slot instanceof Leaf) {
+                if (!((Leaf) slot).matches(key, hash)) {
+                    return this;
+                }
+                newSlot = null;
+            } else {
+                newSlot = ((Node) slot).remove(key, hash, shift + BITS);
+                if (newSlot == slot) {
+                    return this;
+                }
+            }
+
+            if (newSlot == null) {
+                if (slots.length == 1) {
+                    return null;
+                }
+                Object[] newSlots = removeAt(slots, index);
+                // A single leaf moves up to the parent, the root stays a BitmapNode
+                if (newSlots.length == 1 && newSlots[0] instanceof Leaf && shift > 0) {
+                    return newSlots[0];
+                }
+                return new BitmapNode(bitmap & ~bit, newSlots);
+            }
+            if (newSlot instanceof Leaf && slots.length == 1 && shift > 0) {
+                return newSlot;
+            }
+            return new BitmapNode(bitmap, replace(slots, index, newSlot));
+        }
+
+        @Override
+        public Object[] getSlots() {
+            return slots;
+        }
+
+        private static Node createNode(Leaf leaf1, Leaf leaf2, int shift) {
+            if (leaf1.hash == leaf2.hash) {
+                return new CollisionNode(leaf1.hash, new Object[]{leaf1, leaf2});
+            }
+            // As the hashes differ they get separated at the latest at the last level
+            int bit1 = bit(leaf1.hash, shift);
+            int bit2 = bit(leaf2.hash, shift);
+            if (bit1 == bit2) {
+                return new BitmapNode(bit1, new Object[]{createNode(leaf1, leaf2, shift + BITS)});
+            }
+            // Compared unsigned, as the highest bit is the sign bit
+            return Integer.compareUnsigned(bit1, bit2) < 0 ?
+                    new BitmapNode(bit1 | bit2, new Object[]{leaf1, leaf2}) :
+                    new BitmapNode(bit1 | bit2, new Object[]{leaf2, leaf1});
+        }
+    }
+
+    // Leafs of keys with equal hashes
+    private static final class CollisionNode implements Node {
+        private final int hash;
+        private final Object[] leafs;
+
+        private CollisionNode(int hash, Object[] leafs) {
+            this.hash = hash;
+            this.leafs = leafs;
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < leafs.length; i++) {
+                if (((Leaf) leafs[i]).getKey().equals(key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public Leaf find(Object key, int hash, int shift) {
+            if (hash != this.hash) {
+                return null;
+            }
+            int index = indexOf(key);
+            return index >= 0 ? (Leaf) leafs[index] : null;
+        }
+
+        @Override
+        public Node put(Leaf leaf, int shift, Change change) {
+            if (leaf.hash != hash) {
+                // Move this node one level down, next to the new leaf
+                return new BitmapNode(bit(hash, shift), new Object[]{this}).put(leaf, shift, change);
+            }
+            int index = indexOf(leaf.getKey());
+            if (index >= 0) {
+                return ((Leaf) leafs[index]).getValue() == leaf.getValue() ?
+                        this :
+                        new CollisionNode(hash, replace(leafs, index, leaf));
+            }
+            change.sizeDelta = 1;
+            return new CollisionNode(hash, insert(leafs, leafs.length, leaf));
+        }
+
+        @Override
+        public Object remove(Object key, int hash, int shift) {
+            int index = hash == this.hash ? indexOf(key) : -1;
+            if (index < 0) {
+                return this;
+            }
+            if (leafs.length == 2) {
+                return leafs[1 - index];
+            }
+            return new CollisionNode(hash, removeAt(leafs, index));
+        }
+
+        @Override
+        public Object[] getSlots() {
+            return leafs;
+        }
+    }
+
+    private static final class EntryIterator<K, V> implements Iterator<Entry<K, V>> {
+        private final Object[][] slotsStack = new Object[MAX_DEPTH + 1][];
+        private final int[] positions = new int[MAX_DEPTH + 1];
+        private int depth;
+        private Leaf next;
+
+        private EntryIterator(BitmapNode root) {
+            slotsStack[0] = root.getSlots();
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Entry<K, V> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Leaf result = next;
+            advance();
+            return (Entry<K, V>) (Entry<?, ?>) result;
+        }
+
+        private void advance() {
+            while (depth >= 0) {
+                Object[] slots = slotsStack[depth];
+                if (positions[depth] < slots.length) {
+                    Object slot = slots[positions[depth]++];
+                    if (slot instanceof Leaf) {
+                        next = (Leaf) slot;
+                        return;
+                    }
+                    depth++;
+                    slotsStack[depth] = ((Node) slot).getSlots();
+                    positions[depth] = 0;
+                } else {
+                    slotsStack[depth] = null;
+                    depth--;
+                }
+            }
+            next = null;
+        }
+    }
+}
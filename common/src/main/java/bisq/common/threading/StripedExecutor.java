@@ -0,0 +1,248 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.common.threading;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executor which keeps the order of tasks submitted with the same key but runs tasks of different keys in parallel.
+ * The key is mapped to one of a fixed number of stripes, each stripe is served by a single thread.
+ * <p>
+ * Each stripe queue is bounded by maxQueueSize. If a stripe is full the RejectionPolicy is applied. Tasks which must
+ * not get lost (e.g. lifecycle events) can be submitted with executeIgnoringLimit.
+ */
+@Slf4j
+public class StripedExecutor {
+    public enum RejectionPolicy {
+        // Drop the task and log a warning
+        DISCARD,
+        // Throw a RejectedExecutionException to the caller
+        ABORT,
+        // Block the caller until the stripe has capacity again
+        BLOCK
+    }
+
+    private static final long SHUTDOWN_CHECK_INTERVAL_MS = 100;
+
+    private static final class Stripe {
+        private final ThreadPoolExecutor executor;
+        // One permit per pending task which is subject to the limit. The running task holds a permit as well, so we
+        // have one more permit than queue slots.
+        private final Semaphore permits;
+        private final Queue<DrainListener> drainListeners = new ConcurrentLinkedQueue<>();
+
+        private Stripe(ThreadPoolExecutor executor, int maxQueueSize) {
+            this.executor = executor;
+            permits = new Semaphore(maxQueueSize + 1);
+        }
+    }
+
+    private static final class DrainListener {
+        private final int lowWaterMark;
+        private final Runnable runnable;
+
+        private DrainListener(int lowWaterMark, Runnable runnable) {
+            this.lowWaterMark = lowWaterMark;
+            this.runnable = runnable;
+        }
+    }
+
+    @Getter
+    private final String name;
+    @Getter
+    private final int maxQueueSize;
+    @Getter
+    private final RejectionPolicy rejectionPolicy;
+    private final Stripe[] stripes;
+    private final AtomicLong numRejected = new AtomicLong();
+    private final AtomicLong maxObservedQueueSize = new AtomicLong();
+
+    public StripedExecutor(String name, int numStripes, int maxQueueSize, RejectionPolicy rejectionPolicy) {
+        if (numStripes < 1) {
+            throw new IllegalArgumentException("numStripes must be at least 1");
+        }
+        this.name = name;
+        this.maxQueueSize = maxQueueSize;
+        this.rejectionPolicy = rejectionPolicy;
+        stripes = new Stripe[numStripes];
+        for (int i = 0; i < numStripes; i++) {
+            // The queue itself is unbounded, the limit is applied by the permits, so that executeIgnoringLimit can pass it.
+            ThreadPoolExecutor executor = ExecutorFactory.getThreadPoolExecutor(name + "-" + i, 1, 1, 0, new LinkedBlockingQueue<>());
+            executor.prestartAllCoreThreads();
+            stripes[i] = new Stripe(executor, maxQueueSize);
+        }
+    }
+
+    /**
+     * Tasks with the same key are executed in the order they have been submitted. The RejectionPolicy is applied if the
+     * stripe of that key is full.
+     */
+    public void execute(Object key, Runnable task) {
+        Stripe stripe = getStripe(key);
+        if (!stripe.permits.tryAcquire()) {
+            numRejected.incrementAndGet();
+            int queueSize = stripe.executor.getQueue().size();
+            switch (rejectionPolicy) {
+                case DISCARD:
+                    log.warn("Stripe of {} is full. We discard the task. queueSize={}", name, queueSize);
+                    return;
+                case ABORT:
+                    throw new RejectedExecutionException("Stripe of " + name + " is full. queueSize=" + queueSize);
+                case BLOCK:
+                    awaitPermit(stripe);
+                    break;
+            }
+        }
+        doExecute(stripe, task, true);
+    }
+
+    /**
+     * Like execute but never blocks nor throws, independent of the RejectionPolicy. To be used by callers which must
+     * not block but need to handle a full stripe themselves.
+     *
+     * @return False if the stripe of that key is full and the task has not been submitted.
+     */
+    public boolean tryExecute(Object key, Runnable task) {
+        Stripe stripe = getStripe(key);
+        if (!stripe.permits.tryAcquire()) {
+            numRejected.incrementAndGet();
+            return false;
+        }
+        doExecute(stripe, task, true);
+        return true;
+    }
+
+    /**
+     * Like execute but ignores the queue limit. To be used for rare tasks which must not get dropped.
+     */
+    public void executeIgnoringLimit(Object key, Runnable task) {
+        doExecute(getStripe(key), task, false);
+    }
+
+    /**
+     * Runs the listener once the stripe of that key has not more than lowWaterMark pending tasks which are subject to
+     * the limit. It runs at the caller thread if that is already the case, otherwise at the stripe thread.
+     */
+    public void whenDrained(Object key, int lowWaterMark, Runnable listener) {
+        Stripe stripe = getStripe(key);
+        stripe.drainListeners.add(new DrainListener(lowWaterMark, listener));
+        // The stripe might have drained before we added the listener
+        notifyDrainListeners(stripe);
+    }
+
+    public int getNumStripes() {
+        return stripes.length;
+    }
+
+    public int getQueueSize() {
+        return Arrays.stream(stripes).mapToInt(stripe -> stripe.executor.getQueue().size()).sum();
+    }
+
+    public int[] getQueueSizes() {
+        return Arrays.stream(stripes).mapToInt(stripe -> stripe.executor.getQueue().size()).toArray();
+    }
+
+    public long getMaxObservedQueueSize() {
+        return maxObservedQueueSize.get();
+    }
+
+    public long getNumRejected() {
+        return numRejected.get();
+    }
+
+    public void shutdown() {
+        Arrays.stream(stripes).forEach(stripe -> ExecutorFactory.shutdownAndAwaitTermination(stripe.executor));
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+
+    private Stripe getStripe(Object key) {
+        int hash = key != null ? key.hashCode() : 0;
+        // Spread the bits as keys might have poor hashes in the low bits
+        hash ^= (hash >>> 16);
+        return stripes[Math.floorMod(hash, stripes.length)];
+    }
+
+    private void doExecute(Stripe stripe, Runnable task, boolean holdsPermit) {
+        try {
+            stripe.executor.execute(() -> {
+                try {
+                    task.run();
+                } catch (Throwable throwable) {
+                    log.error("Task at {} failed", name, throwable);
+                } finally {
+                    if (holdsPermit) {
+                        stripe.permits.release();
+                        notifyDrainListeners(stripe);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException exception) {
+            if (holdsPermit) {
+                stripe.permits.release();
+            }
+            throw exception;
+        }
+        maxObservedQueueSize.accumulateAndGet(stripe.executor.getQueue().size(), Math::max);
+    }
+
+    private void notifyDrainListeners(Stripe stripe) {
+        if (stripe.drainListeners.isEmpty()) {
+            return;
+        }
+        int numPending = maxQueueSize + 1 - stripe.permits.availablePermits();
+        for (DrainListener drainListener : stripe.drainListeners) {
+            // Removing it first makes sure it runs only once if threads notify concurrently
+            if (numPending <= drainListener.lowWaterMark && stripe.drainListeners.remove(drainListener)) {
+                try {
+                    drainListener.runnable.run();
+                } catch (Throwable throwable) {
+                    log.error("Drain listener at {} failed", name, throwable);
+                }
+            }
+        }
+    }
+
+    private void awaitPermit(Stripe stripe) {
+        try {
+            while (!stripe.permits.tryAcquire(SHUTDOWN_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+                if (stripe.executor.isShutdown()) {
+                    throw new RejectedExecutionException("Stripe of " + name + " got shut down");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for capacity at " + name);
+        }
+    }
+}
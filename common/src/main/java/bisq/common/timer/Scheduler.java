@@ -17,36 +17,38 @@
 
 package bisq.common.timer;
 
-import bisq.common.threading.ExecutorFactory;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.Optional;
-import java.util.Random;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 @Slf4j
 public class Scheduler implements TaskScheduler {
-    // We do not use a ScheduledThreadPoolExecutor as the queue cannot be customized. It would cause undesired behaviour 
-    // in case we would use a static executor for all Scheduler instances and multiple schedule calls would get 
-    // queued up instead of starting a new scheduler.
-    private final ScheduledExecutorService executor;
+    private static final String DEFAULT_GROUP = "Scheduler";
+
+    // All instances share the threads of the TimerService. A periodic task is scheduled again only after its run has
+    // completed, so runs of the same Scheduler never overlap, and a slow task does not delay other schedulers.
+    private final TimerService timerService = TimerService.INSTANCE;
     private final Runnable task;
     private volatile boolean stopped;
     @Getter
     private long counter;
-    private Optional<String> threadName = Optional.empty();
+    private volatile Optional<String> threadName = Optional.empty();
+    // Null until scheduled
+    private volatile TimerService.Timeout timeout;
 
     private Scheduler(Runnable task) {
         this.task = task;
-        executor = ExecutorFactory.newSingleThreadScheduledExecutor("Scheduler-" + new Random().nextInt(1000));
     }
 
     public static Scheduler run(Runnable task) {
         return new Scheduler(task);
     }
 
+    /**
+     * The name is used as thread name while the task runs and as group name for the metrics of the TimerService.
+     */
     public Scheduler name(String threadName) {
         this.threadName = Optional.of(threadName);
         return this;
@@ -93,32 +95,28 @@ public class Scheduler implements TaskScheduler {
             return this;
         }
         if (cycles == 1) {
-            executor.schedule(() -> {
-                if (stopped) {
-                    return;
-                }
-                threadName.ifPresent(name -> Thread.currentThread().setName(name));
+            schedule(() -> {
                 try {
-                    task.run();
+                    runTask();
                 } finally {
                     stop();
                 }
             }, delay, timeUnit);
         } else {
-            executor.scheduleWithFixedDelay(() -> {
-                if (stopped) {
-                    return;
-                }
-                threadName.ifPresent(name -> Thread.currentThread().setName(name));
-                try {
-                    task.run();
-                } finally {
-                    counter++;
-                    if (counter >= cycles) {
-                        stop();
+            schedule(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        runTask();
+                    } finally {
+                        counter++;
+                        if (counter >= cycles) {
+                            stop();
+                        }
                     }
+                    schedule(this, delay, timeUnit);
                 }
-            }, initialDelay, delay, timeUnit);
+            }, initialDelay, timeUnit);
         }
         return this;
     }
@@ -126,6 +124,44 @@ public class Scheduler implements TaskScheduler {
     @Override
     public void stop() {
         stopped = true;
-        ExecutorFactory.shutdownAndAwaitTermination(executor);
+        TimerService.Timeout timeout = this.timeout;
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+
+    private void schedule(Runnable runnable, long delay, TimeUnit timeUnit) {
+        if (stopped) {
+            return;
+        }
+        timeout = timerService.schedule(() -> {
+            if (!stopped) {
+                runnable.run();
+            }
+        }, this::getGroup, delay, timeUnit);
+        // If stop was called concurrently it might have missed the new timeout
+        if (stopped) {
+            timeout.cancel();
+        }
+    }
+
+    // Call sites usually set the name after scheduling, so we must not capture the group at scheduling time
+    private String getGroup() {
+        return threadName.orElse(DEFAULT_GROUP);
+    }
+
+    private void runTask() {
+        Thread thread = Thread.currentThread();
+        String workerThreadName = thread.getName();
+        threadName.ifPresent(thread::setName);
+        try {
+            task.run();
+        } catch (Throwable t) {
+            // As with a ScheduledExecutorService, a failing task does not get executed again
+            log.error("Scheduled task failed. We stop the scheduler.", t);
+            stopped = true;
+        } finally {
+            thread.setName(workerThreadName);
+        }
     }
 }
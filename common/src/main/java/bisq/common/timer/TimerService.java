@@ -0,0 +1,206 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.common.timer;
+
+import bisq.common.util.OsUtils;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Runs the tasks of all Scheduler instances. A single timer thread waits for the next due task and hands it over to
+ * a bounded worker pool. Idle worker threads are released, so schedulers which wait for their next run do not hold a
+ * thread.
+ * <p>
+ * Tasks belong to a named group, for which we count the fires and the fires which started later than
+ * LATE_FIRE_THRESHOLD_MS after their due time, e.g. because all workers were busy.
+ */
+@Slf4j
+public final class TimerService {
+    public static final long LATE_FIRE_THRESHOLD_MS = 100;
+    // Delay after which we try again to hand over a task if all workers are busy
+    private static final long RETRY_DELAY_MS = 10;
+    public static final TimerService INSTANCE = new TimerService("TimerService",
+            Math.max(64, 4 * OsUtils.availableProcessors()));
+
+    @Getter
+    @ToString
+    @EqualsAndHashCode
+    public static final class GroupSnapshot {
+        private final String group;
+        private final long numFires;
+        private final long numLateFires;
+        private final long maxLatenessMs;
+
+        private GroupSnapshot(String group, long numFires, long numLateFires, long maxLatenessMs) {
+            this.group = group;
+            this.numFires = numFires;
+            this.numLateFires = numLateFires;
+            this.maxLatenessMs = maxLatenessMs;
+        }
+    }
+
+    /**
+     * Handle of a scheduled task. A cancelled task is not run anymore, but a run which has started already completes.
+     */
+    public final class Timeout implements Delayed, Runnable {
+        private final Runnable task;
+        // Resolved when the task fires, so that the owner can still name the group after scheduling
+        private final Supplier<String> group;
+        private final long dueTime;
+        // Differs from dueTime if the hand over to a worker has to be retried
+        private volatile long nextAttempt;
+        private volatile boolean cancelled;
+
+        private Timeout(Runnable task, Supplier<String> group, long dueTime) {
+            this.task = task;
+            this.group = group;
+            this.dueTime = dueTime;
+            nextAttempt = dueTime;
+        }
+
+        public void cancel() {
+            cancelled = true;
+            queue.remove(this);
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public void run() {
+            if (cancelled) {
+                return;
+            }
+            getGroupMetrics(group.get()).onFire(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - dueTime));
+            task.run();
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(nextAttempt - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+    }
+
+    private static final class GroupMetrics {
+        private final AtomicLong numFires = new AtomicLong();
+        private final AtomicLong numLateFires = new AtomicLong();
+        private final AtomicLong maxLatenessMs = new AtomicLong();
+
+        private void onFire(long latenessMs) {
+            numFires.incrementAndGet();
+            if (latenessMs > LATE_FIRE_THRESHOLD_MS) {
+                numLateFires.incrementAndGet();
+            }
+            maxLatenessMs.accumulateAndGet(latenessMs, Math::max);
+        }
+    }
+
+    private final DelayQueue<Timeout> queue = new DelayQueue<>();
+    private final ThreadPoolExecutor workers;
+    private final Map<String, GroupMetrics> metricsByGroup = new ConcurrentHashMap<>();
+    private final AtomicLong numRetries = new AtomicLong();
+
+    TimerService(String name, int maxWorkerThreads) {
+        // With a SynchronousQueue the pool starts new threads up to maxWorkerThreads instead of queuing, so a blocking
+        // task does not delay the tasks of other groups.
+        workers = new ThreadPoolExecutor(0, maxWorkerThreads, 30, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                new ThreadFactoryBuilder().setNameFormat(name + "-worker-%d").setDaemon(true).build(),
+                (runnable, executor) -> retry((Timeout) runnable));
+        Thread timerThread = new Thread(this::dispatchDueTasks, name + "-timer");
+        timerThread.setDaemon(true);
+        timerThread.start();
+    }
+
+    public Timeout schedule(Runnable task, String group, long delay, TimeUnit timeUnit) {
+        return schedule(task, () -> group, delay, timeUnit);
+    }
+
+    public Timeout schedule(Runnable task, Supplier<String> group, long delay, TimeUnit timeUnit) {
+        Timeout timeout = new Timeout(task, group, System.nanoTime() + timeUnit.toNanos(Math.max(0, delay)));
+        queue.add(timeout);
+        return timeout;
+    }
+
+    public List<GroupSnapshot> getSnapshot() {
+        return metricsByGroup.entrySet().stream()
+                .map(e -> new GroupSnapshot(e.getKey(),
+                        e.getValue().numFires.get(),
+                        e.getValue().numLateFires.get(),
+                        e.getValue().maxLatenessMs.get()))
+                .sorted(Comparator.comparing(GroupSnapshot::getGroup))
+                .collect(Collectors.toList());
+    }
+
+    public int getNumScheduled() {
+        return queue.size();
+    }
+
+    public long getNumRetries() {
+        return numRetries.get();
+    }
+
+    private void dispatchDueTasks() {
+        while (true) {
+            try {
+                Timeout timeout = queue.take();
+                if (!timeout.isCancelled()) {
+                    workers.execute(timeout);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Dispatching timer task failed", e);
+            }
+        }
+    }
+
+    private void retry(Timeout timeout) {
+        numRetries.incrementAndGet();
+        log.debug("All {} workers are busy. We retry to run the task of group {} in {} ms",
+                workers.getMaximumPoolSize(), timeout.group.get(), RETRY_DELAY_MS);
+        timeout.nextAttempt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(RETRY_DELAY_MS);
+        queue.add(timeout);
+    }
+
+    private GroupMetrics getGroupMetrics(String group) {
+        return metricsByGroup.computeIfAbsent(group, key -> new GroupMetrics());
+    }
+}
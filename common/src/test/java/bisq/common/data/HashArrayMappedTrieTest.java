@@ -0,0 +1,109 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.common.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HashArrayMappedTrieTest {
+    @Test
+    public void testAgainstHashMap() {
+        Random random = new Random(1);
+        Map<Integer, Integer> expected = new HashMap<>();
+        HashArrayMappedTrie<Integer, Integer> trie = HashArrayMappedTrie.empty();
+        for (int i = 0; i < 100_000; i++) {
+            int key = random.nextInt(20_000);
+            if (random.nextInt(3) == 0) {
+                expected.remove(key);
+                trie = trie.without(key);
+            } else {
+                expected.put(key, i);
+                trie = trie.with(key, i);
+            }
+        }
+        assertEquals(expected.size(), trie.size());
+        assertEquals(expected, trie);
+        assertEquals(expected.size(), trie.entrySet().stream().count());
+        for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), trie.get(entry.getKey()));
+        }
+    }
+
+    @Test
+    public void testSnapshotsAreNotChanged() {
+        HashArrayMappedTrie<String, Integer> trie = HashArrayMappedTrie.<String, Integer>empty().with("a", 1);
+        HashArrayMappedTrie<String, Integer> snapshot = trie;
+        trie = trie.with("b", 2).with("a", 3).without("c");
+
+        assertEquals(Map.of("a", 1), snapshot);
+        assertEquals(Map.of("a", 3, "b", 2), trie);
+        // Unchanged maps are returned as they are
+        assertSame(trie, trie.without("c"));
+        assertSame(trie, trie.with("b", trie.get("b")));
+    }
+
+    @Test
+    public void testHashCollisions() {
+        HashArrayMappedTrie<CollidingKey, Integer> trie = HashArrayMappedTrie.empty();
+        for (int i = 0; i < 10; i++) {
+            trie = trie.with(new CollidingKey(i, i % 2), i);
+        }
+        assertEquals(10, trie.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i, trie.get(new CollidingKey(i, i % 2)));
+        }
+        assertNull(trie.get(new CollidingKey(10, 0)));
+
+        for (int i = 0; i < 9; i++) {
+            trie = trie.without(new CollidingKey(i, i % 2));
+        }
+        assertEquals(Map.of(new CollidingKey(9, 1), 9), trie);
+        trie = trie.without(new CollidingKey(9, 1));
+        assertTrue(trie.isEmpty());
+        assertFalse(trie.entrySet().iterator().hasNext());
+    }
+
+    private static final class CollidingKey {
+        private final int value;
+        private final int hash;
+
+        private CollidingKey(int value, int hash) {
+            this.value = value;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof CollidingKey && ((CollidingKey) o).value == value;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.common.threading;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StripedExecutorTest {
+    @Test
+    public void testOrderPerKey() throws InterruptedException {
+        StripedExecutor executor = new StripedExecutor("test", 4, 10_000, StripedExecutor.RejectionPolicy.ABORT);
+        int numKeys = 8;
+        int numTasks = 1000;
+        List<List<Integer>> results = new ArrayList<>();
+        for (int key = 0; key < numKeys; key++) {
+            results.add(new ArrayList<>());
+        }
+        CountDownLatch latch = new CountDownLatch(numKeys * numTasks);
+        for (int i = 0; i < numTasks; i++) {
+            for (int key = 0; key < numKeys; key++) {
+                int value = i;
+                List<Integer> result = results.get(key);
+                executor.execute("key" + key, () -> {
+                    result.add(value);
+                    latch.countDown();
+                });
+            }
+        }
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        for (List<Integer> result : results) {
+            for (int i = 0; i < numTasks; i++) {
+                assertEquals(i, result.get(i));
+            }
+        }
+        executor.shutdown();
+    }
+
+    @Test
+    public void testRejection() throws InterruptedException {
+        StripedExecutor executor = new StripedExecutor("test", 1, 1, StripedExecutor.RejectionPolicy.ABORT);
+        CountDownLatch blockingLatch = new CountDownLatch(1);
+        CountDownLatch startedLatch = new CountDownLatch(1);
+        executor.execute("key", () -> {
+            startedLatch.countDown();
+            try {
+                blockingLatch.await();
+            } catch (InterruptedException ignore) {
+            }
+        });
+        assertTrue(startedLatch.await(10, TimeUnit.SECONDS));
+        // Fills the queue
+        executor.execute("key", () -> {
+        });
+        assertThrows(RejectedExecutionException.class, () -> executor.execute("key", () -> {
+        }));
+        assertEquals(1, executor.getNumRejected());
+        assertFalse(executor.tryExecute("key", () -> {
+        }));
+        assertEquals(2, executor.getNumRejected());
+
+        // Not affected by the limit
+        executor.executeIgnoringLimit("key", () -> {
+        });
+        assertEquals(2, executor.getQueueSize());
+        blockingLatch.countDown();
+        executor.shutdown();
+    }
+
+    @Test
+    public void testBlockDoesNotExceedLimit() throws InterruptedException {
+        int maxQueueSize = 4;
+        StripedExecutor executor = new StripedExecutor("test", 1, maxQueueSize, StripedExecutor.RejectionPolicy.BLOCK);
+        int numProducers = 8;
+        int numTasks = 200;
+        AtomicInteger numPending = new AtomicInteger();
+        AtomicInteger maxPending = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch(numProducers * numTasks);
+        List<Thread> producers = new ArrayList<>();
+        for (int i = 0; i < numProducers; i++) {
+            Thread producer = new Thread(() -> {
+                for (int j = 0; j < numTasks; j++) {
+                    maxPending.accumulateAndGet(numPending.incrementAndGet(), Math::max);
+                    executor.execute("key", () -> {
+                        numPending.decrementAndGet();
+                        latch.countDown();
+                    });
+                }
+            });
+            producers.add(producer);
+            producer.start();
+        }
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        // Queued tasks plus the running one plus at most one task per producer which is about to be submitted
+        assertTrue(maxPending.get() <= maxQueueSize + 1 + numProducers);
+        assertTrue(executor.getMaxObservedQueueSize() <= maxQueueSize + 1);
+        executor.shutdown();
+    }
+
+    @Test
+    public void testWhenDrained() throws InterruptedException {
+        StripedExecutor executor = new StripedExecutor("test", 1, 10, StripedExecutor.RejectionPolicy.ABORT);
+        CountDownLatch blockingLatch = new CountDownLatch(1);
+        for (int i = 0; i < 5; i++) {
+            executor.execute("key", () -> {
+                try {
+                    blockingLatch.await();
+                } catch (InterruptedException ignore) {
+                }
+            });
+        }
+        CountDownLatch drainedLatch = new CountDownLatch(1);
+        executor.whenDrained("key", 2, drainedLatch::countDown);
+        assertEquals(1, drainedLatch.getCount());
+
+        blockingLatch.countDown();
+        assertTrue(drainedLatch.await(10, TimeUnit.SECONDS));
+
+        // Runs at once if the stripe is drained already
+        CountDownLatch immediateLatch = new CountDownLatch(1);
+        executor.whenDrained("key", 2, immediateLatch::countDown);
+        assertEquals(0, immediateLatch.getCount());
+        executor.shutdown();
+    }
+}
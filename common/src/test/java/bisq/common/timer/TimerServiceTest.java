@@ -0,0 +1,93 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.common.timer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TimerServiceTest {
+    @Test
+    public void testRepeatedRunsGivenCycles() throws InterruptedException {
+        AtomicInteger numRuns = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch(3);
+        Scheduler scheduler = Scheduler.run(() -> {
+            numRuns.incrementAndGet();
+            latch.countDown();
+        }).repeated(10, 3);
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        assertEquals(3, numRuns.get());
+        assertEquals(3, scheduler.getCounter());
+    }
+
+    @Test
+    public void testStopCancelsPendingRun() throws InterruptedException {
+        AtomicInteger numRuns = new AtomicInteger();
+        Scheduler scheduler = Scheduler.run(numRuns::incrementAndGet).after(100);
+        scheduler.stop();
+        Thread.sleep(300);
+        assertEquals(0, numRuns.get());
+    }
+
+    @Test
+    public void testGroupIsResolvedWhenFired() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        // As at the call sites, the name is set after the task got scheduled
+        Scheduler.run(latch::countDown).after(50).name("TimerServiceTest.named");
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertTrue(TimerService.INSTANCE.getSnapshot().stream()
+                .anyMatch(e -> e.getGroup().equals("TimerServiceTest.named")));
+    }
+
+    @Test
+    public void testCountsLateFires() throws InterruptedException {
+        TimerService timerService = new TimerService("test", 1);
+        CountDownLatch blocking = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        timerService.schedule(() -> {
+            try {
+                blocking.await();
+            } catch (InterruptedException ignore) {
+            }
+        }, "blocking", 0, TimeUnit.MILLISECONDS);
+        TimerService.Timeout cancelled = timerService.schedule(() -> {
+        }, "cancelled", 50, TimeUnit.MILLISECONDS);
+        cancelled.cancel();
+        // The only worker is blocked, so this task gets retried until the worker is free again
+        timerService.schedule(done::countDown, "late", 0, TimeUnit.MILLISECONDS);
+        Thread.sleep(2 * TimerService.LATE_FIRE_THRESHOLD_MS);
+        blocking.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+
+        TimerService.GroupSnapshot late = timerService.getSnapshot().stream()
+                .filter(e -> e.getGroup().equals("late"))
+                .findAny()
+                .orElseThrow();
+        assertEquals(1, late.getNumFires());
+        assertEquals(1, late.getNumLateFires());
+        assertTrue(timerService.getNumRetries() > 0);
+        assertFalse(timerService.getSnapshot().stream().anyMatch(e -> e.getGroup().equals("cancelled")));
+    }
+}
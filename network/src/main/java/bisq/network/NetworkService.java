@@ -21,8 +21,10 @@ package bisq.network;
 import bisq.common.application.Service;
 import bisq.common.observable.Observable;
 import bisq.common.threading.ExecutorFactory;
+import bisq.common.threading.StripedExecutor;
 import bisq.common.util.CompletableFutureUtils;
 import bisq.common.util.NetworkUtils;
+import bisq.common.util.OsUtils;
 import bisq.network.http.HttpService;
 import bisq.network.http.common.BaseHttpClient;
 import bisq.network.p2p.ServiceNode;
@@ -31,6 +33,8 @@ import bisq.network.p2p.message.NetworkMessage;
 import bisq.network.p2p.node.Address;
 import bisq.network.p2p.node.Connection;
 import bisq.network.p2p.node.Node;
+import bisq.network.p2p.node.NodeMetrics;
+import bisq.network.p2p.node.nio.NioEngine;
 import bisq.network.p2p.node.transport.Transport;
 import bisq.network.p2p.services.confidential.ConfidentialMessageService;
 import bisq.network.p2p.services.confidential.MessageListener;
@@ -39,6 +43,7 @@ import bisq.network.p2p.services.data.storage.DistributedData;
 import bisq.network.p2p.services.data.storage.StorageService;
 import bisq.network.p2p.services.data.storage.append.AppendOnlyData;
 import bisq.network.p2p.services.data.storage.auth.DefaultAuthenticatedData;
+import bisq.network.p2p.services.data.storage.auth.VerifiedRequestCache;
 import bisq.network.p2p.services.data.storage.auth.authorized.AuthorizedData;
 import bisq.network.p2p.services.data.storage.auth.authorized.AuthorizedDistributedData;
 import bisq.persistence.Persistence;
@@ -77,6 +82,20 @@ import static java.util.concurrent.CompletableFuture.*;
 public class NetworkService implements PersistenceClient<NetworkServiceStore>, Service {
     public static final ExecutorService NETWORK_IO_POOL = ExecutorFactory.newCachedThreadPool("NetworkService.network-IO-pool");
     public static final ExecutorService DISPATCHER = ExecutorFactory.newSingleThreadExecutor("NetworkService.dispatcher");
+    // Dispatches messages and connection events. Keeps the order per connection but handles different connections in
+    // parallel. If a stripe is full, the read thread of a connection gets blocked, so the peer is slowed down by TCP
+    // flow control. The selector threads of the NioEngine must not block, they stop reading from the channel instead
+    // until the stripe has drained (see Connection).
+    public static final StripedExecutor CONNECTION_DISPATCHER = new StripedExecutor("NetworkService.connection-dispatcher",
+            Math.max(2, OsUtils.availableProcessors()),
+            10_000,
+            StripedExecutor.RejectionPolicy.BLOCK);
+    // Verifies signatures of received data. Bounded, so that a large inventory cannot occupy more than the available cores.
+    public static final ExecutorService VERIFICATION_POOL = ExecutorFactory.newFixedThreadPool("NetworkService.verification-pool",
+            Math.max(1, OsUtils.availableProcessors() - 1));
+    // Serves all channel based connections (e.g. clearnet) with a fixed number of selector threads
+    public static final NioEngine NIO_ENGINE = new NioEngine("NetworkService.nio",
+            Math.max(1, Math.min(4, OsUtils.availableProcessors() / 2)));
 
     public static class SendMessageResult extends HashMap<Transport.Type, ConfidentialMessageService.Result> {
         public SendMessageResult() {
@@ -101,7 +120,7 @@ public class NetworkService implements PersistenceClient<NetworkServiceStore>, S
         httpService = new HttpService();
 
         boolean supportsDataService = config.getServiceNodeConfig().getServices().contains(ServiceNode.Service.DATA);
-        dataService = supportsDataService ? Optional.of(new DataService(new StorageService(persistenceService))) : Optional.empty();
+        dataService = supportsDataService ? Optional.of(new DataService(new StorageService(persistenceService), config.getInventoryServiceConfig())) : Optional.empty();
 
         socks5ProxyAddress = config.getSocks5ProxyAddress();
         supportedTransportTypes = config.getSupportedTransportTypes();
@@ -154,7 +173,13 @@ public class NetworkService implements PersistenceClient<NetworkServiceStore>, S
         return CompletableFutureUtils.allOf(dataService.map(DataService::shutdown).orElse(completedFuture(true)),
                         serviceNodesByTransport.shutdown(),
                         httpService.shutdown())
-                .thenApply(list -> list.stream().filter(e -> e).count() == 3);
+                .thenApply(list -> {
+                    // All connections are closed, so the selector loops are not needed anymore. They get created
+                    // again on demand. The static executors are shared by all instances and cannot be recreated, so
+                    // like DISPATCHER and NETWORK_IO_POOL they are not shut down.
+                    NIO_ENGINE.shutdown();
+                    return list.stream().filter(e -> e).count() == 3;
+                });
     }
 
 
@@ -307,6 +332,14 @@ public class NetworkService implements PersistenceClient<NetworkServiceStore>, S
         dataService.orElseThrow().removeListener(listener);
     }
 
+    public void subscribeToDataService(Class<?> payloadClass, Listener subscriber) {
+        dataService.orElseThrow().subscribe(payloadClass, subscriber);
+    }
+
+    public void unsubscribeFromDataService(Listener subscriber) {
+        dataService.orElseThrow().unsubscribe(subscriber);
+    }
+
     public void addMessageListener(MessageListener messageListener) {
         serviceNodesByTransport.addMessageListener(messageListener);
     }
@@ -349,6 +382,32 @@ public class NetworkService implements PersistenceClient<NetworkServiceStore>, S
         return serviceNodesByTransport.getNodeStateByTransportType();
     }
 
+    public Map<Transport.Type, NodeMetrics.Snapshot> getNodeMetricsSnapshotByTransportType() {
+        return supportedTransportTypes.stream()
+                .filter(transportType -> findDefaultNode(transportType).isPresent())
+                .collect(Collectors.toMap(transportType -> transportType,
+                        transportType -> findDefaultNode(transportType).orElseThrow().getNodeMetrics().getSnapshot()));
+    }
+
+    public Map<Transport.Type, List<Connection>> getConnectionsByTransportType() {
+        return supportedTransportTypes.stream()
+                .filter(transportType -> findDefaultNode(transportType).isPresent())
+                .collect(Collectors.toMap(transportType -> transportType,
+                        transportType -> findDefaultNode(transportType).orElseThrow().getAllConnections()
+                                .collect(Collectors.toList())));
+    }
+
+    /**
+     * @return The number of channels served by the NioEngine, of all nodes and transports.
+     */
+    public int getNumNioChannels() {
+        return NIO_ENGINE.getNumChannels();
+    }
+
+    public Optional<VerifiedRequestCache.Snapshot> getVerifiedRequestCacheSnapshot() {
+        return dataService.map(service -> service.getStorageService().getVerifiedRequestCache().getSnapshot());
+    }
+
     public boolean isTransportTypeSupported(Transport.Type transportType) {
         return getSupportedTransportTypes().contains(transportType);
     }
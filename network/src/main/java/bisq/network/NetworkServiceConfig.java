@@ -24,6 +24,7 @@ import bisq.network.p2p.node.transport.ClearNetTransport;
 import bisq.network.p2p.node.transport.I2PTransport;
 import bisq.network.p2p.node.transport.TorTransport;
 import bisq.network.p2p.node.transport.Transport;
+import bisq.network.p2p.services.data.inventory.InventoryService;
 import bisq.network.p2p.services.peergroup.PeerGroup;
 import bisq.network.p2p.services.peergroup.PeerGroupService;
 import bisq.network.p2p.services.peergroup.exchange.PeerExchangeStrategy;
@@ -72,6 +73,10 @@ public final class NetworkServiceConfig {
                 Transport.Type.CLEAR, clearNetConf
         );
 
+        InventoryService.Config inventoryServiceConfig = config.hasPath("inventory") ?
+                InventoryService.Config.from(config.getConfig("inventory")) :
+                InventoryService.Config.DEFAULT;
+
         Map<Transport.Type, Integer> defaultNodePortByTransportType = createDefaultNodePortByTransportType(config);
        /* Map<Transport.Type, Integer> defaultNodePortByTransportType = new HashMap<>();
         if (config.hasPath("defaultNodePortByTransportType")) {
@@ -98,6 +103,7 @@ public final class NetworkServiceConfig {
                 peerGroupServiceConfigByTransport,
                 defaultNodePortByTransportType,
                 seedAddressesByTransport,
+                inventoryServiceConfig,
                 Optional.empty());
     }
 
@@ -170,6 +176,7 @@ public final class NetworkServiceConfig {
     private final Map<Transport.Type, PeerGroupService.Config> peerGroupServiceConfigByTransport;
     private final Map<Transport.Type, Integer> defaultNodePortByTransportType;
     private final Map<Transport.Type, List<Address>> seedAddressesByTransport;
+    private final InventoryService.Config inventoryServiceConfig;
     private final Optional<String> socks5ProxyAddress;
 
     public NetworkServiceConfig(String baseDir,
@@ -179,6 +186,7 @@ public final class NetworkServiceConfig {
                                 Map<Transport.Type, PeerGroupService.Config> peerGroupServiceConfigByTransport,
                                 Map<Transport.Type, Integer> defaultNodePortByTransportType,
                                 Map<Transport.Type, List<Address>> seedAddressesByTransport,
+                                InventoryService.Config inventoryServiceConfig,
                                 Optional<String> socks5ProxyAddress) {
         this.baseDir = baseDir;
         this.supportedTransportTypes = supportedTransportTypes;
@@ -187,6 +195,7 @@ public final class NetworkServiceConfig {
         this.peerGroupServiceConfigByTransport = peerGroupServiceConfigByTransport;
         this.defaultNodePortByTransportType = defaultNodePortByTransportType;
         this.seedAddressesByTransport = seedAddressesByTransport;
+        this.inventoryServiceConfig = inventoryServiceConfig;
         this.socks5ProxyAddress = socks5ProxyAddress;
     }
 }
\ No newline at end of file
@@ -194,7 +194,9 @@ public class ServiceNode {
         nodesById.addNodeListener(new Node.Listener() {
             @Override
             public void onMessage(NetworkMessage networkMessage, Connection connection, String nodeId) {
-                messageListener.onMessage(networkMessage);
+                // Node listeners run on the stripes of the connection dispatcher, so concurrently for different
+                // connections. Application listeners expect to be called from a single thread.
+                runAsync(() -> messageListener.onMessage(networkMessage), NetworkService.DISPATCHER);
             }
 
             @Override
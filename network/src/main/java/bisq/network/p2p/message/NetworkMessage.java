@@ -23,6 +23,8 @@ import bisq.network.p2p.node.CloseConnectionMessage;
 import bisq.network.p2p.node.ConnectionHandshake;
 import bisq.network.p2p.services.confidential.ConfidentialMessage;
 import bisq.network.p2p.services.data.DataRequest;
+import bisq.network.p2p.services.data.broadcast.IHaveMessage;
+import bisq.network.p2p.services.data.broadcast.IWantMessage;
 import bisq.network.p2p.services.data.inventory.InventoryRequest;
 import bisq.network.p2p.services.data.inventory.InventoryResponse;
 import bisq.network.p2p.services.peergroup.exchange.PeerExchangeRequest;
@@ -87,6 +89,12 @@ public interface NetworkMessage extends Proto {
                 // Externally defined messages
                 return ExternalNetworkMessage.fromProto(proto.getExternalNetworkMessage());
             }
+            case IHAVEMESSAGE: {
+                return IHaveMessage.fromProto(proto.getIHaveMessage());
+            }
+            case IWANTMESSAGE: {
+                return IWantMessage.fromProto(proto.getIWantMessage());
+            }
             case MESSAGE_NOT_SET: {
                 throw new UnresolvableProtobufMessageException(proto);
             }
@@ -24,6 +24,8 @@ import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.ToString;
 
+import java.util.EnumSet;
+import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -33,10 +35,20 @@ import java.util.stream.Collectors;
 public final class Capability implements Proto {
     private final Address address;
     private final Set<Transport.Type> supportedTransportTypes;
+    private final Set<Feature> features;
 
     public Capability(Address address, Set<Transport.Type> supportedTransportTypes) {
+        this(address, supportedTransportTypes, EnumSet.noneOf(Feature.class));
+    }
+
+    public Capability(Address address, Set<Transport.Type> supportedTransportTypes, Set<Feature> features) {
         this.address = address;
         this.supportedTransportTypes = supportedTransportTypes;
+        this.features = features;
+    }
+
+    public boolean hasFeature(Feature feature) {
+        return features.contains(feature);
     }
 
     public bisq.network.protobuf.Capability toProto() {
@@ -46,6 +58,10 @@ public final class Capability implements Proto {
                         .sorted(Enum::compareTo)
                         .map(Enum::name)
                         .collect(Collectors.toList()))
+                .addAllFeatures(features.stream()
+                        .sorted(Enum::compareTo)
+                        .map(Enum::name)
+                        .collect(Collectors.toList()))
                 .build();
     }
 
@@ -53,6 +69,11 @@ public final class Capability implements Proto {
         Set<Transport.Type> supportedTransportTypes = proto.getSupportedTransportTypesList().stream()
                 .map(e -> ProtobufUtils.enumFromProto(Transport.Type.class, e))
                 .collect(Collectors.toSet());
-        return new Capability(Address.fromProto(proto.getAddress()), supportedTransportTypes);
+        // Features unknown to us resolve to null and are ignored
+        Set<Feature> features = proto.getFeaturesList().stream()
+                .map(e -> ProtobufUtils.enumFromProto(Feature.class, e))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(() -> EnumSet.noneOf(Feature.class)));
+        return new Capability(Address.fromProto(proto.getAddress()), supportedTransportTypes, features);
     }
 }
@@ -22,18 +22,29 @@ import bisq.network.NetworkService;
 import bisq.network.p2p.message.NetworkEnvelope;
 import bisq.network.p2p.message.NetworkMessage;
 import bisq.network.p2p.node.authorization.AuthorizationToken;
+import bisq.network.p2p.node.compression.EnvelopeCompression;
+import bisq.network.p2p.node.nio.FrameCodec;
+import bisq.network.p2p.node.nio.NioChannel;
+import bisq.network.p2p.node.nio.NioEngine;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
 import javax.annotation.Nullable;
+import java.io.BufferedOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.BiConsumer;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -59,6 +70,10 @@ public abstract class Connection {
         void onConnectionClosed(CloseReason closeReason);
     }
 
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+    // Reading from a paused channel gets resumed once the stripe of the dispatcher is below half of its limit
+    private static final int DISPATCHER_LOW_WATER_MARK_DIVISOR = 2;
+
     @Getter
     protected final String id = StringUtils.createUid();
     @Getter
@@ -70,16 +85,22 @@ public abstract class Connection {
 
     private final Socket socket;
     private final Handler handler;
+    private final BiConsumer<Connection, Exception> errorHandler;
     private final Set<Listener> listeners = new CopyOnWriteArraySet<>();
     private OutputStream outputStream;
     private InputStream inputStream;
     @Nullable
     private Future<?> future;
+    // Set if the socket is channel based and served by the NioEngine instead of a blocking read thread
+    @Nullable
+    private CompletableFuture<NioChannel> nioChannelFuture;
+    // Set while reading from the NioChannel is paused as our stripe of the dispatcher is full
+    private final AtomicBoolean readingPaused = new AtomicBoolean();
 
     @Getter
     private volatile boolean isStopped;
     private volatile boolean listeningStopped;
-    private final Object writeLock = new Object();
+    private final SendQueue sendQueue;
 
     protected Connection(Socket socket,
                          Capability peersCapability,
@@ -92,9 +113,20 @@ public abstract class Connection {
         this.peersLoad = peersLoad;
         this.handler = handler;
         this.metrics = metrics;
+        this.errorHandler = errorHandler;
+        sendQueue = new SendQueue(this::writeBatch, metrics);
+
+        if (NioEngine.isSupported(socket)) {
+            startNioListening();
+        } else {
+            startBlockingListening();
+        }
+    }
 
+    private void startBlockingListening() {
         try {
-            outputStream = socket.getOutputStream();
+            // Buffered so that a batch of messages gets written with one flush
+            outputStream = new BufferedOutputStream(socket.getOutputStream(), OUTPUT_BUFFER_SIZE);
             inputStream = socket.getInputStream();
         } catch (IOException exception) {
             log.error("Could not create objectOutputStream/objectInputStream for socket " + socket, exception);
@@ -111,75 +143,221 @@ public abstract class Connection {
                     // parsing might need some time wo we check again if connection is still active
                     if (isInputStreamActive()) {
                         checkNotNull(proto, "Proto from NetworkEnvelope.parseDelimitedFrom(inputStream) must not be null");
-                        NetworkEnvelope networkEnvelope = NetworkEnvelope.fromProto(proto);
-                        if (networkEnvelope.getVersion() != NetworkEnvelope.VERSION) {
-                            throw new ConnectionException("Invalid network version. " +
-                                    networkEnvelope.getClass().getSimpleName());
-                        }
-                        NetworkMessage networkMessage = networkEnvelope.getNetworkMessage();
-                        log.debug("Received message: {} at: {}",
-                                StringUtils.truncate(networkMessage.toString(), 200), this);
-                        metrics.onReceived(networkEnvelope);
-                        NetworkService.DISPATCHER.submit(() -> handler.handleNetworkMessage(networkMessage,
-                                networkEnvelope.getAuthorizationToken(),
-                                this));
+                        // The size is memoized by protobuf after parsing, so that does not serialize again
+                        onNetworkEnvelope(proto, FrameCodec.getFrameSize(proto.getSerializedSize()), true);
                     }
                 }
             } catch (Exception exception) {
-                //todo StreamCorruptedException from i2p at shutdown. prob it send some text data at shut down
-                if (isInputStreamActive()) {
-                    log.debug("Call shutdown from startListen read handler {} due exception={}", this, exception.toString());
-                    close(CloseReason.EXCEPTION.exception(exception));
-                    // EOFException expected if connection got closed
-                    if (!(exception instanceof EOFException)) {
-                        errorHandler.accept(this, exception);
+                handleReadException(exception);
+            }
+        });
+    }
+
+    private void startNioListening() {
+        // The selector thread does the framing and parsing, so we do not occupy a thread per connection.
+        nioChannelFuture = NetworkService.NIO_ENGINE.register(socket.getChannel(), new NioChannel.Handler() {
+                    @Override
+                    public void onFrame(byte[] frame) {
+                        if (!isInputStreamActive()) {
+                            return;
+                        }
+                        try {
+                            onNetworkEnvelope(bisq.network.protobuf.NetworkEnvelope.parseFrom(frame),
+                                    FrameCodec.getFrameSize(frame.length),
+                                    false);
+                        } catch (Exception exception) {
+                            handleReadException(exception);
+                        }
                     }
-                }
+
+                    @Override
+                    public void onClosed(Exception exception) {
+                        handleReadException(exception);
+                    }
+                });
+        nioChannelFuture.whenComplete((nioChannel, throwable) -> {
+            if (throwable != null) {
+                log.error("Could not register channel for socket " + socket, throwable);
+                Exception exception = throwable instanceof Exception ? (Exception) throwable : new Exception(throwable);
+                errorHandler.accept(this, exception);
+                close(CloseReason.EXCEPTION.exception(exception));
+            } else if (isStopped) {
+                nioChannel.close();
             }
         });
     }
 
+    /**
+     * @param mayBlock True if called from the read thread of this connection, which we block if the dispatcher is
+     *                 busy. The selector threads serve many connections, so they must not block.
+     */
+    private void onNetworkEnvelope(bisq.network.protobuf.NetworkEnvelope proto,
+                                   int numBytes,
+                                   boolean mayBlock) throws IOException {
+        long decompressionNanos = -1;
+        if (EnvelopeCompression.isCompressed(proto)) {
+            long ts = System.nanoTime();
+            proto = EnvelopeCompression.decompress(proto);
+            decompressionNanos = System.nanoTime() - ts;
+        }
+        NetworkEnvelope networkEnvelope = NetworkEnvelope.fromProto(proto);
+        if (networkEnvelope.getVersion() != NetworkEnvelope.VERSION) {
+            throw new ConnectionException("Invalid network version. " +
+                    networkEnvelope.getClass().getSimpleName());
+        }
+        NetworkMessage networkMessage = networkEnvelope.getNetworkMessage();
+        log.debug("Received message: {} at: {}",
+                StringUtils.truncate(networkMessage.toString(), 200), this);
+        metrics.onReceived(networkEnvelope, numBytes);
+        if (decompressionNanos >= 0) {
+            metrics.onDecompressed(networkEnvelope, decompressionNanos);
+        }
+        Runnable task = () -> handler.handleNetworkMessage(networkMessage, networkEnvelope.getAuthorizationToken(), this);
+        if (mayBlock) {
+            NetworkService.CONNECTION_DISPATCHER.execute(id, task);
+        } else if (!NetworkService.CONNECTION_DISPATCHER.tryExecute(id, task)) {
+            // We keep the message, but stop reading from the channel until the stripe has drained, so the peer gets
+            // slowed down by TCP flow control. Messages decoded from the last read still pass the limit.
+            metrics.onDispatchRejected();
+            NetworkService.CONNECTION_DISPATCHER.executeIgnoringLimit(id, task);
+            pauseReading();
+        }
+    }
+
+    private void pauseReading() {
+        if (nioChannelFuture == null || !readingPaused.compareAndSet(false, true)) {
+            return;
+        }
+        log.info("Dispatcher is busy. We pause reading from {}", this);
+        nioChannelFuture.thenAccept(nioChannel -> nioChannel.setReadInterest(false));
+        NetworkService.CONNECTION_DISPATCHER.whenDrained(id,
+                NetworkService.CONNECTION_DISPATCHER.getMaxQueueSize() / DISPATCHER_LOW_WATER_MARK_DIVISOR,
+                this::resumeReading);
+    }
+
+    private void resumeReading() {
+        readingPaused.set(false);
+        if (!isStopped) {
+            log.info("Dispatcher has capacity again. We resume reading from {}", this);
+            nioChannelFuture.thenAccept(nioChannel -> nioChannel.setReadInterest(true));
+        }
+    }
+
+    private void handleReadException(Exception exception) {
+        //todo StreamCorruptedException from i2p at shutdown. prob it send some text data at shut down
+        if (isInputStreamActive()) {
+            log.debug("Call shutdown from startListen read handler {} due exception={}", this, exception.toString());
+            close(CloseReason.EXCEPTION.exception(exception));
+            // EOFException expected if connection got closed
+            if (!(exception instanceof EOFException)) {
+                errorHandler.accept(this, exception);
+            }
+        }
+    }
+
     Connection send(NetworkMessage networkMessage, AuthorizationToken authorizationToken) {
+        try {
+            return sendAsync(networkMessage, authorizationToken).join();
+        } catch (CompletionException exception) {
+            if (exception instanceof ConnectionException || exception instanceof ConnectionClosedException) {
+                throw exception;
+            }
+            throw new ConnectionException(exception.getCause() != null ? exception.getCause() : exception);
+        }
+    }
+
+    /**
+     * Enqueues the message to the send queue of that connection. The returned future completes once the message
+     * has been written to the socket. It completes exceptionally with a ConnectionException if the message could not be
+     * sent or if the send queue is full.
+     */
+    CompletableFuture<Connection> sendAsync(NetworkMessage networkMessage, AuthorizationToken authorizationToken) {
         if (isStopped) {
             log.warn("Message not sent as connection has been shut down already. Message={}, Connection={}",
                     StringUtils.truncate(networkMessage.toString(), 200), this);
-            throw new ConnectionClosedException(this);
+            return CompletableFuture.failedFuture(new ConnectionClosedException(this));
         }
+        NetworkEnvelope networkEnvelope = new NetworkEnvelope(NetworkEnvelope.VERSION, authorizationToken, networkMessage);
+        return sendQueue.enqueue(networkEnvelope)
+                .handle((nil, throwable) -> {
+                    if (throwable == null) {
+                        if (networkMessage instanceof CloseConnectionMessage) {
+                            log.info("Sent {} from {}",
+                                    StringUtils.truncate(networkMessage.toString(), 300), this);
+                        } else {
+                            log.debug("Sent {} from {}",
+                                    StringUtils.truncate(networkMessage.toString(), 300), this);
+                        }
+                        return this;
+                    }
+
+                    Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ?
+                            throwable.getCause() :
+                            throwable;
+                    if (cause instanceof ConnectionException || cause instanceof ConnectionClosedException) {
+                        // Rejected by the send queue (full or closed). We do not close the connection in that case.
+                        throw (CompletionException) cause;
+                    }
+                    if (isStopped) {
+                        // Expected if the socket got closed while the message was in the queue
+                        return this;
+                    }
+                    log.error("Call shutdown from send {} due exception={}", this, cause.toString());
+                    close(CloseReason.EXCEPTION.exception(cause));
+                    // We wrap any exception (also expected EOFException in case of connection close), to inform the caller
+                    // that the "send proto" intent failed.
+                    throw new ConnectionException(cause);
+                });
+    }
+
+    public int getSendQueueSize() {
+        return sendQueue.size();
+    }
+
+    // Called from the SendQueue on a NETWORK_IO_POOL thread. Only one batch is written at a time.
+    private CompletableFuture<Void> writeBatch(List<NetworkEnvelope> batch) {
+        boolean useCompression = peersCapability.hasFeature(Feature.COMPRESSION_DEFLATE_V1);
+        List<bisq.network.protobuf.NetworkEnvelope> protos = new ArrayList<>(batch.size());
+        batch.forEach(networkEnvelope -> {
+            bisq.network.protobuf.NetworkEnvelope proto = checkNotNull(networkEnvelope.toProto(),
+                    "networkEnvelope.toProto() must not be null");
+            protos.add(useCompression ? compress(networkEnvelope, proto) : proto);
+        });
         try {
-            NetworkEnvelope networkEnvelope = new NetworkEnvelope(NetworkEnvelope.VERSION, authorizationToken, networkMessage);
-            boolean sent = false;
-            synchronized (writeLock) {
-                try {
-                    bisq.network.protobuf.NetworkEnvelope proto = checkNotNull(networkEnvelope.toProto(),
-                            "networkEnvelope.toProto() must not be null");
+            if (nioChannelFuture != null) {
+                ByteBuffer buffer = FrameCodec.encode(protos);
+                return nioChannelFuture.thenCompose(nioChannel -> nioChannel.write(buffer))
+                        .thenRun(() -> onBatchWritten(batch, protos));
+            } else {
+                for (bisq.network.protobuf.NetworkEnvelope proto : protos) {
                     proto.writeDelimitedTo(outputStream);
-                    outputStream.flush();
-                    sent = true;
-                } catch (Throwable throwable) {
-                    if (!isStopped) {
-                        throw throwable;
-                    }
                 }
+                outputStream.flush();
+                onBatchWritten(batch, protos);
+                return CompletableFuture.completedFuture(null);
             }
-            if (sent) {
-                metrics.onSent(networkEnvelope);
-                if (networkMessage instanceof CloseConnectionMessage) {
-                    log.info("Sent {} from {}",
-                            StringUtils.truncate(networkMessage.toString(), 300), this);
-                } else {
-                    log.debug("Sent {} from {}",
-                            StringUtils.truncate(networkMessage.toString(), 300), this);
-                }
-            }
-            return this;
         } catch (IOException exception) {
-            if (!isStopped) {
-                log.error("Call shutdown from send {} due exception={}", this, exception.toString());
-                close(CloseReason.EXCEPTION.exception(exception));
-            }
-            // We wrap any exception (also expected EOFException in case of connection close), to inform the caller 
-            // that the "send proto" intent failed.
-            throw new ConnectionException(exception);
+            return CompletableFuture.failedFuture(exception);
+        }
+    }
+
+    private bisq.network.protobuf.NetworkEnvelope compress(NetworkEnvelope networkEnvelope,
+                                                           bisq.network.protobuf.NetworkEnvelope proto) {
+        int size = proto.getNetworkMessage().getSerializedSize();
+        if (size < EnvelopeCompression.MIN_SIZE) {
+            return proto;
+        }
+        long ts = System.nanoTime();
+        bisq.network.protobuf.NetworkEnvelope compressed = EnvelopeCompression.compress(proto);
+        int compressedSize = compressed == proto ? size : compressed.getCompressedNetworkMessage().size();
+        metrics.onCompressed(networkEnvelope, size, compressedSize, System.nanoTime() - ts);
+        return compressed;
+    }
+
+    // The serialized sizes have been memoized by protobuf at encoding, so we get the byte counts for free.
+    private void onBatchWritten(List<NetworkEnvelope> batch, List<bisq.network.protobuf.NetworkEnvelope> protos) {
+        for (int i = 0; i < batch.size(); i++) {
+            metrics.onSent(batch.get(i), FrameCodec.getFrameSize(protos.get(i).getSerializedSize()));
         }
     }
 
@@ -197,11 +375,15 @@ public abstract class Connection {
         if (future != null) {
             future.cancel(true);
         }
+        if (nioChannelFuture != null) {
+            nioChannelFuture.thenAccept(NioChannel::close);
+        }
+        sendQueue.close(new ConnectionClosedException(this));
         try {
             socket.close();
         } catch (IOException ignore) {
         }
-        NetworkService.DISPATCHER.submit(() -> {
+        NetworkService.CONNECTION_DISPATCHER.executeIgnoringLimit(id, () -> {
             handler.handleConnectionClosed(this, closeReason);
             listeners.forEach(listener -> listener.onConnectionClosed(closeReason));
             listeners.clear();
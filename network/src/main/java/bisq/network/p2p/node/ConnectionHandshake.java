@@ -22,6 +22,7 @@ import bisq.network.p2p.message.NetworkEnvelope;
 import bisq.network.p2p.message.NetworkMessage;
 import bisq.network.p2p.node.authorization.AuthorizationService;
 import bisq.network.p2p.node.authorization.AuthorizationToken;
+import bisq.network.p2p.node.nio.FrameCodec;
 import bisq.network.p2p.services.peergroup.BanList;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
@@ -47,6 +48,7 @@ public final class ConnectionHandshake {
     private final BanList banList;
     private final Capability capability;
     private final AuthorizationService authorizationService;
+    private final NodeMetrics nodeMetrics;
 
     @Getter
     @ToString
@@ -117,8 +119,14 @@ public final class ConnectionHandshake {
         }
     }
 
-    ConnectionHandshake(Socket socket, BanList banList, int socketTimeout, Capability capability, AuthorizationService authorizationService) {
+    ConnectionHandshake(Socket socket,
+                        BanList banList,
+                        int socketTimeout,
+                        Capability capability,
+                        AuthorizationService authorizationService,
+                        NodeMetrics nodeMetrics) {
         this.socket = socket;
+        this.nodeMetrics = nodeMetrics;
         this.banList = banList;
         this.capability = capability;
         this.authorizationService = authorizationService;
@@ -135,7 +143,7 @@ public final class ConnectionHandshake {
     // Client side protocol
     Result start(Load myLoad) {
         try {
-            Metrics metrics = new Metrics();
+            Metrics metrics = new Metrics(nodeMetrics);
             OutputStream outputStream = socket.getOutputStream();
             AuthorizationToken token = authorizationService.createToken(Request.class);
             NetworkEnvelope requestNetworkEnvelope = new NetworkEnvelope(NetworkEnvelope.VERSION, token, new Request(capability, myLoad));
@@ -143,7 +151,7 @@ public final class ConnectionHandshake {
             bisq.network.protobuf.NetworkEnvelope requestProto = requestNetworkEnvelope.toProto();
             requestProto.writeDelimitedTo(outputStream);
             outputStream.flush();
-            metrics.onSent(requestNetworkEnvelope);
+            metrics.onSent(requestNetworkEnvelope, FrameCodec.getFrameSize(requestProto.getSerializedSize()));
 
             InputStream inputStream = socket.getInputStream();
             bisq.network.protobuf.NetworkEnvelope responseProto = bisq.network.protobuf.NetworkEnvelope.parseDelimitedFrom(inputStream);
@@ -167,7 +175,7 @@ public final class ConnectionHandshake {
             if (!authorizationService.isAuthorized(responseNetworkEnvelope.getAuthorizationToken())) {
                 throw new ConnectionException("Response authorization failed. response=" + response);
             }
-            metrics.onReceived(responseNetworkEnvelope);
+            metrics.onReceived(responseNetworkEnvelope, FrameCodec.getFrameSize(responseProto.getSerializedSize()));
             metrics.addRtt(System.currentTimeMillis() - ts);
             log.debug("Servers capability {}, load={}", response.getCapability(), response.getLoad());
             return new Result(response.getCapability(), response.getLoad(), metrics);
@@ -187,7 +195,7 @@ public final class ConnectionHandshake {
     // Server side protocol
     Result onSocket(Load myLoad) {
         try {
-            Metrics metrics = new Metrics();
+            Metrics metrics = new Metrics(nodeMetrics);
             InputStream inputStream = socket.getInputStream();
             bisq.network.protobuf.NetworkEnvelope requestProto = bisq.network.protobuf.NetworkEnvelope.parseDelimitedFrom(inputStream);
             if (requestProto == null) {
@@ -212,7 +220,7 @@ public final class ConnectionHandshake {
                 throw new ConnectionException("Request authorization failed. request=" + request);
             }
             log.debug("Clients capability {}, load={}", request.getCapability(), request.getLoad());
-            metrics.onReceived(requestNetworkEnvelope);
+            metrics.onReceived(requestNetworkEnvelope, FrameCodec.getFrameSize(requestProto.getSerializedSize()));
 
             OutputStream outputStream = socket.getOutputStream();
             AuthorizationToken token = authorizationService.createToken(Response.class);
@@ -221,7 +229,7 @@ public final class ConnectionHandshake {
             responseProto.writeDelimitedTo(outputStream);
             outputStream.flush();
 
-            metrics.onSent(responseNetworkEnvelope);
+            metrics.onSent(responseNetworkEnvelope, FrameCodec.getFrameSize(responseProto.getSerializedSize()));
             metrics.addRtt(System.currentTimeMillis() - ts);
             return new Result(request.getCapability(), request.getLoad(), metrics);
         } catch (Exception e) {
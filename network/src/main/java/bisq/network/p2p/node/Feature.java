@@ -0,0 +1,34 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.node;
+
+/**
+ * Optional protocol features announced in the Capability at the connection handshake. Peers only use a feature if
+ * the other peer has announced it. Unknown features from newer peers are ignored.
+ * As the names are used on the wire they must not be changed.
+ */
+public enum Feature {
+    // Deflate with the preset dictionary of EnvelopeCompression version 1
+    COMPRESSION_DEFLATE_V1,
+    // Inventory requests with an InventorySketch instead of all FilterEntries
+    INVENTORY_SKETCH_V1,
+    // Inventory delivered in size limited chunks with InventoryContinuationTokens
+    INVENTORY_CHUNKS_V1,
+    // Large broadcast messages announced with IHaveMessages and pulled with IWantMessages
+    LAZY_PUSH_V1
+}
@@ -0,0 +1,147 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.node;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed size histogram with log-linear buckets (similar to HdrHistogram). Values below 8 are exact, larger values
+ * fall into one of 8 sub-buckets per power of 2, so the relative error is at most 12.5%. Values larger than 2^36 are
+ * counted in the last bucket. Memory usage does not depend on the number of recorded values.
+ * Thread safe and lock free.
+ */
+public final class Histogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_MAGNITUDE = 36;
+    static final int NUM_BUCKETS = SUB_BUCKET_COUNT + (MAX_MAGNITUDE - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    @Getter
+    @ToString
+    @EqualsAndHashCode
+    public static final class Snapshot {
+        private final long count;
+        private final long sum;
+        private final long max;
+        private final double mean;
+        private final long p50;
+        private final long p90;
+        private final long p99;
+
+        private Snapshot(long count, long sum, long max, long p50, long p90, long p99) {
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+            this.mean = count == 0 ? 0 : sum / (double) count;
+            this.p50 = p50;
+            this.p90 = p90;
+            this.p99 = p99;
+        }
+    }
+
+    private final AtomicLongArray counts = new AtomicLongArray(NUM_BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long value) {
+        long clamped = Math.max(0, value);
+        counts.incrementAndGet(getBucketIndex(clamped));
+        count.incrementAndGet();
+        sum.addAndGet(clamped);
+        max.accumulateAndGet(clamped, Math::max);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long numValues = count.get();
+        return numValues == 0 ? 0 : sum.get() / (double) numValues;
+    }
+
+    /**
+     * @param percentile Value between 0 and 100
+     * @return The upper bound of the bucket containing the value at the given percentile, capped at the max value.
+     */
+    public long getValueAtPercentile(double percentile) {
+        return getValueAtPercentile(percentile, count.get(), max.get());
+    }
+
+    public Snapshot getSnapshot() {
+        long numValues = count.get();
+        long maxValue = max.get();
+        return new Snapshot(numValues,
+                sum.get(),
+                maxValue,
+                getValueAtPercentile(50, numValues, maxValue),
+                getValueAtPercentile(90, numValues, maxValue),
+                getValueAtPercentile(99, numValues, maxValue));
+    }
+
+    private long getValueAtPercentile(double percentile, long numValues, long maxValue) {
+        if (numValues == 0) {
+            return 0;
+        }
+        long threshold = Math.max(1, (long) Math.ceil(numValues * Math.min(100, Math.max(0, percentile)) / 100));
+        long accumulated = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            accumulated += counts.get(i);
+            if (accumulated >= threshold) {
+                return Math.min(getBucketUpperBound(i), maxValue);
+            }
+        }
+        return maxValue;
+    }
+
+    static int getBucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        if (magnitude >= MAX_MAGNITUDE) {
+            return NUM_BUCKETS - 1;
+        }
+        int shift = magnitude - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) & (SUB_BUCKET_COUNT - 1);
+        return SUB_BUCKET_COUNT + shift * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    static long getBucketUpperBound(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        if (index == NUM_BUCKETS - 1) {
+            return Long.MAX_VALUE;
+        }
+        int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT;
+        int subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+        long lowerBound = (long) (SUB_BUCKET_COUNT + subBucket) << shift;
+        return lowerBound + (1L << shift) - 1;
+    }
+}
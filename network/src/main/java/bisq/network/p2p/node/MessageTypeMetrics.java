@@ -0,0 +1,142 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.node;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters and size histograms for one NetworkMessage type.
+ */
+public final class MessageTypeMetrics {
+    @Getter
+    @ToString
+    @EqualsAndHashCode
+    public static final class Snapshot {
+        private final String messageType;
+        private final long numMessagesSent;
+        private final long numMessagesReceived;
+        private final long sentBytes;
+        private final long receivedBytes;
+        private final Histogram.Snapshot sentSizes;
+        private final Histogram.Snapshot receivedSizes;
+        private final long numCompressed;
+        private final long compressionInputBytes;
+        private final long compressionOutputBytes;
+        private final long compressionNanos;
+        private final long numDecompressed;
+        private final long decompressionNanos;
+
+        private Snapshot(String messageType,
+                         long numMessagesSent,
+                         long numMessagesReceived,
+                         long sentBytes,
+                         long receivedBytes,
+                         Histogram.Snapshot sentSizes,
+                         Histogram.Snapshot receivedSizes,
+                         long numCompressed,
+                         long compressionInputBytes,
+                         long compressionOutputBytes,
+                         long compressionNanos,
+                         long numDecompressed,
+                         long decompressionNanos) {
+            this.messageType = messageType;
+            this.numMessagesSent = numMessagesSent;
+            this.numMessagesReceived = numMessagesReceived;
+            this.sentBytes = sentBytes;
+            this.receivedBytes = receivedBytes;
+            this.sentSizes = sentSizes;
+            this.receivedSizes = receivedSizes;
+            this.numCompressed = numCompressed;
+            this.compressionInputBytes = compressionInputBytes;
+            this.compressionOutputBytes = compressionOutputBytes;
+            this.compressionNanos = compressionNanos;
+            this.numDecompressed = numDecompressed;
+            this.decompressionNanos = decompressionNanos;
+        }
+
+        /**
+         * @return Compressed size relative to the uncompressed size of all messages we tried to compress.
+         */
+        public double getCompressionRatio() {
+            return compressionInputBytes == 0 ? 1 : compressionOutputBytes / (double) compressionInputBytes;
+        }
+    }
+
+    @Getter
+    private final String messageType;
+    private final AtomicLong numMessagesSent = new AtomicLong();
+    private final AtomicLong numMessagesReceived = new AtomicLong();
+    private final AtomicLong sentBytes = new AtomicLong();
+    private final AtomicLong receivedBytes = new AtomicLong();
+    private final Histogram sentSizes = new Histogram();
+    private final Histogram receivedSizes = new Histogram();
+    private final AtomicLong numCompressed = new AtomicLong();
+    private final AtomicLong compressionInputBytes = new AtomicLong();
+    private final AtomicLong compressionOutputBytes = new AtomicLong();
+    private final AtomicLong compressionNanos = new AtomicLong();
+    private final AtomicLong numDecompressed = new AtomicLong();
+    private final AtomicLong decompressionNanos = new AtomicLong();
+
+    MessageTypeMetrics(String messageType) {
+        this.messageType = messageType;
+    }
+
+    void onSent(int numBytes) {
+        numMessagesSent.incrementAndGet();
+        sentBytes.addAndGet(numBytes);
+        sentSizes.record(numBytes);
+    }
+
+    void onReceived(int numBytes) {
+        numMessagesReceived.incrementAndGet();
+        receivedBytes.addAndGet(numBytes);
+        receivedSizes.record(numBytes);
+    }
+
+    void onCompressed(int uncompressedSize, int compressedSize, long nanos) {
+        numCompressed.incrementAndGet();
+        compressionInputBytes.addAndGet(uncompressedSize);
+        compressionOutputBytes.addAndGet(compressedSize);
+        compressionNanos.addAndGet(nanos);
+    }
+
+    void onDecompressed(long nanos) {
+        numDecompressed.incrementAndGet();
+        decompressionNanos.addAndGet(nanos);
+    }
+
+    public Snapshot getSnapshot() {
+        return new Snapshot(messageType,
+                numMessagesSent.get(),
+                numMessagesReceived.get(),
+                sentBytes.get(),
+                receivedBytes.get(),
+                sentSizes.getSnapshot(),
+                receivedSizes.getSnapshot(),
+                numCompressed.get(),
+                compressionInputBytes.get(),
+                compressionOutputBytes.get(),
+                compressionNanos.get(),
+                numDecompressed.get(),
+                decompressionNanos.get());
+    }
+}
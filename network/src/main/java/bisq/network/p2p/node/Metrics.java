@@ -18,14 +18,17 @@
 package bisq.network.p2p.node;
 
 import bisq.network.p2p.message.NetworkEnvelope;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.ToString;
 
 import java.util.Date;
-import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Metrics of a single connection. Byte counts are the sizes of the length delimited frames as written to or read from
+ * the socket, so we never serialize a message only for counting. All updates are forwarded to the NodeMetrics.
+ */
 @Getter
 @ToString
 public class Metrics {
@@ -35,9 +38,20 @@ public class Metrics {
     private final AtomicLong receivedBytes = new AtomicLong();
     private final AtomicLong numMessagesSent = new AtomicLong();
     private final AtomicLong numMessagesReceived = new AtomicLong();
-    private final List<Long> rrtList = new CopyOnWriteArrayList<>();
+    private final Histogram rttHistogram = new Histogram();
+    private final AtomicLong numFlushes = new AtomicLong();
+    private final AtomicLong numFlushedMessages = new AtomicLong();
+    private final AtomicLong maxFlushSize = new AtomicLong();
+    private final AtomicLong maxSendQueueSize = new AtomicLong();
+    private final AtomicLong numSendQueueRejections = new AtomicLong();
+    // Received messages which got dropped as the dispatcher was busy
+    private final AtomicLong numDispatchRejections = new AtomicLong();
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    private final NodeMetrics nodeMetrics;
 
-    public Metrics() {
+    public Metrics(NodeMetrics nodeMetrics) {
+        this.nodeMetrics = nodeMetrics;
         created = new Date().getTime();
     }
 
@@ -49,23 +63,61 @@ public class Metrics {
         return System.currentTimeMillis() - created;
     }
 
-    public void onSent(NetworkEnvelope networkEnvelope) {
+    public void onSent(NetworkEnvelope networkEnvelope, int numBytes) {
         lastUpdate.set(System.currentTimeMillis());
-        sentBytes.addAndGet(networkEnvelope.toProto().getSerializedSize());
+        sentBytes.addAndGet(numBytes);
         numMessagesSent.incrementAndGet();
+        nodeMetrics.onSent(networkEnvelope.getNetworkMessage(), numBytes);
     }
 
-    public void onReceived(NetworkEnvelope networkEnvelope) {
+    public void onReceived(NetworkEnvelope networkEnvelope, int numBytes) {
         lastUpdate.set(System.currentTimeMillis());
-        receivedBytes.addAndGet(networkEnvelope.toProto().getSerializedSize());
+        receivedBytes.addAndGet(numBytes);
         numMessagesReceived.incrementAndGet();
+        nodeMetrics.onReceived(networkEnvelope.getNetworkMessage(), numBytes);
+    }
+
+    /**
+     * @param uncompressedSize Serialized size of the NetworkMessage
+     * @param compressedSize   Size after compression. Same as uncompressedSize if compression did not reduce the size.
+     */
+    public void onCompressed(NetworkEnvelope networkEnvelope, int uncompressedSize, int compressedSize, long nanos) {
+        nodeMetrics.onCompressed(networkEnvelope.getNetworkMessage(), uncompressedSize, compressedSize, nanos);
+    }
+
+    public void onDecompressed(NetworkEnvelope networkEnvelope, long nanos) {
+        nodeMetrics.onDecompressed(networkEnvelope.getNetworkMessage(), nanos);
+    }
+
+    public void onFlush(int numMessages) {
+        numFlushes.incrementAndGet();
+        numFlushedMessages.addAndGet(numMessages);
+        maxFlushSize.accumulateAndGet(numMessages, Math::max);
+    }
+
+    public void onSendQueueSize(int size) {
+        maxSendQueueSize.accumulateAndGet(size, Math::max);
+    }
+
+    public void onSendQueueRejected() {
+        numSendQueueRejections.incrementAndGet();
+    }
+
+    public void onDispatchRejected() {
+        numDispatchRejections.incrementAndGet();
+    }
+
+    public double getAverageFlushSize() {
+        long flushes = numFlushes.get();
+        return flushes == 0 ? 0 : numFlushedMessages.get() / (double) flushes;
     }
 
     public void addRtt(long value) {
-        this.rrtList.add(value);
+        rttHistogram.record(value);
+        nodeMetrics.addRtt(value);
     }
 
     public double getAverageRtt() {
-        return rrtList.stream().mapToLong(e -> e).average().orElse(0d);
+        return rttHistogram.getMean();
     }
 }
\ No newline at end of file
@@ -19,6 +19,7 @@ package bisq.network.p2p.node;
 
 
 import bisq.common.observable.Observable;
+import bisq.common.threading.ExecutorFactory;
 import bisq.common.util.CompletableFutureUtils;
 import bisq.common.util.NetworkUtils;
 import bisq.common.util.StringUtils;
@@ -45,16 +46,20 @@ import java.net.SocketException;
 import java.net.SocketTimeoutException;
 import java.net.UnknownHostException;
 import java.time.Duration;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Stream;
 
-import static bisq.network.NetworkService.DISPATCHER;
+import static bisq.network.NetworkService.CONNECTION_DISPATCHER;
 import static bisq.network.p2p.node.Node.State.*;
 import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.concurrent.CompletableFuture.runAsync;
@@ -75,6 +80,15 @@ import static java.util.concurrent.TimeUnit.SECONDS;
 public class Node implements Connection.Handler {
     public static final String DEFAULT = "default";
 
+    // Bounds the number of parallel socket creations and handshakes per transport. Shared by all nodes of a transport.
+    private static final Map<Transport.Type, ExecutorService> CONNECT_EXECUTOR_BY_TRANSPORT = new EnumMap<>(Transport.Type.class);
+
+    static {
+        CONNECT_EXECUTOR_BY_TRANSPORT.put(Transport.Type.CLEAR, ExecutorFactory.newFixedThreadPool("Node.connect-CLEAR", 16));
+        CONNECT_EXECUTOR_BY_TRANSPORT.put(Transport.Type.TOR, ExecutorFactory.newFixedThreadPool("Node.connect-TOR", 8));
+        CONNECT_EXECUTOR_BY_TRANSPORT.put(Transport.Type.I2P, ExecutorFactory.newFixedThreadPool("Node.connect-I2P", 8));
+    }
+
     public enum State {
         NEW,
         STARTING,
@@ -133,7 +147,11 @@ public class Node implements Connection.Handler {
     private final Transport.Type transportType;
     private final Set<Listener> listeners = new CopyOnWriteArraySet<>();
     private final Map<String, ConnectionHandshake> connectionHandshakes = new ConcurrentHashMap<>();
+    // Outbound connections in creation. Concurrent requests for the same address share the pending future.
+    private final Map<Address, CompletableFuture<Connection>> pendingOutboundConnectionsByAddress = new ConcurrentHashMap<>();
     private final RetryPolicy<Boolean> retryPolicy;
+    @Getter
+    private final NodeMetrics nodeMetrics = new NodeMetrics();
     private Optional<Server> server = Optional.empty();
     private Optional<Capability> myCapability = Optional.empty();
     @Getter
@@ -203,7 +221,12 @@ public class Node implements Connection.Handler {
 
     private void createServerAndListen(int port) {
         Transport.ServerSocketResult serverSocketResult = transport.getServerSocket(port, nodeId);
-        myCapability = Optional.of(new Capability(serverSocketResult.getAddress(), config.getSupportedTransportTypes()));
+        myCapability = Optional.of(new Capability(serverSocketResult.getAddress(),
+                config.getSupportedTransportTypes(),
+                EnumSet.of(Feature.COMPRESSION_DEFLATE_V1,
+                        Feature.INVENTORY_SKETCH_V1,
+                        Feature.INVENTORY_CHUNKS_V1,
+                        Feature.LAZY_PUSH_V1)));
         server = Optional.of(new Server(serverSocketResult, 
                 socket -> onClientSocket(socket, serverSocketResult, myCapability.get()), 
                 exception -> {
@@ -214,7 +237,7 @@ public class Node implements Connection.Handler {
     }
 
     private void onClientSocket(Socket socket, Transport.ServerSocketResult serverSocketResult, Capability myCapability) {
-        ConnectionHandshake connectionHandshake = new ConnectionHandshake(socket, banList, config.getSocketTimeout(), myCapability, authorizationService);
+        ConnectionHandshake connectionHandshake = new ConnectionHandshake(socket, banList, config.getSocketTimeout(), myCapability, authorizationService, nodeMetrics);
         connectionHandshakes.put(connectionHandshake.getId(), connectionHandshake);
         log.debug("Inbound handshake request at: {}", myCapability.getAddress());
         try {
@@ -236,7 +259,8 @@ public class Node implements Connection.Handler {
 
             InboundConnection connection = new InboundConnection(socket, serverSocketResult, result.getCapability(), result.getLoad(), result.getMetrics(), this, this::handleException);
             inboundConnectionsByAddress.put(connection.getPeerAddress(), connection);
-            DISPATCHER.submit(() -> listeners.forEach(listener -> listener.onConnection(connection)));
+            nodeMetrics.onConnectionCreated();
+            CONNECTION_DISPATCHER.executeIgnoringLimit(connection.getId(), () -> listeners.forEach(listener -> listener.onConnection(connection)));
         } catch (Throwable throwable) {
             connectionHandshake.shutdown();
             connectionHandshakes.remove(connectionHandshake.getId());
@@ -266,6 +290,9 @@ public class Node implements Connection.Handler {
         try {
             AuthorizationToken token = authorizationService.createToken(networkMessage.getClass());
             return connection.send(networkMessage, token);
+        } catch (SendQueueFullException exception) {
+            // The connection is still fine, the caller can retry later
+            throw exception;
         } catch (Throwable throwable) {
             if (connection.isRunning()) {
                 handleException(connection, throwable);
@@ -275,6 +302,28 @@ public class Node implements Connection.Handler {
         }
     }
 
+    /**
+     * Non-blocking variant of send. The message is added to the send queue of the connection and the returned future
+     * completes once it has been written to the socket.
+     */
+    public CompletableFuture<Connection> sendAsync(NetworkMessage networkMessage, Connection connection) {
+        if (connection.isStopped()) {
+            return CompletableFuture.failedFuture(new ConnectionClosedException(connection));
+        }
+        CompletableFuture<Connection> future;
+        try {
+            AuthorizationToken token = authorizationService.createToken(networkMessage.getClass());
+            future = connection.sendAsync(networkMessage, token);
+        } catch (Throwable throwable) {
+            future = CompletableFuture.failedFuture(throwable);
+        }
+        return future.whenComplete((c, throwable) -> {
+            if (throwable != null && !(throwable instanceof SendQueueFullException) && connection.isRunning()) {
+                handleException(connection, throwable);
+            }
+        });
+    }
+
 
     ///////////////////////////////////////////////////////////////////////////////////////////////////
     // Connection
@@ -285,12 +334,34 @@ public class Node implements Connection.Handler {
     }
 
     public Connection getConnection(Address address, boolean allowUnverifiedAddress) {
+        try {
+            return getConnectionAsync(address, allowUnverifiedAddress).join();
+        } catch (CompletionException exception) {
+            Throwable cause = exception.getCause() != null ? exception.getCause() : exception;
+            if (cause instanceof ConnectionException) {
+                throw (ConnectionException) cause;
+            }
+            throw new ConnectionException(cause);
+        }
+    }
+
+    public CompletableFuture<Connection> getConnectionAsync(Address address) {
+        return getConnectionAsync(address, true);
+    }
+
+    /**
+     * Returns an existing connection or creates an outbound connection. Socket creation and handshake are done on a
+     * connect executor with bounded parallelism per transport. Concurrent requests for the same address share one
+     * pending connection attempt, which is shared until it has completed. Socket connect and handshake are bounded by
+     * the socket timeout.
+     */
+    public CompletableFuture<Connection> getConnectionAsync(Address address, boolean allowUnverifiedAddress) {
         if (outboundConnectionsByAddress.containsKey(address)) {
-            return outboundConnectionsByAddress.get(address);
+            return CompletableFuture.completedFuture(outboundConnectionsByAddress.get(address));
         } else if (inboundConnectionsByAddress.containsKey(address) && (allowUnverifiedAddress || inboundConnectionsByAddress.get(address).isPeerAddressVerified())) {
-            return inboundConnectionsByAddress.get(address);
+            return CompletableFuture.completedFuture(inboundConnectionsByAddress.get(address));
         } else {
-            return createOutboundConnection(address);
+            return createOutboundConnectionAsync(address);
         }
     }
 
@@ -299,7 +370,46 @@ public class Node implements Connection.Handler {
     // OutboundConnection
     ///////////////////////////////////////////////////////////////////////////////////////////////////
 
+    private CompletableFuture<Connection> createOutboundConnectionAsync(Address address) {
+        CompletableFuture<Connection> future = new CompletableFuture<>();
+        CompletableFuture<Connection> pending = pendingOutboundConnectionsByAddress.putIfAbsent(address, future);
+        if (pending != null) {
+            log.debug("Node {} has already a pending outbound connection to {}. We use that.", this, address);
+            return pending;
+        }
+
+        // The future completes only once the attempt has finished, so no second attempt to that address gets started
+        // while the first is still running. Timeouts are applied to socket connect and handshake.
+        future.whenComplete((connection, throwable) -> pendingOutboundConnectionsByAddress.remove(address, future));
+        try {
+            CONNECT_EXECUTOR_BY_TRANSPORT.get(transportType).execute(() -> {
+                if (future.isDone()) {
+                    // Node got shut down while waiting in the queue
+                    return;
+                }
+                Thread thread = Thread.currentThread();
+                String workerThreadName = thread.getName();
+                thread.setName("Node.connect-" + StringUtils.truncate(address.toString()));
+                try {
+                    future.complete(createOutboundConnection(address));
+                } catch (Throwable throwable) {
+                    future.completeExceptionally(throwable);
+                } finally {
+                    thread.setName(workerThreadName);
+                }
+            });
+        } catch (Throwable throwable) {
+            future.completeExceptionally(throwable);
+        }
+        return future;
+    }
+
     private Connection createOutboundConnection(Address address) {
+        // The connection might have been created while the request was queued
+        OutboundConnection outboundConnection = outboundConnectionsByAddress.get(address);
+        if (outboundConnection != null) {
+            return outboundConnection;
+        }
         return myCapability.map(capability -> createOutboundConnection(address, capability)).orElseGet(() -> {
             int port = NetworkUtils.findFreeSystemPort();
             log.warn("We create an outbound connection but we have not initialized our server. " + "We create a server on port {} now but clients better control node " + "life cycle themselves.", port);
@@ -331,7 +441,7 @@ public class Node implements Connection.Handler {
             return outboundConnectionsByAddress.get(address);
         }
 
-        ConnectionHandshake connectionHandshake = new ConnectionHandshake(socket, banList, config.getSocketTimeout(), myCapability, authorizationService);
+        ConnectionHandshake connectionHandshake = new ConnectionHandshake(socket, banList, config.getSocketTimeout(), myCapability, authorizationService, nodeMetrics);
         connectionHandshakes.put(connectionHandshake.getId(), connectionHandshake);
         log.debug("Outbound handshake started: Initiated by {} to {}", myCapability.getAddress(), address);
         try {
@@ -358,7 +468,8 @@ public class Node implements Connection.Handler {
 
             OutboundConnection connection = new OutboundConnection(socket, address, result.getCapability(), result.getLoad(), result.getMetrics(), this, this::handleException);
             outboundConnectionsByAddress.put(address, connection);
-            DISPATCHER.submit(() -> listeners.forEach(listener -> listener.onConnection(connection)));
+            nodeMetrics.onConnectionCreated();
+            CONNECTION_DISPATCHER.executeIgnoringLimit(connection.getId(), () -> listeners.forEach(listener -> listener.onConnection(connection)));
             return connection;
         } catch (Throwable throwable) {
             connectionHandshake.shutdown();
@@ -458,6 +569,8 @@ public class Node implements Connection.Handler {
         setState(State.STOPPING);
 
         server.ifPresent(Server::shutdown);
+        pendingOutboundConnectionsByAddress.values()
+                .forEach(future -> future.completeExceptionally(new ConnectionException("Node got shut down")));
         connectionHandshakes.values().forEach(ConnectionHandshake::shutdown);
         Stream<CompletableFuture<Void>> futures = getAllConnections()
                 .map(connection -> closeConnectionGracefullyAsync(connection, CloseReason.SHUTDOWN));
@@ -0,0 +1,125 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.node;
+
+import bisq.network.p2p.message.NetworkMessage;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Aggregated metrics of all connections of a node. Connection metrics forward their updates, so the data of closed
+ * connections is retained. Per message type counters and size histograms are only kept here, not per connection.
+ */
+public final class NodeMetrics {
+    @Getter
+    @ToString
+    @EqualsAndHashCode
+    public static final class Snapshot {
+        private final long created;
+        private final long numConnectionsCreated;
+        private final long sentBytes;
+        private final long receivedBytes;
+        private final long numMessagesSent;
+        private final long numMessagesReceived;
+        private final Histogram.Snapshot rtt;
+        private final List<MessageTypeMetrics.Snapshot> messageTypes;
+
+        private Snapshot(long created,
+                         long numConnectionsCreated,
+                         long sentBytes,
+                         long receivedBytes,
+                         long numMessagesSent,
+                         long numMessagesReceived,
+                         Histogram.Snapshot rtt,
+                         List<MessageTypeMetrics.Snapshot> messageTypes) {
+            this.created = created;
+            this.numConnectionsCreated = numConnectionsCreated;
+            this.sentBytes = sentBytes;
+            this.receivedBytes = receivedBytes;
+            this.numMessagesSent = numMessagesSent;
+            this.numMessagesReceived = numMessagesReceived;
+            this.rtt = rtt;
+            this.messageTypes = messageTypes;
+        }
+    }
+
+    private final long created = System.currentTimeMillis();
+    private final AtomicLong numConnectionsCreated = new AtomicLong();
+    private final AtomicLong sentBytes = new AtomicLong();
+    private final AtomicLong receivedBytes = new AtomicLong();
+    private final AtomicLong numMessagesSent = new AtomicLong();
+    private final AtomicLong numMessagesReceived = new AtomicLong();
+    private final Histogram rttHistogram = new Histogram();
+    private final Map<Class<? extends NetworkMessage>, MessageTypeMetrics> metricsByMessageType = new ConcurrentHashMap<>();
+
+    void onConnectionCreated() {
+        numConnectionsCreated.incrementAndGet();
+    }
+
+    void onSent(NetworkMessage networkMessage, int numBytes) {
+        sentBytes.addAndGet(numBytes);
+        numMessagesSent.incrementAndGet();
+        getMessageTypeMetrics(networkMessage).onSent(numBytes);
+    }
+
+    void onReceived(NetworkMessage networkMessage, int numBytes) {
+        receivedBytes.addAndGet(numBytes);
+        numMessagesReceived.incrementAndGet();
+        getMessageTypeMetrics(networkMessage).onReceived(numBytes);
+    }
+
+    void onCompressed(NetworkMessage networkMessage, int uncompressedSize, int compressedSize, long nanos) {
+        getMessageTypeMetrics(networkMessage).onCompressed(uncompressedSize, compressedSize, nanos);
+    }
+
+    void onDecompressed(NetworkMessage networkMessage, long nanos) {
+        getMessageTypeMetrics(networkMessage).onDecompressed(nanos);
+    }
+
+    void addRtt(long value) {
+        rttHistogram.record(value);
+    }
+
+    public Snapshot getSnapshot() {
+        List<MessageTypeMetrics.Snapshot> messageTypes = metricsByMessageType.values().stream()
+                .map(MessageTypeMetrics::getSnapshot)
+                .sorted(Comparator.comparing(MessageTypeMetrics.Snapshot::getMessageType))
+                .collect(Collectors.toList());
+        return new Snapshot(created,
+                numConnectionsCreated.get(),
+                sentBytes.get(),
+                receivedBytes.get(),
+                numMessagesSent.get(),
+                numMessagesReceived.get(),
+                rttHistogram.getSnapshot(),
+                messageTypes);
+    }
+
+    private MessageTypeMetrics getMessageTypeMetrics(NetworkMessage networkMessage) {
+        return metricsByMessageType.computeIfAbsent(networkMessage.getClass(),
+                clazz -> new MessageTypeMetrics(clazz.getSimpleName()));
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.network.p2p.node;
+
+import bisq.network.NetworkService;
+import bisq.network.p2p.message.NetworkEnvelope;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Bounded outbound queue of a connection. Callers only enqueue and get a future back, a single writer drains the
+ * queue and writes all pending envelopes with one flush. At most one batch is in flight per connection, so the order of
+ * messages is preserved.
+ */
+@Slf4j
+class SendQueue {
+    static final int MAX_QUEUE_SIZE = 2000;
+    static final int MAX_BATCH_SIZE = 100;
+
+    interface Writer {
+        /**
+         * Writes and flushes the batch. The returned future completes once all envelopes have been written.
+         */
+        CompletableFuture<Void> write(List<NetworkEnvelope> batch);
+    }
+
+    static final class Entry {
+        final NetworkEnvelope networkEnvelope;
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private Entry(NetworkEnvelope networkEnvelope) {
+            this.networkEnvelope = networkEnvelope;
+        }
+    }
+
+    private final Writer writer;
+    private final Metrics metrics;
+    private final Executor executor;
+    private final int maxQueueSize;
+    private final int maxBatchSize;
+    private final Deque<Entry> queue = new ArrayDeque<>();
+    private boolean isWriting;
+    private boolean isClosed;
+
+    SendQueue(Writer writer, Metrics metrics) {
+        this(writer, metrics, NetworkService.NETWORK_IO_POOL, MAX_QUEUE_SIZE, MAX_BATCH_SIZE);
+    }
+
+    SendQueue(Writer writer, Metrics metrics, Executor executor, int maxQueueSize, int maxBatchSize) {
+        this.writer = writer;
+        this.metrics = metrics;
+        this.executor = executor;
+        this.maxQueueSize = maxQueueSize;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    CompletableFuture<Void> enqueue(NetworkEnvelope networkEnvelope) {
+        Entry entry = new Entry(networkEnvelope);
+        boolean startWriting;
+        synchronized (this) {
+            if (isClosed) {
+                entry.future.completeExceptionally(new ConnectionException("Send queue is closed"));
+                return entry.future;
+            }
+            if (queue.size() >= maxQueueSize) {
+                metrics.onSendQueueRejected();
+                entry.future.completeExceptionally(new SendQueueFullException(maxQueueSize));
+                return entry.future;
+            }
+            queue.add(entry);
+            metrics.onSendQueueSize(queue.size());
+            startWriting = !isWriting;
+            isWriting = true;
+        }
+        if (startWriting) {
+            executor.execute(this::writeNextBatch);
+        }
+        return entry.future;
+    }
+
+    synchronized int size() {
+        return queue.size();
+    }
+
+    void close(Throwable cause) {
+        List<Entry> pending;
+        synchronized (this) {
+            isClosed = true;
+            pending = new ArrayList<>(queue);
+            queue.clear();
+        }
+        pending.forEach(entry -> entry.future.completeExceptionally(cause));
+    }
+
+    private void writeNextBatch() {
+        List<Entry> batch = new ArrayList<>();
+        synchronized (this) {
+            while (!queue.isEmpty() && batch.size() < maxBatchSize) {
+                batch.add(queue.poll());
+            }
+            if (batch.isEmpty()) {
+                isWriting = false;
+                return;
+            }
+        }
+
+        List<NetworkEnvelope> envelopes = new ArrayList<>(batch.size());
+        batch.forEach(entry -> envelopes.add(entry.networkEnvelope));
+        CompletableFuture<Void> writeFuture;
+        try {
+            writeFuture = writer.write(envelopes);
+        } catch (Throwable throwable) {
+            writeFuture = CompletableFuture.failedFuture(throwable);
+        }
+        writeFuture.whenComplete((nil, throwable) -> {
+            if (throwable == null) {
+                metrics.onFlush(batch.size());
+                batch.forEach(entry -> entry.future.complete(null));
+            } else {
+                batch.forEach(entry -> entry.future.completeExceptionally(throwable));
+            }
+            // We continue on the executor so that a synchronously completed write does not recurse.
+            executor.execute(this::writeNextBatch);
+        });
+    }
+}
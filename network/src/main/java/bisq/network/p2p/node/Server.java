@@ -19,10 +19,12 @@ package bisq.network.p2p.node;
 
 import bisq.common.util.StringUtils;
 import bisq.network.NetworkService;
+import bisq.network.p2p.node.nio.NioEngine;
 import bisq.network.p2p.node.transport.Transport;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.net.ServerSocket;
 import java.net.Socket;
@@ -35,12 +37,37 @@ public final class Server {
     @Getter
     private final Address address;
     private volatile boolean isStopped;
+    @Nullable
     private final Future<?> future;
 
     Server(Transport.ServerSocketResult serverSocketResult, Consumer<Socket> socketHandler, Consumer<Exception> exceptionHandler) {
         serverSocket = serverSocketResult.getServerSocket();
         address = serverSocketResult.getAddress();
         log.debug("Create server: {}", serverSocketResult);
+        if (NioEngine.isSupported(serverSocket)) {
+            // Accepting is done by the selector thread, so we do not need a thread blocking at accept.
+            future = null;
+            NetworkService.NIO_ENGINE.registerServer(serverSocket.getChannel(),
+                            socketChannel -> {
+                                log.debug("Accepted new connection on server: {}", serverSocketResult);
+                                if (isNotStopped()) {
+                                    // The handshake is blocking, so we call the handler on a new thread
+                                    NetworkService.NETWORK_IO_POOL.submit(() -> {
+                                        Thread.currentThread().setName("Server.acceptSocket-" + serverSocketResult.getAddress());
+                                        socketHandler.accept(socketChannel.socket());
+                                    });
+                                }
+                            },
+                            exception -> handleException(exception, exceptionHandler))
+                    .whenComplete((key, throwable) -> {
+                        if (throwable != null) {
+                            handleException(throwable instanceof Exception ? (Exception) throwable : new Exception(throwable),
+                                    exceptionHandler);
+                        }
+                    });
+            return;
+        }
+
         future = NetworkService.NETWORK_IO_POOL.submit(() -> {
             Thread.currentThread().setName("Server.listen-" +
                     StringUtils.truncate(serverSocketResult.getNodeId()) + "-" +
@@ -58,10 +85,7 @@ public final class Server {
                     }
                 }
             } catch (IOException e) {
-                if (!isStopped) {
-                    exceptionHandler.accept(e);
-                    shutdown();
-                }
+                handleException(e, exceptionHandler);
             }
         });
     }
@@ -72,13 +96,22 @@ public final class Server {
             return;
         }
         isStopped = true;
-        future.cancel(true);
+        if (future != null) {
+            future.cancel(true);
+        }
         try {
             serverSocket.close();
         } catch (IOException ignore) {
         }
     }
 
+    private void handleException(Exception exception, Consumer<Exception> exceptionHandler) {
+        if (!isStopped) {
+            exceptionHandler.accept(exception);
+            shutdown();
+        }
+    }
+
     private boolean isNotStopped() {
         return !isStopped && !Thread.currentThread().isInterrupted();
     }
@@ -0,0 +1,160 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.node.compression;
+
+import bisq.network.p2p.node.nio.FrameCodec;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compresses the NetworkMessage of a NetworkEnvelope with Deflate using a preset dictionary. The dictionary contains
+ * strings which are frequent in our protobuf messages (type URLs of Any blobs, enum names), so even mid-sized
+ * messages compress well. Only messages above MIN_SIZE are compressed, and only if that saves bytes.
+ * <p>
+ * The dictionary is part of the protocol. Any change to it requires a new Feature version.
+ */
+public final class EnvelopeCompression {
+    public static final int MIN_SIZE = 1024;
+
+    static final byte[] DICTIONARY_V1 = String.join("",
+            "CLEARTORI2PUNDEFINED",
+            "type.googleapis.com/network.",
+            "type.googleapis.com/security.",
+            "type.googleapis.com/identity.",
+            "type.googleapis.com/oracle.AuthorizedAccountAgeData",
+            "type.googleapis.com/oracle.AuthorizedSignedWitnessData",
+            "type.googleapis.com/oracle.AuthorizedProofOfBurnData",
+            "type.googleapis.com/oracle.AuthorizedBondedReputationData",
+            "type.googleapis.com/oracle.AuthorizedTimestampData",
+            "type.googleapis.com/offer.Offer",
+            "type.googleapis.com/support.MediationRequest",
+            "type.googleapis.com/chat.PrivateTradeChatMessage",
+            "type.googleapis.com/chat.PrivateDiscussionChatMessage",
+            "type.googleapis.com/chat.PublicDiscussionChatMessage",
+            "type.googleapis.com/chat.PublicTradeChatMessage",
+            "type.googleapis.com/chat.PublicEventsChatMessage",
+            "type.googleapis.com/chat.PublicSupportChatMessage",
+            "type.googleapis.com/user.UserProfile",
+            "SHA256withECDSAEC127.0.0.1.onion.b32.i2p")
+            .getBytes(StandardCharsets.UTF_8);
+
+    private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED));
+    private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(Inflater::new);
+
+    private EnvelopeCompression() {
+    }
+
+    public static boolean isCompressed(bisq.network.protobuf.NetworkEnvelope proto) {
+        return !proto.getCompressedNetworkMessage().isEmpty();
+    }
+
+    /**
+     * @return A copy of the proto with the compressed NetworkMessage, or the given proto if it is smaller than
+     * MIN_SIZE or if compression would not reduce its size.
+     */
+    public static bisq.network.protobuf.NetworkEnvelope compress(bisq.network.protobuf.NetworkEnvelope proto) {
+        int size = proto.getNetworkMessage().getSerializedSize();
+        if (size < MIN_SIZE) {
+            return proto;
+        }
+        byte[] compressed = deflate(proto.getNetworkMessage().toByteArray());
+        if (compressed.length >= size) {
+            return proto;
+        }
+        return bisq.network.protobuf.NetworkEnvelope.newBuilder()
+                .setVersion(proto.getVersion())
+                .setAuthorizationToken(proto.getAuthorizationToken())
+                .setCompressedNetworkMessage(ByteString.copyFrom(compressed))
+                .setUncompressedSize(size)
+                .build();
+    }
+
+    /**
+     * @return A copy of the proto with the decompressed NetworkMessage.
+     */
+    public static bisq.network.protobuf.NetworkEnvelope decompress(bisq.network.protobuf.NetworkEnvelope proto)
+            throws IOException {
+        int uncompressedSize = proto.getUncompressedSize();
+        // We do not trust the announced size to not allocate arbitrary large buffers
+        if (uncompressedSize <= 0 || uncompressedSize > FrameCodec.MAX_FRAME_SIZE) {
+            throw new IOException("Invalid uncompressedSize " + uncompressedSize);
+        }
+        byte[] bytes = inflate(proto.getCompressedNetworkMessage().toByteArray(), uncompressedSize);
+        try {
+            return bisq.network.protobuf.NetworkEnvelope.newBuilder()
+                    .setVersion(proto.getVersion())
+                    .setAuthorizationToken(proto.getAuthorizationToken())
+                    .setNetworkMessage(bisq.network.protobuf.NetworkMessage.parseFrom(bytes))
+                    .build();
+        } catch (InvalidProtocolBufferException e) {
+            throw new IOException("Could not parse decompressed NetworkMessage", e);
+        }
+    }
+
+    static byte[] deflate(byte[] input) {
+        Deflater deflater = DEFLATER.get();
+        deflater.reset();
+        deflater.setDictionary(DICTIONARY_V1);
+        deflater.setInput(input);
+        deflater.finish();
+        // Deflate never expands by more than a few bytes per 16 KB block
+        byte[] buffer = new byte[input.length + input.length / 1000 + 64];
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            length += deflater.deflate(buffer, length, buffer.length - length);
+        }
+        return Arrays.copyOf(buffer, length);
+    }
+
+    static byte[] inflate(byte[] input, int uncompressedSize) throws IOException {
+        Inflater inflater = INFLATER.get();
+        inflater.reset();
+        inflater.setInput(input);
+        byte[] output = new byte[uncompressedSize];
+        int length = 0;
+        try {
+            while (!inflater.finished()) {
+                int numBytes = inflater.inflate(output, length, output.length - length);
+                if (numBytes == 0) {
+                    if (inflater.needsDictionary()) {
+                        inflater.setDictionary(DICTIONARY_V1);
+                    } else if (inflater.needsInput() || length == output.length) {
+                        throw new IOException("Compressed data does not match uncompressedSize " + uncompressedSize);
+                    }
+                }
+                length += numBytes;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException(e);
+        }
+        if (length != uncompressedSize) {
+            throw new IOException("Decompressed size " + length + " does not match uncompressedSize " + uncompressedSize);
+        }
+        return output;
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.network.p2p.node.nio;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.MessageLite;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Incremental codec for varint32 length-delimited protobuf frames as written by
+ * {@link MessageLite#writeDelimitedTo(java.io.OutputStream)}.
+ * The decoder keeps the state of a partially received frame, so it can be fed with whatever bytes a non-blocking
+ * read delivered. Not thread safe, an instance must only be used by the selector thread owning the channel.
+ */
+public final class FrameCodec {
+    // Same as the former default size limit of protobuf's CodedInputStream
+    public static final int MAX_FRAME_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * @return The number of bytes a message with the given serialized size occupies on the wire incl. the length prefix.
+     */
+    public static int getFrameSize(int serializedSize) {
+        return CodedOutputStream.computeUInt32SizeNoTag(serializedSize) + serializedSize;
+    }
+
+    public static ByteBuffer encode(MessageLite message) throws IOException {
+        return encode(List.of(message));
+    }
+
+    /**
+     * Encodes all messages into one buffer, so they can be written with a single write call.
+     */
+    public static ByteBuffer encode(List<? extends MessageLite> messages) throws IOException {
+        int[] sizes = new int[messages.size()];
+        int totalSize = 0;
+        for (int i = 0; i < sizes.length; i++) {
+            sizes[i] = messages.get(i).getSerializedSize();
+            totalSize += getFrameSize(sizes[i]);
+        }
+        byte[] bytes = new byte[totalSize];
+        CodedOutputStream codedOutputStream = CodedOutputStream.newInstance(bytes);
+        for (int i = 0; i < sizes.length; i++) {
+            codedOutputStream.writeUInt32NoTag(sizes[i]);
+            messages.get(i).writeTo(codedOutputStream);
+        }
+        codedOutputStream.checkNoSpaceLeft();
+        return ByteBuffer.wrap(bytes);
+    }
+
+    private final int maxFrameSize;
+    private int length;
+    private int lengthShift;
+    private byte[] frame;
+    private int position;
+
+    public FrameCodec() {
+        this(MAX_FRAME_SIZE);
+    }
+
+    public FrameCodec(int maxFrameSize) {
+        this.maxFrameSize = maxFrameSize;
+    }
+
+    /**
+     * Consumes all remaining bytes of the buffer and passes each completed frame to the frameHandler.
+     */
+    public void decode(ByteBuffer buffer, Consumer<byte[]> frameHandler) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (frame == null) {
+                if (!readLength(buffer)) {
+                    return;
+                }
+                frame = new byte[length];
+                position = 0;
+            }
+
+            int numBytes = Math.min(buffer.remaining(), frame.length - position);
+            buffer.get(frame, position, numBytes);
+            position += numBytes;
+
+            if (position == frame.length) {
+                byte[] completed = frame;
+                frame = null;
+                length = 0;
+                lengthShift = 0;
+                frameHandler.accept(completed);
+            }
+        }
+    }
+
+    public int getNumBufferedBytes() {
+        return frame != null ? position : 0;
+    }
+
+    // Returns true once the varint length prefix is complete
+    private boolean readLength(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            byte b = buffer.get();
+            length |= (b & 0x7F) << lengthShift;
+            if ((b & 0x80) == 0) {
+                if (length < 0 || length > maxFrameSize) {
+                    throw new IOException("Frame size " + length + " exceeds maxFrameSize " + maxFrameSize);
+                }
+                return true;
+            }
+            lengthShift += 7;
+            if (lengthShift >= 35) {
+                throw new IOException("Malformed varint32 length prefix");
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.network.p2p.node.nio;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking counterpart of the socket streams used by a Connection. Reads are decoded into frames on the selector
+ * thread, writes are queued and written once the channel is writable.
+ */
+@Slf4j
+public final class NioChannel implements SelectorLoop.Handler {
+    public interface Handler {
+        void onFrame(byte[] frame);
+
+        // Called once if the channel got closed by the peer or failed. EOFException signals a regular close.
+        void onClosed(Exception exception);
+    }
+
+    private static final class PendingWrite {
+        private final ByteBuffer buffer;
+        private final CompletableFuture<Void> future;
+
+        private PendingWrite(ByteBuffer buffer, CompletableFuture<Void> future) {
+            this.buffer = buffer;
+            this.future = future;
+        }
+    }
+
+    @Getter
+    private final SocketChannel socketChannel;
+    private final SelectorLoop selectorLoop;
+    private final Handler handler;
+    private final FrameCodec frameCodec = new FrameCodec();
+    // Only accessed from the selector thread
+    private final Deque<PendingWrite> pendingWrites = new ArrayDeque<>();
+    private SelectionKey selectionKey;
+    private volatile boolean isClosed;
+
+    NioChannel(SocketChannel socketChannel, SelectorLoop selectorLoop, Handler handler) {
+        this.socketChannel = socketChannel;
+        this.selectorLoop = selectorLoop;
+        this.handler = handler;
+    }
+
+    CompletableFuture<NioChannel> register() {
+        return selectorLoop.register(socketChannel, SelectionKey.OP_READ, this).thenApply(key -> this);
+    }
+
+    /**
+     * Queues the buffer for writing. The returned future completes once all bytes have been handed to the socket.
+     */
+    public CompletableFuture<Void> write(ByteBuffer buffer) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        if (isClosed) {
+            future.completeExceptionally(new ClosedChannelException());
+            return future;
+        }
+        selectorLoop.execute(() -> {
+            if (isClosed) {
+                future.completeExceptionally(new ClosedChannelException());
+                return;
+            }
+            pendingWrites.add(new PendingWrite(buffer, future));
+            try {
+                flush();
+            } catch (IOException exception) {
+                onException(exception);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Stops or resumes reading from the socket. While reading is paused the peer gets slowed down by TCP flow control.
+     * Frames of the last read which have been decoded already are still delivered.
+     */
+    public void setReadInterest(boolean value) {
+        selectorLoop.execute(() -> setInterest(SelectionKey.OP_READ, value));
+    }
+
+    public void close() {
+        if (isClosed) {
+            return;
+        }
+        isClosed = true;
+        try {
+            socketChannel.close();
+        } catch (IOException ignore) {
+        }
+        selectorLoop.execute(() -> failPendingWrites(new ClosedChannelException()));
+    }
+
+    public boolean isClosed() {
+        return isClosed;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+    // SelectorLoop.Handler
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+
+    @Override
+    public void onRegistered(SelectionKey key) {
+        selectionKey = key;
+    }
+
+    @Override
+    public void onSelected(SelectionKey key) throws IOException {
+        if (key.isReadable()) {
+            read();
+        }
+        if (key.isValid() && key.isWritable()) {
+            flush();
+        }
+    }
+
+    @Override
+    public void onException(Exception exception) {
+        if (isClosed) {
+            return;
+        }
+        close();
+        handler.onClosed(exception);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+
+    private void read() throws IOException {
+        ByteBuffer readBuffer = selectorLoop.getReadBuffer();
+        readBuffer.clear();
+        int numBytes = socketChannel.read(readBuffer);
+        if (numBytes < 0) {
+            throw new EOFException("Channel closed by peer");
+        }
+        readBuffer.flip();
+        frameCodec.decode(readBuffer, frame -> {
+            if (!isClosed) {
+                handler.onFrame(frame);
+            }
+        });
+    }
+
+    private void flush() throws IOException {
+        while (!pendingWrites.isEmpty()) {
+            PendingWrite pendingWrite = pendingWrites.peek();
+            socketChannel.write(pendingWrite.buffer);
+            if (pendingWrite.buffer.hasRemaining()) {
+                // Socket send buffer is full, we continue when the channel becomes writable
+                setWriteInterest(true);
+                return;
+            }
+            pendingWrites.poll();
+            pendingWrite.future.complete(null);
+        }
+        setWriteInterest(false);
+    }
+
+    private void setWriteInterest(boolean value) {
+        setInterest(SelectionKey.OP_WRITE, value);
+    }
+
+    private void setInterest(int op, boolean value) {
+        if (selectionKey == null || !selectionKey.isValid()) {
+            return;
+        }
+        int interestOps = selectionKey.interestOps();
+        int newInterestOps = value ? interestOps | op : interestOps & ~op;
+        if (newInterestOps != interestOps) {
+            selectionKey.interestOps(newInterestOps);
+        }
+    }
+
+    private void failPendingWrites(Exception exception) {
+        PendingWrite pendingWrite;
+        while ((pendingWrite = pendingWrites.poll()) != null) {
+            pendingWrite.future.completeExceptionally(exception);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.network.p2p.node.nio;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Non-blocking IO engine for transports which provide channel based sockets (e.g. clearnet).
+ * A small fixed number of selector loops serve all connections and server sockets, so the number of threads does not
+ * grow with the number of connections. Channels are assigned round-robin to the selector loops.
+ */
+@Slf4j
+public final class NioEngine {
+    public static boolean isSupported(Socket socket) {
+        return socket.getChannel() != null;
+    }
+
+    public static boolean isSupported(ServerSocket serverSocket) {
+        return serverSocket.getChannel() != null;
+    }
+
+    private final String name;
+    @Getter
+    private final int numSelectorLoops;
+    private final AtomicInteger index = new AtomicInteger();
+    private final List<SelectorLoop> selectorLoops = new ArrayList<>();
+
+    public NioEngine(String name, int numSelectorLoops) {
+        this.name = name;
+        this.numSelectorLoops = numSelectorLoops;
+    }
+
+    /**
+     * Registers the channel of a connection after the blocking handshake has been completed.
+     */
+    public CompletableFuture<NioChannel> register(SocketChannel socketChannel, NioChannel.Handler handler) {
+        try {
+            return new NioChannel(socketChannel, nextSelectorLoop(), handler).register();
+        } catch (IOException exception) {
+            return CompletableFuture.failedFuture(exception);
+        }
+    }
+
+    /**
+     * Accepts new sockets on a selector loop. The accepted channels are in blocking mode, so they can be used for the
+     * blocking handshake before they get registered with {@link #register(SocketChannel, NioChannel.Handler)}.
+     */
+    public CompletableFuture<SelectionKey> registerServer(ServerSocketChannel serverSocketChannel,
+                                                          Consumer<SocketChannel> socketChannelHandler,
+                                                          Consumer<Exception> exceptionHandler) {
+        try {
+            return nextSelectorLoop().register(serverSocketChannel, SelectionKey.OP_ACCEPT, new SelectorLoop.Handler() {
+                @Override
+                public void onSelected(SelectionKey key) throws IOException {
+                    SocketChannel socketChannel;
+                    while ((socketChannel = serverSocketChannel.accept()) != null) {
+                        socketChannelHandler.accept(socketChannel);
+                    }
+                }
+
+                @Override
+                public void onException(Exception exception) {
+                    exceptionHandler.accept(exception);
+                }
+            });
+        } catch (IOException exception) {
+            return CompletableFuture.failedFuture(exception);
+        }
+    }
+
+    public int getNumChannels() {
+        synchronized (selectorLoops) {
+            return selectorLoops.stream().mapToInt(SelectorLoop::getNumChannels).sum();
+        }
+    }
+
+    public void shutdown() {
+        synchronized (selectorLoops) {
+            selectorLoops.forEach(SelectorLoop::shutdown);
+            selectorLoops.clear();
+        }
+    }
+
+    // Selector loops are created lazily, so nodes which do not use a channel based transport do not pay for them.
+    private SelectorLoop nextSelectorLoop() throws IOException {
+        synchronized (selectorLoops) {
+            if (selectorLoops.isEmpty()) {
+                for (int i = 0; i < numSelectorLoops; i++) {
+                    selectorLoops.add(new SelectorLoop(name + "-selector-" + i));
+                }
+            }
+            return selectorLoops.get(Math.floorMod(index.getAndIncrement(), selectorLoops.size()));
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.network.p2p.node.nio;
+
+import bisq.common.threading.ExecutorFactory;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Runs a single selector on its own thread. All channel IO and all state changes of the registered channels
+ * happen on that thread. Other threads hand over work with {@link #execute(Runnable)}.
+ */
+@Slf4j
+public final class SelectorLoop {
+    // Shared by all channels of that loop as reads are only done on the selector thread.
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    public interface Handler {
+        default void onRegistered(SelectionKey key) {
+        }
+
+        void onSelected(SelectionKey key) throws IOException;
+
+        void onException(Exception exception);
+    }
+
+    @Getter
+    private final String name;
+    private final Selector selector;
+    private final ExecutorService executor;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    @Getter
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+    private volatile Thread thread;
+    private volatile boolean isStopped;
+
+    SelectorLoop(String name) throws IOException {
+        this.name = name;
+        selector = Selector.open();
+        executor = ExecutorFactory.newSingleThreadExecutor(name);
+        executor.submit(this::run);
+    }
+
+    public CompletableFuture<SelectionKey> register(SelectableChannel channel, int interestOps, Handler handler) {
+        CompletableFuture<SelectionKey> future = new CompletableFuture<>();
+        execute(() -> {
+            try {
+                channel.configureBlocking(false);
+                SelectionKey key = channel.register(selector, interestOps, handler);
+                handler.onRegistered(key);
+                future.complete(key);
+            } catch (Exception exception) {
+                future.completeExceptionally(exception);
+            }
+        });
+        return future;
+    }
+
+    public void execute(Runnable task) {
+        if (isInLoop()) {
+            task.run();
+        } else {
+            tasks.add(task);
+            selector.wakeup();
+        }
+    }
+
+    public boolean isInLoop() {
+        return Thread.currentThread() == thread;
+    }
+
+    public int getNumChannels() {
+        return selector.isOpen() ? selector.keys().size() : 0;
+    }
+
+    void shutdown() {
+        isStopped = true;
+        selector.wakeup();
+        ExecutorFactory.shutdownAndAwaitTermination(executor);
+    }
+
+    private void run() {
+        thread = Thread.currentThread();
+        while (!isStopped) {
+            try {
+                selector.select();
+                runTasks();
+                Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+                while (iterator.hasNext()) {
+                    SelectionKey key = iterator.next();
+                    iterator.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    Handler handler = (Handler) key.attachment();
+                    try {
+                        handler.onSelected(key);
+                    } catch (Exception exception) {
+                        key.cancel();
+                        handler.onException(exception);
+                    }
+                }
+            } catch (ClosedSelectorException exception) {
+                break;
+            } catch (Throwable throwable) {
+                // We must not let the loop die as all channels of that loop would be stuck
+                log.error("Unexpected exception at selector loop " + name, throwable);
+            }
+        }
+        try {
+            selector.close();
+        } catch (IOException ignore) {
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (Throwable throwable) {
+                log.error("Task at selector loop " + name + " failed", throwable);
+            }
+        }
+    }
+}
@@ -7,8 +7,11 @@ import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
@@ -57,7 +60,10 @@ public class ClearNetTransport implements Transport {
     public ServerSocketResult getServerSocket(int port, String nodeId) {
         log.info("Create serverSocket at port {}", port);
         try {
-            ServerSocket serverSocket = new ServerSocket(port);
+            // We use channel based sockets, so that connections can be served by the NioEngine
+            ServerSocketChannel serverSocketChannel = ServerSocketChannel.open();
+            serverSocketChannel.bind(new InetSocketAddress(port));
+            ServerSocket serverSocket = serverSocketChannel.socket();
             Address address = Address.localHost(port);
             log.debug("ServerSocket created at port {}", port);
             return new ServerSocketResult(nodeId, serverSocket, address);
@@ -70,7 +76,15 @@ public class ClearNetTransport implements Transport {
     @Override
     public Socket getSocket(Address address) throws IOException {
         log.debug("Create new Socket to {}", address);
-        return new Socket(address.getHost(), address.getPort());
+        SocketChannel socketChannel = SocketChannel.open();
+        try {
+            socketChannel.socket().connect(new InetSocketAddress(address.getHost(), address.getPort()),
+                    config.getSocketTimeout());
+        } catch (IOException exception) {
+            socketChannel.close();
+            throw exception;
+        }
+        return socketChannel.socket();
     }
 
     @Override
@@ -45,10 +45,12 @@ public class TorTransport implements Transport {
     }
 
     private final String torDirPath;
+    private final int socketTimeout;
     private final Tor tor;
 
     public TorTransport(Transport.Config config) {
         torDirPath = config.getBaseDir() + separator + "tor";
+        socketTimeout = config.getSocketTimeout();
         // We get a singleton instance per application (torDirPath)
         tor = Tor.getTor(torDirPath);
     }
@@ -85,7 +87,7 @@ public class TorTransport implements Transport {
     public Socket getSocket(Address address) throws IOException {
         long ts = System.currentTimeMillis();
         Socket socket = tor.getSocket(null); // Blocking call. Takes 5-15 sec usually.
-        socket.connect(new InetSocketAddress(address.getHost(), address.getPort()));
+        socket.connect(new InetSocketAddress(address.getHost(), address.getPort()), socketTimeout);
         log.info("Tor socket to {} created. Took {} ms", address, System.currentTimeMillis() - ts);
         return socket;
     }
@@ -22,8 +22,10 @@ import bisq.network.p2p.node.CloseReason;
 import bisq.network.p2p.node.Connection;
 import bisq.network.p2p.node.Node;
 import bisq.network.p2p.services.data.broadcast.BroadcastMessage;
+import bisq.network.p2p.services.data.broadcast.BroadcastPolicy;
 import bisq.network.p2p.services.data.broadcast.BroadcastResult;
 import bisq.network.p2p.services.data.broadcast.Broadcaster;
+import bisq.network.p2p.services.data.broadcast.SeenMessageCache;
 import bisq.network.p2p.services.data.filter.DataFilter;
 import bisq.network.p2p.services.data.inventory.Inventory;
 import bisq.network.p2p.services.data.inventory.InventoryService;
@@ -35,7 +37,7 @@ import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CopyOnWriteArraySet;
-import java.util.function.Function;
+import java.util.function.Consumer;
 
 /**
  * Responsible for broadcast and inventory service. One instance per transport type.
@@ -56,18 +58,22 @@ public class DataNetworkService implements PeerGroupService.Listener, Node.Liste
 
     private final Node node;
     private final Broadcaster broadcaster;
+    private final SeenMessageCache seenMessageCache;
     private final InventoryService inventoryService;
     private final Set<DataNetworkService.Listener> listeners = new CopyOnWriteArraySet<>();
 
     public DataNetworkService(Node node,
                               PeerGroupService peerGroupService,
-                              Function<DataFilter, Inventory> inventoryProvider) {
+                              InventoryService.Config inventoryServiceConfig,
+                              InventoryService.InventoryProvider inventoryProvider,
+                              SeenMessageCache seenMessageCache) {
         this.node = node;
+        this.seenMessageCache = seenMessageCache;
         peerGroup = peerGroupService.getPeerGroup();
         this.peerGroupService = peerGroupService;
         peerGroupService.addListener(this);
-        broadcaster = new Broadcaster(node, peerGroup);
-        inventoryService = new InventoryService(node, peerGroup, inventoryProvider);
+        broadcaster = new Broadcaster(node, peerGroup, seenMessageCache);
+        inventoryService = new InventoryService(node, peerGroup, inventoryServiceConfig, inventoryProvider);
         node.addListener(this);
     }
 
@@ -95,6 +101,12 @@ public class DataNetworkService implements PeerGroupService.Listener, Node.Liste
 
     @Override
     public void onMessage(NetworkMessage networkMessage, Connection connection, String nodeId) {
+        // Inventory requests and responses are broadcast messages as well, but are only ever sent to a single peer
+        if (networkMessage instanceof DataRequest &&
+                seenMessageCache.onReceived((DataRequest) networkMessage, connection.getPeerAddress())) {
+            // Duplicates of data requests are dropped, as we have processed and re-broadcast them already
+            return;
+        }
         listeners.forEach(listener -> listener.onMessage(networkMessage, connection, nodeId));
     }
 
@@ -121,8 +133,12 @@ public class DataNetworkService implements PeerGroupService.Listener, Node.Liste
         return broadcaster.reBroadcast(broadcastMessage);
     }
 
-    List<CompletableFuture<Inventory>> requestInventory(DataFilter dataFilter) {
-        return inventoryService.request(dataFilter);
+    void setBroadcastPolicy(Class<? extends BroadcastMessage> messageClass, BroadcastPolicy policy) {
+        broadcaster.setPolicy(messageClass, policy);
+    }
+
+    List<CompletableFuture<Inventory>> requestInventory(DataFilter dataFilter, Consumer<Inventory> chunkHandler) {
+        return inventoryService.request(dataFilter, chunkHandler);
     }
 
     void addListener(DataNetworkService.Listener listener) {
@@ -31,8 +31,22 @@ public interface DataRequest extends BroadcastMessage {
         return bisq.network.protobuf.DataRequest.newBuilder();
     }
 
+    /**
+     * @return The DataRequest proto. Implementations build it only once, so that serving the same data to many peers
+     * does not rebuild it.
+     */
+    bisq.network.protobuf.DataRequest toDataRequestProto();
+
     boolean isExpired();
 
+    /**
+     * @return The date after which the request is expired, or Long.MAX_VALUE if it never expires. Used to index the
+     * stores by expiration, so it must not change over the lifetime of the request.
+     */
+    default long getExpirationDate() {
+        return Long.MAX_VALUE;
+    }
+
     static DataRequest fromProto(bisq.network.protobuf.DataRequest proto) {
         switch (proto.getMessageCase()) {
             case ADDAUTHENTICATEDDATAREQUEST: {
@@ -18,12 +18,18 @@
 package bisq.network.p2p.services.data;
 
 import bisq.common.timer.Scheduler;
+import bisq.network.NetworkService;
 import bisq.network.p2p.message.NetworkMessage;
 import bisq.network.p2p.node.Connection;
 import bisq.network.p2p.node.Node;
 import bisq.network.p2p.node.transport.Transport;
+import bisq.network.p2p.services.data.broadcast.BroadcastMessage;
+import bisq.network.p2p.services.data.broadcast.BroadcastPolicy;
 import bisq.network.p2p.services.data.broadcast.BroadcastResult;
+import bisq.network.p2p.services.data.broadcast.SeenMessageCache;
 import bisq.network.p2p.services.data.filter.DataFilter;
+import bisq.network.p2p.services.data.inventory.Inventory;
+import bisq.network.p2p.services.data.inventory.InventoryService;
 import bisq.network.p2p.services.data.storage.Result;
 import bisq.network.p2p.services.data.storage.StorageData;
 import bisq.network.p2p.services.data.storage.StorageService;
@@ -32,33 +38,47 @@ import bisq.network.p2p.services.data.storage.append.AppendOnlyData;
 import bisq.network.p2p.services.data.storage.auth.AddAuthenticatedDataRequest;
 import bisq.network.p2p.services.data.storage.auth.AuthenticatedData;
 import bisq.network.p2p.services.data.storage.auth.RemoveAuthenticatedDataRequest;
+import bisq.network.p2p.services.data.storage.auth.VerifiedRequestCache;
 import bisq.network.p2p.services.data.storage.mailbox.AddMailboxRequest;
 import bisq.network.p2p.services.data.storage.mailbox.MailboxData;
 import bisq.network.p2p.services.data.storage.mailbox.RemoveMailboxRequest;
 import bisq.network.p2p.services.peergroup.PeerGroupService;
+import com.google.common.collect.Lists;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
 import java.security.GeneralSecurityException;
 import java.security.KeyPair;
 import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
  * Single instance for data distribution. Uses DataNetworkService instances for broadcast and listening for
  * messages on the supported transport networks as well for the inventory service.
+ * <p>
+ * Listeners added with addListener get notified about all data. Consumers interested only in some data subscribe to
+ * the payload class or the file name of the store, and get notified on their own executor.
  */
 @Slf4j
 public class DataService implements DataNetworkService.Listener {
+    // Below that the overhead of dispatching to the verification pool is not worth it
+    static final int MIN_REQUESTS_FOR_PARALLEL_VERIFICATION = 8;
+    static final int VERIFICATION_BATCH_SIZE = 32;
+
     public static class BroadCastDataResult extends HashMap<Transport.Type, CompletableFuture<BroadcastResult>> {
         public BroadCastDataResult(Map<Transport.Type, CompletableFuture<BroadcastResult>> map) {
             super(map);
@@ -84,42 +104,93 @@ public class DataService implements DataNetworkService.Listener {
 
         default void onMailboxDataRemoved(MailboxData mailboxData) {
         }
+
+        /**
+         * Called once with the data added by an inventory. Per default the single callbacks get called for each item.
+         */
+        default void onBatchAdded(Collection<? extends StorageData> batch) {
+            batch.forEach(storageData -> {
+                if (storageData instanceof AuthenticatedData) {
+                    onAuthenticatedDataAdded((AuthenticatedData) storageData);
+                } else if (storageData instanceof MailboxData) {
+                    onMailboxDataAdded((MailboxData) storageData);
+                } else if (storageData instanceof AppendOnlyData) {
+                    onAppendOnlyDataAdded((AppendOnlyData) storageData);
+                }
+            });
+        }
+
+        /**
+         * Called once with the data removed together, like expired data. Per default the single callbacks get called
+         * for each item.
+         */
+        default void onBatchRemoved(Collection<? extends StorageData> batch) {
+            batch.forEach(storageData -> {
+                if (storageData instanceof AuthenticatedData) {
+                    onAuthenticatedDataRemoved((AuthenticatedData) storageData);
+                } else if (storageData instanceof MailboxData) {
+                    onMailboxDataRemoved((MailboxData) storageData);
+                }
+            });
+        }
     }
 
     @Getter
     private final StorageService storageService;
+    private final InventoryService.Config inventoryServiceConfig;
     private final Set<DataService.Listener> listeners = new CopyOnWriteArraySet<>();
+    private final SubscriptionRouter subscriptionRouter = new SubscriptionRouter();
+    // Shared by all transports, so a message received on several transports gets processed only once
+    private final SeenMessageCache seenMessageCache = new SeenMessageCache();
     private final Map<Transport.Type, DataNetworkService> dataNetworkServiceByTransportType = new ConcurrentHashMap<>();
+    private final Map<Class<? extends BroadcastMessage>, BroadcastPolicy> broadcastPolicyByMessageClass = new ConcurrentHashMap<>();
 
     public DataService(StorageService storageService) {
-        this.storageService = storageService;
+        this(storageService, InventoryService.Config.DEFAULT);
+    }
 
+    public DataService(StorageService storageService, InventoryService.Config inventoryServiceConfig) {
+        this.storageService = storageService;
+        this.inventoryServiceConfig = inventoryServiceConfig;
+        // Mailbox messages carry trade and chat messages, and removals should reach peers before they re-broadcast the
+        // removed data
+        broadcastPolicyByMessageClass.put(AddMailboxRequest.class, BroadcastPolicy.LATENCY_CRITICAL);
+        broadcastPolicyByMessageClass.put(RemoveMailboxRequest.class, BroadcastPolicy.LATENCY_CRITICAL);
+        broadcastPolicyByMessageClass.put(RemoveAuthenticatedDataRequest.class, BroadcastPolicy.LATENCY_CRITICAL);
+
+        // The stores are the only source of the notifications, so data is notified once, no matter whether we added
+        // it, got it broadcast or with an inventory. We get called on the thread which applied the request.
         storageService.addListener(new StorageService.Listener() {
             @Override
             public void onAdded(StorageData storageData) {
-                if (storageData instanceof AuthenticatedData) {
-                    listeners.forEach(e -> e.onAuthenticatedDataAdded((AuthenticatedData) storageData));
-                } else if (storageData instanceof MailboxData) {
-                    listeners.forEach(e -> e.onMailboxDataAdded((MailboxData) storageData));
-                } else if (storageData instanceof AppendOnlyData) {
-                    listeners.forEach(e -> e.onAppendOnlyDataAdded((AppendOnlyData) storageData));
-                }
+                notifyAdded(storageData);
             }
 
             @Override
             public void onRemoved(StorageData storageData) {
-                if (storageData instanceof AuthenticatedData) {
-                    listeners.forEach(e -> e.onAuthenticatedDataRemoved((AuthenticatedData) storageData));
-                } else if (storageData instanceof MailboxData) {
-                    listeners.forEach(e -> e.onMailboxDataRemoved((MailboxData) storageData));
-                }
+                notifyRemoved(storageData);
+            }
+
+            @Override
+            public void onBatchAdded(Collection<StorageData> batch) {
+                notifyBatchAdded(batch);
+            }
+
+            @Override
+            public void onBatchRemoved(Collection<StorageData> batch) {
+                notifyBatchRemoved(batch);
             }
         });
     }
 
     // todo a bit of a hack that way...
     public DataNetworkService getDataServicePerTransport(Transport.Type transportType, Node defaultNode, PeerGroupService peerGroupService) {
-        DataNetworkService dataNetworkService = new DataNetworkService(defaultNode, peerGroupService, storageService::getInventoryOfAllStores);
+        DataNetworkService dataNetworkService = new DataNetworkService(defaultNode,
+                peerGroupService,
+                inventoryServiceConfig,
+                storageService::getInventoryOfAllStores,
+                seenMessageCache);
+        broadcastPolicyByMessageClass.forEach(dataNetworkService::setBroadcastPolicy);
         dataNetworkServiceByTransportType.put(transportType, dataNetworkService);
         dataNetworkService.addListener(this);
         return dataNetworkService;
@@ -129,6 +200,7 @@ public class DataService implements DataNetworkService.Listener {
         dataNetworkServiceByTransportType.values().forEach(DataNetworkService::shutdown);
         storageService.shutdown();
         listeners.clear();
+        subscriptionRouter.clear();
         return CompletableFuture.completedFuture(true);
     }
 
@@ -174,6 +246,14 @@ public class DataService implements DataNetworkService.Listener {
     }
 
 
+    /**
+     * @return Share of the received broadcast messages which were dropped as duplicates by message type
+     */
+    public Map<String, Double> getDuplicateRatioByMessageType() {
+        return seenMessageCache.getDuplicateRatioByMessageType();
+    }
+
+
     ///////////////////////////////////////////////////////////////////////////////////////////////////
     // Add data
     ///////////////////////////////////////////////////////////////////////////////////////////////////
@@ -185,7 +265,6 @@ public class DataService implements DataNetworkService.Listener {
                         AddAuthenticatedDataRequest request = AddAuthenticatedDataRequest.from(store, authenticatedData, keyPair);
                         Result result = store.add(request);
                         if (result.isSuccess()) {
-                            listeners.forEach(listener -> listener.onAuthenticatedDataAdded(authenticatedData));
                             return new BroadCastDataResult(dataNetworkServiceByTransportType.entrySet().stream()
                                     .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().broadcast(request))));
                         } else {
@@ -204,7 +283,6 @@ public class DataService implements DataNetworkService.Listener {
                     AddAppendOnlyDataRequest request = new AddAppendOnlyDataRequest(appendOnlyData);
                     Result result = store.add(request);
                     if (result.isSuccess()) {
-                        listeners.forEach(listener -> listener.onAppendOnlyDataAdded(appendOnlyData));
                         return new BroadCastDataResult(dataNetworkServiceByTransportType.entrySet().stream()
                                 .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().broadcast(request))));
                     } else {
@@ -222,7 +300,6 @@ public class DataService implements DataNetworkService.Listener {
                         AddMailboxRequest request = AddMailboxRequest.from(mailboxData, senderKeyPair, receiverPublicKey);
                         Result result = store.add(request);
                         if (result.isSuccess()) {
-                            listeners.forEach(listener -> listener.onMailboxDataAdded(mailboxData));
                             return new BroadCastDataResult(dataNetworkServiceByTransportType.entrySet().stream()
                                     .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().broadcast(request))));
                         } else {
@@ -237,6 +314,15 @@ public class DataService implements DataNetworkService.Listener {
     }
 
 
+    /**
+     * Sets the distribution factor and priority used for broadcasts of messages of the given class on all transports.
+     */
+    public void setBroadcastPolicy(Class<? extends BroadcastMessage> messageClass, BroadcastPolicy policy) {
+        broadcastPolicyByMessageClass.put(messageClass, policy);
+        dataNetworkServiceByTransportType.values().forEach(service -> service.setBroadcastPolicy(messageClass, policy));
+    }
+
+
     ///////////////////////////////////////////////////////////////////////////////////////////////////
     // Remove data
     ///////////////////////////////////////////////////////////////////////////////////////////////////
@@ -249,7 +335,6 @@ public class DataService implements DataNetworkService.Listener {
                         RemoveAuthenticatedDataRequest request = RemoveAuthenticatedDataRequest.from(store, authenticatedData, keyPair);
                         Result result = store.remove(request);
                         if (result.isSuccess()) {
-                            listeners.forEach(listener -> listener.onAuthenticatedDataRemoved(authenticatedData));
                             return new BroadCastDataResult(dataNetworkServiceByTransportType.entrySet().stream()
                                     .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().broadcast(request))));
                         } else {
@@ -269,7 +354,6 @@ public class DataService implements DataNetworkService.Listener {
                         RemoveMailboxRequest request = RemoveMailboxRequest.from(mailboxData, keyPair);
                         Result result = store.remove(request);
                         if (result.isSuccess()) {
-                            listeners.forEach(listener -> listener.onMailboxDataRemoved(mailboxData));
                             return new BroadCastDataResult(dataNetworkServiceByTransportType.entrySet().stream()
                                     .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().broadcast(request))));
                         } else {
@@ -292,11 +376,13 @@ public class DataService implements DataNetworkService.Listener {
     }
 
     public void requestInventory(StorageService.StoreType storeType) {
-        requestInventory(new DataFilter(new HashSet<>(storageService.getFilterEntries(storeType))));
+        // The inventory is limited to the stores of that type, also to those we do not have yet
+        Set<String> storeNames = storeType == StorageService.StoreType.ALL ? Set.of() : Set.of(storeType.getStoreName());
+        requestInventory(new DataFilter(new HashSet<>(storageService.getFilterEntries(storeType)), storeNames));
     }
 
     public void requestInventory(String storeName) {
-        requestInventory(new DataFilter(new HashSet<>(storageService.getFilterEntries(storeName))));
+        requestInventory(new DataFilter(new HashSet<>(storageService.getFilterEntries(storeName)), Set.of(storeName)));
     }
 
     public void requestInventory(DataFilter dataFilter) {
@@ -304,17 +390,47 @@ public class DataService implements DataNetworkService.Listener {
     }
 
     public void requestInventory(DataFilter dataFilter, DataNetworkService dataNetworkService) {
-        dataNetworkService.requestInventory(dataFilter).forEach(future -> {
+        // Chunks are applied as they arrive, so the futures only tell about failures
+        dataNetworkService.requestInventory(dataFilter, this::processInventory).forEach(future -> {
             future.whenComplete(((inventory, throwable) -> {
-                inventory.getEntries().forEach(dataRequest -> {
-                    if (dataRequest instanceof AddDataRequest) {
-                        processAddDataRequest((AddDataRequest) dataRequest, false);
-                    } else if (dataRequest instanceof RemoveDataRequest) {
-                        processRemoveDataRequest((RemoveDataRequest) dataRequest, false);
+                if (throwable != null) {
+                    log.info("Inventory request failed. {}", throwable.toString());
+                }
+            }));
+        });
+    }
+
+    private void processInventory(Inventory inventory) {
+        // We must not block the connection dispatcher while the verification pool works through the chunk, so we apply
+        // the requests on the dispatcher once the signatures got verified.
+        verifyInParallel(inventory.getEntries(), this::verifySignature, NetworkService.VERIFICATION_POOL)
+                .thenRunAsync(() -> applyInventory(inventory), NetworkService.DISPATCHER)
+                .whenComplete((nil, throwable) -> {
+                    if (throwable != null) {
+                        log.warn("Processing inventory failed. {}", throwable.toString());
                     }
                 });
-            }));
+    }
+
+    private void applyInventory(Inventory inventory) {
+        List<AddDataRequest> addDataRequests = new ArrayList<>();
+        inventory.getEntries().forEach(dataRequest -> {
+            if (dataRequest instanceof AddDataRequest) {
+                addDataRequests.add((AddDataRequest) dataRequest);
+            } else if (dataRequest instanceof RemoveDataRequest) {
+                processRemoveDataRequest((RemoveDataRequest) dataRequest, false);
+            }
         });
+        if (addDataRequests.isEmpty()) {
+            return;
+        }
+        // Each store applies its requests at once and notifies us with one batch of the added data
+        storageService.onAddDataRequests(addDataRequests)
+                .whenComplete((addedData, throwable) -> {
+                    if (throwable != null) {
+                        log.warn("Applying inventory failed. {}", throwable.toString());
+                    }
+                });
     }
 
 
@@ -330,24 +446,87 @@ public class DataService implements DataNetworkService.Listener {
         listeners.remove(listener);
     }
 
+    /**
+     * Subscribes to the data with the given payload class or a subclass of it. The payload class of AuthenticatedData
+     * is the class of its DistributedData. The subscriber gets notified in order on its own executor.
+     */
+    public void subscribe(Class<?> payloadClass, DataService.Listener subscriber) {
+        subscribe(payloadClass, subscriber, SubscriptionRouter.newSequentialExecutor());
+    }
+
+    /**
+     * @param executor Used for all notifications of the subscriber. Only the executor of its first subscription is used.
+     */
+    public void subscribe(Class<?> payloadClass, DataService.Listener subscriber, Executor executor) {
+        subscriptionRouter.subscribe(payloadClass, subscriber, executor);
+    }
+
+    /**
+     * Subscribes to the data of the store with the given file name, which is the fileName of the MetaData of the data.
+     */
+    public void subscribe(String fileName, DataService.Listener subscriber) {
+        subscribe(fileName, subscriber, SubscriptionRouter.newSequentialExecutor());
+    }
+
+    public void subscribe(String fileName, DataService.Listener subscriber, Executor executor) {
+        subscriptionRouter.subscribe(fileName, subscriber, executor);
+    }
+
+    /**
+     * Removes all subscriptions of the subscriber.
+     */
+    public void unsubscribe(DataService.Listener subscriber) {
+        subscriptionRouter.unsubscribe(subscriber);
+    }
+
 
     ///////////////////////////////////////////////////////////////////////////////////////////////////
     // Private
     ///////////////////////////////////////////////////////////////////////////////////////////////////
 
+    /**
+     * Verifies the signatures of the requests in batches on the given executor. The requests keep the result, so
+     * the storage services only need to compare sequence numbers and store the data when we apply them afterwards.
+     * The returned future completes once all batches are done, also if some of them failed, as failed verifications
+     * get repeated when the requests are applied. Small collections are not worth the thread hops and complete
+     * immediately without being verified here.
+     */
+    static <T> CompletableFuture<Void> verifyInParallel(Collection<? extends T> dataRequests,
+                                                        Consumer<T> verifier,
+                                                        Executor executor) {
+        if (dataRequests.size() < MIN_REQUESTS_FOR_PARALLEL_VERIFICATION) {
+            return CompletableFuture.completedFuture(null);
+        }
+        List<? extends T> list = new ArrayList<>(dataRequests);
+        CompletableFuture<?>[] futures = Lists.partition(list, VERIFICATION_BATCH_SIZE).stream()
+                .map(batch -> CompletableFuture.runAsync(() -> batch.forEach(verifier), executor)
+                        .exceptionally(throwable -> {
+                            log.warn("Parallel verification of inventory failed. {}", throwable.toString());
+                            return null;
+                        }))
+                .toArray(CompletableFuture[]::new);
+        return CompletableFuture.allOf(futures);
+    }
+
+    private void verifySignature(DataRequest dataRequest) {
+        // Authenticated data go through the cache the storage service uses, so re-deliveries skip the verification
+        VerifiedRequestCache verifiedRequestCache = storageService.getVerifiedRequestCache();
+        if (dataRequest instanceof AddAuthenticatedDataRequest) {
+            verifiedRequestCache.isSignatureInvalid((AddAuthenticatedDataRequest) dataRequest);
+        } else if (dataRequest instanceof RemoveAuthenticatedDataRequest) {
+            verifiedRequestCache.isSignatureInvalid((RemoveAuthenticatedDataRequest) dataRequest);
+        } else if (dataRequest instanceof AddMailboxRequest) {
+            ((AddMailboxRequest) dataRequest).isSignatureInvalid();
+        } else if (dataRequest instanceof RemoveMailboxRequest) {
+            ((RemoveMailboxRequest) dataRequest).isSignatureInvalid();
+        }
+    }
+
     private void processAddDataRequest(AddDataRequest addDataRequest, boolean allowReBroadcast) {
         storageService.onAddDataRequest(addDataRequest)
                 .whenComplete((optionalData, throwable) -> {
                     optionalData.ifPresent(storageData -> {
-                        // We get called on dispatcher thread with onMessage, and we don't switch thread in 
-                        // async calls
-                        if (storageData instanceof AuthenticatedData) {
-                            listeners.forEach(listener -> listener.onAuthenticatedDataAdded((AuthenticatedData) storageData));
-                        } else if (storageData instanceof MailboxData) {
-                            listeners.forEach(listener -> listener.onMailboxDataAdded((MailboxData) storageData));
-                        } else if (storageData instanceof AppendOnlyData) {
-                            listeners.forEach(listener -> listener.onAppendOnlyDataAdded((AppendOnlyData) storageData));
-                        }
+                        // The store notified the listeners already
                         if (allowReBroadcast) {
                             dataNetworkServiceByTransportType.values().forEach(e -> e.reBroadcast(addDataRequest));
                         }
@@ -359,11 +538,7 @@ public class DataService implements DataNetworkService.Listener {
         storageService.onRemoveDataRequest(removeDataRequest)
                 .whenComplete((optionalData, throwable) -> {
                     optionalData.ifPresent(storageData -> {
-                        // We get called on dispatcher thread with onMessage, and we don't switch thread in 
-                        // async calls
-                        if (storageData instanceof AuthenticatedData) {
-                            listeners.forEach(listener -> listener.onAuthenticatedDataRemoved((AuthenticatedData) storageData));
-                        }
+                        // The store notified the listeners already
                         if (allowReBroadcast) {
                             dataNetworkServiceByTransportType.values().forEach(e -> e.reBroadcast(removeDataRequest));
                         }
@@ -371,6 +546,36 @@ public class DataService implements DataNetworkService.Listener {
                 });
     }
 
+    private void notifyAdded(StorageData storageData) {
+        if (storageData instanceof AuthenticatedData) {
+            listeners.forEach(listener -> listener.onAuthenticatedDataAdded((AuthenticatedData) storageData));
+        } else if (storageData instanceof MailboxData) {
+            listeners.forEach(listener -> listener.onMailboxDataAdded((MailboxData) storageData));
+        } else if (storageData instanceof AppendOnlyData) {
+            listeners.forEach(listener -> listener.onAppendOnlyDataAdded((AppendOnlyData) storageData));
+        }
+        subscriptionRouter.onAdded(storageData);
+    }
+
+    private void notifyBatchAdded(Collection<? extends StorageData> batch) {
+        listeners.forEach(listener -> listener.onBatchAdded(batch));
+        subscriptionRouter.onBatchAdded(batch);
+    }
+
+    private void notifyBatchRemoved(Collection<? extends StorageData> batch) {
+        listeners.forEach(listener -> listener.onBatchRemoved(batch));
+        subscriptionRouter.onBatchRemoved(batch);
+    }
+
+    private void notifyRemoved(StorageData storageData) {
+        if (storageData instanceof AuthenticatedData) {
+            listeners.forEach(listener -> listener.onAuthenticatedDataRemoved((AuthenticatedData) storageData));
+        } else if (storageData instanceof MailboxData) {
+            listeners.forEach(listener -> listener.onMailboxDataRemoved((MailboxData) storageData));
+        }
+        subscriptionRouter.onRemoved(storageData);
+    }
+
     private void doRequestInventory(DataNetworkService dataNetworkService) {
         requestInventory(new DataFilter(new HashSet<>(storageService.getFilterEntries(StorageService.StoreType.ALL))), dataNetworkService);
     }
@@ -0,0 +1,211 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.network.p2p.services.data;
+
+import bisq.common.threading.ExecutorFactory;
+import bisq.network.p2p.services.data.storage.StorageData;
+import bisq.network.p2p.services.data.storage.append.AppendOnlyData;
+import bisq.network.p2p.services.data.storage.auth.AuthenticatedData;
+import bisq.network.p2p.services.data.storage.mailbox.MailboxData;
+import com.google.common.util.concurrent.MoreExecutors;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Routing table for the subscriptions to added and removed StorageData. A subscription is keyed by the payload class
+ * or by the fileName of the MetaData, so an update only reaches the subscribers interested in it. The payload class
+ * is the class of the DistributedData for AuthenticatedData and the class of the StorageData otherwise. A subscription
+ * to a class covers its subclasses as well.
+ * <p>
+ * Each subscriber gets notified on its own executor. The default executor runs the notifications of a subscriber in
+ * order on a shared pool, so a slow subscriber only delays its own notifications.
+ */
+@Slf4j
+final class SubscriptionRouter {
+    // Threads are only created for subscribers with pending notifications
+    private static final ExecutorService NOTIFICATION_POOL = ExecutorFactory.newCachedThreadPool("DataService.notification");
+
+    static Executor newSequentialExecutor() {
+        return MoreExecutors.newSequentialExecutor(NOTIFICATION_POOL);
+    }
+
+    private final Map<DataService.Listener, Executor> executorBySubscriber = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Set<DataService.Listener>> subscribersByClass = new ConcurrentHashMap<>();
+    private final Map<String, Set<DataService.Listener>> subscribersByFileName = new ConcurrentHashMap<>();
+    // Subscribers of a payload class including those of its super classes and interfaces. Replaced at each change of
+    // the subscriptions, so a lookup running concurrently to a change cannot leave a stale entry in the new cache.
+    private volatile Map<Class<?>, Set<DataService.Listener>> resolvedSubscribersByClass = new ConcurrentHashMap<>();
+    private final Object lock = new Object();
+
+    /**
+     * The executor of the first subscription of a subscriber is used for all its notifications.
+     */
+    void subscribe(Class<?> payloadClass, DataService.Listener subscriber, Executor executor) {
+        synchronized (lock) {
+            executorBySubscriber.putIfAbsent(subscriber, executor);
+            subscribersByClass.computeIfAbsent(payloadClass, key -> new CopyOnWriteArraySet<>()).add(subscriber);
+            resolvedSubscribersByClass = new ConcurrentHashMap<>();
+        }
+    }
+
+    void subscribe(String fileName, DataService.Listener subscriber, Executor executor) {
+        synchronized (lock) {
+            executorBySubscriber.putIfAbsent(subscriber, executor);
+            subscribersByFileName.computeIfAbsent(fileName, key -> new CopyOnWriteArraySet<>()).add(subscriber);
+        }
+    }
+
+    /**
+     * Removes all subscriptions of the subscriber.
+     */
+    void unsubscribe(DataService.Listener subscriber) {
+        synchronized (lock) {
+            executorBySubscriber.remove(subscriber);
+            subscribersByClass.values().forEach(subscribers -> subscribers.remove(subscriber));
+            subscribersByClass.values().removeIf(Set::isEmpty);
+            subscribersByFileName.values().forEach(subscribers -> subscribers.remove(subscriber));
+            subscribersByFileName.values().removeIf(Set::isEmpty);
+            resolvedSubscribersByClass = new ConcurrentHashMap<>();
+        }
+    }
+
+    void clear() {
+        synchronized (lock) {
+            executorBySubscriber.clear();
+            subscribersByClass.clear();
+            subscribersByFileName.clear();
+            resolvedSubscribersByClass = new ConcurrentHashMap<>();
+        }
+    }
+
+    void onAdded(StorageData storageData) {
+        if (storageData instanceof AuthenticatedData) {
+            route(storageData, subscriber -> subscriber.onAuthenticatedDataAdded((AuthenticatedData) storageData));
+        } else if (storageData instanceof MailboxData) {
+            route(storageData, subscriber -> subscriber.onMailboxDataAdded((MailboxData) storageData));
+        } else if (storageData instanceof AppendOnlyData) {
+            route(storageData, subscriber -> subscriber.onAppendOnlyDataAdded((AppendOnlyData) storageData));
+        }
+    }
+
+    /**
+     * Each subscriber gets notified once with the data of the batch it is subscribed to.
+     */
+    void onBatchAdded(Collection<? extends StorageData> batch) {
+        routeBatch(batch, DataService.Listener::onBatchAdded);
+    }
+
+    void onRemoved(StorageData storageData) {
+        if (storageData instanceof AuthenticatedData) {
+            route(storageData, subscriber -> subscriber.onAuthenticatedDataRemoved((AuthenticatedData) storageData));
+        } else if (storageData instanceof MailboxData) {
+            route(storageData, subscriber -> subscriber.onMailboxDataRemoved((MailboxData) storageData));
+        }
+    }
+
+    /**
+     * Each subscriber gets notified once with the data of the batch it is subscribed to.
+     */
+    void onBatchRemoved(Collection<? extends StorageData> batch) {
+        routeBatch(batch, DataService.Listener::onBatchRemoved);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+
+    private void route(StorageData storageData, Consumer<DataService.Listener> notification) {
+        if (executorBySubscriber.isEmpty()) {
+            return;
+        }
+        getSubscribers(storageData).forEach(subscriber -> execute(subscriber, () -> notification.accept(subscriber)));
+    }
+
+    private void routeBatch(Collection<? extends StorageData> batch,
+                            BiConsumer<DataService.Listener, List<StorageData>> notification) {
+        if (executorBySubscriber.isEmpty()) {
+            return;
+        }
+        Map<DataService.Listener, List<StorageData>> batchBySubscriber = new LinkedHashMap<>();
+        batch.forEach(storageData -> getSubscribers(storageData).forEach(subscriber ->
+                batchBySubscriber.computeIfAbsent(subscriber, key -> new ArrayList<>()).add(storageData)));
+        batchBySubscriber.forEach((subscriber, subscribersBatch) ->
+                execute(subscriber, () -> notification.accept(subscriber, subscribersBatch)));
+    }
+
+    private Set<DataService.Listener> getSubscribers(StorageData storageData) {
+        Set<DataService.Listener> subscribers = getSubscribersOfClass(getPayloadClass(storageData));
+        Set<DataService.Listener> subscribersOfFile = subscribersByFileName.get(storageData.getMetaData().getFileName());
+        if (subscribersOfFile != null && !subscribersOfFile.isEmpty()) {
+            // A subscriber with subscriptions to both keys gets notified only once
+            subscribers = new LinkedHashSet<>(subscribers);
+            subscribers.addAll(subscribersOfFile);
+        }
+        return subscribers;
+    }
+
+    private void execute(DataService.Listener subscriber, Runnable notification) {
+        Executor executor = executorBySubscriber.get(subscriber);
+        if (executor != null) {
+            executor.execute(() -> {
+                try {
+                    notification.run();
+                } catch (Throwable throwable) {
+                    log.error("Notification of subscriber {} failed", subscriber, throwable);
+                }
+            });
+        }
+    }
+
+    private Set<DataService.Listener> getSubscribersOfClass(Class<?> payloadClass) {
+        if (subscribersByClass.isEmpty()) {
+            return Collections.emptySet();
+        }
+        return resolvedSubscribersByClass.computeIfAbsent(payloadClass, key -> {
+            Set<DataService.Listener> result = new LinkedHashSet<>();
+            subscribersByClass.forEach((subscribedClass, subscribers) -> {
+                if (subscribedClass.isAssignableFrom(key)) {
+                    result.addAll(subscribers);
+                }
+            });
+            return Collections.unmodifiableSet(result);
+        });
+    }
+
+    private static Class<?> getPayloadClass(StorageData storageData) {
+        return storageData instanceof AuthenticatedData ?
+                ((AuthenticatedData) storageData).getDistributedData().getClass() :
+                storageData.getClass();
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.network.p2p.services.data.broadcast;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * How a broadcast message gets distributed. Can be set per message type at the Broadcaster.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+public final class BroadcastPolicy {
+    public enum Priority {
+        HIGH,
+        NORMAL,
+        LOW
+    }
+
+    private static final long DEFAULT_PEER_TIMEOUT_MS = 20_000;
+    private static final double RE_BROADCAST_DISTRIBUTION_FACTOR = 0.75;
+
+    public static final BroadcastPolicy DEFAULT = new BroadcastPolicy(1, Integer.MAX_VALUE, DEFAULT_PEER_TIMEOUT_MS, Priority.NORMAL);
+    // Sent before other broadcasts and never lazily pushed
+    public static final BroadcastPolicy LATENCY_CRITICAL = new BroadcastPolicy(1, Integer.MAX_VALUE, DEFAULT_PEER_TIMEOUT_MS, Priority.HIGH);
+
+    // Share of the connections the message is sent to
+    private final double distributionFactor;
+    // The broadcast is counted as successful once the message has been sent to that many peers. If it is larger
+    // than the number of selected peers, the broadcast completes once all sends have completed.
+    private final int minNumSuccess;
+    // A send to a single peer which takes longer is counted as fault and frees its slot for the other sends
+    private final long peerTimeoutMs;
+    // Sends of messages with a higher priority are started first if the number of sends in flight is at its limit
+    private final Priority priority;
+
+    public BroadcastPolicy(double distributionFactor, int minNumSuccess, long peerTimeoutMs, Priority priority) {
+        checkArgument(distributionFactor >= 0 && distributionFactor <= 1,
+                "distributionFactor must be in the range of 0 to 1. distributionFactor=%s", distributionFactor);
+        checkArgument(minNumSuccess > 0, "minNumSuccess must be positive. minNumSuccess=%s", minNumSuccess);
+        checkArgument(peerTimeoutMs > 0, "peerTimeoutMs must be positive. peerTimeoutMs=%s", peerTimeoutMs);
+        this.distributionFactor = distributionFactor;
+        this.minNumSuccess = minNumSuccess;
+        this.peerTimeoutMs = peerTimeoutMs;
+        this.priority = priority;
+    }
+
+    public BroadcastPolicy(double distributionFactor, Priority priority) {
+        this(distributionFactor, Integer.MAX_VALUE, DEFAULT_PEER_TIMEOUT_MS, priority);
+    }
+
+    /**
+     * Re-broadcasts of data we received from other peers reach fewer peers and yield to our own broadcasts, unless
+     * they are latency critical.
+     */
+    public BroadcastPolicy forReBroadcast() {
+        return new BroadcastPolicy(distributionFactor * RE_BROADCAST_DISTRIBUTION_FACTOR,
+                minNumSuccess,
+                peerTimeoutMs,
+                priority == Priority.HIGH ? Priority.HIGH : Priority.LOW);
+    }
+}
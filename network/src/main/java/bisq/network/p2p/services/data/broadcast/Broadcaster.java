@@ -17,11 +17,15 @@
 
 package bisq.network.p2p.services.data.broadcast;
 
+import bisq.common.timer.Scheduler;
 import bisq.common.util.CollectionUtil;
-import bisq.network.NetworkService;
+import bisq.network.p2p.message.NetworkMessage;
 import bisq.network.p2p.node.Address;
+import bisq.network.p2p.node.CloseReason;
 import bisq.network.p2p.node.Connection;
+import bisq.network.p2p.node.Feature;
 import bisq.network.p2p.node.Node;
+import bisq.network.p2p.services.data.DataRequest;
 import bisq.network.p2p.services.peergroup.PeerGroup;
 import dev.failsafe.Failsafe;
 import dev.failsafe.RetryPolicy;
@@ -30,23 +34,67 @@ import lombok.extern.slf4j.Slf4j;
 import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 
+/**
+ * Sends broadcast messages to a random subset of the connected peers. The sends to all peers run concurrently, with a
+ * limit of sends in flight per node and a timeout per peer. The distribution factor and priority can be set per
+ * message type. Large data requests are announced instead of sent to peers supporting lazy push.
+ */
 @Slf4j
 public class Broadcaster {
     private static final long BROADCAST_TIMEOUT = 90;
     private static final long RE_BROADCAST_DELAY_MS = 100;
+    private static final int MAX_IN_FLIGHT_SENDS = 64;
 
     private final Node node;
     private final PeerGroup peerGroup;
+    private final SeenMessageCache seenMessageCache;
+    private final LazyPushGossip<Connection> lazyPushGossip;
+    private final Node.Listener lazyPushListener;
+    private final Scheduler lazyPushScheduler;
     private final RetryPolicy<BroadcastResult> retryPolicy;
+    private final FanOut fanOut = new FanOut(MAX_IN_FLIGHT_SENDS);
+    private final Map<Class<? extends BroadcastMessage>, BroadcastPolicy> policyByMessageClass = new ConcurrentHashMap<>();
 
-    public Broadcaster(Node node, PeerGroup peerGroup) {
+    public Broadcaster(Node node, PeerGroup peerGroup, SeenMessageCache seenMessageCache) {
         this.node = node;
         this.peerGroup = peerGroup;
+        this.seenMessageCache = seenMessageCache;
+        lazyPushGossip = new LazyPushGossip<>(seenMessageCache,
+                (networkMessage, connection) -> node.sendAsync(networkMessage, connection),
+                Connection::getPeerAddress,
+                System::currentTimeMillis);
+        lazyPushListener = new Node.Listener() {
+            @Override
+            public void onMessage(NetworkMessage networkMessage, Connection connection, String nodeId) {
+                if (networkMessage instanceof IHaveMessage) {
+                    lazyPushGossip.onIHaveMessage((IHaveMessage) networkMessage, connection);
+                } else if (networkMessage instanceof IWantMessage) {
+                    lazyPushGossip.onIWantMessage((IWantMessage) networkMessage, connection);
+                }
+            }
+
+            @Override
+            public void onConnection(Connection connection) {
+            }
+
+            @Override
+            public void onDisconnect(Connection connection, CloseReason closeReason) {
+                lazyPushGossip.onDisconnect(connection);
+            }
+        };
+        node.addListener(lazyPushListener);
+        lazyPushScheduler = Scheduler.run(lazyPushGossip::sendPendingBatches)
+                .name("Broadcaster.lazyPush")
+                .periodically(LazyPushGossip.ANNOUNCEMENT_INTERVAL_MS, TimeUnit.MILLISECONDS);
 
         retryPolicy = RetryPolicy.<BroadcastResult>builder()
                 .handle(IllegalStateException.class)
@@ -59,54 +107,118 @@ public class Broadcaster {
                 .build();
     }
 
+    /**
+     * Sets the policy used for broadcasts of messages of the given class. Messages of other classes use
+     * BroadcastPolicy.DEFAULT.
+     */
+    public void setPolicy(Class<? extends BroadcastMessage> messageClass, BroadcastPolicy policy) {
+        policyByMessageClass.put(messageClass, policy);
+    }
+
+    public BroadcastPolicy getPolicy(BroadcastMessage broadcastMessage) {
+        return policyByMessageClass.getOrDefault(broadcastMessage.getClass(), BroadcastPolicy.DEFAULT);
+    }
+
     public CompletableFuture<BroadcastResult> reBroadcast(BroadcastMessage broadcastMessage) {
-        return CompletableFuture.supplyAsync(() -> broadcast(broadcastMessage, 0.75).join(),
+        BroadcastPolicy policy = getPolicy(broadcastMessage).forReBroadcast();
+        return CompletableFuture.supplyAsync(() -> broadcast(broadcastMessage, policy).join(),
                 CompletableFuture.delayedExecutor(RE_BROADCAST_DELAY_MS, TimeUnit.MILLISECONDS));
     }
 
     public CompletableFuture<BroadcastResult> broadcast(BroadcastMessage broadcastMessage) {
-        return broadcast(broadcastMessage, 1);
+        return broadcast(broadcastMessage, getPolicy(broadcastMessage));
     }
 
     public CompletableFuture<BroadcastResult> broadcast(BroadcastMessage broadcastMessage, double distributionFactor) {
-        return Failsafe.with(retryPolicy).getAsync(() -> doBroadcast(broadcastMessage, distributionFactor).join());
+        return broadcast(broadcastMessage, new BroadcastPolicy(distributionFactor, getPolicy(broadcastMessage).getPriority()));
     }
 
-    public CompletableFuture<BroadcastResult> doBroadcast(BroadcastMessage broadcastMessage, double distributionFactor) {
+    public CompletableFuture<BroadcastResult> broadcast(BroadcastMessage broadcastMessage, BroadcastPolicy policy) {
+        return broadcast(broadcastMessage, policy, (connection, throwable) -> {
+        });
+    }
+
+    /**
+     * @param peerResultHandler Called for each selected peer once the send to it has completed. The throwable is null
+     *                          if the message has been sent.
+     */
+    public CompletableFuture<BroadcastResult> broadcast(BroadcastMessage broadcastMessage,
+                                                        BroadcastPolicy policy,
+                                                        BiConsumer<Connection, Throwable> peerResultHandler) {
+        // The digest serializes the whole message, so we compute it only once per broadcast
+        byte[] digest = SeenMessageCache.getDigest(broadcastMessage);
+        // Peers sending our own message back to us get their copy dropped
+        seenMessageCache.onBroadcast(digest);
+        return Failsafe.with(retryPolicy).getAsync(() -> doBroadcast(broadcastMessage, digest, policy, peerResultHandler).join());
+    }
+
+    public CompletableFuture<BroadcastResult> doBroadcast(BroadcastMessage broadcastMessage,
+                                                          byte[] digest,
+                                                          BroadcastPolicy policy,
+                                                          BiConsumer<Connection, Throwable> peerResultHandler) {
         if (!node.isInitialized()) {
             throw new IllegalStateException("Node not initialized. node=" + node.getNodeId() + 
                     "; transportType=" + node.getTransportType());
         }
 
         long ts = System.currentTimeMillis();
+        List<Connection> allConnections = peerGroup.getAllConnections().collect(Collectors.toList());
+        int numConnections = allConnections.size();
+        // Peers from which we received the message or to which we have sent it already are skipped
+        Set<Address> peersHavingMessage = seenMessageCache.getPeersHavingMessage(digest);
+        List<Connection> candidates = allConnections.stream()
+                .filter(connection -> !peersHavingMessage.contains(connection.getPeerAddress()))
+                .collect(Collectors.toList());
+        int numBroadcasts = (int) Math.min(candidates.size(), Math.round(numConnections * policy.getDistributionFactor()));
+        log.debug("Broadcast {} to {} out of {} peers. {} peers have the message already. policy={}",
+                broadcastMessage.getClass().getSimpleName(), numBroadcasts, numConnections,
+                numConnections - candidates.size(), policy);
+        if (numBroadcasts == 0) {
+            return CompletableFuture.completedFuture(new BroadcastResult(0, 0, 0));
+        }
+
         CompletableFuture<BroadcastResult> future = new CompletableFuture<BroadcastResult>()
                 .orTimeout(BROADCAST_TIMEOUT, TimeUnit.SECONDS);
+        int minNumSuccess = Math.min(policy.getMinNumSuccess(), numBroadcasts);
+        // Large messages are only announced to peers supporting lazy push, and get pulled by those missing them.
+        // Latency critical messages are always pushed.
+        boolean isLazyPushCandidate = broadcastMessage instanceof DataRequest &&
+                policy.getPriority() != BroadcastPolicy.Priority.HIGH &&
+                broadcastMessage.toProto().getSerializedSize() >= LazyPushGossip.MIN_SIZE_IN_BYTES;
         AtomicInteger numSuccess = new AtomicInteger(0);
         AtomicInteger numFaults = new AtomicInteger(0);
-        long numConnections = peerGroup.getAllConnections().count();
-        long numBroadcasts = Math.min(numConnections, Math.round(numConnections * distributionFactor));
-        log.debug("Broadcast {} to {} out of {} peers. distributionFactor={}",
-                broadcastMessage.getClass().getSimpleName(), numBroadcasts, numConnections, distributionFactor);
-        List<Connection> allConnections = peerGroup.getAllConnections().collect(Collectors.toList());
-        Collections.shuffle(allConnections);
-        NetworkService.NETWORK_IO_POOL.submit(() -> {
-            allConnections.stream()
-                    .limit(numBroadcasts)
-                    .forEach(connection -> {
-                        log.debug("Node {} broadcast to {}", node, connection.getPeerAddress());
-                        try {
-                            node.send(broadcastMessage, connection);
-                            numSuccess.incrementAndGet();
-                        } catch (Throwable throwable) {
-                            numFaults.incrementAndGet();
-                        }
-                        if (numSuccess.get() + numFaults.get() == numBroadcasts) {
-                            future.complete(new BroadcastResult(numSuccess.get(),
-                                    numFaults.get(),
-                                    System.currentTimeMillis() - ts));
-                        }
-                    });
-        });
+        Collections.shuffle(candidates);
+        candidates.stream()
+                .limit(numBroadcasts)
+                .forEach(connection -> {
+                    log.debug("Node {} broadcast to {}", node, connection.getPeerAddress());
+                    boolean useLazyPush = isLazyPushCandidate &&
+                            connection.getPeersCapability().hasFeature(Feature.LAZY_PUSH_V1);
+                    fanOut.submit(() -> useLazyPush ?
+                                            lazyPushGossip.announce(broadcastMessage, digest, connection).thenApply(nil -> connection) :
+                                            node.sendAsync(broadcastMessage, connection),
+                                    policy.getPriority(),
+                                    policy.getPeerTimeoutMs())
+                            .whenComplete((c, throwable) -> {
+                                // An announced message is only recorded as sent once the peer has pulled it
+                                if (throwable == null && !useLazyPush) {
+                                    seenMessageCache.onSent(digest, connection.getPeerAddress());
+                                }
+                                int success = throwable == null ? numSuccess.incrementAndGet() : numSuccess.get();
+                                int faults = throwable == null ? numFaults.get() : numFaults.incrementAndGet();
+                                try {
+                                    peerResultHandler.accept(connection, throwable);
+                                } catch (Throwable t) {
+                                    log.error("peerResultHandler failed", t);
+                                }
+                                // Later sends continue after the broadcast got completed with minNumSuccess
+                                if (success >= minNumSuccess || success + faults == numBroadcasts) {
+                                    future.complete(new BroadcastResult(success,
+                                            faults,
+                                            System.currentTimeMillis() - ts));
+                                }
+                            });
+                });
         return future;
     }
 
@@ -115,5 +227,7 @@ public class Broadcaster {
     }
 
     public void shutdown() {
+        lazyPushScheduler.stop();
+        node.removeListener(lazyPushListener);
     }
 }
@@ -0,0 +1,136 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.network.p2p.services.data.broadcast;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Runs the sends of all broadcasts of a node concurrently, but limits the number of sends in flight. Sends beyond the
+ * limit wait in a queue ordered by priority and submission. A send which does not complete within its timeout is
+ * counted as failed, so a stuck peer does not hold a slot.
+ */
+final class FanOut {
+    private static final class Task implements Comparable<Task> {
+        private final BroadcastPolicy.Priority priority;
+        private final long sequenceNumber;
+        private final Runnable start;
+
+        private Task(BroadcastPolicy.Priority priority, long sequenceNumber, Runnable start) {
+            this.priority = priority;
+            this.sequenceNumber = sequenceNumber;
+            this.start = start;
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            int result = priority.compareTo(other.priority);
+            return result != 0 ? result : Long.compare(sequenceNumber, other.sequenceNumber);
+        }
+    }
+
+    private final int maxInFlight;
+    private final PriorityQueue<Task> pending = new PriorityQueue<>();
+    private int numInFlight;
+    private long sequenceNumber;
+    private boolean isDispatching;
+
+    FanOut(int maxInFlight) {
+        checkArgument(maxInFlight > 0, "maxInFlight must be positive. maxInFlight=%s", maxInFlight);
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * @param send      Starts the send and returns a future which completes once the send is done
+     * @param timeoutMs Timeout of the send, counted from its start
+     * @return Future which completes with the result of the send, or exceptionally at a timeout
+     */
+    <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> send,
+                                    BroadcastPolicy.Priority priority,
+                                    long timeoutMs) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Runnable start = () -> {
+            CompletableFuture<T> future;
+            try {
+                future = send.get();
+            } catch (Throwable throwable) {
+                future = CompletableFuture.failedFuture(throwable);
+            }
+            future.orTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+                    .whenComplete((value, throwable) -> {
+                        onCompleted();
+                        if (throwable == null) {
+                            result.complete(value);
+                        } else {
+                            result.completeExceptionally(throwable);
+                        }
+                    });
+        };
+        synchronized (this) {
+            pending.add(new Task(priority, sequenceNumber++, start));
+        }
+        dispatch();
+        return result;
+    }
+
+    synchronized int getNumInFlight() {
+        return numInFlight;
+    }
+
+    synchronized int getNumPending() {
+        return pending.size();
+    }
+
+    private void onCompleted() {
+        synchronized (this) {
+            numInFlight--;
+        }
+        dispatch();
+    }
+
+    // Only one thread starts sends at a time. Sends completing synchronously free their slot while we are still in the
+    // loop, so we pick up the next task in the loop instead of recursing.
+    private void dispatch() {
+        while (true) {
+            Task task;
+            synchronized (this) {
+                if (isDispatching) {
+                    return;
+                }
+                if (numInFlight >= maxInFlight || pending.isEmpty()) {
+                    return;
+                }
+                task = pending.poll();
+                numInFlight++;
+                isDispatching = true;
+            }
+            try {
+                task.start.run();
+            } finally {
+                synchronized (this) {
+                    isDispatching = false;
+                }
+            }
+        }
+    }
+}
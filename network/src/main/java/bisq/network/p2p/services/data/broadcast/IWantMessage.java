@@ -0,0 +1,56 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.network.p2p.services.data.broadcast;
+
+import bisq.network.p2p.message.NetworkMessage;
+import com.google.protobuf.ByteString;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * IWANT of the lazy push gossip. Requests the announced broadcast messages with the given digests.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+public final class IWantMessage implements NetworkMessage {
+    private final List<byte[]> digests;
+
+    public IWantMessage(List<byte[]> digests) {
+        this.digests = digests;
+    }
+
+    @Override
+    public bisq.network.protobuf.NetworkMessage toProto() {
+        return getNetworkMessageBuilder().setIWantMessage(
+                        bisq.network.protobuf.IWantMessage.newBuilder()
+                                .addAllDigests(digests.stream().map(ByteString::copyFrom).collect(Collectors.toList())))
+                .build();
+    }
+
+    public static IWantMessage fromProto(bisq.network.protobuf.IWantMessage proto) {
+        return new IWantMessage(proto.getDigestsList().stream()
+                .map(ByteString::toByteArray)
+                .collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.network.p2p.services.data.broadcast;
+
+import bisq.common.data.ByteArray;
+import bisq.network.p2p.message.NetworkMessage;
+import bisq.network.p2p.node.Address;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * Lazy push of large broadcast messages. Instead of the message we send its digest in an IHaveMessage, and the peer
+ * pulls the message with an IWantMessage only if it has not seen it yet. The announcements to a peer are collected
+ * and sent in batches with sendPendingBatches.
+ * <p>
+ * Independent of the node, so it can be used with any type P identifying a peer.
+ */
+@Slf4j
+final class LazyPushGossip<P> {
+    interface Sender<P> {
+        /**
+         * @return Future which completes once the message has been sent
+         */
+        CompletableFuture<?> send(NetworkMessage networkMessage, P peer);
+    }
+
+    // Smaller messages are pushed, as the saving does not make up for the extra round trip
+    static final int MIN_SIZE_IN_BYTES = 4 * 1024;
+    static final long ANNOUNCEMENT_INTERVAL_MS = 250;
+    static final int MAX_DIGESTS_PER_MESSAGE = 1000;
+    // If the announcing peer did not deliver the message within that time, we pull it from the next one announcing it
+    static final long PULL_TIMEOUT_MS = TimeUnit.SECONDS.toMillis(30);
+    // Announced messages kept for delivering them on request
+    private static final int MAX_ANNOUNCED_MESSAGES = 5000;
+    private static final int MAX_PULLED_DIGESTS = 10_000;
+
+    private static final class Batch {
+        private final Set<ByteArray> digests = new LinkedHashSet<>();
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+    }
+
+    private static final class Announcement<P> {
+        private final BroadcastMessage broadcastMessage;
+        // Peers the message was announced to and which have not pulled it yet
+        private final Set<P> peers = new HashSet<>();
+
+        private Announcement(BroadcastMessage broadcastMessage) {
+            this.broadcastMessage = broadcastMessage;
+        }
+    }
+
+    private final SeenMessageCache seenMessageCache;
+    private final Sender<P> sender;
+    private final Function<P, Address> peerAddressFunction;
+    private final LongSupplier clock;
+    private final Map<ByteArray, Announcement<P>> announcementByDigest = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ByteArray, Announcement<P>> eldest) {
+            return size() > MAX_ANNOUNCED_MESSAGES;
+        }
+    };
+    // Time of the pull by digest
+    private final Map<ByteArray, Long> pulledDigests = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ByteArray, Long> eldest) {
+            return size() > MAX_PULLED_DIGESTS;
+        }
+    };
+    private final Map<P, Batch> pendingBatchByPeer = new HashMap<>();
+
+    LazyPushGossip(SeenMessageCache seenMessageCache,
+                   Sender<P> sender,
+                   Function<P, Address> peerAddressFunction,
+                   LongSupplier clock) {
+        this.seenMessageCache = seenMessageCache;
+        this.sender = sender;
+        this.peerAddressFunction = peerAddressFunction;
+        this.clock = clock;
+    }
+
+    /**
+     * Adds the digest of the message to the next announcement to that peer.
+     *
+     * @param messageDigest Digest of the message, see SeenMessageCache.getDigest
+     * @return Future which completes once the announcement has been sent
+     */
+    CompletableFuture<Void> announce(BroadcastMessage broadcastMessage, byte[] messageDigest, P peer) {
+        ByteArray digest = new ByteArray(messageDigest);
+        Batch fullBatch = null;
+        Batch batch;
+        synchronized (this) {
+            announcementByDigest.computeIfAbsent(digest, key -> new Announcement<>(broadcastMessage)).peers.add(peer);
+            batch = pendingBatchByPeer.computeIfAbsent(peer, key -> new Batch());
+            batch.digests.add(digest);
+            if (batch.digests.size() >= MAX_DIGESTS_PER_MESSAGE) {
+                fullBatch = pendingBatchByPeer.remove(peer);
+            }
+        }
+        if (fullBatch != null) {
+            send(fullBatch, peer);
+        }
+        return batch.future;
+    }
+
+    void onIHaveMessage(IHaveMessage iHaveMessage, P peer) {
+        long now = clock.getAsLong();
+        Address peerAddress = peerAddressFunction.apply(peer);
+        List<byte[]> missing = new ArrayList<>();
+        iHaveMessage.getDigests().stream()
+                .limit(MAX_DIGESTS_PER_MESSAGE)
+                .forEach(digest -> {
+                    seenMessageCache.onPeerHasMessage(digest, peerAddress);
+                    if (!seenMessageCache.isSeen(digest) && markPulled(new ByteArray(digest), now)) {
+                        missing.add(digest);
+                    }
+                });
+        if (!missing.isEmpty()) {
+            log.debug("Pull {} of {} announced messages from {}",
+                    missing.size(), iHaveMessage.getDigests().size(), peerAddress);
+            sender.send(new IWantMessage(missing), peer);
+        }
+    }
+
+    /**
+     * Delivers the requested messages which we have announced to that peer. Each message is delivered only once.
+     */
+    void onIWantMessage(IWantMessage iWantMessage, P peer) {
+        Map<ByteArray, BroadcastMessage> messageByDigest = new LinkedHashMap<>();
+        synchronized (this) {
+            iWantMessage.getDigests().stream()
+                    .limit(MAX_DIGESTS_PER_MESSAGE)
+                    .forEach(digest -> {
+                        ByteArray key = new ByteArray(digest);
+                        Announcement<P> announcement = announcementByDigest.get(key);
+                        if (announcement != null && announcement.peers.remove(peer)) {
+                            messageByDigest.put(key, announcement.broadcastMessage);
+                        }
+                    });
+        }
+        Address peerAddress = peerAddressFunction.apply(peer);
+        messageByDigest.forEach((digest, message) -> sender.send(message, peer)
+                .whenComplete((result, throwable) -> {
+                    if (throwable == null) {
+                        seenMessageCache.onSent(digest.getBytes(), peerAddress);
+                    }
+                }));
+    }
+
+    void onDisconnect(P peer) {
+        Batch batch;
+        synchronized (this) {
+            batch = pendingBatchByPeer.remove(peer);
+            announcementByDigest.values().forEach(announcement -> announcement.peers.remove(peer));
+        }
+        if (batch != null) {
+            batch.future.completeExceptionally(new IllegalStateException("Peer disconnected before announcement was sent"));
+        }
+    }
+
+    void sendPendingBatches() {
+        Map<P, Batch> batches;
+        synchronized (this) {
+            if (pendingBatchByPeer.isEmpty()) {
+                return;
+            }
+            batches = new HashMap<>(pendingBatchByPeer);
+            pendingBatchByPeer.clear();
+        }
+        batches.forEach((peer, batch) -> send(batch, peer));
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+
+    // Returns false if the message has been pulled from another peer recently
+    private synchronized boolean markPulled(ByteArray digest, long now) {
+        Long pulledAt = pulledDigests.get(digest);
+        if (pulledAt != null && now - pulledAt < PULL_TIMEOUT_MS) {
+            return false;
+        }
+        pulledDigests.put(digest, now);
+        return true;
+    }
+
+    private void send(Batch batch, P peer) {
+        List<byte[]> digests = batch.digests.stream().map(ByteArray::getBytes).collect(Collectors.toList());
+        CompletableFuture<?> future;
+        try {
+            future = sender.send(new IHaveMessage(digests), peer);
+        } catch (Throwable throwable) {
+            future = CompletableFuture.failedFuture(throwable);
+        }
+        future.whenComplete((result, throwable) -> {
+            if (throwable == null) {
+                batch.future.complete(null);
+            } else {
+                batch.future.completeExceptionally(throwable);
+            }
+        });
+    }
+}
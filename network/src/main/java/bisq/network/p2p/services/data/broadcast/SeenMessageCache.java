@@ -0,0 +1,222 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.network.p2p.services.data.broadcast;
+
+import bisq.common.data.ByteArray;
+import bisq.network.p2p.node.Address;
+import bisq.security.DigestUtil;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Digests of the broadcast messages seen within a time window. Used to drop duplicates of broadcast messages before
+ * they get dispatched, and to skip the peers which are known to have a message when we re-broadcast it.
+ * <p>
+ * The digests are kept in a rotating set of Bloom filters. Each filter covers a part of the window and the oldest
+ * gets dropped when a new one is started, so memory use is bounded and digests expire after at most the window.
+ * A false positive drops a new message. The false positive probability is low, and the data reaches us with the next
+ * inventory request anyway.
+ */
+@Slf4j
+public class SeenMessageCache {
+    private static final long WINDOW_MS = TimeUnit.MINUTES.toMillis(10);
+    private static final int NUM_GENERATIONS = 4;
+    private static final int EXPECTED_INSERTIONS_PER_GENERATION = 50_000;
+    private static final double FALSE_POSITIVE_PROBABILITY = 0.0001;
+    // Number of messages for which we keep track of the peers which have them
+    private static final int MAX_TRACKED_MESSAGES = 10_000;
+
+    private static final class Counters {
+        private final AtomicLong numReceived = new AtomicLong();
+        private final AtomicLong numDuplicates = new AtomicLong();
+    }
+
+    private final long generationDurationMs;
+    private final int numGenerations;
+    private final int expectedInsertionsPerGeneration;
+    private final LongSupplier clock;
+    // Newest generation first
+    private final Deque<BloomFilter<byte[]>> generations = new ArrayDeque<>();
+    private long generationStartTime;
+    private final Map<ByteArray, Set<Address>> peersByDigest = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ByteArray, Set<Address>> eldest) {
+            return size() > MAX_TRACKED_MESSAGES;
+        }
+    };
+    private final Map<String, Counters> countersByMessageType = new ConcurrentHashMap<>();
+
+    public SeenMessageCache() {
+        this(WINDOW_MS, NUM_GENERATIONS, EXPECTED_INSERTIONS_PER_GENERATION, System::currentTimeMillis);
+    }
+
+    SeenMessageCache(long windowMs, int numGenerations, int expectedInsertionsPerGeneration, LongSupplier clock) {
+        checkArgument(numGenerations > 1, "numGenerations must be larger than 1. numGenerations=%s", numGenerations);
+        this.generationDurationMs = windowMs / numGenerations;
+        this.numGenerations = numGenerations;
+        this.expectedInsertionsPerGeneration = expectedInsertionsPerGeneration;
+        this.clock = clock;
+        generations.addFirst(newGeneration());
+        generationStartTime = clock.getAsLong();
+    }
+
+    /**
+     * Marks the message received from the given peer as seen.
+     *
+     * @return True if the message has been seen before within the time window
+     */
+    public boolean onReceived(BroadcastMessage broadcastMessage, Address peerAddress) {
+        byte[] digest = getDigest(broadcastMessage);
+        boolean isDuplicate;
+        synchronized (this) {
+            isDuplicate = markSeen(digest);
+            addPeer(digest, peerAddress);
+        }
+        Counters counters = countersByMessageType.computeIfAbsent(broadcastMessage.getClass().getSimpleName(),
+                key -> new Counters());
+        counters.numReceived.incrementAndGet();
+        if (isDuplicate) {
+            counters.numDuplicates.incrementAndGet();
+        }
+        return isDuplicate;
+    }
+
+    /**
+     * Marks a message we broadcast as seen, so that it gets dropped if peers send it back to us.
+     *
+     * @param digest Digest of the message, see getDigest
+     */
+    public void onBroadcast(byte[] digest) {
+        synchronized (this) {
+            markSeen(digest);
+        }
+    }
+
+    /**
+     * Remembers that the peer has the message with that digest, as we have sent it to that peer.
+     */
+    public void onSent(byte[] digest, Address peerAddress) {
+        synchronized (this) {
+            addPeer(digest, peerAddress);
+        }
+    }
+
+    /**
+     * @return True if the message with that digest has been seen within the time window
+     */
+    public boolean isSeen(byte[] digest) {
+        synchronized (this) {
+            maybeRotate();
+            return generations.stream().anyMatch(generation -> generation.mightContain(digest));
+        }
+    }
+
+    /**
+     * Remembers that the peer has the message with that digest, as it has announced it to us.
+     */
+    public void onPeerHasMessage(byte[] digest, Address peerAddress) {
+        synchronized (this) {
+            addPeer(digest, peerAddress);
+        }
+    }
+
+    /**
+     * @return The peers from which we received the message with that digest or to which we have sent it
+     */
+    public Set<Address> getPeersHavingMessage(byte[] digest) {
+        synchronized (this) {
+            Set<Address> peers = peersByDigest.get(new ByteArray(digest));
+            return peers != null ? new HashSet<>(peers) : Set.of();
+        }
+    }
+
+    /**
+     * @return Share of the received messages which were duplicates by the simple class name of the message
+     */
+    public Map<String, Double> getDuplicateRatioByMessageType() {
+        return countersByMessageType.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> {
+                    long numReceived = entry.getValue().numReceived.get();
+                    return numReceived == 0 ? 0 : entry.getValue().numDuplicates.get() / (double) numReceived;
+                }));
+    }
+
+    /**
+     * Serializes and hashes the whole message, so callers compute it once per message and pass it on.
+     */
+    public static byte[] getDigest(BroadcastMessage broadcastMessage) {
+        return DigestUtil.hash(broadcastMessage.serialize());
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+
+    // Has to be called while holding the lock
+    private boolean markSeen(byte[] digest) {
+        maybeRotate();
+        boolean isSeen = generations.stream().anyMatch(generation -> generation.mightContain(digest));
+        if (!isSeen) {
+            generations.getFirst().put(digest);
+        }
+        return isSeen;
+    }
+
+    // Has to be called while holding the lock
+    private void maybeRotate() {
+        long now = clock.getAsLong();
+        if (now - generationStartTime < generationDurationMs) {
+            return;
+        }
+        // After a longer pause all generations might be outdated
+        long numElapsedGenerations = Math.min((now - generationStartTime) / generationDurationMs, numGenerations);
+        for (int i = 0; i < numElapsedGenerations; i++) {
+            generations.addFirst(newGeneration());
+            if (generations.size() > numGenerations) {
+                generations.removeLast();
+            }
+        }
+        generationStartTime = now;
+    }
+
+    // Has to be called while holding the lock
+    private void addPeer(byte[] digest, Address peerAddress) {
+        peersByDigest.computeIfAbsent(new ByteArray(digest), key -> new HashSet<>()).add(peerAddress);
+    }
+
+    private BloomFilter<byte[]> newGeneration() {
+        return BloomFilter.create(Funnels.byteArrayFunnel(), expectedInsertionsPerGeneration, FALSE_POSITIVE_PROBABILITY);
+    }
+}
@@ -18,35 +18,95 @@
 package bisq.network.p2p.services.data.filter;
 
 
+import bisq.common.data.ByteArray;
 import bisq.common.proto.Proto;
+import lombok.AccessLevel;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.ToString;
 
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+/**
+ * Describes the data the requester already has. Either the full set of FilterEntries, or, if the peer supports it,
+ * only an InventorySketch of them (the filterEntries are then empty). The storeNames limit the inventory to the
+ * stores the FilterEntries are taken from, so that the responder compares the sketch with a sketch over the same
+ * stores.
+ */
 @Getter
 @ToString
 @EqualsAndHashCode
 public final class DataFilter implements Proto {
     private final Set<FilterEntry> filterEntries;
+    private final Optional<InventorySketch> inventorySketch;
+    // Store types (like AuthenticatedDataStore) or file names of single stores. Empty for all stores.
+    private final Set<String> storeNames;
+    // Built on first use by the responder, so that the lookup per stored entry does not need to create a FilterEntry
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private Map<ByteArray, Integer> sequenceNumberByHash;
 
     public DataFilter(Set<FilterEntry> filterEntries) {
+        this(filterEntries, Set.of());
+    }
+
+    public DataFilter(Set<FilterEntry> filterEntries, Set<String> storeNames) {
+        this(filterEntries, Optional.empty(), storeNames);
+    }
+
+    private DataFilter(Set<FilterEntry> filterEntries, Optional<InventorySketch> inventorySketch, Set<String> storeNames) {
         this.filterEntries = filterEntries;
+        this.inventorySketch = inventorySketch;
+        this.storeNames = storeNames;
+    }
+
+    /**
+     * @param storeName The store type of the store, like AuthenticatedDataStore
+     * @param fileName  The file name of the store
+     */
+    public boolean includesStore(String storeName, String fileName) {
+        return storeNames.isEmpty() || storeNames.contains(storeName) || storeNames.contains(fileName);
+    }
+
+    public boolean contains(ByteArray hash, int sequenceNumber) {
+        if (sequenceNumberByHash == null) {
+            sequenceNumberByHash = filterEntries.stream()
+                    .collect(Collectors.toMap(filterEntry -> new ByteArray(filterEntry.getHash()),
+                            FilterEntry::getSequenceNumber,
+                            Math::max));
+        }
+        Integer sequenceNumberFromFilter = sequenceNumberByHash.get(hash);
+        return sequenceNumberFromFilter != null && sequenceNumberFromFilter == sequenceNumber;
+    }
+
+    /**
+     * @return A DataFilter carrying only the sketch of our filterEntries, for the same stores.
+     */
+    public DataFilter toSketchFilter(int numCells) {
+        InventorySketch sketch = new InventorySketch(numCells);
+        filterEntries.forEach(filterEntry -> sketch.add(InventorySketch.toKey(filterEntry)));
+        return new DataFilter(Set.of(), Optional.of(sketch), storeNames);
     }
 
     public bisq.network.protobuf.DataFilter toProto() {
-        return bisq.network.protobuf.DataFilter.newBuilder()
+        bisq.network.protobuf.DataFilter.Builder builder = bisq.network.protobuf.DataFilter.newBuilder()
                 .addAllFilterEntries(filterEntries.stream()
                         .map(FilterEntry::toProto)
-                        .collect(Collectors.toList()))
-                .build();
+                        .collect(Collectors.toList()));
+        inventorySketch.ifPresent(sketch -> builder.setInventorySketch(sketch.toProto()));
+        builder.addAllStoreNames(storeNames);
+        return builder.build();
     }
 
     public static DataFilter fromProto(bisq.network.protobuf.DataFilter proto) {
         return new DataFilter(proto.getFilterEntriesList().stream()
-                .map(FilterEntry::fromProto)
-                .collect(Collectors.toSet()));
+                        .map(FilterEntry::fromProto)
+                        .collect(Collectors.toSet()),
+                proto.hasInventorySketch() ? Optional.of(InventorySketch.fromProto(proto.getInventorySketch())) : Optional.empty(),
+                Set.copyOf(proto.getStoreNamesList()));
     }
 }
\ No newline at end of file
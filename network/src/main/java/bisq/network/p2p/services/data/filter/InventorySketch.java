@@ -0,0 +1,241 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.services.data.filter;
+
+import bisq.common.proto.Proto;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Invertible bloom lookup table (IBLT) over 64 bit keys derived from FilterEntries.
+ * <p>
+ * The requester of an inventory sends its sketch, the responder subtracts it from the sketch of its own entries and
+ * decodes the difference. The size of the sketch depends only on the number of differences it can decode
+ * (about 2/3 of the number of cells), not on the number of entries. If there are more differences, decoding fails and
+ * the requester falls back to a DataFilter with all FilterEntries.
+ */
+@EqualsAndHashCode
+public final class InventorySketch implements Proto {
+    public static final int DEFAULT_NUM_CELLS = 768;
+    public static final int MAX_NUM_CELLS = 64 * 1024;
+    private static final int MIN_NUM_CELLS = 48;
+    private static final int NUM_HASHES = 3;
+
+    @Getter
+    @ToString
+    public static final class Difference {
+        // Keys which are only in the sketch we called decode on (the minuend)
+        private final Set<Long> onlyInThis;
+        // Keys which are only in the subtracted sketch
+        private final Set<Long> onlyInOther;
+
+        private Difference(Set<Long> onlyInThis, Set<Long> onlyInOther) {
+            this.onlyInThis = onlyInThis;
+            this.onlyInOther = onlyInOther;
+        }
+    }
+
+    /**
+     * @return The number of cells needed to decode the expected number of differences. About 2/3 of the cells can be
+     * decoded, we use twice the number of differences, so that decoding hardly ever fails if the estimate is right.
+     */
+    public static int getNumCellsForDifference(int expectedDifference) {
+        long numCells = (long) expectedDifference * 2;
+        // Small sketches need a larger margin, so we do not go below MIN_NUM_CELLS
+        numCells = Math.max(MIN_NUM_CELLS, Math.min(MAX_NUM_CELLS, numCells));
+        // Round up to a multiple of NUM_HASHES, as each hash function has its own partition
+        return (int) Math.min(MAX_NUM_CELLS - MAX_NUM_CELLS % NUM_HASHES,
+                (numCells + NUM_HASHES - 1) / NUM_HASHES * NUM_HASHES);
+    }
+
+    public static long toKey(FilterEntry filterEntry) {
+        return toKey(filterEntry.getHash(), filterEntry.getSequenceNumber());
+    }
+
+    public static long toKey(byte[] hash, int sequenceNumber) {
+        long key = sequenceNumber;
+        for (byte b : hash) {
+            key = mix(key * 31 + (b & 0xFF));
+        }
+        return key;
+    }
+
+    private final int[] counts;
+    private final long[] keySums;
+    private final long[] checkSums;
+
+    public InventorySketch() {
+        this(DEFAULT_NUM_CELLS);
+    }
+
+    public InventorySketch(int numCells) {
+        this(new int[numCells], new long[numCells], new long[numCells]);
+    }
+
+    private InventorySketch(int[] counts, long[] keySums, long[] checkSums) {
+        checkArgument(counts.length == keySums.length && counts.length == checkSums.length,
+                "Arrays of InventorySketch must have the same length");
+        checkArgument(counts.length >= NUM_HASHES && counts.length <= MAX_NUM_CELLS && counts.length % NUM_HASHES == 0,
+                "Invalid number of cells of InventorySketch. numCells=%s", counts.length);
+        this.counts = counts;
+        this.keySums = keySums;
+        this.checkSums = checkSums;
+    }
+
+    public bisq.network.protobuf.InventorySketch toProto() {
+        bisq.network.protobuf.InventorySketch.Builder builder = bisq.network.protobuf.InventorySketch.newBuilder();
+        for (int i = 0; i < counts.length; i++) {
+            builder.addCounts(counts[i]).addKeySums(keySums[i]).addCheckSums(checkSums[i]);
+        }
+        return builder.build();
+    }
+
+    public static InventorySketch fromProto(bisq.network.protobuf.InventorySketch proto) {
+        int numCells = proto.getCountsCount();
+        int[] counts = new int[numCells];
+        long[] keySums = new long[numCells];
+        long[] checkSums = new long[numCells];
+        checkArgument(proto.getKeySumsCount() == numCells && proto.getCheckSumsCount() == numCells,
+                "Arrays of InventorySketch must have the same length");
+        for (int i = 0; i < numCells; i++) {
+            counts[i] = proto.getCounts(i);
+            keySums[i] = proto.getKeySums(i);
+            checkSums[i] = proto.getCheckSums(i);
+        }
+        return new InventorySketch(counts, keySums, checkSums);
+    }
+
+    public int getNumCells() {
+        return counts.length;
+    }
+
+    public void add(long key) {
+        update(counts, keySums, checkSums, key, 1);
+    }
+
+    public InventorySketch subtract(InventorySketch other) {
+        checkArgument(getNumCells() == other.getNumCells(),
+                "Sketches must have the same number of cells. numCells=%s, other.numCells=%s",
+                getNumCells(), other.getNumCells());
+        int numCells = getNumCells();
+        int[] resultCounts = new int[numCells];
+        long[] resultKeySums = new long[numCells];
+        long[] resultCheckSums = new long[numCells];
+        for (int i = 0; i < numCells; i++) {
+            resultCounts[i] = counts[i] - other.counts[i];
+            resultKeySums[i] = keySums[i] ^ other.keySums[i];
+            resultCheckSums[i] = checkSums[i] ^ other.checkSums[i];
+        }
+        return new InventorySketch(resultCounts, resultKeySums, resultCheckSums);
+    }
+
+    /**
+     * Lists the keys of a sketch obtained by subtract. Does not modify this sketch.
+     *
+     * @return The difference, or empty if the sketch is too small for the number of differences.
+     */
+    public Optional<Difference> decode() {
+        int[] counts = Arrays.copyOf(this.counts, this.counts.length);
+        long[] keySums = Arrays.copyOf(this.keySums, this.keySums.length);
+        long[] checkSums = Arrays.copyOf(this.checkSums, this.checkSums.length);
+        Set<Long> onlyInThis = new HashSet<>();
+        Set<Long> onlyInOther = new HashSet<>();
+
+        Deque<Integer> pureCells = new ArrayDeque<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (isPure(counts, keySums, checkSums, i)) {
+                pureCells.add(i);
+            }
+        }
+        while (!pureCells.isEmpty()) {
+            int index = pureCells.poll();
+            if (!isPure(counts, keySums, checkSums, index)) {
+                continue;
+            }
+            long key = keySums[index];
+            int count = counts[index];
+            if (count == 1) {
+                onlyInThis.add(key);
+            } else {
+                onlyInOther.add(key);
+            }
+            // Removing the key from all its cells might make other cells pure
+            update(counts, keySums, checkSums, key, -count);
+            for (int i = 0; i < NUM_HASHES; i++) {
+                int cell = getCellIndex(key, i, counts.length);
+                if (isPure(counts, keySums, checkSums, cell)) {
+                    pureCells.add(cell);
+                }
+            }
+        }
+
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0 || keySums[i] != 0 || checkSums[i] != 0) {
+                return Optional.empty();
+            }
+        }
+        return Optional.of(new Difference(onlyInThis, onlyInOther));
+    }
+
+    @Override
+    public String toString() {
+        return "InventorySketch{numCells=" + getNumCells() + "}";
+    }
+
+    private static void update(int[] counts, long[] keySums, long[] checkSums, long key, int delta) {
+        long checkSum = getCheckSum(key);
+        for (int i = 0; i < NUM_HASHES; i++) {
+            int cell = getCellIndex(key, i, counts.length);
+            counts[cell] += delta;
+            keySums[cell] ^= key;
+            checkSums[cell] ^= checkSum;
+        }
+    }
+
+    private static boolean isPure(int[] counts, long[] keySums, long[] checkSums, int index) {
+        return (counts[index] == 1 || counts[index] == -1) && checkSums[index] == getCheckSum(keySums[index]);
+    }
+
+    // Each hash function maps into its own partition, so a key always occupies NUM_HASHES distinct cells
+    private static int getCellIndex(long key, int hashIndex, int numCells) {
+        int partitionSize = numCells / NUM_HASHES;
+        long hash = mix(key + 0x9E3779B97F4A7C15L * (hashIndex + 1));
+        return hashIndex * partitionSize + (int) Long.remainderUnsigned(hash, partitionSize);
+    }
+
+    private static long getCheckSum(long key) {
+        return mix(key ^ 0x5851F42D4C957F2DL);
+    }
+
+    // Finalizer of SplitMix64
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+}
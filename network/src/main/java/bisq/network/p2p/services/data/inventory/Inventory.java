@@ -19,12 +19,14 @@ package bisq.network.p2p.services.data.inventory;
 
 import bisq.common.proto.Proto;
 import bisq.network.p2p.services.data.DataRequest;
+import lombok.AccessLevel;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -34,18 +36,51 @@ import java.util.stream.Collectors;
 @Slf4j
 public final class Inventory implements Proto {
     private final Set<? extends DataRequest> entries;
+    // Number of entries the requester is missing which are not included in this chunk
     private final int numDropped;
+    // Set if the DataFilter contained an InventorySketch which was too small for the differences to our data.
+    // The requester has to repeat the request with the full FilterEntries.
+    private final boolean sketchDecodeFailed;
+    // Set if there are more chunks
+    private final Optional<InventoryContinuationToken> continuationToken;
+    // Built once on first use, so a cached Inventory is not encoded again for each peer
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private bisq.network.protobuf.Inventory cachedProto;
 
     public Inventory(Set<? extends DataRequest> entries, int numDropped) {
+        this(entries, numDropped, false, Optional.empty());
+    }
+
+    public Inventory(Set<? extends DataRequest> entries,
+                     int numDropped,
+                     boolean sketchDecodeFailed,
+                     Optional<InventoryContinuationToken> continuationToken) {
         this.entries = entries;
         this.numDropped = numDropped;
+        this.sketchDecodeFailed = sketchDecodeFailed;
+        this.continuationToken = continuationToken;
+    }
+
+    public static Inventory forFailedSketchDecode() {
+        return new Inventory(Set.of(), 0, true, Optional.empty());
     }
 
     public bisq.network.protobuf.Inventory toProto() {
-        return bisq.network.protobuf.Inventory.newBuilder()
-                .addAllEntries(entries.stream().map(e -> e.toProto().getDataRequest()).collect(Collectors.toList()))
+        if (cachedProto == null) {
+            cachedProto = buildProto();
+        }
+        return cachedProto;
+    }
+
+    private bisq.network.protobuf.Inventory buildProto() {
+        bisq.network.protobuf.Inventory.Builder builder = bisq.network.protobuf.Inventory.newBuilder()
+                .addAllEntries(entries.stream().map(DataRequest::toDataRequestProto).collect(Collectors.toList()))
                 .setNumDropped(numDropped)
-                .build();
+                .setSketchDecodeFailed(sketchDecodeFailed);
+        continuationToken.ifPresent(token -> builder.setContinuationToken(token.toProto()));
+        return builder.build();
     }
 
     public static Inventory fromProto(bisq.network.protobuf.Inventory proto) {
@@ -53,6 +88,9 @@ public final class Inventory implements Proto {
         Set<DataRequest> entries = entriesList.stream()
                 .map(DataRequest::fromProto)
                 .collect(Collectors.toSet());
-        return new Inventory(entries, proto.getNumDropped());
+        return new Inventory(entries,
+                proto.getNumDropped(),
+                proto.getSketchDecodeFailed(),
+                proto.hasContinuationToken() ? Optional.of(InventoryContinuationToken.fromProto(proto.getContinuationToken())) : Optional.empty());
     }
 }
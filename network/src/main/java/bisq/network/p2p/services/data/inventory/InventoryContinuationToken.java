@@ -0,0 +1,52 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.services.data.inventory;
+
+import bisq.common.proto.Proto;
+import com.google.protobuf.ByteString;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Position of the last entry of an Inventory chunk in the order of InventoryUtil.NEWEST_FIRST. The responder does not
+ * keep any state for chunked responses, it recomputes the inventory and continues after that position.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+public final class InventoryContinuationToken implements Proto {
+    private final long created;
+    private final byte[] hash;
+
+    public InventoryContinuationToken(long created, byte[] hash) {
+        this.created = created;
+        this.hash = hash;
+    }
+
+    public bisq.network.protobuf.InventoryContinuationToken toProto() {
+        return bisq.network.protobuf.InventoryContinuationToken.newBuilder()
+                .setCreated(created)
+                .setHash(ByteString.copyFrom(hash))
+                .build();
+    }
+
+    public static InventoryContinuationToken fromProto(bisq.network.protobuf.InventoryContinuationToken proto) {
+        return new InventoryContinuationToken(proto.getCreated(), proto.getHash().toByteArray());
+    }
+}
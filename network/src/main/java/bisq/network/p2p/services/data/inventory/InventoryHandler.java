@@ -17,6 +17,7 @@
 
 package bisq.network.p2p.services.data.inventory;
 
+import bisq.common.timer.Scheduler;
 import bisq.network.NetworkService;
 import bisq.network.p2p.message.NetworkMessage;
 import bisq.network.p2p.node.CloseReason;
@@ -31,8 +32,11 @@ import lombok.extern.slf4j.Slf4j;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Random;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import static java.util.concurrent.CompletableFuture.supplyAsync;
@@ -42,13 +46,23 @@ import static java.util.concurrent.CompletableFuture.supplyAsync;
 class InventoryHandler implements Connection.Listener {
     private final Node node;
     private final Connection connection;
+    private final Consumer<Inventory> chunkHandler;
+    private final long chunkTimeout;
     private final CompletableFuture<Inventory> future = new CompletableFuture<>();
     private final int nonce;
+    private DataFilter dataFilter;
+    private int numChunks;
     private long ts;
+    private volatile Optional<Scheduler> timeoutScheduler = Optional.empty();
 
-    InventoryHandler(Node node, Connection connection) {
+    /**
+     * @param chunkTimeout Max. time in ms we wait for the response to each request of a chunk
+     */
+    InventoryHandler(Node node, Connection connection, Consumer<Inventory> chunkHandler, long chunkTimeout) {
         this.node = node;
         this.connection = connection;
+        this.chunkHandler = chunkHandler;
+        this.chunkTimeout = chunkTimeout;
 
         nonce = new Random().nextInt();
         connection.addListener(this);
@@ -57,14 +71,9 @@ class InventoryHandler implements Connection.Listener {
     CompletableFuture<Inventory> request(DataFilter dataFilter) {
         // log.debug("Node {} send GetInventoryRequest to {} with dataFilter {} and nonce {}. Connection={}",
         //        node, connection.getPeerAddress(), dataFilter, nonce, connection.getId());
+        this.dataFilter = dataFilter;
         ts = System.currentTimeMillis();
-        supplyAsync(() -> node.send(new InventoryRequest(dataFilter, nonce), connection), NetworkService.NETWORK_IO_POOL)
-                .whenComplete((c, throwable) -> {
-                    if (throwable != null) {
-                        future.completeExceptionally(throwable);
-                        dispose();
-                    }
-                });
+        send(new InventoryRequest(dataFilter, nonce));
         return future;
     }
 
@@ -73,8 +82,13 @@ class InventoryHandler implements Connection.Listener {
         if (networkMessage instanceof InventoryResponse) {
             InventoryResponse response = (InventoryResponse) networkMessage;
             if (response.getRequestNonce() == nonce) {
+                stopTimeoutScheduler();
+                Inventory inventory = response.getInventory();
+                if (numChunks++ == 0) {
+                    connection.getMetrics().addRtt(System.currentTimeMillis() - ts);
+                }
                 Map<String, Integer> map = new HashMap<>();
-                response.getInventory().getEntries().stream()
+                inventory.getEntries().stream()
                         .filter(e -> e instanceof AddAuthenticatedDataRequest)
                         .map(e -> (AddAuthenticatedDataRequest) e)
                         .map(AddAuthenticatedDataRequest::getAuthenticatedSequentialData)
@@ -84,7 +98,7 @@ class InventoryHandler implements Connection.Listener {
                             map.putIfAbsent(simpleName, 0);
                             map.put(simpleName, map.get(simpleName) + 1);
                         });
-                response.getInventory().getEntries().stream()
+                inventory.getEntries().stream()
                         .filter(e -> e instanceof AddAppendOnlyDataRequest)
                         .map(e -> (AddAppendOnlyDataRequest) e)
                         .map(AddAppendOnlyDataRequest::getAppendOnlyData)
@@ -96,13 +110,23 @@ class InventoryHandler implements Connection.Listener {
               /*  log.info("Node {} received GetInventoryResponse from {} with inventory {} and nonce {}. Connection={}",
                         node, connection.getPeerAddress(), response.inventory(), response.requestNonce(), connection.getId());*/
                 log.info("\n##########################################################################################\n" +
-                        "## INVENTORY from: " + connection.getPeerAddress() + "\n" +
+                        "## INVENTORY from: " + connection.getPeerAddress() + " (chunk " + numChunks + ", remaining entries: " + inventory.getNumDropped() + ")\n" +
                         "##########################################################################################\n" +
                         map.entrySet().stream().map(e -> e.getValue() + " " + e.getKey()).collect(Collectors.joining("\n")) +
                         "\n##########################################################################################");
-                removeListeners();
-                connection.getMetrics().addRtt(ts = System.currentTimeMillis() - ts);
-                future.complete(response.getInventory());
+                if (!inventory.isSketchDecodeFailed()) {
+                    try {
+                        chunkHandler.accept(inventory);
+                    } catch (Exception e) {
+                        log.error("Applying inventory chunk from {} failed", connection.getPeerAddress(), e);
+                    }
+                }
+                if (inventory.getContinuationToken().isPresent() && !future.isDone()) {
+                    send(new InventoryRequest(dataFilter, nonce, inventory.getContinuationToken()));
+                } else {
+                    removeListeners();
+                    future.complete(inventory);
+                }
             } else {
                 log.warn("Node {} received Pong from {} with invalid nonce {}. Request nonce was {}. Connection={}",
                         node, connection.getPeerAddress(), response.getRequestNonce(), nonce, connection.getId());
@@ -116,10 +140,37 @@ class InventoryHandler implements Connection.Listener {
     }
 
     void dispose() {
+        stopTimeoutScheduler();
         removeListeners();
         future.cancel(true);
     }
 
+    private void send(InventoryRequest request) {
+        stopTimeoutScheduler();
+        timeoutScheduler = Optional.of(Scheduler.run(this::onChunkTimeout)
+                .name("InventoryHandler.timeout")
+                .after(chunkTimeout));
+        supplyAsync(() -> node.send(request, connection), NetworkService.NETWORK_IO_POOL)
+                .whenComplete((c, throwable) -> {
+                    if (throwable != null) {
+                        future.completeExceptionally(throwable);
+                        dispose();
+                    }
+                });
+    }
+
+    private void onChunkTimeout() {
+        log.warn("No inventory chunk received from {} within {} ms after chunk {}",
+                connection.getPeerAddress(), chunkTimeout, numChunks);
+        future.completeExceptionally(new TimeoutException("Inventory chunk timed out after " + chunkTimeout + " ms"));
+        dispose();
+    }
+
+    private void stopTimeoutScheduler() {
+        timeoutScheduler.ifPresent(Scheduler::stop);
+        timeoutScheduler = Optional.empty();
+    }
+
     private void removeListeners() {
         connection.removeListener(this);
     }
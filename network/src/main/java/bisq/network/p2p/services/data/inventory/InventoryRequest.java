@@ -24,28 +24,38 @@ import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.ToString;
 
+import java.util.Optional;
+
 @Getter
 @ToString
 @EqualsAndHashCode
 public final class InventoryRequest implements BroadcastMessage {
     private final DataFilter dataFilter;
     private final int nonce;
+    private final Optional<InventoryContinuationToken> continuationToken;
 
     public InventoryRequest(DataFilter dataFilter, int nonce) {
+        this(dataFilter, nonce, Optional.empty());
+    }
+
+    public InventoryRequest(DataFilter dataFilter, int nonce, Optional<InventoryContinuationToken> continuationToken) {
         this.dataFilter = dataFilter;
         this.nonce = nonce;
+        this.continuationToken = continuationToken;
     }
 
     @Override
     public NetworkMessage toProto() {
-        return getNetworkMessageBuilder().setInventoryRequest(
-                        bisq.network.protobuf.InventoryRequest.newBuilder()
-                                .setDataFilter(dataFilter.toProto())
-                                .setNonce(nonce))
-                .build();
+        bisq.network.protobuf.InventoryRequest.Builder builder = bisq.network.protobuf.InventoryRequest.newBuilder()
+                .setDataFilter(dataFilter.toProto())
+                .setNonce(nonce);
+        continuationToken.ifPresent(token -> builder.setContinuationToken(token.toProto()));
+        return getNetworkMessageBuilder().setInventoryRequest(builder).build();
     }
 
     public static InventoryRequest fromProto(bisq.network.protobuf.InventoryRequest proto) {
-        return new InventoryRequest(DataFilter.fromProto(proto.getDataFilter()), proto.getNonce());
+        return new InventoryRequest(DataFilter.fromProto(proto.getDataFilter()),
+                proto.getNonce(),
+                proto.hasContinuationToken() ? Optional.of(InventoryContinuationToken.fromProto(proto.getContinuationToken())) : Optional.empty());
     }
 }
@@ -17,35 +17,76 @@
 
 package bisq.network.p2p.services.data.inventory;
 
-import bisq.network.NetworkService;
 import bisq.network.p2p.message.NetworkMessage;
 import bisq.network.p2p.node.CloseReason;
 import bisq.network.p2p.node.Connection;
+import bisq.network.p2p.node.Feature;
 import bisq.network.p2p.node.Node;
+import bisq.network.p2p.node.nio.FrameCodec;
 import bisq.network.p2p.services.data.filter.DataFilter;
+import bisq.network.p2p.services.data.filter.InventorySketch;
 import bisq.network.p2p.services.peergroup.PeerGroup;
+import lombok.Getter;
+import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
-import java.util.function.Function;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 @Slf4j
 public class InventoryService implements Node.Listener {
-    private static final long TIMEOUT = TimeUnit.SECONDS.toMillis(30);
+    // Max. time we wait for each chunk, so a large inventory sent in many chunks does not time out as a whole
+    private static final long CHUNK_TIMEOUT = TimeUnit.SECONDS.toMillis(30);
+    // Differences we expect to the inventory of a peer if we have not learned anything better yet
+    private static final int DEFAULT_EXPECTED_DIFFERENCE = 256;
+    // If a sketch is too small to decode the difference we retry with a sketch for that many times the difference
+    private static final int SKETCH_GROWTH_FACTOR = 4;
+
+    @Getter
+    @ToString
+    public static final class Config {
+        public static final Config DEFAULT = new Config(1024 * 1024);
+
+        // Max. size of the entries of one InventoryResponse for peers supporting chunked inventories
+        private final int maxResponseSize;
+
+        public Config(int maxResponseSize) {
+            checkArgument(maxResponseSize > 0 && maxResponseSize < FrameCodec.MAX_FRAME_SIZE / 2,
+                    "maxResponseSize must be positive and smaller than half of the max. frame size. maxResponseSize=%s",
+                    maxResponseSize);
+            this.maxResponseSize = maxResponseSize;
+        }
+
+        public static Config from(com.typesafe.config.Config typesafeConfig) {
+            return new Config(typesafeConfig.getInt("maxResponseSizeInKb") * 1024);
+        }
+    }
+
+    public interface InventoryProvider {
+        Inventory getInventory(DataFilter dataFilter, Optional<InventoryContinuationToken> continuationToken, int maxSize);
+    }
 
     private final Node node;
     private final PeerGroup peerGroup;
+    private final Config config;
     private final Map<String, InventoryHandler> requestHandlerMap = new ConcurrentHashMap<>();
-    private final Function<DataFilter, Inventory> inventoryProvider;
+    private final InventoryProvider inventoryProvider;
+    // Number of entries we got with the last inventory requested with a sketch, as an estimate for the next request.
+    private volatile int expectedDifference = DEFAULT_EXPECTED_DIFFERENCE;
 
-    public InventoryService(Node node, PeerGroup peerGroup, Function<DataFilter, Inventory> inventoryProvider) {
+    public InventoryService(Node node, PeerGroup peerGroup, Config config, InventoryProvider inventoryProvider) {
         this.node = node;
         this.peerGroup = peerGroup;
+        this.config = config;
         this.inventoryProvider = inventoryProvider;
         this.node.addListener(this);
     }
@@ -53,22 +94,79 @@ public class InventoryService implements Node.Listener {
     public void initialize() {
     }
 
-    public List<CompletableFuture<Inventory>> request(DataFilter dataFilter) {
+    /**
+     * @param chunkHandler Called with each chunk of the inventory as it arrives
+     * @return Futures completing with the last chunk of each peer
+     */
+    public List<CompletableFuture<Inventory>> request(DataFilter dataFilter, Consumer<Inventory> chunkHandler) {
         int maxRequests = 400;
+        // The sketch is sized for the difference we expect. Its cells are about as large as FilterEntries, so it
+        // is only worth it if it has fewer cells than we have FilterEntries.
+        int difference = expectedDifference;
+        int numCells = InventorySketch.getNumCellsForDifference(difference);
+        boolean sketchWorthIt = isSketchWorthIt(numCells, dataFilter);
+        DataFilter sketchFilter = sketchWorthIt ? dataFilter.toSketchFilter(numCells) : null;
         return peerGroup.getAllConnections()
                 .filter(connection -> !requestHandlerMap.containsKey(connection.getId()))
                 .limit(maxRequests)
                 .map(connection -> {
-                    String key = connection.getId();
-                    InventoryHandler handler = new InventoryHandler(node, connection);
-                    requestHandlerMap.put(key, handler);
-                    return handler.request(dataFilter)
-                            .orTimeout(TIMEOUT, TimeUnit.SECONDS)
-                            .whenComplete((__, throwable) -> requestHandlerMap.remove(key));
+                    if (sketchWorthIt && connection.getPeersCapability().hasFeature(Feature.INVENTORY_SKETCH_V1)) {
+                        return requestWithSketch(dataFilter, sketchFilter, difference, connection, chunkHandler);
+                    } else {
+                        return request(dataFilter, connection, chunkHandler);
+                    }
                 })
                 .collect(Collectors.toList());
     }
 
+    private CompletableFuture<Inventory> requestWithSketch(DataFilter dataFilter,
+                                                           DataFilter sketchFilter,
+                                                           int difference,
+                                                           Connection connection,
+                                                           Consumer<Inventory> chunkHandler) {
+        AtomicInteger numEntries = new AtomicInteger();
+        Consumer<Inventory> countingChunkHandler = inventory -> {
+            numEntries.addAndGet(inventory.getEntries().size());
+            chunkHandler.accept(inventory);
+        };
+        return request(sketchFilter, connection, countingChunkHandler)
+                .thenCompose(inventory -> {
+                    if (!inventory.isSketchDecodeFailed()) {
+                        // Leave some margin, as the difference also contains the entries only we have
+                        expectedDifference = Math.max(DEFAULT_EXPECTED_DIFFERENCE, 2 * numEntries.get());
+                        return CompletableFuture.completedFuture(inventory);
+                    }
+
+                    int numCells = sketchFilter.getInventorySketch().orElseThrow().getNumCells();
+                    int largerDifference = difference * SKETCH_GROWTH_FACTOR;
+                    int largerNumCells = InventorySketch.getNumCellsForDifference(largerDifference);
+                    if (largerNumCells > numCells && isSketchWorthIt(largerNumCells, dataFilter)) {
+                        log.info("Peer {} could not decode our InventorySketch with {} cells. We request again with {} cells.",
+                                connection.getPeerAddress(), numCells, largerNumCells);
+                        return requestWithSketch(dataFilter,
+                                dataFilter.toSketchFilter(largerNumCells),
+                                largerDifference,
+                                connection,
+                                chunkHandler);
+                    }
+                    log.info("Peer {} could not decode our InventorySketch with {} cells. We request again with all FilterEntries.",
+                            connection.getPeerAddress(), numCells);
+                    return request(dataFilter, connection, chunkHandler);
+                });
+    }
+
+    private static boolean isSketchWorthIt(int numCells, DataFilter dataFilter) {
+        return numCells < dataFilter.getFilterEntries().size();
+    }
+
+    private CompletableFuture<Inventory> request(DataFilter dataFilter, Connection connection, Consumer<Inventory> chunkHandler) {
+        String key = connection.getId();
+        InventoryHandler handler = new InventoryHandler(node, connection, chunkHandler, CHUNK_TIMEOUT);
+        requestHandlerMap.put(key, handler);
+        return handler.request(dataFilter)
+                .whenComplete((__, throwable) -> requestHandlerMap.remove(key));
+    }
+
     public void shutdown() {
         requestHandlerMap.values().forEach(InventoryHandler::dispose);
         requestHandlerMap.clear();
@@ -79,8 +177,12 @@ public class InventoryService implements Node.Listener {
         if (networkMessage instanceof InventoryRequest) {
             InventoryRequest request = (InventoryRequest) networkMessage;
             log.debug("Node {} received GetInventoryRequest with nonce {} from {}", node, request.getNonce(), connection.getPeerAddress());
-            Inventory inventory = inventoryProvider.apply(request.getDataFilter());
-            NetworkService.NETWORK_IO_POOL.submit(() -> node.send(new InventoryResponse(inventory, request.getNonce()), connection));
+            // Peers not supporting chunks expect the whole inventory in one response
+            int maxSize = connection.getPeersCapability().hasFeature(Feature.INVENTORY_CHUNKS_V1) ?
+                    config.getMaxResponseSize() :
+                    Integer.MAX_VALUE;
+            Inventory inventory = inventoryProvider.getInventory(request.getDataFilter(), request.getContinuationToken(), maxSize);
+            node.sendAsync(new InventoryResponse(inventory, request.getNonce()), connection);
             log.debug("Node {} sent GetInventoryResponse with inventory {} and nonce {} to {}. Connection={}",
                     node, inventory, request.getNonce(), connection.getPeerAddress(), connection.getId());
         }
@@ -17,16 +17,86 @@
 
 package bisq.network.p2p.services.data.inventory;
 
+import bisq.common.data.ByteArray;
+import bisq.network.p2p.services.data.DataRequest;
 import bisq.network.p2p.services.data.storage.auth.AuthenticatedDataRequest;
+import com.google.protobuf.CodedOutputStream;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
 import java.util.stream.Collectors;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
 public class InventoryUtil {
+    /**
+     * Order of the entries of chunked inventories: newest first by created, data without a creation date last.
+     * Ties are ordered by the hash, so that the order is total and an InventoryContinuationToken marks a unique position.
+     */
+    public static int compareNewestFirst(DataRequest dataRequest, byte[] hash, DataRequest otherDataRequest, byte[] otherHash) {
+        return compareNewestFirst(getCreated(dataRequest), hash, getCreated(otherDataRequest), otherHash);
+    }
+
+    public static int compareNewestFirst(long created, byte[] hash, long otherCreated, byte[] otherHash) {
+        int result = Long.compare(otherCreated, created);
+        return result != 0 ? result : Arrays.compareUnsigned(hash, otherHash);
+    }
+
+    public static boolean isAfter(DataRequest dataRequest, byte[] hash, InventoryContinuationToken continuationToken) {
+        return compareNewestFirst(getCreated(dataRequest), hash, continuationToken.getCreated(), continuationToken.getHash()) > 0;
+    }
+
+    /**
+     * Returns the next chunk of the given entries in the order of compareNewestFirst. The chunk starts after the
+     * position of the continuation token, so the responder does not need to keep any state between the requests.
+     * Instead of sorting all remaining entries for each chunk, we only take as many entries from a heap as fit into
+     * the chunk. As the remaining entries are in random order, building the heap takes linear time on average.
+     *
+     * @param maxSize Max. serialized size of the entries of the chunk. At least one entry is returned, even if it is
+     *                larger.
+     */
+    public static Inventory getChunk(Collection<? extends Map.Entry<ByteArray, ? extends DataRequest>> entries,
+                                     Optional<InventoryContinuationToken> continuationToken,
+                                     int maxSize) {
+        PriorityQueue<Map.Entry<ByteArray, ? extends DataRequest>> remaining = new PriorityQueue<>(Math.max(1, entries.size()),
+                (o1, o2) -> compareNewestFirst(o1.getValue(), o1.getKey().getBytes(), o2.getValue(), o2.getKey().getBytes()));
+        entries.stream()
+                .filter(mapEntry -> continuationToken
+                        .map(token -> isAfter(mapEntry.getValue(), mapEntry.getKey().getBytes(), token))
+                        .orElse(true))
+                .forEach(remaining::add);
+        int numRemaining = remaining.size();
+        HashSet<DataRequest> result = new HashSet<>();
+        Map.Entry<ByteArray, ? extends DataRequest> last = null;
+        long size = 0;
+        while (!remaining.isEmpty()) {
+            Map.Entry<ByteArray, ? extends DataRequest> mapEntry = remaining.peek();
+            int entrySize = CodedOutputStream.computeMessageSize(1, mapEntry.getValue().toDataRequestProto());
+            if (last != null && size + entrySize > maxSize) {
+                break;
+            }
+            remaining.poll();
+            result.add(mapEntry.getValue());
+            size += entrySize;
+            last = mapEntry;
+        }
+        int numDropped = numRemaining - result.size();
+        Optional<InventoryContinuationToken> nextToken = numDropped > 0 ?
+                Optional.of(new InventoryContinuationToken(getCreated(last.getValue()), last.getKey().getBytes())) :
+                Optional.empty();
+        return new Inventory(result, numDropped, false, nextToken);
+    }
+
+    public static long getCreated(DataRequest dataRequest) {
+        return dataRequest instanceof AuthenticatedDataRequest ? ((AuthenticatedDataRequest) dataRequest).getCreated() : 0;
+    }
+
     public static List<? extends AuthenticatedDataRequest> getSubList(
             Collection<? extends AuthenticatedDataRequest> requests,
             int filterOffset,
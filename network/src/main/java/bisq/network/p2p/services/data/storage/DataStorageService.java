@@ -18,8 +18,10 @@
 package bisq.network.p2p.services.data.storage;
 
 import bisq.common.data.ByteArray;
-import bisq.common.timer.Scheduler;
+import bisq.common.util.FileUtils;
 import bisq.network.p2p.services.data.DataRequest;
+import bisq.network.p2p.services.data.RemoveDataRequest;
+import bisq.persistence.AppendOnlyLog;
 import bisq.persistence.Persistence;
 import bisq.persistence.PersistenceService;
 import bisq.persistence.RateLimitedPersistenceClient;
@@ -27,44 +29,255 @@ import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
 
+/**
+ * Persists the store as a snapshot plus a change log. A change only appends its records to the log, the snapshot is
+ * rewritten when the log has grown larger than the snapshot (compaction). At read the log is replayed on top of the
+ * snapshot. The log starts with a header carrying the generation of the snapshot it belongs to. If we crashed after a
+ * compaction wrote the snapshot but before the log got cleared, the log is older than the snapshot and gets ignored.
+ * <p>
+ * The snapshot is an IndexedDataStoreFile, so at read only its index gets parsed. Snapshots written by Persistence in
+ * earlier versions are converted at the first read.
+ * <p>
+ * The size of the store is limited by its StoreQuota. Subclasses reserve the quota for a request before they put it.
+ */
 @Slf4j
 public abstract class DataStorageService<T extends DataRequest> extends RateLimitedPersistenceClient<DataStore<T>> {
     public static final String SUB_PATH = "db" + File.separator + "network";
+    // Sub directory for the change logs. StorageService creates the stores from the files in the store directory, so
+    // the logs must not be located there.
+    private static final String CHANGE_LOG_DIRECTORY = "changes";
+    private static final long MIN_LOG_SIZE_FOR_COMPACTION = 1024 * 1024;
+    // If we have to evict we make room for 10% of the quota, so that a full store does not evict at each added entry
+    private static final int EVICTION_HEADROOM_DIVISOR = 10;
 
     @Getter
     protected final Persistence<DataStore<T>> persistence;
     @Getter
     public final DataStore<T> persistableStore = new DataStore<>();
+    // Store type, like AuthenticatedDataStore
+    @Getter
+    private final String storeName;
     @Getter
     private final String fileName;
     @Getter
+    protected final StoreQuota quota;
+    @Getter
     protected final String subDirectory;
-    private final Scheduler scheduler;
+    private final AppendOnlyLog changeLog;
+    // Makes draining the journal and writing the log or the snapshot atomic
+    private final Object changeLogLock = new Object();
+    // Generation of the snapshot on disk. Guarded by changeLogLock.
+    private long snapshotGeneration;
+    // Records which could not be appended to the log. We keep them until a snapshot or the log contains them.
+    // Guarded by changeLogLock.
+    private final List<byte[]> unwrittenRecords = new ArrayList<>();
+    // After a failed append the log might end with a partially written record, so we prefer a compaction at the
+    // next write. Guarded by changeLogLock.
+    private boolean isCompactionRequired;
 
-    public DataStorageService(PersistenceService persistenceService, String storeName, String fileName) {
+    public DataStorageService(PersistenceService persistenceService,
+                              String storeName,
+                              String fileName,
+                              StoreQuota quota) {
         super();
+        this.storeName = storeName;
         this.fileName = fileName;
+        this.quota = quota;
         subDirectory = SUB_PATH + File.separator + storeName;
         persistence = persistenceService.getOrCreatePersistence(this, subDirectory, fileName, persistableStore);
-        scheduler = Scheduler.run(this::pruneExpired).periodically(5, TimeUnit.SECONDS);
+        changeLog = new AppendOnlyLog(persistence.getDirectory() + File.separator + CHANGE_LOG_DIRECTORY +
+                File.separator + fileName);
     }
 
+    @Override
+    public CompletableFuture<Optional<DataStore<T>>> readPersisted() {
+        return CompletableFuture.supplyAsync(this::readSnapshot, Persistence.PERSISTENCE_IO_POOL).thenApply(persisted -> {
+            DataStore<T> dataStore = persisted.orElseGet(DataStore::new);
+            long generation = IndexedDataStoreFile.readGeneration(new File(persistence.getStoragePath()));
+            synchronized (changeLogLock) {
+                snapshotGeneration = generation;
+            }
+            List<bisq.network.protobuf.DataStoreLogRecord> records = readChangeLog(generation);
+            records.forEach(record -> {
+                try {
+                    dataStore.apply(record);
+                } catch (Exception e) {
+                    log.warn("Could not apply record of change log {}. {}", changeLog.getPath(), e.toString());
+                }
+            });
+            Optional<DataStore<T>> result = persisted.isPresent() || !records.isEmpty() ?
+                    Optional.of(dataStore) :
+                    Optional.empty();
+            result.ifPresent(dataStoreToApply -> {
+                persistableStore.applyPersisted(dataStoreToApply);
+                onPersistedApplied(dataStoreToApply);
+            });
+            // Only changes from now on are recorded, the applied data are already on disk
+            persistableStore.startJournal();
+            if (persisted.isPresent() && !IndexedDataStoreFile.isIndexedFile(new File(persistence.getStoragePath()))) {
+                log.info("Convert {} to an indexed file", persistence.getStoragePath());
+                writeChangeLog(true);
+            }
+            return result;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> persist() {
+        if (!persistableStore.isJournalStarted()) {
+            // Until the persisted data are applied we do not write, as we would overwrite them
+            return CompletableFuture.completedFuture(false);
+        }
+        return super.persist();
+    }
+
+    @Override
+    protected boolean write() {
+        return writeChangeLog(false);
+    }
+
+    /**
+     * Removes the expired entries. Called periodically by the StorageService for all stores. The expiry index of the
+     * store gives us the due entries, so if nothing has expired this does not iterate the map.
+     */
     protected Set<Map.Entry<ByteArray, T>> pruneExpired() {
-        Set<Map.Entry<ByteArray, T>> expiredEntries = persistableStore.getMap().entrySet().stream()
-                .filter(entry -> entry.getValue().isExpired())
-                .collect(Collectors.toSet());
+        Set<Map.Entry<ByteArray, T>> expiredEntries = new HashSet<>();
+        persistableStore.getExpiredHashes(System.currentTimeMillis()).forEach(hash -> {
+            T removed = persistableStore.removeIfExpired(hash);
+            if (removed != null) {
+                expiredEntries.add(new AbstractMap.SimpleImmutableEntry<>(hash, removed));
+            }
+        });
         if (!expiredEntries.isEmpty()) {
             log.info("We remove {} expired entries from our map", expiredEntries.size());
-            expiredEntries.forEach(e -> persistableStore.getMap().remove(e.getKey()));
+            persist();
         }
         return expiredEntries;
     }
 
+    /**
+     * @return The serialized size of the data in the store. As the snapshot on disk consists of the serialized data,
+     * that is also about the disk space used by the store.
+     */
+    public long getSizeInBytes() {
+        return persistableStore.getSizeInBytes();
+    }
+
+    /**
+     * Checks if the request fits into the quota and evicts entries according to the eviction policy to make room for
+     * it. Has to be called by the subclasses while holding their lock for changing the map, before they put the
+     * request. If the request gets rejected, nothing is evicted.
+     *
+     * @return The evicted entries, or empty if the request exceeds the quota.
+     */
+    protected Optional<Set<Map.Entry<ByteArray, T>>> reserveQuota(ByteArray hash, T request, MetaData metaData) {
+        if (!isWithinRequestQuota(hash, request, metaData)) {
+            return Optional.empty();
+        }
+
+        long maxSizeInBytes = quota.getMaxSizeInBytes();
+        long requiredSizeInBytes = getRequiredSizeInBytes(hash, request);
+        Set<Map.Entry<ByteArray, T>> evictedEntries = new HashSet<>();
+        if (requiredSizeInBytes <= maxSizeInBytes) {
+            return Optional.of(evictedEntries);
+        }
+        if (quota.getEvictionPolicy() == StoreQuota.EvictionPolicy.REJECT) {
+            log.warn("Store {} has reached its quota of {} bytes", fileName, maxSizeInBytes);
+            return Optional.empty();
+        }
+
+        long targetSizeInBytes = maxSizeInBytes - maxSizeInBytes / EVICTION_HEADROOM_DIVISOR;
+        List<ByteArray> hashesToEvict = getEvictionCandidates(hash, requiredSizeInBytes - targetSizeInBytes);
+        for (ByteArray candidate : hashesToEvict) {
+            requiredSizeInBytes -= persistableStore.getSizeInBytes(candidate);
+        }
+        if (requiredSizeInBytes > maxSizeInBytes) {
+            log.warn("Store {} has reached its quota of {} bytes and not enough data can be evicted",
+                    fileName, maxSizeInBytes);
+            return Optional.empty();
+        }
+
+        hashesToEvict.forEach(candidate -> {
+            T removed = persistableStore.remove(candidate);
+            if (removed != null) {
+                evictedEntries.add(new AbstractMap.SimpleImmutableEntry<>(candidate, removed));
+            }
+        });
+        log.info("We evicted {} entries from store {} to stay within its quota of {} bytes",
+                evictedEntries.size(), fileName, maxSizeInBytes);
+        return Optional.of(evictedEntries);
+    }
+
+    /**
+     * @return True if the request fits into the quota without evicting other entries. Used for data we only keep if
+     * there is room for them.
+     */
+    protected boolean fitsQuota(ByteArray hash, T request, MetaData metaData) {
+        return isWithinRequestQuota(hash, request, metaData) &&
+                getRequiredSizeInBytes(hash, request) <= quota.getMaxSizeInBytes();
+    }
+
+    private boolean isWithinRequestQuota(ByteArray hash, T request, MetaData metaData) {
+        int sizeInBytes = request.toDataRequestProto().getSerializedSize();
+        // The MetaData of mailbox data is received from the peer, so the limit of the store applies as well
+        long maxSizeInBytes = Math.min(metaData.getMaxSizeInBytes(), quota.getMaxSizeInBytesPerRequest());
+        if (sizeInBytes > maxSizeInBytes) {
+            log.warn("Request of {} bytes exceeds the max. size of {} bytes for {}",
+                    sizeInBytes, maxSizeInBytes, metaData.getFileName());
+            return false;
+        }
+
+        ByteArray owner = DataStore.getOwner(request);
+        // An existing entry with the same hash gets replaced by the request
+        if (owner != null && persistableStore.getSizeInBytesOfOwner(owner) - persistableStore.getSizeInBytes(hash) +
+                sizeInBytes > quota.getMaxSizeInBytesPerOwner()) {
+            log.warn("Data of owner {} in store {} would exceed the quota of {} bytes per owner",
+                    owner, fileName, quota.getMaxSizeInBytesPerOwner());
+            return false;
+        }
+        return true;
+    }
+
+    private long getRequiredSizeInBytes(ByteArray hash, T request) {
+        return persistableStore.getSizeInBytes() - persistableStore.getSizeInBytes(hash) +
+                request.toDataRequestProto().getSerializedSize();
+    }
+
+    /**
+     * @return The entries to evict in the order of the eviction policy, until their size reaches sizeInBytesToFree,
+     * or all entries which can be evicted if they are not sufficient. Tombstones of removed data are never evicted,
+     * as the removed data would be accepted again from peers which still have them.
+     */
+    private List<ByteArray> getEvictionCandidates(ByteArray excludedHash, long sizeInBytesToFree) {
+        // Both indexes are kept up to date by the store, so we neither scan nor decode the entries which are kept.
+        // The entries which never expire are not in the expiry index.
+        Iterator<ByteArray> candidates = quota.getEvictionPolicy() == StoreQuota.EvictionPolicy.OLDEST_FIRST ?
+                persistableStore.getHashesByCreated() :
+                persistableStore.getExpiredHashes(Long.MAX_VALUE).iterator();
+        List<ByteArray> result = new ArrayList<>();
+        long selectedSizeInBytes = 0;
+        while (selectedSizeInBytes < sizeInBytesToFree && candidates.hasNext()) {
+            ByteArray candidate = candidates.next();
+            if (!candidate.equals(excludedHash) &&
+                    !(persistableStore.getMap().get(candidate) instanceof RemoveDataRequest)) {
+                result.add(candidate);
+                selectedSizeInBytes += persistableStore.getSizeInBytes(candidate);
+            }
+        }
+        return result;
+    }
+
     /*  public Inventory getInventory(DataFilter dataFilter) {
           Map<ByteArray, T> mapClone = getClone();
           List<T> result = mapClone.entrySet().stream()
@@ -75,6 +288,106 @@ public abstract class DataStorageService<T extends DataRequest> extends RateLimi
       }*/
 
     public void shutdown() {
-        scheduler.stop();
+    }
+
+    private Optional<DataStore<T>> readSnapshot() {
+        File storageFile = new File(persistence.getStoragePath());
+        if (!storageFile.exists()) {
+            return Optional.empty();
+        }
+        if (!IndexedDataStoreFile.isIndexedFile(storageFile)) {
+            return persistence.read();
+        }
+        try {
+            return Optional.of(IndexedDataStoreFile.read(storageFile));
+        } catch (IOException e) {
+            log.error("Error at read for " + persistence.getStoragePath(), e);
+            try {
+                FileUtils.backupCorruptedFile(persistence.getDirectory(), storageFile, fileName, "corruptedFilesAtRead");
+            } catch (IOException e2) {
+                log.error("Error trying to backup corrupted file " + fileName + ": " + e2.getMessage(), e2);
+            }
+            return Optional.empty();
+        }
+    }
+
+    private List<bisq.network.protobuf.DataStoreLogRecord> readChangeLog(long generation) {
+        List<bisq.network.protobuf.DataStoreLogRecord> records = new ArrayList<>();
+        // Logs written by earlier versions have no header and belong to a snapshot without generation
+        long logGeneration = 0;
+        for (byte[] serializedRecord : changeLog.readAll()) {
+            try {
+                bisq.network.protobuf.DataStoreLogRecord record =
+                        bisq.network.protobuf.DataStoreLogRecord.parseFrom(serializedRecord);
+                if (record.hasKey()) {
+                    records.add(record);
+                } else {
+                    logGeneration = record.getSnapshotGeneration();
+                }
+            } catch (Exception e) {
+                log.warn("Could not parse record of change log {}. {}", changeLog.getPath(), e.toString());
+            }
+        }
+        if (logGeneration < generation) {
+            log.info("Change log {} of generation {} is older than the snapshot of generation {}. We ignore it.",
+                    changeLog.getPath(), logGeneration, generation);
+            changeLog.clear();
+            return new ArrayList<>();
+        }
+        return records;
+    }
+
+    private boolean writeSnapshot(long generation) {
+        try {
+            IndexedDataStoreFile.write(persistableStore.getClone(), persistence.getDirectory(), fileName, generation);
+            return true;
+        } catch (IOException e) {
+            log.error("Error at writing " + persistence.getStoragePath(), e);
+            return false;
+        }
+    }
+
+    private boolean writeChangeLog(boolean forceCompaction) {
+        synchronized (changeLogLock) {
+            // The changes of the drained records are contained in the store, so they are contained in a snapshot
+            // created after the drain. Later changes stay in the journal and will be appended to the cleared log.
+            // Replaying them on top of the snapshot leads to the same state.
+            List<byte[]> records = new ArrayList<>(unwrittenRecords);
+            unwrittenRecords.clear();
+            persistableStore.drainJournal().forEach(record -> records.add(record.toByteArray()));
+            long snapshotSize = new File(persistence.getStoragePath()).length();
+            if (forceCompaction || isCompactionRequired ||
+                    changeLog.getSize() > Math.max(MIN_LOG_SIZE_FOR_COMPACTION, snapshotSize)) {
+                if (writeSnapshot(snapshotGeneration + 1)) {
+                    // If we crash before the log is cleared, its header marks it as outdated
+                    snapshotGeneration++;
+                    changeLog.clear();
+                    isCompactionRequired = false;
+                    return true;
+                }
+                log.warn("Compaction of {} failed. We append the changes to the log.", changeLog.getPath());
+            }
+            if (records.isEmpty()) {
+                return true;
+            }
+            List<byte[]> recordsToAppend = new ArrayList<>(records.size() + 1);
+            if (changeLog.getSize() == 0) {
+                recordsToAppend.add(bisq.network.protobuf.DataStoreLogRecord.newBuilder()
+                        .setSnapshotGeneration(snapshotGeneration)
+                        .build()
+                        .toByteArray());
+            }
+            recordsToAppend.addAll(records);
+            try {
+                changeLog.append(recordsToAppend);
+                return true;
+            } catch (IOException e) {
+                log.error("Error at writing change log " + changeLog.getPath(), e);
+                // The drained records are not in the journal anymore, so we keep them for the next write
+                unwrittenRecords.addAll(records);
+                isCompactionRequired = true;
+                return false;
+            }
+        }
     }
 }
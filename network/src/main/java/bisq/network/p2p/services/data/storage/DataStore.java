@@ -18,40 +18,440 @@
 package bisq.network.p2p.services.data.storage;
 
 import bisq.common.data.ByteArray;
+import bisq.common.data.HashArrayMappedTrie;
 import bisq.common.proto.ProtoResolver;
 import bisq.common.proto.UnresolvableProtobufMessageException;
 import bisq.network.p2p.services.data.DataRequest;
+import bisq.network.p2p.services.data.filter.FilterEntry;
+import bisq.network.p2p.services.data.storage.auth.AddAuthenticatedDataRequest;
+import bisq.network.p2p.services.data.storage.auth.AuthenticatedDataRequest;
+import bisq.network.p2p.services.data.storage.auth.RemoveAuthenticatedDataRequest;
+import bisq.network.p2p.services.data.storage.mailbox.AddMailboxRequest;
 import bisq.persistence.PersistableStore;
+import bisq.security.DigestUtil;
+import com.google.common.collect.Maps;
 import com.google.protobuf.InvalidProtocolBufferException;
-import lombok.Getter;
 import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
 
+import javax.annotation.Nullable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
+/**
+ * Map of the stored DataRequests by hash with an index of the FilterEntries of all entries, an index of the
+ * entries which expire, ordered by expiration date, and an index of all entries ordered by created date.
+ * <p>
+ * Once the journal is started, each change is recorded as a DataStoreLogRecord. The DataStorageService writes them to
+ * the change log of the store instead of rewriting the whole snapshot.
+ * <p>
+ * Entries read from an IndexedDataStoreFile are decoded at their first access. The map returned by getMap is a view
+ * which decodes the entries when their values are accessed.
+ * <p>
+ * The map and the index of the FilterEntries are immutable HashArrayMappedTries. A change publishes a new root which
+ * shares all unchanged nodes with the previous one, so readers never lock and a snapshot or clone of the store is
+ * a reference copy. Changes are serialized by the writeLock. All changes have to go through the mutating methods of
+ * the store, the map returned by getMap is not modifiable.
+ * <p>
+ * The store accounts the serialized size of its entries in total and per owner, which is the base for the StoreQuota
+ * of the DataStorageService. As the snapshot on disk consists of the serialized entries, the size also corresponds to
+ * the disk usage of the store.
+ */
 @Slf4j
 @ToString
 public final class DataStore<T extends DataRequest> implements PersistableStore<DataStore<T>> {
-    @Getter
-    private final Map<ByteArray, T> map = new ConcurrentHashMap<>();
+    @ToString.Exclude
+    private final Object writeLock = new Object();
+    private volatile Root<T> root;
+    @ToString.Exclude
+    private final Map<ByteArray, T> mapView = new MapView();
+    // Ordered by expiration date, so pruning only visits the entries which are due. Created at first use, so that
+    // clones do not have to build it.
+    @ToString.Exclude
+    private volatile NavigableSet<IndexEntry> expiryIndex;
+    // Ordered by created date, so the oldest entries are found without visiting the whole store. Created at first use.
+    @ToString.Exclude
+    private volatile NavigableSet<IndexEntry> createdIndex;
+    // Serialized size of the entries per owner public key hash. Created at first use, as it requires decoding the
+    // entries.
+    @ToString.Exclude
+    private volatile Map<ByteArray, Long> sizeInBytesByOwner;
+    // Incremented at each change, so that results derived from the content can be cached
+    private final AtomicLong version;
+    // Changes which are not written to the change log yet. Null until the journal is started, so that applying the
+    // persisted data and cloning do not produce records.
+    @ToString.Exclude
+    private volatile Queue<bisq.network.protobuf.DataStoreLogRecord> journal;
 
     public DataStore() {
+        this(new Root<>(HashArrayMappedTrie.empty(), HashArrayMappedTrie.empty(), 0), 0);
     }
 
     public DataStore(Map<ByteArray, T> map) {
-        this.map.putAll(map);
+        this();
+        putAll(map);
+    }
+
+    private DataStore(Root<T> root, long version) {
+        this.root = root;
+        this.version = new AtomicLong(version);
+    }
+
+    public static int getSequenceNumber(DataRequest dataRequest) {
+        if (dataRequest instanceof AddAuthenticatedDataRequest) {
+            return ((AddAuthenticatedDataRequest) dataRequest).getAuthenticatedSequentialData().getSequenceNumber();
+        } else if (dataRequest instanceof RemoveAuthenticatedDataRequest) {
+            return ((RemoveAuthenticatedDataRequest) dataRequest).getSequenceNumber();
+        } else {
+            // AddAppendOnlyDataRequest does not use a seq nr.
+            return 0;
+        }
+    }
+
+    /**
+     * @return The hash of the public key of the owner of the data, or null if the data have no owner.
+     */
+    @Nullable
+    public static ByteArray getOwner(DataRequest dataRequest) {
+        if (dataRequest instanceof AddAuthenticatedDataRequest) {
+            return new ByteArray(((AddAuthenticatedDataRequest) dataRequest).getAuthenticatedSequentialData().getPubKeyHash());
+        } else if (dataRequest instanceof RemoveAuthenticatedDataRequest) {
+            return new ByteArray(DigestUtil.hash(((RemoveAuthenticatedDataRequest) dataRequest).getOwnerPublicKeyBytes()));
+        } else if (dataRequest instanceof AddMailboxRequest) {
+            return new ByteArray(((AddMailboxRequest) dataRequest).getMailboxSequentialData().getSenderPublicKeyHash());
+        } else {
+            // RemoveMailboxRequest is sent by the receiver and AppendOnlyData have no owner
+            return null;
+        }
+    }
+
+    /**
+     * @return The created date of the data, or Long.MAX_VALUE for data without created date (AppendOnlyData).
+     */
+    public static long getCreated(DataRequest dataRequest) {
+        return dataRequest instanceof AuthenticatedDataRequest ?
+                ((AuthenticatedDataRequest) dataRequest).getCreated() :
+                Long.MAX_VALUE;
+    }
+
+    /**
+     * @return View of the current content of the store. Each access uses the latest version, an iteration is done
+     * on the version at its start.
+     */
+    public Map<ByteArray, T> getMap() {
+        return mapView;
+    }
+
+    /**
+     * @return The current content of the store, which is not affected by later changes.
+     */
+    public Map<ByteArray, T> getSnapshot() {
+        return Maps.transformValues(root.map, DataStoreEntry::getDataRequest);
+    }
+
+    Map<ByteArray, DataStoreEntry<T>> getEntries() {
+        return root.map;
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    public Collection<FilterEntry> getFilterEntries() {
+        return root.filterEntryByHash.values();
+    }
+
+    /**
+     * @return The serialized size of all entries.
+     */
+    public long getSizeInBytes() {
+        return root.sizeInBytes;
+    }
+
+    /**
+     * @return The serialized size of the entry, or 0 if there is no entry for the hash.
+     */
+    public int getSizeInBytes(ByteArray hash) {
+        DataStoreEntry<T> entry = root.map.get(hash);
+        return entry != null ? entry.getSerializedSize() : 0;
+    }
+
+    /**
+     * @return The serialized size of the entries of the given owner. The first call decodes all entries to build the
+     * index of the owners.
+     */
+    public long getSizeInBytesOfOwner(ByteArray owner) {
+        return getSizeInBytesByOwner().getOrDefault(owner, 0L);
+    }
+
+    public void put(ByteArray hash, T dataRequest) {
+        putEntry(hash, DataStoreEntry.of(dataRequest));
+    }
+
+    void putEntry(ByteArray hash, DataStoreEntry<T> entry) {
+        synchronized (writeLock) {
+            Root<T> root = this.root;
+            DataStoreEntry<T> previous = root.map.get(hash);
+            NavigableSet<IndexEntry> expiryIndex = this.expiryIndex;
+            if (expiryIndex != null) {
+                if (previous != null) {
+                    expiryIndex.remove(new IndexEntry(previous.getExpirationDate(), hash));
+                }
+                if (entry.getExpirationDate() != Long.MAX_VALUE) {
+                    expiryIndex.add(new IndexEntry(entry.getExpirationDate(), hash));
+                }
+            }
+            NavigableSet<IndexEntry> createdIndex = this.createdIndex;
+            if (createdIndex != null) {
+                if (previous != null) {
+                    createdIndex.remove(new IndexEntry(previous.getCreated(), hash));
+                }
+                createdIndex.add(new IndexEntry(entry.getCreated(), hash));
+            }
+            Map<ByteArray, Long> sizeInBytesByOwner = this.sizeInBytesByOwner;
+            if (sizeInBytesByOwner != null) {
+                if (previous != null) {
+                    addToOwner(sizeInBytesByOwner, previous, -previous.getSerializedSize());
+                }
+                addToOwner(sizeInBytesByOwner, entry, entry.getSerializedSize());
+            }
+            long sizeInBytes = root.sizeInBytes + entry.getSerializedSize() -
+                    (previous != null ? previous.getSerializedSize() : 0);
+            this.root = new Root<>(root.map.with(hash, entry),
+                    root.filterEntryByHash.with(hash, new FilterEntry(hash.getBytes(), entry.getSequenceNumber())),
+                    sizeInBytes);
+            addToJournal(hash, entry);
+            version.incrementAndGet();
+        }
+    }
+
+    public void putAll(Map<ByteArray, ? extends T> entries) {
+        entries.forEach(this::put);
+    }
+
+    public T remove(ByteArray hash) {
+        return getDataRequest(remove(hash, entry -> true));
+    }
+
+    /**
+     * Removes the entry only if it is still expired, so an entry which got replaced in the meantime is kept.
+     */
+    public T removeIfExpired(ByteArray hash) {
+        long now = System.currentTimeMillis();
+        return getDataRequest(remove(hash, entry -> entry.getExpirationDate() < now));
+    }
+
+    /**
+     * @return The hashes of the entries which expired before the given date, in order of their expiration.
+     */
+    public List<ByteArray> getExpiredHashes(long date) {
+        List<ByteArray> result = new ArrayList<>();
+        for (IndexEntry indexEntry : getExpiryIndex()) {
+            if (indexEntry.date >= date) {
+                break;
+            }
+            result.add(indexEntry.hash);
+        }
+        return result;
+    }
+
+    /**
+     * @return The hashes of all entries, oldest first. The iteration reflects changes done while iterating. The first
+     * call builds the index of the created dates.
+     */
+    public Iterator<ByteArray> getHashesByCreated() {
+        Iterator<IndexEntry> iterator = getCreatedIndex().iterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public ByteArray next() {
+                return iterator.next().hash;
+            }
+        };
+    }
+
+    /**
+     * From now on all changes are recorded in the journal. As the records get added while holding the write lock,
+     * they are in the order of the changes.
+     */
+    public void startJournal() {
+        if (journal == null) {
+            journal = new ConcurrentLinkedQueue<>();
+        }
+    }
+
+    public boolean isJournalStarted() {
+        return journal != null;
+    }
+
+    /**
+     * @return The records added to the journal since the last call. They are removed from the journal.
+     */
+    public List<bisq.network.protobuf.DataStoreLogRecord> drainJournal() {
+        List<bisq.network.protobuf.DataStoreLogRecord> records = new ArrayList<>();
+        Queue<bisq.network.protobuf.DataStoreLogRecord> journal = this.journal;
+        if (journal != null) {
+            bisq.network.protobuf.DataStoreLogRecord record;
+            while ((record = journal.poll()) != null) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Applies a record of the change log, used for replaying the log on top of the persisted snapshot.
+     */
+    public void apply(bisq.network.protobuf.DataStoreLogRecord record) {
+        ByteArray hash = ByteArray.fromProto(record.getKey());
+        if (record.hasDataRequest()) {
+            //noinspection unchecked
+            put(hash, (T) DataRequest.fromProto(record.getDataRequest()));
+        } else {
+            remove(hash);
+        }
+    }
+
+    private void addToJournal(ByteArray hash, @Nullable DataStoreEntry<T> entry) {
+        Queue<bisq.network.protobuf.DataStoreLogRecord> journal = this.journal;
+        if (journal != null) {
+            bisq.network.protobuf.DataStoreLogRecord.Builder builder =
+                    bisq.network.protobuf.DataStoreLogRecord.newBuilder().setKey(hash.toProto());
+            if (entry != null) {
+                builder.setDataRequest(entry.getDataRequest().toDataRequestProto());
+            }
+            journal.add(builder.build());
+        }
+    }
+
+    @Nullable
+    private DataStoreEntry<T> remove(ByteArray hash, Predicate<DataStoreEntry<T>> predicate) {
+        synchronized (writeLock) {
+            Root<T> root = this.root;
+            DataStoreEntry<T> previous = root.map.get(hash);
+            if (previous == null || !predicate.test(previous)) {
+                return null;
+            }
+            NavigableSet<IndexEntry> expiryIndex = this.expiryIndex;
+            if (expiryIndex != null) {
+                expiryIndex.remove(new IndexEntry(previous.getExpirationDate(), hash));
+            }
+            NavigableSet<IndexEntry> createdIndex = this.createdIndex;
+            if (createdIndex != null) {
+                createdIndex.remove(new IndexEntry(previous.getCreated(), hash));
+            }
+            Map<ByteArray, Long> sizeInBytesByOwner = this.sizeInBytesByOwner;
+            if (sizeInBytesByOwner != null) {
+                addToOwner(sizeInBytesByOwner, previous, -previous.getSerializedSize());
+            }
+            this.root = new Root<>(root.map.without(hash),
+                    root.filterEntryByHash.without(hash),
+                    root.sizeInBytes - previous.getSerializedSize());
+            addToJournal(hash, null);
+            version.incrementAndGet();
+            return previous;
+        }
+    }
+
+    private NavigableSet<IndexEntry> getExpiryIndex() {
+        NavigableSet<IndexEntry> expiryIndex = this.expiryIndex;
+        if (expiryIndex == null) {
+            synchronized (writeLock) {
+                if (this.expiryIndex == null) {
+                    NavigableSet<IndexEntry> index = new ConcurrentSkipListSet<>();
+                    root.map.forEach((hash, entry) -> {
+                        if (entry.getExpirationDate() != Long.MAX_VALUE) {
+                            index.add(new IndexEntry(entry.getExpirationDate(), hash));
+                        }
+                    });
+                    this.expiryIndex = index;
+                }
+                expiryIndex = this.expiryIndex;
+            }
+        }
+        return expiryIndex;
+    }
+
+    private NavigableSet<IndexEntry> getCreatedIndex() {
+        NavigableSet<IndexEntry> createdIndex = this.createdIndex;
+        if (createdIndex == null) {
+            synchronized (writeLock) {
+                if (this.createdIndex == null) {
+                    NavigableSet<IndexEntry> index = new ConcurrentSkipListSet<>();
+                    root.map.forEach((hash, entry) -> index.add(new IndexEntry(entry.getCreated(), hash)));
+                    this.createdIndex = index;
+                }
+                createdIndex = this.createdIndex;
+            }
+        }
+        return createdIndex;
+    }
+
+    private Map<ByteArray, Long> getSizeInBytesByOwner() {
+        Map<ByteArray, Long> sizeInBytesByOwner = this.sizeInBytesByOwner;
+        if (sizeInBytesByOwner == null) {
+            synchronized (writeLock) {
+                if (this.sizeInBytesByOwner == null) {
+                    Map<ByteArray, Long> index = new ConcurrentHashMap<>();
+                    root.map.forEach((hash, entry) -> addToOwner(index, entry, entry.getSerializedSize()));
+                    this.sizeInBytesByOwner = index;
+                }
+                sizeInBytesByOwner = this.sizeInBytesByOwner;
+            }
+        }
+        return sizeInBytesByOwner;
+    }
+
+    private static void addToOwner(Map<ByteArray, Long> sizeInBytesByOwner, DataStoreEntry<?> entry, long delta) {
+        ByteArray owner = getOwner(entry.getDataRequest());
+        if (owner != null) {
+            // Owners without data are removed, so the index does not grow with each owner we have ever seen
+            sizeInBytesByOwner.compute(owner, (key, size) -> {
+                long result = (size != null ? size : 0) + delta;
+                return result > 0 ? result : null;
+            });
+        }
+    }
+
+    @Nullable
+    private T getDataRequest(@Nullable DataStoreEntry<T> entry) {
+        return entry != null ? entry.getDataRequest() : null;
+    }
+
+    public void clear() {
+        // We do not use remove(hash) as it would decode the removed entries
+        synchronized (writeLock) {
+            root.map.keySet().forEach(hash -> remove(hash, entry -> true));
+        }
     }
 
     @Override
     public bisq.network.protobuf.DataStore toProto() {
         // Protobuf map do not support bytes as key
-        List<bisq.network.protobuf.DataStore.MapEntry> mapEntries = map.entrySet().stream()
+        List<bisq.network.protobuf.DataStore.MapEntry> mapEntries = root.map.entrySet().stream()
                 .map(e -> bisq.network.protobuf.DataStore.MapEntry.newBuilder()
                         .setKey(e.getKey().toProto())
-                        .setValue(e.getValue().toProto().getDataRequest())
+                        .setValue(e.getValue().getDataRequest().toDataRequestProto())
                         .build())
                 .collect(Collectors.toList());
         return bisq.network.protobuf.DataStore.newBuilder()
@@ -77,12 +477,79 @@ public final class DataStore<T extends DataRequest> implements PersistableStore<
 
     @Override
     public void applyPersisted(DataStore<T> persisted) {
-        map.clear();
-        map.putAll(persisted.getMap());
+        clear();
+        // Entries which are not decoded yet stay so
+        persisted.getEntries().forEach(this::putEntry);
     }
 
     @Override
     public DataStore<T> getClone() {
-        return new DataStore<>(map);
+        return new DataStore<>(root, version.get());
+    }
+
+    @ToString
+    private static final class Root<T extends DataRequest> {
+        private final HashArrayMappedTrie<ByteArray, DataStoreEntry<T>> map;
+        @ToString.Exclude
+        private final HashArrayMappedTrie<ByteArray, FilterEntry> filterEntryByHash;
+        private final long sizeInBytes;
+
+        private Root(HashArrayMappedTrie<ByteArray, DataStoreEntry<T>> map,
+                     HashArrayMappedTrie<ByteArray, FilterEntry> filterEntryByHash,
+                     long sizeInBytes) {
+            this.map = map;
+            this.filterEntryByHash = filterEntryByHash;
+            this.sizeInBytes = sizeInBytes;
+        }
+    }
+
+    // Reads the current root at each access
+    private final class MapView extends AbstractMap<ByteArray, T> {
+        @Override
+        public T get(Object key) {
+            return getDataRequest(root.map.get(key));
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return root.map.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return root.map.size();
+        }
+
+        @Override
+        public Set<Entry<ByteArray, T>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<ByteArray, T>> iterator() {
+                    return Collections.unmodifiableSet(getSnapshot().entrySet()).iterator();
+                }
+
+                @Override
+                public int size() {
+                    return root.map.size();
+                }
+            };
+        }
+    }
+
+    // Entry of the indexes ordered by a date
+    private static final class IndexEntry implements Comparable<IndexEntry> {
+        private final long date;
+        private final ByteArray hash;
+
+        private IndexEntry(long date, ByteArray hash) {
+            this.date = date;
+            this.hash = hash;
+        }
+
+        @Override
+        public int compareTo(IndexEntry other) {
+            int result = Long.compare(date, other.date);
+            return result != 0 ? result : Arrays.compareUnsigned(hash.getBytes(), other.hash.getBytes());
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,116 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.services.data.storage;
+
+import bisq.common.proto.UnresolvableProtobufMessageException;
+import bisq.network.p2p.services.data.DataRequest;
+import com.google.protobuf.InvalidProtocolBufferException;
+import lombok.Getter;
+import lombok.ToString;
+
+import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+
+/**
+ * Value of a DataStore entry. Entries read from an IndexedDataStoreFile hold the serialized DataRequest and decode it
+ * at the first access. The sequence number, the expiration date and the serialized size are available without
+ * decoding, as the indexes and the size accounting of the DataStore need them for all entries. The created date is
+ * available without decoding as well, except for entries read from files written before it got added to the index.
+ */
+@ToString
+final class DataStoreEntry<T extends DataRequest> {
+    static final long UNKNOWN_CREATED = Long.MIN_VALUE;
+
+    @Getter
+    private final int sequenceNumber;
+    @Getter
+    private final long expirationDate;
+    private final long created;
+    @Getter
+    private final int serializedSize;
+    @ToString.Exclude
+    @Nullable
+    private final ByteBuffer serialized;
+    private volatile T dataRequest;
+
+    static <T extends DataRequest> DataStoreEntry<T> of(T dataRequest) {
+        return new DataStoreEntry<>(DataStore.getSequenceNumber(dataRequest),
+                dataRequest.getExpirationDate(),
+                DataStore.getCreated(dataRequest),
+                dataRequest.toDataRequestProto().getSerializedSize(),
+                null,
+                dataRequest);
+    }
+
+    static <T extends DataRequest> DataStoreEntry<T> ofSerialized(ByteBuffer serialized,
+                                                                  int sequenceNumber,
+                                                                  long expirationDate,
+                                                                  long created) {
+        return new DataStoreEntry<>(sequenceNumber, expirationDate, created, serialized.remaining(), serialized, null);
+    }
+
+    private DataStoreEntry(int sequenceNumber,
+                           long expirationDate,
+                           long created,
+                           int serializedSize,
+                           @Nullable ByteBuffer serialized,
+                           @Nullable T dataRequest) {
+        this.sequenceNumber = sequenceNumber;
+        this.expirationDate = expirationDate;
+        this.created = created;
+        this.serializedSize = serializedSize;
+        this.serialized = serialized;
+        this.dataRequest = dataRequest;
+    }
+
+    T getDataRequest() {
+        T result = dataRequest;
+        if (result == null && serialized != null) {
+            // Concurrent first accesses might both decode, which is harmless as the results are equal
+            try {
+                //noinspection unchecked
+                result = (T) DataRequest.fromProto(bisq.network.protobuf.DataRequest.parseFrom(serialized.duplicate()));
+            } catch (InvalidProtocolBufferException e) {
+                throw new UnresolvableProtobufMessageException(e);
+            }
+            dataRequest = result;
+        }
+        return result;
+    }
+
+    /**
+     * @return The created date, see DataStore.getCreated. Entries of older files get decoded to look it up.
+     */
+    long getCreated() {
+        return created != UNKNOWN_CREATED ? created : DataStore.getCreated(getDataRequest());
+    }
+
+    boolean isDecoded() {
+        return dataRequest != null;
+    }
+
+    /**
+     * @return The serialized DataRequest. Entries which have been read from disk return their bytes without
+     * serializing the DataRequest again.
+     */
+    ByteBuffer getSerialized() {
+        return serialized != null ?
+                serialized.duplicate() :
+                ByteBuffer.wrap(getDataRequest().toDataRequestProto().toByteArray());
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.services.data.storage;
+
+import bisq.common.data.ByteArray;
+import bisq.common.util.FileUtils;
+import bisq.common.util.OsUtils;
+import bisq.network.p2p.services.data.DataRequest;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * File format for the snapshot of a DataStore which can be read without decoding the DataRequests.
+ * <p>
+ * The header (magic, version, generation, number of entries) is followed by the index with one record per entry
+ * (hash, sequence number, expiration date, created date, offset, length and CRC32 checksum of the serialized
+ * DataRequest) and by the serialized DataRequests. At read only the index is parsed, the DataRequests are decoded at
+ * their first access from the memory mapped file. The checksums are verified at read, so a corrupted entry is dropped
+ * there instead of failing at its first access.
+ * <p>
+ * The generation is increased with each snapshot. The change log records the generation of the snapshot it belongs
+ * to, so that a log which was not cleared after a snapshot got written is not replayed on top of the newer snapshot.
+ * Files of version 1 have no generation and are treated as generation 0. Files before version 3 have no checksums and
+ * files before version 4 have no created dates. Their entries get decoded once for writing the next snapshot.
+ * <p>
+ * Files written by Persistence start with a different magic, or in earlier versions with the varint length of an Any
+ * message followed by its type url tag, so they cannot be mistaken for an indexed file.
+ */
+@Slf4j
+final class IndexedDataStoreFile {
+    // "BQDS"
+    private static final int MAGIC = 0x42514453;
+    private static final int VERSION = 4;
+    private static final int VERSION_WITHOUT_GENERATION = 1;
+    private static final int VERSION_WITHOUT_CHECKSUM = 2;
+    private static final int VERSION_WITHOUT_CREATED = 3;
+    // Magic, version and number of entries, plus the generation since version 2
+    private static final int MIN_HEADER_SIZE = 3 * Integer.BYTES;
+    private static final int HEADER_SIZE = MIN_HEADER_SIZE + Long.BYTES;
+    // Key length, sequence number, expiration date, created date, offset, length and checksum. The key bytes are added
+    // per entry.
+    private static final int INDEX_RECORD_SIZE = 5 * Integer.BYTES + 2 * Long.BYTES;
+
+    private IndexedDataStoreFile() {
+    }
+
+    static boolean isIndexedFile(File file) {
+        if (file.length() < MIN_HEADER_SIZE) {
+            return false;
+        }
+        try (DataInputStream inputStream = new DataInputStream(new FileInputStream(file))) {
+            return inputStream.readInt() == MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return The generation of the snapshot, or 0 if the file does not exist or has no generation.
+     */
+    static long readGeneration(File file) {
+        if (!isIndexedFile(file)) {
+            return 0;
+        }
+        try (DataInputStream inputStream = new DataInputStream(new FileInputStream(file))) {
+            inputStream.readInt();
+            return inputStream.readInt() == VERSION_WITHOUT_GENERATION ? 0 : inputStream.readLong();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    static <T extends DataRequest> DataStore<T> read(File file) throws IOException {
+        ByteBuffer buffer;
+        if (OsUtils.isWindows()) {
+            // Windows does not allow to replace a mapped file, which would break the compaction of the store
+            buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+        } else {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                if (channel.size() > Integer.MAX_VALUE) {
+                    throw new IOException("File too large: " + file);
+                }
+                // The mapping stays valid after the channel is closed. A replaced file stays accessible as long as
+                // entries of it are referenced.
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        }
+
+        if (buffer.remaining() < MIN_HEADER_SIZE || buffer.getInt() != MAGIC) {
+            throw new IOException("Not an indexed data store file: " + file);
+        }
+        int version = buffer.getInt();
+        if (version < VERSION_WITHOUT_GENERATION || version > VERSION) {
+            throw new IOException("Unsupported version " + version + " of " + file);
+        }
+        if (version != VERSION_WITHOUT_GENERATION) {
+            if (buffer.remaining() < Long.BYTES + Integer.BYTES) {
+                throw new IOException("Incomplete header in " + file);
+            }
+            // Read by readGeneration
+            buffer.getLong();
+        }
+        boolean hasChecksum = version != VERSION_WITHOUT_GENERATION && version != VERSION_WITHOUT_CHECKSUM;
+        boolean hasCreated = version > VERSION_WITHOUT_CREATED;
+        int numEntries = buffer.getInt();
+        if (numEntries < 0) {
+            throw new IOException("Invalid number of entries " + numEntries + " in " + file);
+        }
+
+        DataStore<T> dataStore = new DataStore<>();
+        int numCorruptedEntries = 0;
+        try {
+            for (int i = 0; i < numEntries; i++) {
+                byte[] key = new byte[buffer.getInt()];
+                buffer.get(key);
+                int sequenceNumber = buffer.getInt();
+                long expirationDate = buffer.getLong();
+                long created = hasCreated ? buffer.getLong() : DataStoreEntry.UNKNOWN_CREATED;
+                int offset = buffer.getInt();
+                int length = buffer.getInt();
+                long checksum = hasChecksum ? buffer.getInt() & 0xFFFFFFFFL : 0;
+                if (offset < 0 || length < 0 || offset > buffer.capacity() - length) {
+                    throw new IOException("Invalid offset " + offset + " or length " + length + " in " + file);
+                }
+                ByteBuffer value = buffer.slice(offset, length);
+                if (hasChecksum && getChecksum(value) != checksum) {
+                    // The entry would fail to decode at its first access. The next snapshot will not contain it.
+                    numCorruptedEntries++;
+                    continue;
+                }
+                dataStore.putEntry(new ByteArray(key), DataStoreEntry.ofSerialized(value,
+                        sequenceNumber,
+                        expirationDate,
+                        created));
+            }
+        } catch (RuntimeException e) {
+            // Truncated index or negative key length
+            throw new IOException("Corrupted index in " + file, e);
+        }
+        if (numCorruptedEntries > 0) {
+            log.warn("We dropped {} corrupted entries of {}", numCorruptedEntries, file);
+        }
+        return dataStore;
+    }
+
+    /**
+     * Writes the snapshot to a temp file and renames it to the target file, so the target file is never left in a
+     * partially written state.
+     */
+    static void write(DataStore<?> dataStore, String directory, String fileName, long generation) throws IOException {
+        // The store might change while we write, so we work on a snapshot of its entries
+        List<Map.Entry<ByteArray, ? extends DataStoreEntry<?>>> entries = new ArrayList<>(dataStore.getEntries().entrySet());
+        List<ByteBuffer> values = new ArrayList<>(entries.size());
+        long indexSize = 0;
+        long valuesSize = 0;
+        for (Map.Entry<ByteArray, ? extends DataStoreEntry<?>> entry : entries) {
+            ByteBuffer value = entry.getValue().getSerialized();
+            values.add(value);
+            indexSize += INDEX_RECORD_SIZE + entry.getKey().getBytes().length;
+            valuesSize += value.remaining();
+        }
+        if (HEADER_SIZE + indexSize + valuesSize > Integer.MAX_VALUE) {
+            throw new IOException("Data store too large for an indexed file: " + (HEADER_SIZE + indexSize + valuesSize) + " bytes");
+        }
+
+        ByteBuffer headerAndIndex = ByteBuffer.allocate((int) (HEADER_SIZE + indexSize));
+        headerAndIndex.putInt(MAGIC).putInt(VERSION).putLong(generation).putInt(entries.size());
+        int offset = headerAndIndex.capacity();
+        for (int i = 0; i < entries.size(); i++) {
+            byte[] key = entries.get(i).getKey().getBytes();
+            DataStoreEntry<?> entry = entries.get(i).getValue();
+            int length = values.get(i).remaining();
+            headerAndIndex.putInt(key.length)
+                    .put(key)
+                    .putInt(entry.getSequenceNumber())
+                    .putLong(entry.getExpirationDate())
+                    .putLong(entry.getCreated())
+                    .putInt(offset)
+                    .putInt(length)
+                    .putInt((int) getChecksum(values.get(i)));
+            offset += length;
+        }
+        headerAndIndex.flip();
+
+        FileUtils.makeDirs(directory);
+        File tempFile = File.createTempFile("temp_" + fileName, null, new File(directory));
+        FileUtils.deleteOnExit(tempFile);
+        try {
+            try (FileOutputStream fileOutputStream = new FileOutputStream(tempFile);
+                 FileChannel channel = fileOutputStream.getChannel()) {
+                writeFully(channel, headerAndIndex);
+                for (ByteBuffer value : values) {
+                    writeFully(channel, value);
+                }
+                channel.force(true);
+            }
+            if (!FileUtils.renameFile(tempFile, new File(directory, fileName))) {
+                throw new IOException("Renaming of " + tempFile + " to " + fileName + " failed");
+            }
+        } finally {
+            FileUtils.releaseTempFile(tempFile);
+        }
+    }
+
+    private static long getChecksum(ByteBuffer value) {
+        CRC32 crc32 = new CRC32();
+        // Does not change the position of the buffer
+        crc32.update(value.duplicate());
+        return crc32.getValue();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -25,7 +25,7 @@ import lombok.ToString;
 public class Result {
     private final boolean success;
     private boolean requestAlreadyReceived, payloadAlreadyStored, publicKeyHashInvalid, sequenceNrInvalid, signatureInvalid,
-            dataInvalid, expired, noEntry, alreadyRemoved, maxMapSizeReached, isSevereFailure;
+            dataInvalid, expired, noEntry, alreadyRemoved, maxMapSizeReached, quotaExceeded, isSevereFailure;
     private StorageData removedData;
 
     public Result(boolean success) {
@@ -37,6 +37,11 @@ public class Result {
         return this;
     }
 
+    public Result quotaExceeded() {
+        quotaExceeded = true;
+        return this;
+    }
+
     public Result publicKeyHashInvalid() {
         publicKeyHashInvalid = true;
         isSevereFailure = true;
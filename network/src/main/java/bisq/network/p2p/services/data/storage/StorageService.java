@@ -19,6 +19,7 @@ package bisq.network.p2p.services.data.storage;
 
 
 import bisq.common.data.ByteArray;
+import bisq.common.timer.Scheduler;
 import bisq.common.util.FileUtils;
 import bisq.network.NetworkService;
 import bisq.network.p2p.services.data.AddDataRequest;
@@ -26,7 +27,10 @@ import bisq.network.p2p.services.data.DataRequest;
 import bisq.network.p2p.services.data.RemoveDataRequest;
 import bisq.network.p2p.services.data.filter.DataFilter;
 import bisq.network.p2p.services.data.filter.FilterEntry;
+import bisq.network.p2p.services.data.filter.InventorySketch;
 import bisq.network.p2p.services.data.inventory.Inventory;
+import bisq.network.p2p.services.data.inventory.InventoryContinuationToken;
+import bisq.network.p2p.services.data.inventory.InventoryUtil;
 import bisq.network.p2p.services.data.storage.append.AddAppendOnlyDataRequest;
 import bisq.network.p2p.services.data.storage.append.AppendOnlyData;
 import bisq.network.p2p.services.data.storage.append.AppendOnlyDataStorageService;
@@ -34,11 +38,13 @@ import bisq.network.p2p.services.data.storage.auth.AddAuthenticatedDataRequest;
 import bisq.network.p2p.services.data.storage.auth.AuthenticatedData;
 import bisq.network.p2p.services.data.storage.auth.AuthenticatedDataStorageService;
 import bisq.network.p2p.services.data.storage.auth.RemoveAuthenticatedDataRequest;
+import bisq.network.p2p.services.data.storage.auth.VerifiedRequestCache;
 import bisq.network.p2p.services.data.storage.mailbox.AddMailboxRequest;
 import bisq.network.p2p.services.data.storage.mailbox.MailboxData;
 import bisq.network.p2p.services.data.storage.mailbox.MailboxDataStorageService;
 import bisq.network.p2p.services.data.storage.mailbox.RemoveMailboxRequest;
 import bisq.persistence.PersistenceService;
+import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
@@ -48,6 +54,7 @@ import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -73,6 +80,38 @@ public class StorageService {
         void onAdded(StorageData storageData);
 
         void onRemoved(StorageData storageData);
+
+        default void onBatchAdded(Collection<StorageData> batch) {
+            batch.forEach(this::onAdded);
+        }
+
+        default void onBatchRemoved(Collection<StorageData> batch) {
+            batch.forEach(this::onRemoved);
+        }
+    }
+
+    private static final int MAX_CACHED_INVENTORIES = 32;
+    private static final long PRUNE_EXPIRED_INTERVAL_SEC = 1;
+
+    @EqualsAndHashCode
+    private static final class InventoryCacheKey {
+        private final long version;
+        private final Optional<InventorySketch> inventorySketch;
+        private final Set<String> storeNames;
+        private final Optional<InventoryContinuationToken> continuationToken;
+        private final int maxSize;
+
+        private InventoryCacheKey(long version,
+                                  Optional<InventorySketch> inventorySketch,
+                                  Set<String> storeNames,
+                                  Optional<InventoryContinuationToken> continuationToken,
+                                  int maxSize) {
+            this.version = version;
+            this.inventorySketch = inventorySketch;
+            this.storeNames = storeNames;
+            this.continuationToken = continuationToken;
+            this.maxSize = maxSize;
+        }
     }
 
     final Map<String, AuthenticatedDataStorageService> authenticatedDataStores = new ConcurrentHashMap<>();
@@ -80,6 +119,21 @@ public class StorageService {
     final Map<String, AppendOnlyDataStorageService> appendOnlyDataStores = new ConcurrentHashMap<>();
     private final PersistenceService persistenceService;
     private final Set<StorageService.Listener> listeners = new CopyOnWriteArraySet<>();
+    // Encoded inventory chunks for filters which many peers send alike, like the empty filter of a new node.
+    // The key contains the version of the stores, so entries of outdated versions are never hit and get evicted.
+    private final Map<InventoryCacheKey, Inventory> inventoryCache = Collections.synchronizedMap(
+            new LinkedHashMap<>(MAX_CACHED_INVENTORIES, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<InventoryCacheKey, Inventory> eldest) {
+                    return size() > MAX_CACHED_INVENTORIES;
+                }
+            });
+    // Shared by all authenticated data stores, so re-deliveries of broadcast requests skip signature verification
+    @Getter
+    private final VerifiedRequestCache verifiedRequestCache = new VerifiedRequestCache();
+    // One scheduler for all stores. Each store looks up its due entries in its expiry index, so a run is cheap if
+    // nothing has expired.
+    private final Scheduler pruneExpiredScheduler;
 
     public StorageService(PersistenceService persistenceService) {
         this.persistenceService = persistenceService;
@@ -93,18 +147,8 @@ public class StorageService {
             if (new File(directory).exists()) {
                 FileUtils.listFilesInDirectory(directory, 1)
                         .forEach(fileName -> {
-                            AuthenticatedDataStorageService dataStore = new AuthenticatedDataStorageService(persistenceService, authStoreName, fileName);
-                            dataStore.addListener(new AuthenticatedDataStorageService.Listener() {
-                                @Override
-                                public void onAdded(AuthenticatedData authenticatedData) {
-                                    listeners.forEach(listener -> listener.onAdded(authenticatedData));
-                                }
-
-                                @Override
-                                public void onRemoved(AuthenticatedData authenticatedData) {
-                                    listeners.forEach(listener -> listener.onRemoved(authenticatedData));
-                                }
-                            });
+                            AuthenticatedDataStorageService dataStore = new AuthenticatedDataStorageService(persistenceService, authStoreName, fileName, verifiedRequestCache);
+                            dataStore.addListener(createAuthenticatedDataStoreListener());
                             authenticatedDataStores.put(fileName, dataStore);
                         });
             }
@@ -114,17 +158,7 @@ public class StorageService {
                 FileUtils.listFilesInDirectory(directory, 1)
                         .forEach(fileName -> {
                             MailboxDataStorageService dataStore = new MailboxDataStorageService(persistenceService, mailboxStoreName, fileName);
-                            dataStore.addListener(new MailboxDataStorageService.Listener() {
-                                @Override
-                                public void onAdded(MailboxData mailboxData) {
-                                    listeners.forEach(listener -> listener.onAdded(mailboxData));
-                                }
-
-                                @Override
-                                public void onRemoved(MailboxData mailboxData) {
-                                    listeners.forEach(listener -> listener.onRemoved(mailboxData));
-                                }
-                            });
+                            dataStore.addListener(createMailboxDataStoreListener());
                             mailboxStores.put(fileName, dataStore);
                         });
             }
@@ -135,16 +169,21 @@ public class StorageService {
                 FileUtils.listFilesInDirectory(directory, 1)
                         .forEach(fileName -> {
                             AppendOnlyDataStorageService dataStore = new AppendOnlyDataStorageService(persistenceService, appendStoreName, fileName);
-                            dataStore.addListener(appendOnlyData -> listeners.forEach(listener -> listener.onAdded(appendOnlyData)));
+                            dataStore.addListener(createAppendOnlyDataStoreListener());
                             appendOnlyDataStores.put(fileName, dataStore);
                         });
             }
         } catch (IOException e) {
             e.printStackTrace();
         }
+
+        pruneExpiredScheduler = Scheduler.run(this::pruneExpired)
+                .name("StorageService.pruneExpired")
+                .periodically(PRUNE_EXPIRED_INTERVAL_SEC, TimeUnit.SECONDS);
     }
 
     public void shutdown() {
+        pruneExpiredScheduler.stop();
         authenticatedDataStores.values().forEach(DataStorageService::shutdown);
         mailboxStores.values().forEach(DataStorageService::shutdown);
         appendOnlyDataStores.values().forEach(DataStorageService::shutdown);
@@ -176,7 +215,7 @@ public class StorageService {
     }
 
     private Stream<AuthenticatedData> getAuthenticatedPayloadStream(DataStorageService<? extends DataRequest> store) {
-        return store.getPersistableStore().getClone().getMap().values().stream()
+        return store.getPersistableStore().getMap().values().stream()
                 .filter(e -> e instanceof AddAuthenticatedDataRequest)
                 .map(e -> (AddAuthenticatedDataRequest) e)
                 .map(e -> e.getAuthenticatedSequentialData().getAuthenticatedData());
@@ -201,6 +240,55 @@ public class StorageService {
         }
     }
 
+    /**
+     * Adds the requests of an inventory. The requests are grouped by their store, and each store applies its group
+     * in one critical section, gets persisted once and notifies its listeners once.
+     *
+     * @return The added data of all stores
+     */
+    public CompletableFuture<List<StorageData>> onAddDataRequests(Collection<AddDataRequest> addDataRequests) {
+        Map<String, List<AddMailboxRequest>> mailboxRequestsByStoreKey = new HashMap<>();
+        Map<String, List<AddAuthenticatedDataRequest>> authenticatedDataRequestsByStoreKey = new HashMap<>();
+        Map<String, List<AddAppendOnlyDataRequest>> appendOnlyDataRequestsByStoreKey = new HashMap<>();
+        Map<String, MetaData> metaDataByStoreKey = new HashMap<>();
+        for (AddDataRequest addDataRequest : addDataRequests) {
+            if (addDataRequest instanceof AddMailboxRequest) {
+                AddMailboxRequest request = (AddMailboxRequest) addDataRequest;
+                MetaData metaData = request.getMailboxSequentialData().getMailboxData().getMetaData();
+                metaDataByStoreKey.putIfAbsent(getStoreKey(metaData), metaData);
+                mailboxRequestsByStoreKey.computeIfAbsent(getStoreKey(metaData), k -> new ArrayList<>()).add(request);
+            } else if (addDataRequest instanceof AddAuthenticatedDataRequest) {
+                AddAuthenticatedDataRequest request = (AddAuthenticatedDataRequest) addDataRequest;
+                MetaData metaData = request.getAuthenticatedSequentialData().getAuthenticatedData().getMetaData();
+                metaDataByStoreKey.putIfAbsent(getStoreKey(metaData), metaData);
+                authenticatedDataRequestsByStoreKey.computeIfAbsent(getStoreKey(metaData), k -> new ArrayList<>()).add(request);
+            } else if (addDataRequest instanceof AddAppendOnlyDataRequest) {
+                AddAppendOnlyDataRequest request = (AddAppendOnlyDataRequest) addDataRequest;
+                MetaData metaData = request.getAppendOnlyData().getMetaData();
+                metaDataByStoreKey.putIfAbsent(getStoreKey(metaData), metaData);
+                appendOnlyDataRequestsByStoreKey.computeIfAbsent(getStoreKey(metaData), k -> new ArrayList<>()).add(request);
+            } else {
+                log.warn("onAddDataRequests called with invalid addDataRequest: {}",
+                        addDataRequest.getClass().getSimpleName());
+            }
+        }
+
+        List<CompletableFuture<? extends List<? extends StorageData>>> futures = new ArrayList<>();
+        mailboxRequestsByStoreKey.forEach((key, requests) ->
+                futures.add(getOrCreateMailboxDataStore(metaDataByStoreKey.get(key))
+                        .thenApply(store -> store.addAll(requests))));
+        authenticatedDataRequestsByStoreKey.forEach((key, requests) ->
+                futures.add(getOrCreateAuthenticatedDataStore(metaDataByStoreKey.get(key))
+                        .thenApply(store -> store.addAll(requests))));
+        appendOnlyDataRequestsByStoreKey.forEach((key, requests) ->
+                futures.add(getOrCreateAppendOnlyDataStore(metaDataByStoreKey.get(key))
+                        .thenApply(store -> store.addAll(requests))));
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                .thenApply(__ -> futures.stream()
+                        .flatMap(future -> future.join().stream())
+                        .collect(Collectors.toList()));
+    }
+
     private CompletableFuture<Optional<StorageData>> onAddMailboxRequest(AddMailboxRequest request) {
         MailboxData mailboxData = request.getMailboxSequentialData().getMailboxData();
         return getOrCreateMailboxDataStore(mailboxData.getMetaData())
@@ -302,23 +390,107 @@ public class StorageService {
     ///////////////////////////////////////////////////////////////////////////////////////////////////
 
     public Inventory getInventoryOfAllStores(DataFilter dataFilter) {
-        return getInventory(dataFilter, getAllStores()
-                .flatMap(store -> store.getPersistableStore().getClone().getMap().entrySet().stream()).collect(Collectors.toSet()));
+        return getInventoryOfAllStores(dataFilter, Optional.empty(), Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param continuationToken Token of the previous chunk, or empty for the first chunk
+     * @param maxSize           Max. serialized size of the entries of the returned chunk. At least one entry is
+     *                          returned, even if it is larger.
+     */
+    public Inventory getInventoryOfAllStores(DataFilter dataFilter,
+                                             Optional<InventoryContinuationToken> continuationToken,
+                                             int maxSize) {
+        // Full filters are hardly ever equal and comparing them costs about as much as computing the inventory.
+        // Only the empty filter and sketches are worth caching.
+        if (!dataFilter.getFilterEntries().isEmpty()) {
+            return getInventory(dataFilter, continuationToken, maxSize, getRequestedStores(dataFilter)
+                    .flatMap(store -> store.getPersistableStore().getMap().entrySet().stream()));
+        }
+
+        InventoryCacheKey key = new InventoryCacheKey(getVersionOfAllStores(),
+                dataFilter.getInventorySketch(),
+                dataFilter.getStoreNames(),
+                continuationToken,
+                maxSize);
+        Inventory cached = inventoryCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        Inventory inventory = getInventory(dataFilter, continuationToken, maxSize, getRequestedStores(dataFilter)
+                .flatMap(store -> store.getPersistableStore().getMap().entrySet().stream()));
+        // Encode it now, so that all peers getting it from the cache share the encoded proto
+        inventory.toProto();
+        inventoryCache.put(key, inventory);
+        return inventory;
+    }
+
+    // A sketch can only be decoded if we build ours over the same stores as the requester did
+    private Stream<DataStorageService<? extends DataRequest>> getRequestedStores(DataFilter dataFilter) {
+        return getAllStores().filter(store -> dataFilter.includesStore(store.getStoreName(), store.getFileName()));
+    }
+
+    // Sum of the versions of all stores. As the versions only increase, it changes with any change of any store.
+    private long getVersionOfAllStores() {
+        return getAllStores().mapToLong(store -> store.getPersistableStore().getVersion()).sum();
     }
 
     public Inventory getInventoryFromStore(DataFilter dataFilter, DataStorageService<? extends DataRequest> store) {
-        return getInventory(dataFilter, store.getPersistableStore().getClone().getMap().entrySet());
+        return getInventory(dataFilter, Optional.empty(), Integer.MAX_VALUE, store.getPersistableStore().getMap().entrySet().stream());
     }
 
+    // The entries are streamed from the live maps of the stores. Concurrent changes might or might not be reflected.
     private Inventory getInventory(DataFilter dataFilter,
-                                   Set<? extends Map.Entry<ByteArray, ? extends DataRequest>> entrySet) {
-        HashSet<? extends DataRequest> result = entrySet.stream()
-                .filter(mapEntry -> !dataFilter.getFilterEntries().contains(getFilterEntry(mapEntry)))
-                .map(Map.Entry::getValue)
-                .collect(Collectors.toCollection(HashSet::new));
-        return new Inventory(result, entrySet.size() - result.size());
+                                   Optional<InventoryContinuationToken> continuationToken,
+                                   int maxSize,
+                                   Stream<? extends Map.Entry<ByteArray, ? extends DataRequest>> entries) {
+        List<? extends Map.Entry<ByteArray, ? extends DataRequest>> missingEntries;
+        if (dataFilter.getInventorySketch().isPresent()) {
+            Optional<List<Map.Entry<ByteArray, ? extends DataRequest>>> fromSketch =
+                    getMissingEntries(dataFilter.getInventorySketch().get(), entries);
+            if (fromSketch.isEmpty()) {
+                return Inventory.forFailedSketchDecode();
+            }
+            missingEntries = fromSketch.get();
+        } else {
+            missingEntries = entries
+                    .filter(mapEntry -> !dataFilter.contains(mapEntry.getKey(), DataStore.getSequenceNumber(mapEntry.getValue())))
+                    .collect(Collectors.toList());
+        }
+
+        if (continuationToken.isEmpty() && maxSize == Integer.MAX_VALUE) {
+            HashSet<DataRequest> result = missingEntries.stream()
+                    .map(Map.Entry::getValue)
+                    .collect(Collectors.toCollection(HashSet::new));
+            return new Inventory(result, 0);
+        }
+        // Newest entries first, so that the most relevant data arrives first if the inventory is large
+        return InventoryUtil.getChunk(missingEntries, continuationToken, maxSize);
     }
 
+    private Optional<List<Map.Entry<ByteArray, ? extends DataRequest>>> getMissingEntries(InventorySketch peersSketch,
+                                                                                        Stream<? extends Map.Entry<ByteArray, ? extends DataRequest>> entries) {
+        InventorySketch sketch = new InventorySketch(peersSketch.getNumCells());
+        Map<Long, Map.Entry<ByteArray, ? extends DataRequest>> entryByKey = new HashMap<>();
+        entries.forEach(mapEntry -> {
+            long key = InventorySketch.toKey(mapEntry.getKey().getBytes(), DataStore.getSequenceNumber(mapEntry.getValue()));
+            sketch.add(key);
+            entryByKey.put(key, mapEntry);
+        });
+        Optional<InventorySketch.Difference> difference = sketch.subtract(peersSketch).decode();
+        if (difference.isEmpty()) {
+            log.info("Could not decode difference to peers InventorySketch with {} cells. We have {} entries.",
+                    peersSketch.getNumCells(), entryByKey.size());
+            return Optional.empty();
+        }
+        // Keys only the peer has are of no interest for the response
+        return Optional.of(difference.get().getOnlyInThis().stream()
+                .map(entryByKey::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList()));
+    }
+
+
 
     ///////////////////////////////////////////////////////////////////////////////////////////////////
     // Hashes for Filter
@@ -333,26 +505,21 @@ public class StorageService {
     }
 
     private Set<FilterEntry> getFilterEntries(Stream<DataStorageService<? extends DataRequest>> stores) {
-        return stores.flatMap(store -> store.getPersistableStore().getClone().getMap().entrySet().stream())
-                .map(this::getFilterEntry)
+        return stores.flatMap(store -> store.getPersistableStore().getFilterEntries().stream())
                 .collect(Collectors.toSet());
     }
 
-    private FilterEntry getFilterEntry(Map.Entry<ByteArray, ? extends DataRequest> mapEntry) {
-        DataRequest dataRequest = mapEntry.getValue();
-        int sequenceNumber = 0;
-        byte[] hash = mapEntry.getKey().getBytes();
-        if (dataRequest instanceof AddAppendOnlyDataRequest) {
-            // AddAppendOnlyDataRequest does not use a seq nr.
-            return new FilterEntry(hash, 0);
-        } else if (dataRequest instanceof AddAuthenticatedDataRequest) {
-            // AddMailboxRequest extends AddAuthenticatedDataRequest so its covered here as well
-            sequenceNumber = ((AddAuthenticatedDataRequest) dataRequest).getAuthenticatedSequentialData().getSequenceNumber();
-        } else if (dataRequest instanceof RemoveAuthenticatedDataRequest) {
-            // RemoveMailboxRequest extends RemoveAuthenticatedDataRequest so its covered here as well
-            sequenceNumber = ((RemoveAuthenticatedDataRequest) dataRequest).getSequenceNumber();
-        }
-        return new FilterEntry(hash, sequenceNumber);
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+    // Store usage
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * @return The serialized size of the data of the stores of the given type by the file name of the store.
+     */
+    public Map<String, Long> getSizeInBytesByStore(StoreType storeType) {
+        return getStoresByStoreType(storeType)
+                .collect(Collectors.toMap(DataStorageService::getFileName, DataStorageService::getSizeInBytes, Long::sum));
     }
 
 
@@ -365,18 +532,9 @@ public class StorageService {
         if (!authenticatedDataStores.containsKey(key)) {
             AuthenticatedDataStorageService dataStore = new AuthenticatedDataStorageService(persistenceService,
                     AUTHENTICATED_DATA_STORE.getStoreName(),
-                    metaData.getFileName());
-            dataStore.addListener(new AuthenticatedDataStorageService.Listener() {
-                @Override
-                public void onAdded(AuthenticatedData authenticatedData) {
-                    listeners.forEach(listener -> listener.onAdded(authenticatedData));
-                }
-
-                @Override
-                public void onRemoved(AuthenticatedData authenticatedData) {
-                    listeners.forEach(listener -> listener.onRemoved(authenticatedData));
-                }
-            });
+                    metaData.getFileName(),
+                    verifiedRequestCache);
+            dataStore.addListener(createAuthenticatedDataStoreListener());
             authenticatedDataStores.put(key, dataStore);
             return dataStore.readPersisted().thenApplyAsync(__ -> dataStore, NetworkService.DISPATCHER);
         } else {
@@ -390,17 +548,7 @@ public class StorageService {
             MailboxDataStorageService dataStore = new MailboxDataStorageService(persistenceService,
                     MAILBOX_DATA_STORE.getStoreName(),
                     metaData.getFileName());
-            dataStore.addListener(new MailboxDataStorageService.Listener() {
-                @Override
-                public void onAdded(MailboxData mailboxData) {
-                    listeners.forEach(listener -> listener.onAdded(mailboxData));
-                }
-
-                @Override
-                public void onRemoved(MailboxData mailboxData) {
-                    listeners.forEach(listener -> listener.onRemoved(mailboxData));
-                }
-            });
+            dataStore.addListener(createMailboxDataStoreListener());
             mailboxStores.put(key, dataStore);
             return dataStore.readPersisted().thenApply(__ -> dataStore);
         } else {
@@ -414,6 +562,7 @@ public class StorageService {
             AppendOnlyDataStorageService dataStore = new AppendOnlyDataStorageService(persistenceService,
                     APPEND_ONLY_DATA_STORE.getStoreName(),
                     metaData.getFileName());
+            dataStore.addListener(createAppendOnlyDataStoreListener());
             appendOnlyDataStores.put(key, dataStore);
             return dataStore.readPersisted().thenApply(__ -> dataStore);
         } else {
@@ -425,6 +574,87 @@ public class StorageService {
         return metaData.getFileName();
     }
 
+    // The listeners of the stores forward to our listeners
+
+    private AuthenticatedDataStorageService.Listener createAuthenticatedDataStoreListener() {
+        return new AuthenticatedDataStorageService.Listener() {
+            @Override
+            public void onAdded(AuthenticatedData authenticatedData) {
+                listeners.forEach(listener -> listener.onAdded(authenticatedData));
+            }
+
+            @Override
+            public void onRemoved(AuthenticatedData authenticatedData) {
+                listeners.forEach(listener -> listener.onRemoved(authenticatedData));
+            }
+
+            @Override
+            public void onBatchAdded(Collection<AuthenticatedData> batch) {
+                listeners.forEach(listener -> listener.onBatchAdded(List.copyOf(batch)));
+            }
+
+            @Override
+            public void onBatchRemoved(Collection<AuthenticatedData> batch) {
+                listeners.forEach(listener -> listener.onBatchRemoved(List.copyOf(batch)));
+            }
+        };
+    }
+
+    private MailboxDataStorageService.Listener createMailboxDataStoreListener() {
+        return new MailboxDataStorageService.Listener() {
+            @Override
+            public void onAdded(MailboxData mailboxData) {
+                listeners.forEach(listener -> listener.onAdded(mailboxData));
+            }
+
+            @Override
+            public void onRemoved(MailboxData mailboxData) {
+                listeners.forEach(listener -> listener.onRemoved(mailboxData));
+            }
+
+            @Override
+            public void onBatchAdded(Collection<MailboxData> batch) {
+                listeners.forEach(listener -> listener.onBatchAdded(List.copyOf(batch)));
+            }
+
+            @Override
+            public void onBatchRemoved(Collection<MailboxData> batch) {
+                listeners.forEach(listener -> listener.onBatchRemoved(List.copyOf(batch)));
+            }
+        };
+    }
+
+    private AppendOnlyDataStorageService.Listener createAppendOnlyDataStoreListener() {
+        return new AppendOnlyDataStorageService.Listener() {
+            @Override
+            public void onAppended(AppendOnlyData appendOnlyData) {
+                listeners.forEach(listener -> listener.onAdded(appendOnlyData));
+            }
+
+            @Override
+            public void onBatchAppended(Collection<AppendOnlyData> batch) {
+                listeners.forEach(listener -> listener.onBatchAdded(List.copyOf(batch)));
+            }
+        };
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+    // Prune expired data
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+
+    private void pruneExpired() {
+        // AppendOnlyData never expires
+        Stream.concat(getStoresByStoreType(AUTHENTICATED_DATA_STORE), getStoresByStoreType(MAILBOX_DATA_STORE))
+                .forEach(store -> {
+                    try {
+                        store.pruneExpired();
+                    } catch (Exception e) {
+                        log.error("Pruning expired data of store {} failed", store.getFileName(), e);
+                    }
+                });
+    }
+
 
     ///////////////////////////////////////////////////////////////////////////////////////////////////
     // Get stores
@@ -0,0 +1,79 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.network.p2p.services.data.storage;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Limits for the serialized size of the data in a store. A single request must not be larger than the maxSizeInBytes
+ * of the MetaData of its payload nor than maxSizeInBytesPerRequest. The latter does not depend on data received from
+ * peers, as the MetaData of mailbox data is part of the message. The whole store is limited by maxSizeInBytes, the
+ * data of a single owner by maxSizeInBytesPerOwner. If a request would exceed the limit of the store, entries get
+ * evicted by the eviction policy. Exceeding the limit of the owner always rejects the request, as evicting older data
+ * of the same owner would let a spammer replace the data of other users. As owners are identified by their key, a
+ * spammer using fresh keys is only bounded by the limits of the request and of the store.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+public final class StoreQuota {
+    public enum EvictionPolicy {
+        // Rejects the requests which do not fit
+        REJECT,
+        // Evicts the entries with the oldest created date
+        OLDEST_FIRST,
+        // Evicts the entries which expire next, entries which never expire are not evicted
+        LEAST_TTL_LEFT
+    }
+
+    private static final long KB = 1024;
+    private static final long MB = 1024 * KB;
+    // The MetaData of all our payloads use 100 000 bytes as max. size
+    private static final long MAX_SIZE_IN_BYTES_PER_REQUEST = 128 * KB;
+
+    public static final StoreQuota AUTHENTICATED_DATA = new StoreQuota(100 * MB, 10 * MB,
+            MAX_SIZE_IN_BYTES_PER_REQUEST, EvictionPolicy.LEAST_TTL_LEFT);
+    public static final StoreQuota MAILBOX_DATA = new StoreQuota(100 * MB, 10 * MB,
+            MAX_SIZE_IN_BYTES_PER_REQUEST, EvictionPolicy.OLDEST_FIRST);
+    // AppendOnlyData are never removed, so evicting them would make the stores of the nodes diverge
+    public static final StoreQuota APPEND_ONLY_DATA = new StoreQuota(200 * MB, Long.MAX_VALUE,
+            MAX_SIZE_IN_BYTES_PER_REQUEST, EvictionPolicy.REJECT);
+
+    private final long maxSizeInBytes;
+    private final long maxSizeInBytesPerOwner;
+    private final long maxSizeInBytesPerRequest;
+    private final EvictionPolicy evictionPolicy;
+
+    public StoreQuota(long maxSizeInBytes,
+                      long maxSizeInBytesPerOwner,
+                      long maxSizeInBytesPerRequest,
+                      EvictionPolicy evictionPolicy) {
+        checkArgument(maxSizeInBytes > 0, "maxSizeInBytes must be positive");
+        checkArgument(maxSizeInBytesPerOwner > 0, "maxSizeInBytesPerOwner must be positive");
+        checkArgument(maxSizeInBytesPerRequest > 0, "maxSizeInBytesPerRequest must be positive");
+        this.maxSizeInBytes = maxSizeInBytes;
+        this.maxSizeInBytesPerOwner = maxSizeInBytesPerOwner;
+        this.maxSizeInBytesPerRequest = maxSizeInBytesPerRequest;
+        this.evictionPolicy = evictionPolicy;
+    }
+}
@@ -19,6 +19,7 @@ package bisq.network.p2p.services.data.storage.append;
 
 import bisq.network.p2p.services.data.AddDataRequest;
 import bisq.network.p2p.services.data.storage.DistributedData;
+import lombok.AccessLevel;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.ToString;
@@ -29,6 +30,12 @@ import lombok.extern.slf4j.Slf4j;
 @ToString
 @EqualsAndHashCode
 public final class AddAppendOnlyDataRequest implements AddDataRequest {
+    // Built once on first use, as the request is immutable
+    @EqualsAndHashCode.Exclude
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    private bisq.network.protobuf.DataRequest cachedProto;
+
     private final AppendOnlyData appendOnlyData;
 
     public AddAppendOnlyDataRequest(AppendOnlyData appendOnlyData) {
@@ -37,13 +44,18 @@ public final class AddAppendOnlyDataRequest implements AddDataRequest {
 
     @Override
     public bisq.network.protobuf.NetworkMessage toProto() {
-        return getNetworkMessageBuilder()
-                .setDataRequest(getDataRequestBuilder()
-                        .setAddAppendOnlyDataRequest(
-                                bisq.network.protobuf.AddAppendOnlyDataRequest.newBuilder()
-                                        .setAppendOnlyData(appendOnlyData.toAny())
-                        )
-                ).build();
+        return getNetworkMessageBuilder().setDataRequest(toDataRequestProto()).build();
+    }
+
+    @Override
+    public bisq.network.protobuf.DataRequest toDataRequestProto() {
+        if (cachedProto == null) {
+            cachedProto = getDataRequestBuilder().setAddAppendOnlyDataRequest(
+                            bisq.network.protobuf.AddAppendOnlyDataRequest.newBuilder()
+                                    .setAppendOnlyData(appendOnlyData.toAny()))
+                    .build();
+        }
+        return cachedProto;
     }
 
     public static AddAppendOnlyDataRequest fromProto(bisq.network.protobuf.AddAppendOnlyDataRequest proto) {
@@ -20,17 +20,22 @@ package bisq.network.p2p.services.data.storage.append;
 import bisq.common.data.ByteArray;
 import bisq.network.p2p.services.data.storage.DataStorageService;
 import bisq.network.p2p.services.data.storage.Result;
+import bisq.network.p2p.services.data.storage.StoreQuota;
 import bisq.persistence.PersistenceService;
 import bisq.security.DigestUtil;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArraySet;
 
 /**
  * Adds AppendOnlyData to the map using the hash of the AppendOnlyData as key.
- * If key already exists we return. If map size exceeds MAX_MAP_SIZE we ignore new data.
+ * If key already exists we return. If map size exceeds MAX_MAP_SIZE or the data would exceed the quota of the store
+ * we ignore new data.
  */
 @Slf4j
 public class AppendOnlyDataStorageService extends DataStorageService<AddAppendOnlyDataRequest> {
@@ -38,13 +43,17 @@ public class AppendOnlyDataStorageService extends DataStorageService<AddAppendOn
 
     public interface Listener {
         void onAppended(AppendOnlyData appendOnlyData);
+
+        default void onBatchAppended(Collection<AppendOnlyData> batch) {
+            batch.forEach(this::onAppended);
+        }
     }
 
     private final Set<Listener> listeners = new CopyOnWriteArraySet<>();
     private final Object mapAccessLock = new Object();
 
     public AppendOnlyDataStorageService(PersistenceService persistenceService, String storeName, String fileName) {
-        super(persistenceService, storeName, fileName);
+        super(persistenceService, storeName, fileName, StoreQuota.APPEND_ONLY_DATA);
     }
 
     @Override
@@ -54,23 +63,39 @@ public class AppendOnlyDataStorageService extends DataStorageService<AddAppendOn
 
     public Result add(AddAppendOnlyDataRequest addAppendOnlyDataRequest) {
         AppendOnlyData appendOnlyData = addAppendOnlyDataRequest.getAppendOnlyData();
-        Map<ByteArray, AddAppendOnlyDataRequest> map = persistableStore.getMap();
+        Result result;
         synchronized (mapAccessLock) {
-            if (map.size() > MAX_MAP_SIZE) {
-                return new Result(false).maxMapSizeReached();
-            }
+            result = putAtAdd(addAppendOnlyDataRequest);
+        }
+        if (!result.isSuccess()) {
+            return result;
+        }
+        persist();
+        listeners.forEach(listener -> listener.onAppended(appendOnlyData));
+        return result;
+    }
 
-            byte[] hash = DigestUtil.hash(appendOnlyData.serialize());
-            ByteArray byteArray = new ByteArray(hash);
-            if (map.containsKey(byteArray)) {
-                return new Result(false).payloadAlreadyStored();
+    /**
+     * Adds the requests of an inventory in one critical section. The store gets persisted once and the listeners
+     * get notified once about all appended data.
+     *
+     * @return The appended data
+     */
+    public List<AppendOnlyData> addAll(Collection<AddAppendOnlyDataRequest> requests) {
+        List<AppendOnlyData> appendedData = new ArrayList<>();
+        synchronized (mapAccessLock) {
+            for (AddAppendOnlyDataRequest request : requests) {
+                if (putAtAdd(request).isSuccess()) {
+                    appendedData.add(request.getAppendOnlyData());
+                }
             }
-
-            map.put(byteArray, addAppendOnlyDataRequest);
+        }
+        if (appendedData.isEmpty()) {
+            return appendedData;
         }
         persist();
-        listeners.forEach(listener -> listener.onAppended(appendOnlyData));
-        return new Result(true);
+        listeners.forEach(listener -> listener.onBatchAppended(appendedData));
+        return appendedData;
     }
 
     @Override
@@ -84,4 +109,30 @@ public class AppendOnlyDataStorageService extends DataStorageService<AddAppendOn
     public void removeListener(AppendOnlyDataStorageService.Listener listener) {
         listeners.remove(listener);
     }
+
+
+    /**
+     * Has to be called while holding the mapAccessLock.
+     */
+    private Result putAtAdd(AddAppendOnlyDataRequest addAppendOnlyDataRequest) {
+        AppendOnlyData appendOnlyData = addAppendOnlyDataRequest.getAppendOnlyData();
+        Map<ByteArray, AddAppendOnlyDataRequest> map = persistableStore.getMap();
+        if (map.size() > MAX_MAP_SIZE) {
+            return new Result(false).maxMapSizeReached();
+        }
+
+        byte[] hash = DigestUtil.hash(appendOnlyData.serialize());
+        ByteArray byteArray = new ByteArray(hash);
+        if (map.containsKey(byteArray)) {
+            return new Result(false).payloadAlreadyStored();
+        }
+
+        // The REJECT policy of the quota never evicts data
+        if (reserveQuota(byteArray, addAppendOnlyDataRequest, appendOnlyData.getMetaData()).isEmpty()) {
+            return new Result(false).quotaExceeded();
+        }
+
+        persistableStore.put(byteArray, addAppendOnlyDataRequest);
+        return new Result(true);
+    }
 }
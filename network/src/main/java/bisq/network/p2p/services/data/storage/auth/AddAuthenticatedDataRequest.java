@@ -24,6 +24,7 @@ import bisq.security.DigestUtil;
 import bisq.security.KeyGeneration;
 import bisq.security.SignatureUtil;
 import com.google.protobuf.ByteString;
+import lombok.AccessLevel;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
@@ -43,6 +44,16 @@ import java.util.Optional;
 @EqualsAndHashCode
 @Slf4j
 public final class AddAuthenticatedDataRequest implements AuthenticatedDataRequest, AddDataRequest {
+    // Built once on first use, as the request is immutable
+    @EqualsAndHashCode.Exclude
+    @Getter(AccessLevel.NONE)
+    private bisq.network.protobuf.DataRequest cachedProto;
+    // Signature verification is expensive, so we do it at most once. Allows to verify before entering the lock of the
+    // storage service, or upfront in parallel for a batch of requests.
+    @EqualsAndHashCode.Exclude
+    @Getter(AccessLevel.NONE)
+    private transient volatile Boolean signatureInvalid;
+
     public static AddAuthenticatedDataRequest from(AuthenticatedDataStorageService store, AuthenticatedData authenticatedData, KeyPair keyPair)
             throws GeneralSecurityException {
 
@@ -90,12 +101,20 @@ public final class AddAuthenticatedDataRequest implements AuthenticatedDataReque
 
     @Override
     public bisq.network.protobuf.NetworkMessage toProto() {
-        return getNetworkMessageBuilder().setDataRequest(getDataRequestBuilder().setAddAuthenticatedDataRequest(
-                bisq.network.protobuf.AddAuthenticatedDataRequest.newBuilder()
-                        .setAuthenticatedSequentialData(authenticatedSequentialData.toProto())
-                        .setSignature(ByteString.copyFrom(signature))
-                        .setOwnerPublicKeyBytes(ByteString.copyFrom(ownerPublicKeyBytes)))
-        ).build();
+        return getNetworkMessageBuilder().setDataRequest(toDataRequestProto()).build();
+    }
+
+    @Override
+    public bisq.network.protobuf.DataRequest toDataRequestProto() {
+        if (cachedProto == null) {
+            cachedProto = getDataRequestBuilder().setAddAuthenticatedDataRequest(
+                            bisq.network.protobuf.AddAuthenticatedDataRequest.newBuilder()
+                                    .setAuthenticatedSequentialData(authenticatedSequentialData.toProto())
+                                    .setSignature(ByteString.copyFrom(signature))
+                                    .setOwnerPublicKeyBytes(ByteString.copyFrom(ownerPublicKeyBytes)))
+                    .build();
+        }
+        return cachedProto;
     }
 
     public static AddAuthenticatedDataRequest fromProto(bisq.network.protobuf.AddAuthenticatedDataRequest proto) {
@@ -115,6 +134,13 @@ public final class AddAuthenticatedDataRequest implements AuthenticatedDataReque
     }
 
     public boolean isSignatureInvalid() {
+        if (signatureInvalid == null) {
+            signatureInvalid = computeIsSignatureInvalid();
+        }
+        return signatureInvalid;
+    }
+
+    private boolean computeIsSignatureInvalid() {
         try {
             return !SignatureUtil.verify(authenticatedSequentialData.serialize(), signature, getOwnerPublicKey());
         } catch (Exception e) {
@@ -165,6 +191,11 @@ public final class AddAuthenticatedDataRequest implements AuthenticatedDataReque
         return authenticatedSequentialData.isExpired();
     }
 
+    @Override
+    public long getExpirationDate() {
+        return authenticatedSequentialData.getExpirationDate();
+    }
+
     @Override
     public String toString() {
         return "AddAuthenticatedDataRequest{" +
@@ -21,12 +21,21 @@ import bisq.common.data.ByteArray;
 import bisq.network.p2p.services.data.storage.DataStorageService;
 import bisq.network.p2p.services.data.storage.DataStore;
 import bisq.network.p2p.services.data.storage.Result;
+import bisq.network.p2p.services.data.storage.StoreQuota;
 import bisq.persistence.PersistenceService;
 import bisq.security.DigestUtil;
 import com.google.common.annotations.VisibleForTesting;
 import lombok.extern.slf4j.Slf4j;
 
+import javax.annotation.Nullable;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.TimeUnit;
@@ -53,13 +62,26 @@ public class AuthenticatedDataStorageService extends DataStorageService<Authenti
 
         default void onRefreshed(AuthenticatedData authenticatedData) {
         }
+
+        default void onBatchAdded(Collection<AuthenticatedData> batch) {
+            batch.forEach(this::onAdded);
+        }
+
+        default void onBatchRemoved(Collection<AuthenticatedData> batch) {
+            batch.forEach(this::onRemoved);
+        }
     }
 
     private final Set<Listener> listeners = new CopyOnWriteArraySet<>();
     private final Object mapAccessLock = new Object();
-
-    public AuthenticatedDataStorageService(PersistenceService persistenceService, String storeName, String fileName) {
-        super(persistenceService, storeName, fileName);
+    private final VerifiedRequestCache verifiedRequestCache;
+
+    public AuthenticatedDataStorageService(PersistenceService persistenceService,
+                                           String storeName,
+                                           String fileName,
+                                           VerifiedRequestCache verifiedRequestCache) {
+        super(persistenceService, storeName, fileName, StoreQuota.AUTHENTICATED_DATA);
+        this.verifiedRequestCache = verifiedRequestCache;
     }
 
     @Override
@@ -73,52 +95,23 @@ public class AuthenticatedDataStorageService extends DataStorageService<Authenti
     }
 
     public Result add(AddAuthenticatedDataRequest request) {
-        AuthenticatedSequentialData authenticatedSequentialData = request.getAuthenticatedSequentialData();
-        AuthenticatedData authenticatedData = authenticatedSequentialData.getAuthenticatedData();
-        byte[] hash = DigestUtil.hash(authenticatedData.serialize());
-        ByteArray byteArray = new ByteArray(hash);
-        AuthenticatedDataRequest requestFromMap;
-        Map<ByteArray, AuthenticatedDataRequest> map = persistableStore.getMap();
-        synchronized (mapAccessLock) {
-            if (map.size() > MAX_MAP_SIZE) {
-                return new Result(false).maxMapSizeReached();
-            }
-            requestFromMap = map.get(byteArray);
-            if (request.equals(requestFromMap)) {
-                //log.warn("request.equals(requestFromMap). request={}", request);
-                return new Result(false).requestAlreadyReceived();
-            }
-
-            if (requestFromMap != null && authenticatedSequentialData.isSequenceNrInvalid(requestFromMap.getSequenceNumber())) {
-                //log.warn("SequenceNrInvalid. request={}", request);
-                return new Result(false).sequenceNrInvalid();
-            }
-
-            if (authenticatedSequentialData.isExpired()) {
-                log.info("Data is expired at add. request object={}",
-                        request.getAuthenticatedSequentialData().getAuthenticatedData().distributedData.getClass().getSimpleName());
-                log.debug("Data is expired at add. request={}", request);
-                return new Result(false).expired();
-            }
-
-            if (authenticatedData.isDataInvalid(authenticatedSequentialData.getPubKeyHash())) {
-                log.warn("Data is invalid at add. request={}", request);
-                return new Result(false).dataInvalid();
-            }
-
-            if (request.isPublicKeyInvalid()) {
-                log.warn("PublicKey is invalid at add. request={}", request);
-                return new Result(false).publicKeyHashInvalid();
-            }
+        ByteArray byteArray = getHash(request);
+        Optional<Result> failure = checkAtAdd(byteArray, request);
+        if (failure.isPresent()) {
+            return failure.get();
+        }
 
-            if (request.isSignatureInvalid()) {
-                log.warn("Signature is invalid at add. request={}", request);
-                return new Result(false).signatureInvalid();
-            }
-            map.put(byteArray, request);
+        Set<Map.Entry<ByteArray, AuthenticatedDataRequest>> evictedEntries = new HashSet<>();
+        Result result;
+        synchronized (mapAccessLock) {
+            result = putAtAdd(byteArray, request, evictedEntries);
+        }
+        if (!result.isSuccess()) {
+            return result;
         }
 
         persist();
+        notifyRemoved(evictedEntries);
 
         // If we had already the data (only updated seq nr) we return false as well and do not notify listeners.
        /* if (requestFromMap != null) {
@@ -126,22 +119,74 @@ public class AuthenticatedDataStorageService extends DataStorageService<Authenti
             return new Result(false).payloadAlreadyStored();
         }*/
 
+        AuthenticatedData authenticatedData = request.getAuthenticatedSequentialData().getAuthenticatedData();
         listeners.forEach(listener -> listener.onAdded(authenticatedData));
-        return new Result(true);
+        return result;
+    }
+
+    /**
+     * Adds the requests of an inventory. The requests are checked outside the lock and applied in one critical
+     * section. The store gets persisted once and the listeners get notified once about all added data.
+     *
+     * @return The added data
+     */
+    public List<AuthenticatedData> addAll(Collection<AddAuthenticatedDataRequest> requests) {
+        List<Map.Entry<ByteArray, AddAuthenticatedDataRequest>> checkedRequests = new ArrayList<>();
+        requests.forEach(request -> {
+            ByteArray byteArray = getHash(request);
+            if (checkAtAdd(byteArray, request).isEmpty()) {
+                checkedRequests.add(new AbstractMap.SimpleImmutableEntry<>(byteArray, request));
+            }
+        });
+
+        Map<ByteArray, AuthenticatedData> addedDataByHash = new LinkedHashMap<>();
+        Set<Map.Entry<ByteArray, AuthenticatedDataRequest>> evictedEntries = new HashSet<>();
+        synchronized (mapAccessLock) {
+            checkedRequests.forEach(entry -> {
+                if (putAtAdd(entry.getKey(), entry.getValue(), evictedEntries).isSuccess()) {
+                    addedDataByHash.put(entry.getKey(),
+                            entry.getValue().getAuthenticatedSequentialData().getAuthenticatedData());
+                }
+            });
+        }
+        if (addedDataByHash.isEmpty()) {
+            return List.of();
+        }
+
+        persist();
+        // Data of the batch which got evicted again by later requests of the batch are not reported at all
+        evictedEntries.removeIf(entry -> addedDataByHash.remove(entry.getKey()) != null);
+        notifyRemoved(evictedEntries);
+        List<AuthenticatedData> addedData = new ArrayList<>(addedDataByHash.values());
+        if (!addedData.isEmpty()) {
+            listeners.forEach(listener -> listener.onBatchAdded(addedData));
+        }
+        return addedData;
     }
 
     public Result remove(RemoveAuthenticatedDataRequest request) {
         ByteArray byteArray = new ByteArray(request.getHash());
         AuthenticatedData authenticatedDataFromMap;
         Map<ByteArray, AuthenticatedDataRequest> map = persistableStore.getMap();
+        // Cheap checks against the current map state first, so we only verify the signature of requests which would
+        // remove an entry. The verification runs outside the lock and its outcome is cached, so the lookup inside
+        // the lock, after the map state checks got repeated, does not verify again.
+        AuthenticatedDataRequest currentRequest = map.get(byteArray);
+        if (currentRequest instanceof AddAuthenticatedDataRequest &&
+                checkMapStateAtRemove(request, (AddAuthenticatedDataRequest) currentRequest).isEmpty()) {
+            verifiedRequestCache.isSignatureInvalid(request);
+        }
         synchronized (mapAccessLock) {
             AuthenticatedDataRequest requestFromMap = map.get(byteArray);
             if (requestFromMap == null) {
                 log.debug("No entry at remove. hash={}", byteArray);
                 // We don't have any entry, but it might be that we would receive later an add request, so we need to keep
-                // track of the sequence number
-                map.put(byteArray, request);
-                persist();
+                // track of the sequence number. As the request is not verified, we only keep it if it fits into the quota
+                // without evicting other data.
+                if (fitsQuota(byteArray, request, request.getMetaData())) {
+                    persistableStore.put(byteArray, request);
+                    persist();
+                }
                 return new Result(false).noEntry();
             }
 
@@ -150,7 +195,7 @@ public class AuthenticatedDataStorageService extends DataStorageService<Authenti
                 // We have had the entry already removed.
                 if (!request.isSequenceNrInvalid(requestFromMap.getSequenceNumber())) {
                     // We update the map with the new request with the fresh sequence number.
-                    map.put(byteArray, request);
+                    persistableStore.put(byteArray, request);
                     persist();
                 }
                 return new Result(false).alreadyRemoved();
@@ -161,24 +206,19 @@ public class AuthenticatedDataStorageService extends DataStorageService<Authenti
                     "requestFromMap expected be type of AddProtectedDataRequest");
             AddAuthenticatedDataRequest addRequestFromMap = (AddAuthenticatedDataRequest) requestFromMap;
             // We have an entry, lets validate if we can remove it
-            AuthenticatedSequentialData dataFromMap = addRequestFromMap.getAuthenticatedSequentialData();
-            authenticatedDataFromMap = dataFromMap.getAuthenticatedData();
-            if (request.isSequenceNrInvalid(dataFromMap.getSequenceNumber())) {
-                log.warn("SequenceNr has not increased at remove. request={}", request);
-                return new Result(false).sequenceNrInvalid();
+            authenticatedDataFromMap = addRequestFromMap.getAuthenticatedSequentialData().getAuthenticatedData();
+            Optional<Result> mapStateFailure = checkMapStateAtRemove(request, addRequestFromMap);
+            if (mapStateFailure.isPresent()) {
+                log.warn("Map state is invalid at remove. result={}, request={}", mapStateFailure.get(), request);
+                return mapStateFailure.get();
             }
 
-            if (request.isPublicKeyHashInvalid(dataFromMap)) {
-                log.warn("PublicKey hash is invalid at remove. request={}", request);
-                return new Result(false).publicKeyHashInvalid();
-            }
-
-            if (request.isSignatureInvalid()) {
+            if (verifiedRequestCache.isSignatureInvalid(request)) {
                 log.warn("Signature is invalid at remove. request={}", request);
                 return new Result(false).signatureInvalid();
             }
 
-            map.put(byteArray, request);
+            persistableStore.put(byteArray, request);
         }
         persist();
         listeners.forEach(listener -> listener.onRemoved(authenticatedDataFromMap));
@@ -189,6 +229,12 @@ public class AuthenticatedDataStorageService extends DataStorageService<Authenti
         ByteArray byteArray = new ByteArray(request.getHash());
         AddAuthenticatedDataRequest updatedRequest;
         Map<ByteArray, AuthenticatedDataRequest> map = persistableStore.getMap();
+        // Like at remove, we only verify the signature outside the lock if the map state checks pass
+        AuthenticatedDataRequest currentRequest = map.get(byteArray);
+        if (currentRequest instanceof AddAuthenticatedDataRequest &&
+                checkMapStateAtRefresh(request, (AddAuthenticatedDataRequest) currentRequest).isEmpty()) {
+            verifiedRequestCache.isSignatureInvalid(request);
+        }
         synchronized (mapAccessLock) {
             AuthenticatedDataRequest requestFromMap = map.get(byteArray);
 
@@ -204,21 +250,15 @@ public class AuthenticatedDataStorageService extends DataStorageService<Authenti
             checkArgument(requestFromMap instanceof AddAuthenticatedDataRequest,
                     "requestFromMap expected be type of AddAuthenticatedDataRequest");
             AddAuthenticatedDataRequest addRequestFromMap = (AddAuthenticatedDataRequest) requestFromMap;
-            // We have an entry, lets validate if we can remove it
+            // We have an entry, lets validate if we can refresh it
             AuthenticatedSequentialData dataFromMap = addRequestFromMap.getAuthenticatedSequentialData();
-            if (request.isSequenceNrInvalid(dataFromMap.getSequenceNumber())) {
-                log.warn("SequenceNr is invalid at refresh. request={}", request);
-                // Sequence number has not increased
-                return new Result(false).sequenceNrInvalid();
+            Optional<Result> mapStateFailure = checkMapStateAtRefresh(request, addRequestFromMap);
+            if (mapStateFailure.isPresent()) {
+                log.warn("Map state is invalid at refresh. result={}, request={}", mapStateFailure.get(), request);
+                return mapStateFailure.get();
             }
 
-            if (request.isPublicKeyInvalid(dataFromMap)) {
-                log.warn("PublicKey is invalid at refresh. request={}", request);
-                // Hash of pubKey of data does not match provided one
-                return new Result(false).publicKeyHashInvalid();
-            }
-
-            if (request.isSignatureInvalid()) {
+            if (verifiedRequestCache.isSignatureInvalid(request)) {
                 log.warn("Signature is invalid at refresh. request={}", request);
                 return new Result(false).signatureInvalid();
             }
@@ -228,7 +268,7 @@ public class AuthenticatedDataStorageService extends DataStorageService<Authenti
                     addRequestFromMap.getSignature(),
                     addRequestFromMap.getOwnerPublicKey());
 
-            map.put(byteArray, updatedRequest);
+            persistableStore.put(byteArray, updatedRequest);
         }
         persist();
         listeners.forEach(listener -> listener.onRefreshed(updatedRequest.getAuthenticatedSequentialData().getAuthenticatedData()));
@@ -265,16 +305,136 @@ public class AuthenticatedDataStorageService extends DataStorageService<Authenti
     // Private
     ///////////////////////////////////////////////////////////////////////////////////////////////////
 
+    private static ByteArray getHash(AddAuthenticatedDataRequest request) {
+        return new ByteArray(DigestUtil.hash(request.getAuthenticatedSequentialData().getAuthenticatedData().serialize()));
+    }
+
+    /**
+     * Checks done before taking the lock. The map state is checked again when the request gets put.
+     */
+    private Optional<Result> checkAtAdd(ByteArray byteArray, AddAuthenticatedDataRequest request) {
+        AuthenticatedSequentialData authenticatedSequentialData = request.getAuthenticatedSequentialData();
+        AuthenticatedData authenticatedData = authenticatedSequentialData.getAuthenticatedData();
+
+        // Cheap checks against the current map state first, so we do not verify the signature of requests we would
+        // reject anyway. They get repeated inside the lock, as the map might have changed in the meantime.
+        Optional<Result> mapStateFailure = checkMapStateAtAdd(request, persistableStore.getMap().get(byteArray));
+        if (mapStateFailure.isPresent()) {
+            return mapStateFailure;
+        }
+
+        // The stateless checks do not depend on the map, so we do them outside the lock. Signature verification is
+        // the most expensive part and would otherwise serialize all threads adding data.
+        if (authenticatedSequentialData.isExpired()) {
+            log.info("Data is expired at add. request object={}",
+                    authenticatedData.distributedData.getClass().getSimpleName());
+            log.debug("Data is expired at add. request={}", request);
+            return Optional.of(new Result(false).expired());
+        }
+
+        if (authenticatedData.isDataInvalid(authenticatedSequentialData.getPubKeyHash())) {
+            log.warn("Data is invalid at add. request={}", request);
+            return Optional.of(new Result(false).dataInvalid());
+        }
+
+        if (request.isPublicKeyInvalid()) {
+            log.warn("PublicKey is invalid at add. request={}", request);
+            return Optional.of(new Result(false).publicKeyHashInvalid());
+        }
+
+        if (verifiedRequestCache.isSignatureInvalid(request)) {
+            log.warn("Signature is invalid at add. request={}", request);
+            return Optional.of(new Result(false).signatureInvalid());
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Has to be called while holding the mapAccessLock.
+     */
+    private Result putAtAdd(ByteArray byteArray,
+                            AddAuthenticatedDataRequest request,
+                            Set<Map.Entry<ByteArray, AuthenticatedDataRequest>> evictedEntries) {
+        Map<ByteArray, AuthenticatedDataRequest> map = persistableStore.getMap();
+        if (map.size() > MAX_MAP_SIZE) {
+            return new Result(false).maxMapSizeReached();
+        }
+        Optional<Result> mapStateFailure = checkMapStateAtAdd(request, map.get(byteArray));
+        if (mapStateFailure.isPresent()) {
+            return mapStateFailure.get();
+        }
+        Optional<Set<Map.Entry<ByteArray, AuthenticatedDataRequest>>> reserved = reserveQuota(byteArray,
+                request,
+                request.getAuthenticatedSequentialData().getAuthenticatedData().getMetaData());
+        if (reserved.isEmpty()) {
+            return new Result(false).quotaExceeded();
+        }
+        evictedEntries.addAll(reserved.get());
+        persistableStore.put(byteArray, request);
+        return new Result(true);
+    }
+
+    private Optional<Result> checkMapStateAtAdd(AddAuthenticatedDataRequest request,
+                                                @Nullable AuthenticatedDataRequest requestFromMap) {
+        if (request.equals(requestFromMap)) {
+            //log.warn("request.equals(requestFromMap). request={}", request);
+            return Optional.of(new Result(false).requestAlreadyReceived());
+        }
+
+        if (requestFromMap != null &&
+                request.getAuthenticatedSequentialData().isSequenceNrInvalid(requestFromMap.getSequenceNumber())) {
+            //log.warn("SequenceNrInvalid. request={}", request);
+            return Optional.of(new Result(false).sequenceNrInvalid());
+        }
+        return Optional.empty();
+    }
+
+    private Optional<Result> checkMapStateAtRemove(RemoveAuthenticatedDataRequest request,
+                                                   AddAuthenticatedDataRequest addRequestFromMap) {
+        AuthenticatedSequentialData dataFromMap = addRequestFromMap.getAuthenticatedSequentialData();
+        if (request.isSequenceNrInvalid(dataFromMap.getSequenceNumber())) {
+            return Optional.of(new Result(false).sequenceNrInvalid());
+        }
+
+        if (request.isPublicKeyHashInvalid(dataFromMap)) {
+            return Optional.of(new Result(false).publicKeyHashInvalid());
+        }
+        return Optional.empty();
+    }
+
+    private Optional<Result> checkMapStateAtRefresh(RefreshAuthenticatedDataRequest request,
+                                                    AddAuthenticatedDataRequest addRequestFromMap) {
+        AuthenticatedSequentialData dataFromMap = addRequestFromMap.getAuthenticatedSequentialData();
+        // Sequence number has not increased
+        if (request.isSequenceNrInvalid(dataFromMap.getSequenceNumber())) {
+            return Optional.of(new Result(false).sequenceNrInvalid());
+        }
+
+        // Hash of pubKey of data does not match provided one
+        if (request.isPublicKeyInvalid(dataFromMap)) {
+            return Optional.of(new Result(false).publicKeyHashInvalid());
+        }
+        return Optional.empty();
+    }
+
     @Override
     protected Set<Map.Entry<ByteArray, AuthenticatedDataRequest>> pruneExpired() {
         Set<Map.Entry<ByteArray, AuthenticatedDataRequest>> expiredEntries = super.pruneExpired();
-        expiredEntries.stream()
+        notifyRemoved(expiredEntries);
+        return expiredEntries;
+    }
+
+    // Evicted and expired data are notified with one batch
+    private void notifyRemoved(Set<Map.Entry<ByteArray, AuthenticatedDataRequest>> removedEntries) {
+        List<AuthenticatedData> removedData = removedEntries.stream()
                 .map(Map.Entry::getValue)
                 .filter(e -> e instanceof AddAuthenticatedDataRequest)
                 .map(e -> (AddAuthenticatedDataRequest) e)
                 .map(e -> e.getAuthenticatedSequentialData().getAuthenticatedData())
-                .forEach(e -> listeners.forEach(listener -> listener.onRemoved(e)));
-        return expiredEntries;
+                .collect(Collectors.toList());
+        if (!removedData.isEmpty()) {
+            listeners.forEach(listener -> listener.onBatchRemoved(removedData));
+        }
     }
 
     private void maybePruneMap(Map<ByteArray, AuthenticatedDataRequest> persisted) {
@@ -290,10 +450,9 @@ public class AuthenticatedDataStorageService extends DataStorageService<Authenti
                 .sorted((o1, o2) -> Long.compare(o2.getValue().getCreated(), o1.getValue().getCreated()))
                 .limit(MAX_MAP_SIZE)
                 .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
-        Map<ByteArray, AuthenticatedDataRequest> map = persistableStore.getMap();
         synchronized (mapAccessLock) {
-            map.clear();
-            map.putAll(pruned);
+            persistableStore.clear();
+            persistableStore.putAll(pruned);
         }
     }
 }
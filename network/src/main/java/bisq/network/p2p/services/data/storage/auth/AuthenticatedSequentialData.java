@@ -19,6 +19,7 @@ package bisq.network.p2p.services.data.storage.auth;
 
 import bisq.common.encoding.Hex;
 import bisq.common.proto.Proto;
+import com.google.common.math.LongMath;
 import com.google.protobuf.ByteString;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
@@ -74,6 +75,10 @@ public final class AuthenticatedSequentialData implements Proto {
         return (System.currentTimeMillis() - created) > authenticatedData.getMetaData().getTtl();
     }
 
+    public long getExpirationDate() {
+        return LongMath.saturatedAdd(created, authenticatedData.getMetaData().getTtl());
+    }
+
     public boolean isSequenceNrInvalid(long seqNumberFromMap) {
         return sequenceNumber <= seqNumberFromMap;
     }
@@ -25,6 +25,7 @@ import bisq.security.DigestUtil;
 import bisq.security.KeyGeneration;
 import bisq.security.SignatureUtil;
 import com.google.protobuf.ByteString;
+import lombok.AccessLevel;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
@@ -38,6 +39,15 @@ import java.util.Arrays;
 @EqualsAndHashCode
 @Slf4j
 public final class RefreshAuthenticatedDataRequest implements DataRequest {
+    // Built once on first use, as the request is immutable
+    @EqualsAndHashCode.Exclude
+    @Getter(AccessLevel.NONE)
+    private bisq.network.protobuf.DataRequest cachedProto;
+    // Result of the signature verification, computed on first use
+    @EqualsAndHashCode.Exclude
+    @Getter(AccessLevel.NONE)
+    private transient volatile Boolean signatureInvalid;
+
     public static RefreshAuthenticatedDataRequest from(AuthenticatedDataStorageService store,
                                                        StorageData storageData,
                                                        KeyPair keyPair)
@@ -88,14 +98,22 @@ public final class RefreshAuthenticatedDataRequest implements DataRequest {
 
     @Override
     public bisq.network.protobuf.NetworkMessage toProto() {
-        return getNetworkMessageBuilder().setDataRequest(getDataRequestBuilder().setRefreshAuthenticatedDataRequest(
-                        bisq.network.protobuf.RefreshAuthenticatedDataRequest.newBuilder()
-                                .setMetaData(metaData.toProto())
-                                .setHash(ByteString.copyFrom(hash))
-                                .setOwnerPublicKeyBytes(ByteString.copyFrom(ownerPublicKeyBytes))
-                                .setSequenceNumber(sequenceNumber)
-                                .setSignature(ByteString.copyFrom(signature))))
-                .build();
+        return getNetworkMessageBuilder().setDataRequest(toDataRequestProto()).build();
+    }
+
+    @Override
+    public bisq.network.protobuf.DataRequest toDataRequestProto() {
+        if (cachedProto == null) {
+            cachedProto = getDataRequestBuilder().setRefreshAuthenticatedDataRequest(
+                            bisq.network.protobuf.RefreshAuthenticatedDataRequest.newBuilder()
+                                    .setMetaData(metaData.toProto())
+                                    .setHash(ByteString.copyFrom(hash))
+                                    .setOwnerPublicKeyBytes(ByteString.copyFrom(ownerPublicKeyBytes))
+                                    .setSequenceNumber(sequenceNumber)
+                                    .setSignature(ByteString.copyFrom(signature)))
+                    .build();
+        }
+        return cachedProto;
     }
 
     public static RefreshAuthenticatedDataRequest fromProto(bisq.network.protobuf.RefreshAuthenticatedDataRequest proto) {
@@ -117,6 +135,13 @@ public final class RefreshAuthenticatedDataRequest implements DataRequest {
     }
 
     public boolean isSignatureInvalid() {
+        if (signatureInvalid == null) {
+            signatureInvalid = computeIsSignatureInvalid();
+        }
+        return signatureInvalid;
+    }
+
+    private boolean computeIsSignatureInvalid() {
         try {
             return !SignatureUtil.verify(hash, signature, ownerPublicKey);
         } catch (Exception e) {
@@ -23,7 +23,9 @@ import bisq.network.p2p.services.data.storage.MetaData;
 import bisq.security.DigestUtil;
 import bisq.security.KeyGeneration;
 import bisq.security.SignatureUtil;
+import com.google.common.math.LongMath;
 import com.google.protobuf.ByteString;
+import lombok.AccessLevel;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
@@ -38,6 +40,15 @@ import java.util.Arrays;
 @EqualsAndHashCode
 @Slf4j
 public final class RemoveAuthenticatedDataRequest implements AuthenticatedDataRequest, RemoveDataRequest {
+    // Built once on first use, as the request is immutable
+    @EqualsAndHashCode.Exclude
+    @Getter(AccessLevel.NONE)
+    private bisq.network.protobuf.DataRequest cachedProto;
+    // Result of the signature verification, computed on first use
+    @EqualsAndHashCode.Exclude
+    @Getter(AccessLevel.NONE)
+    private transient volatile Boolean signatureInvalid;
+
 
     public static RemoveAuthenticatedDataRequest from(AuthenticatedDataStorageService store, AuthenticatedData authenticatedData, KeyPair keyPair)
             throws GeneralSecurityException {
@@ -106,15 +117,23 @@ public final class RemoveAuthenticatedDataRequest implements AuthenticatedDataRe
 
     @Override
     public bisq.network.protobuf.NetworkMessage toProto() {
-        return getNetworkMessageBuilder().setDataRequest(getDataRequestBuilder().setRemoveAuthenticatedDataRequest(
-                        bisq.network.protobuf.RemoveAuthenticatedDataRequest.newBuilder()
-                                .setMetaData(metaData.toProto())
-                                .setHash(ByteString.copyFrom(hash))
-                                .setOwnerPublicKeyBytes(ByteString.copyFrom(ownerPublicKeyBytes))
-                                .setSequenceNumber(sequenceNumber)
-                                .setSignature(ByteString.copyFrom(signature))
-                                .setCreated(created)))
-                .build();
+        return getNetworkMessageBuilder().setDataRequest(toDataRequestProto()).build();
+    }
+
+    @Override
+    public bisq.network.protobuf.DataRequest toDataRequestProto() {
+        if (cachedProto == null) {
+            cachedProto = getDataRequestBuilder().setRemoveAuthenticatedDataRequest(
+                            bisq.network.protobuf.RemoveAuthenticatedDataRequest.newBuilder()
+                                    .setMetaData(metaData.toProto())
+                                    .setHash(ByteString.copyFrom(hash))
+                                    .setOwnerPublicKeyBytes(ByteString.copyFrom(ownerPublicKeyBytes))
+                                    .setSequenceNumber(sequenceNumber)
+                                    .setSignature(ByteString.copyFrom(signature))
+                                    .setCreated(created))
+                    .build();
+        }
+        return cachedProto;
     }
 
     public static RemoveAuthenticatedDataRequest fromProto(bisq.network.protobuf.RemoveAuthenticatedDataRequest proto) {
@@ -137,6 +156,13 @@ public final class RemoveAuthenticatedDataRequest implements AuthenticatedDataRe
     }
 
     public boolean isSignatureInvalid() {
+        if (signatureInvalid == null) {
+            signatureInvalid = computeIsSignatureInvalid();
+        }
+        return signatureInvalid;
+    }
+
+    private boolean computeIsSignatureInvalid() {
         try {
             if (ownerPublicKey == null) {
                 ownerPublicKey = KeyGeneration.generatePublic(ownerPublicKeyBytes);
@@ -164,6 +190,11 @@ public final class RemoveAuthenticatedDataRequest implements AuthenticatedDataRe
         return (System.currentTimeMillis() - created) > metaData.getTtl();
     }
 
+    @Override
+    public long getExpirationDate() {
+        return LongMath.saturatedAdd(created, metaData.getTtl());
+    }
+
     @Override
     public String toString() {
         return "RemoveAuthenticatedDataRequest{" +
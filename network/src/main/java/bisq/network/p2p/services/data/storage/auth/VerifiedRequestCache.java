@@ -0,0 +1,145 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.services.data.storage.auth;
+
+import bisq.common.data.ByteArray;
+import bisq.security.DigestUtil;
+import com.google.common.annotations.VisibleForTesting;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Remembers the outcome of signature verifications, valid as well as invalid ones. Under broadcast most received
+ * requests are re-deliveries of a request we got already from another peer, which can then skip the verification.
+ * The key is the digest of the signed data, the signature and the public key, so a cached outcome can only be hit
+ * by a request which would lead to the same result.
+ */
+public final class VerifiedRequestCache {
+    public static final int DEFAULT_MAX_SIZE = 20_000;
+
+    @Getter
+    @ToString
+    @EqualsAndHashCode
+    public static final class Snapshot {
+        private final long numHits;
+        private final long numMisses;
+        private final int size;
+
+        private Snapshot(long numHits, long numMisses, int size) {
+            this.numHits = numHits;
+            this.numMisses = numMisses;
+            this.size = size;
+        }
+
+        public double getHitRate() {
+            long numLookups = numHits + numMisses;
+            return numLookups == 0 ? 0 : (double) numHits / numLookups;
+        }
+    }
+
+    private final int maxSize;
+    // Access ordered, so we evict the least recently used outcome
+    private final Map<ByteArray, Boolean> signatureInvalidByKey;
+    private final AtomicLong numHits = new AtomicLong();
+    private final AtomicLong numMisses = new AtomicLong();
+
+    public VerifiedRequestCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    public VerifiedRequestCache(int maxSize) {
+        checkArgument(maxSize > 0, "maxSize must be positive");
+        this.maxSize = maxSize;
+        signatureInvalidByKey = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ByteArray, Boolean> eldest) {
+                return size() > VerifiedRequestCache.this.maxSize;
+            }
+        };
+    }
+
+    public boolean isSignatureInvalid(AddAuthenticatedDataRequest request) {
+        return isSignatureInvalid(request.getAuthenticatedSequentialData().serialize(),
+                request.getSignature(),
+                request.getOwnerPublicKeyBytes(),
+                request::isSignatureInvalid);
+    }
+
+    public boolean isSignatureInvalid(RemoveAuthenticatedDataRequest request) {
+        return isSignatureInvalid(request.getHash(),
+                request.getSignature(),
+                request.getOwnerPublicKeyBytes(),
+                request::isSignatureInvalid);
+    }
+
+    public boolean isSignatureInvalid(RefreshAuthenticatedDataRequest request) {
+        return isSignatureInvalid(request.getHash(),
+                request.getSignature(),
+                request.getOwnerPublicKeyBytes(),
+                request::isSignatureInvalid);
+    }
+
+    public Snapshot getSnapshot() {
+        synchronized (signatureInvalidByKey) {
+            return new Snapshot(numHits.get(), numMisses.get(), signatureInvalidByKey.size());
+        }
+    }
+
+    @VisibleForTesting
+    boolean isSignatureInvalid(byte[] signedData, byte[] signature, byte[] publicKeyBytes, BooleanSupplier verifier) {
+        ByteArray key = toKey(signedData, signature, publicKeyBytes);
+        Boolean cached;
+        synchronized (signatureInvalidByKey) {
+            cached = signatureInvalidByKey.get(key);
+        }
+        if (cached != null) {
+            numHits.incrementAndGet();
+            return cached;
+        }
+
+        // We do not hold the lock while verifying. If the same request is verified concurrently we only do some
+        // redundant work.
+        numMisses.incrementAndGet();
+        boolean signatureInvalid = verifier.getAsBoolean();
+        synchronized (signatureInvalidByKey) {
+            signatureInvalidByKey.put(key, signatureInvalid);
+        }
+        return signatureInvalid;
+    }
+
+    private static ByteArray toKey(byte[] signedData, byte[] signature, byte[] publicKeyBytes) {
+        // The lengths are included, as otherwise bytes could be moved between the fields without changing the key
+        ByteBuffer buffer = ByteBuffer.allocate(12 + signedData.length + signature.length + publicKeyBytes.length)
+                .putInt(signedData.length)
+                .put(signedData)
+                .putInt(signature.length)
+                .put(signature)
+                .putInt(publicKeyBytes.length)
+                .put(publicKeyBytes);
+        return new ByteArray(DigestUtil.hash(buffer.array()));
+    }
+}
@@ -23,6 +23,7 @@ import bisq.security.DigestUtil;
 import bisq.security.KeyGeneration;
 import bisq.security.SignatureUtil;
 import com.google.protobuf.ByteString;
+import lombok.AccessLevel;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
@@ -37,6 +38,15 @@ import java.util.Optional;
 @EqualsAndHashCode
 @Getter
 public final class AddMailboxRequest implements MailboxRequest, AddDataRequest {
+    // Built once on first use, as the request is immutable
+    @EqualsAndHashCode.Exclude
+    @Getter(AccessLevel.NONE)
+    private bisq.network.protobuf.DataRequest cachedProto;
+    // Result of the signature verification, computed on first use
+    @EqualsAndHashCode.Exclude
+    @Getter(AccessLevel.NONE)
+    private transient volatile Boolean signatureInvalid;
+
 
     public static AddMailboxRequest from(MailboxData mailboxData,
                                          KeyPair senderKeyPair,
@@ -78,12 +88,20 @@ public final class AddMailboxRequest implements MailboxRequest, AddDataRequest {
 
     @Override
     public bisq.network.protobuf.NetworkMessage toProto() {
-        return getNetworkMessageBuilder().setDataRequest(getDataRequestBuilder().setAddMailboxRequest(
-                        bisq.network.protobuf.AddMailboxRequest.newBuilder()
-                                .setMailboxSequentialData(mailboxSequentialData.toProto())
-                                .setSignature(ByteString.copyFrom(signature))
-                                .setSenderPublicKeyBytes(ByteString.copyFrom(senderPublicKeyBytes))))
-                .build();
+        return getNetworkMessageBuilder().setDataRequest(toDataRequestProto()).build();
+    }
+
+    @Override
+    public bisq.network.protobuf.DataRequest toDataRequestProto() {
+        if (cachedProto == null) {
+            cachedProto = getDataRequestBuilder().setAddMailboxRequest(
+                            bisq.network.protobuf.AddMailboxRequest.newBuilder()
+                                    .setMailboxSequentialData(mailboxSequentialData.toProto())
+                                    .setSignature(ByteString.copyFrom(signature))
+                                    .setSenderPublicKeyBytes(ByteString.copyFrom(senderPublicKeyBytes)))
+                    .build();
+        }
+        return cachedProto;
     }
 
     public static AddMailboxRequest fromProto(bisq.network.protobuf.AddMailboxRequest proto) {
@@ -103,6 +121,13 @@ public final class AddMailboxRequest implements MailboxRequest, AddDataRequest {
     }
 
     public boolean isSignatureInvalid() {
+        if (signatureInvalid == null) {
+            signatureInvalid = computeIsSignatureInvalid();
+        }
+        return signatureInvalid;
+    }
+
+    private boolean computeIsSignatureInvalid() {
         try {
             return !SignatureUtil.verify(mailboxSequentialData.serialize(), signature, getOwnerPublicKey());
         } catch (Exception e) {
@@ -154,6 +179,11 @@ public final class AddMailboxRequest implements MailboxRequest, AddDataRequest {
         return mailboxSequentialData.isExpired();
     }
 
+    @Override
+    public long getExpirationDate() {
+        return mailboxSequentialData.getExpirationDate();
+    }
+
     @Override
     public String toString() {
         return "AddMailboxDataRequest{} " + super.toString();
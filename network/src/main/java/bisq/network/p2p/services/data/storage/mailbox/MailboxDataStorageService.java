@@ -21,11 +21,20 @@ import bisq.common.data.ByteArray;
 import bisq.network.p2p.services.data.storage.DataStorageService;
 import bisq.network.p2p.services.data.storage.DataStore;
 import bisq.network.p2p.services.data.storage.Result;
+import bisq.network.p2p.services.data.storage.StoreQuota;
 import bisq.persistence.PersistenceService;
 import bisq.security.DigestUtil;
 import lombok.extern.slf4j.Slf4j;
 
+import javax.annotation.Nullable;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.TimeUnit;
@@ -40,13 +49,21 @@ public class MailboxDataStorageService extends DataStorageService<MailboxRequest
         void onAdded(MailboxData mailboxData);
 
         void onRemoved(MailboxData mailboxData);
+
+        default void onBatchAdded(Collection<MailboxData> batch) {
+            batch.forEach(this::onAdded);
+        }
+
+        default void onBatchRemoved(Collection<MailboxData> batch) {
+            batch.forEach(this::onRemoved);
+        }
     }
 
     private final Set<Listener> listeners = new CopyOnWriteArraySet<>();
     private final Object mapAccessLock = new Object();
 
     public MailboxDataStorageService(PersistenceService persistenceService, String storeName, String fileName) {
-        super(persistenceService, storeName, fileName);
+        super(persistenceService, storeName, fileName, StoreQuota.MAILBOX_DATA);
     }
 
     @Override
@@ -60,54 +77,72 @@ public class MailboxDataStorageService extends DataStorageService<MailboxRequest
     }
 
     public Result add(AddMailboxRequest request) {
-        MailboxSequentialData mailboxSequentialData = request.getMailboxSequentialData();
-        MailboxData mailboxData = mailboxSequentialData.getMailboxData();
-        byte[] hash = DigestUtil.hash(mailboxData.serialize());
-        ByteArray byteArray = new ByteArray(hash);
-        MailboxRequest requestFromMap;
-        Map<ByteArray, MailboxRequest> map = persistableStore.getMap();
-        synchronized (mapAccessLock) {
-            if (map.size() > MAX_MAP_SIZE) {
-                return new Result(false).maxMapSizeReached();
-            }
-            requestFromMap = map.get(byteArray);
-            int sequenceNumberFromMap = requestFromMap != null ? requestFromMap.getSequenceNumber() : 0;
-
-            if (request.equals(requestFromMap)) {
-                return new Result(false).requestAlreadyReceived();
-            }
-
-            if (requestFromMap != null && mailboxSequentialData.isSequenceNrInvalid(sequenceNumberFromMap)) {
-                return new Result(false).sequenceNrInvalid();
-            }
+        ByteArray byteArray = getHash(request);
+        Optional<Result> failure = checkAtAdd(byteArray, request);
+        if (failure.isPresent()) {
+            return failure.get();
+        }
 
-            if (mailboxSequentialData.isExpired()) {
-                return new Result(false).expired();
-            }
+        Set<Map.Entry<ByteArray, MailboxRequest>> evictedEntries = new HashSet<>();
+        Result result;
+        synchronized (mapAccessLock) {
+            result = putAtAdd(byteArray, request, evictedEntries);
+        }
+        if (!result.isSuccess() && !result.isPayloadAlreadyStored()) {
+            return result;
+        }
+        persist();
+        notifyRemoved(evictedEntries);
 
-            if (mailboxData.isDataInvalid(mailboxSequentialData.getSenderPublicKeyHash())) {
-                return new Result(false).dataInvalid();
-            }
+        // If we had already the data (only updated seq nr) we return false as well and do not notify listeners.
+        // This should only happen if client re-publishes mailbox data 
+        if (result.isSuccess()) {
+            MailboxData mailboxData = request.getMailboxSequentialData().getMailboxData();
+            listeners.forEach(listener -> listener.onAdded(mailboxData));
+        }
+        return result;
+    }
 
-            if (request.isPublicKeyInvalid()) {
-                return new Result(false).publicKeyHashInvalid();
+    /**
+     * Adds the requests of an inventory. The requests are checked outside the lock and applied in one critical
+     * section. The store gets persisted once and the listeners get notified once about all added data.
+     *
+     * @return The added data
+     */
+    public List<MailboxData> addAll(Collection<AddMailboxRequest> requests) {
+        List<Map.Entry<ByteArray, AddMailboxRequest>> checkedRequests = new ArrayList<>();
+        requests.forEach(request -> {
+            ByteArray byteArray = getHash(request);
+            if (checkAtAdd(byteArray, request).isEmpty()) {
+                checkedRequests.add(new AbstractMap.SimpleImmutableEntry<>(byteArray, request));
             }
+        });
 
-            if (request.isSignatureInvalid()) {
-                return new Result(false).signatureInvalid();
+        Map<ByteArray, MailboxData> addedDataByHash = new LinkedHashMap<>();
+        Set<Map.Entry<ByteArray, MailboxRequest>> evictedEntries = new HashSet<>();
+        boolean changed = false;
+        synchronized (mapAccessLock) {
+            for (Map.Entry<ByteArray, AddMailboxRequest> entry : checkedRequests) {
+                Result result = putAtAdd(entry.getKey(), entry.getValue(), evictedEntries);
+                if (result.isSuccess()) {
+                    addedDataByHash.put(entry.getKey(), entry.getValue().getMailboxSequentialData().getMailboxData());
+                }
+                changed |= result.isSuccess() || result.isPayloadAlreadyStored();
             }
-            map.put(byteArray, request);
         }
-        persist();
-
-        // If we had already the data (only updated seq nr) we return false as well and do not notify listeners.
-        // This should only happen if client re-publishes mailbox data 
-        if (requestFromMap != null) {
-            return new Result(false).payloadAlreadyStored();
+        if (!changed) {
+            return List.of();
         }
 
-        listeners.forEach(listener -> listener.onAdded(mailboxData));
-        return new Result(true);
+        persist();
+        // Data of the batch which got evicted again by later requests of the batch are not reported at all
+        evictedEntries.removeIf(entry -> addedDataByHash.remove(entry.getKey()) != null);
+        notifyRemoved(evictedEntries);
+        List<MailboxData> addedData = new ArrayList<>(addedDataByHash.values());
+        if (!addedData.isEmpty()) {
+            listeners.forEach(listener -> listener.onBatchAdded(addedData));
+        }
+        return addedData;
     }
 
     public Result remove(RemoveMailboxRequest request) {
@@ -115,12 +150,16 @@ public class MailboxDataStorageService extends DataStorageService<MailboxRequest
         Map<ByteArray, MailboxRequest> map = persistableStore.getMap();
         MailboxRequest requestFromMap = map.get(byteArray);
         MailboxSequentialData sequentialSataFromMap;
+        boolean signatureInvalid = request.isSignatureInvalid();
         synchronized (mapAccessLock) {
             if (requestFromMap == null) {
                 // We don't have any entry, but it might be that we would receive later an add request, so we need to keep
-                // track of the sequence number
-                map.put(byteArray, request);
-                persist();
+                // track of the sequence number. As the request is not verified, we only keep it if it fits into the quota
+                // without evicting other data.
+                if (fitsQuota(byteArray, request, request.getMetaData())) {
+                    persistableStore.put(byteArray, request);
+                    persist();
+                }
                 return new Result(false).noEntry();
             }
 
@@ -128,7 +167,7 @@ public class MailboxDataStorageService extends DataStorageService<MailboxRequest
                 // We have had the entry already removed.
                 if (!request.isSequenceNrInvalid(requestFromMap.getSequenceNumber())) {
                     // We update the request, so we have the latest sequence number.
-                    map.put(byteArray, request);
+                    persistableStore.put(byteArray, request);
                     persist();
                 }
                 return new Result(false).alreadyRemoved();
@@ -148,11 +187,11 @@ public class MailboxDataStorageService extends DataStorageService<MailboxRequest
                 return new Result(false).publicKeyHashInvalid();
             }
 
-            if (request.isSignatureInvalid()) {
+            if (signatureInvalid) {
                 return new Result(false).signatureInvalid();
             }
 
-            map.put(byteArray, request);
+            persistableStore.put(byteArray, request);
             listeners.forEach(listener -> listener.onRemoved(sequentialSataFromMap.getMailboxData()));
         }
 
@@ -177,6 +216,92 @@ public class MailboxDataStorageService extends DataStorageService<MailboxRequest
     // Private
     ///////////////////////////////////////////////////////////////////////////////////////////////////
 
+    private static ByteArray getHash(AddMailboxRequest request) {
+        return new ByteArray(DigestUtil.hash(request.getMailboxSequentialData().getMailboxData().serialize()));
+    }
+
+    /**
+     * Checks done before taking the lock. The map state is checked again when the request gets put.
+     */
+    private Optional<Result> checkAtAdd(ByteArray byteArray, AddMailboxRequest request) {
+        MailboxSequentialData mailboxSequentialData = request.getMailboxSequentialData();
+
+        // We reject requests we have already seen before verifying them. Checked again inside the lock.
+        Optional<Result> mapStateFailure = checkMapStateAtAdd(request, persistableStore.getMap().get(byteArray));
+        if (mapStateFailure.isPresent()) {
+            return mapStateFailure;
+        }
+
+        // Stateless checks are done outside the lock
+        if (mailboxSequentialData.isExpired()) {
+            return Optional.of(new Result(false).expired());
+        }
+
+        if (mailboxSequentialData.getMailboxData().isDataInvalid(mailboxSequentialData.getSenderPublicKeyHash())) {
+            return Optional.of(new Result(false).dataInvalid());
+        }
+
+        if (request.isPublicKeyInvalid()) {
+            return Optional.of(new Result(false).publicKeyHashInvalid());
+        }
+
+        if (request.isSignatureInvalid()) {
+            return Optional.of(new Result(false).signatureInvalid());
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Has to be called while holding the mapAccessLock. If the result is payloadAlreadyStored, the request has been
+     * put as well.
+     */
+    private Result putAtAdd(ByteArray byteArray,
+                            AddMailboxRequest request,
+                            Set<Map.Entry<ByteArray, MailboxRequest>> evictedEntries) {
+        Map<ByteArray, MailboxRequest> map = persistableStore.getMap();
+        if (map.size() > MAX_MAP_SIZE) {
+            return new Result(false).maxMapSizeReached();
+        }
+        MailboxRequest requestFromMap = map.get(byteArray);
+        Optional<Result> mapStateFailure = checkMapStateAtAdd(request, requestFromMap);
+        if (mapStateFailure.isPresent()) {
+            return mapStateFailure.get();
+        }
+        Optional<Set<Map.Entry<ByteArray, MailboxRequest>>> reserved = reserveQuota(byteArray,
+                request,
+                request.getMailboxSequentialData().getMailboxData().getMetaData());
+        if (reserved.isEmpty()) {
+            return new Result(false).quotaExceeded();
+        }
+        evictedEntries.addAll(reserved.get());
+        persistableStore.put(byteArray, request);
+        return requestFromMap != null ? new Result(false).payloadAlreadyStored() : new Result(true);
+    }
+
+    // Evicted and expired data are notified with one batch
+    private void notifyRemoved(Set<Map.Entry<ByteArray, MailboxRequest>> removedEntries) {
+        List<MailboxData> removedData = removedEntries.stream()
+                .map(Map.Entry::getValue)
+                .filter(e -> e instanceof AddMailboxRequest)
+                .map(e -> ((AddMailboxRequest) e).getMailboxSequentialData().getMailboxData())
+                .collect(Collectors.toList());
+        if (!removedData.isEmpty()) {
+            listeners.forEach(listener -> listener.onBatchRemoved(removedData));
+        }
+    }
+
+    private Optional<Result> checkMapStateAtAdd(AddMailboxRequest request, @Nullable MailboxRequest requestFromMap) {
+        if (request.equals(requestFromMap)) {
+            return Optional.of(new Result(false).requestAlreadyReceived());
+        }
+
+        if (requestFromMap != null &&
+                request.getMailboxSequentialData().isSequenceNrInvalid(requestFromMap.getSequenceNumber())) {
+            return Optional.of(new Result(false).sequenceNrInvalid());
+        }
+        return Optional.empty();
+    }
+
     int getSequenceNumber(byte[] hash) {
         ByteArray byteArray = new ByteArray(hash);
         int sequenceNumber = 0;
@@ -214,10 +339,9 @@ public class MailboxDataStorageService extends DataStorageService<MailboxRequest
                 .sorted((o1, o2) -> Long.compare(o2.getValue().getCreated(), o1.getValue().getCreated()))
                 .limit(MAX_MAP_SIZE)
                 .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
-        Map<ByteArray, MailboxRequest> map = persistableStore.getMap();
         synchronized (mapAccessLock) {
-            map.clear();
-            map.putAll(pruned);
+            persistableStore.clear();
+            persistableStore.putAll(pruned);
         }
     }
 }
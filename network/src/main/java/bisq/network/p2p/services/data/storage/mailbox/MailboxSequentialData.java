@@ -19,6 +19,7 @@ package bisq.network.p2p.services.data.storage.mailbox;
 
 import bisq.common.proto.Proto;
 import bisq.security.KeyGeneration;
+import com.google.common.math.LongMath;
 import com.google.protobuf.ByteString;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
@@ -120,4 +121,8 @@ public final class MailboxSequentialData implements Proto {
     public boolean isExpired() {
         return (System.currentTimeMillis() - created) > mailboxData.getMetaData().getTtl();
     }
+
+    public long getExpirationDate() {
+        return LongMath.saturatedAdd(created, mailboxData.getMetaData().getTtl());
+    }
 }
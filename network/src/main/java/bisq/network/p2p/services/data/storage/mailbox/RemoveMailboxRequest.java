@@ -22,7 +22,9 @@ import bisq.network.p2p.services.data.storage.MetaData;
 import bisq.security.DigestUtil;
 import bisq.security.KeyGeneration;
 import bisq.security.SignatureUtil;
+import com.google.common.math.LongMath;
 import com.google.protobuf.ByteString;
+import lombok.AccessLevel;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
@@ -36,6 +38,15 @@ import java.util.Arrays;
 @EqualsAndHashCode
 @Getter
 public final class RemoveMailboxRequest implements MailboxRequest, RemoveDataRequest {
+    // Built once on first use, as the request is immutable
+    @EqualsAndHashCode.Exclude
+    @Getter(AccessLevel.NONE)
+    private bisq.network.protobuf.DataRequest cachedProto;
+    // Result of the signature verification, computed on first use
+    @EqualsAndHashCode.Exclude
+    @Getter(AccessLevel.NONE)
+    private transient volatile Boolean signatureInvalid;
+
     private final MetaData metaData;
     private final byte[] hash;
     private final byte[] receiverPublicKeyBytes;
@@ -79,14 +90,22 @@ public final class RemoveMailboxRequest implements MailboxRequest, RemoveDataReq
 
     @Override
     public bisq.network.protobuf.NetworkMessage toProto() {
-        return getNetworkMessageBuilder().setDataRequest(getDataRequestBuilder().setRemoveMailboxRequest(
-                        bisq.network.protobuf.RemoveMailboxRequest.newBuilder()
-                                .setMetaData(metaData.toProto())
-                                .setHash(ByteString.copyFrom(hash))
-                                .setReceiverPublicKeyBytes(ByteString.copyFrom(receiverPublicKeyBytes))
-                                .setSignature(ByteString.copyFrom(signature))
-                                .setCreated(created)))
-                .build();
+        return getNetworkMessageBuilder().setDataRequest(toDataRequestProto()).build();
+    }
+
+    @Override
+    public bisq.network.protobuf.DataRequest toDataRequestProto() {
+        if (cachedProto == null) {
+            cachedProto = getDataRequestBuilder().setRemoveMailboxRequest(
+                            bisq.network.protobuf.RemoveMailboxRequest.newBuilder()
+                                    .setMetaData(metaData.toProto())
+                                    .setHash(ByteString.copyFrom(hash))
+                                    .setReceiverPublicKeyBytes(ByteString.copyFrom(receiverPublicKeyBytes))
+                                    .setSignature(ByteString.copyFrom(signature))
+                                    .setCreated(created))
+                    .build();
+        }
+        return cachedProto;
     }
 
     public static RemoveMailboxRequest fromProto(bisq.network.protobuf.RemoveMailboxRequest proto) {
@@ -117,6 +136,13 @@ public final class RemoveMailboxRequest implements MailboxRequest, RemoveDataReq
     }
 
     public boolean isSignatureInvalid() {
+        if (signatureInvalid == null) {
+            signatureInvalid = computeIsSignatureInvalid();
+        }
+        return signatureInvalid;
+    }
+
+    private boolean computeIsSignatureInvalid() {
         try {
             if (receiverPublicKey == null) {
                 receiverPublicKey = KeyGeneration.generatePublic(receiverPublicKeyBytes);
@@ -141,4 +167,9 @@ public final class RemoveMailboxRequest implements MailboxRequest, RemoveDataReq
     public boolean isExpired() {
         return (System.currentTimeMillis() - created) > metaData.getTtl();
     }
+
+    @Override
+    public long getExpirationDate() {
+        return LongMath.saturatedAdd(created, metaData.getTtl());
+    }
 }
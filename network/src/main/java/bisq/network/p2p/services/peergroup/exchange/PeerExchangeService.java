@@ -40,7 +40,6 @@ import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import static bisq.network.NetworkService.NETWORK_IO_POOL;
-import static java.util.concurrent.CompletableFuture.supplyAsync;
 
 /**
  * Responsible for executing the peer exchange protocol with set of peers.
@@ -121,13 +120,15 @@ public class PeerExchangeService implements Node.Listener {
     }
 
     private CompletableFuture<Boolean> doPeerExchangeAsync(Address peerAddress) {
-        return supplyAsync(() -> doPeerExchange(peerAddress), NETWORK_IO_POOL);
+        // We do not block a thread while the connection gets created
+        return node.getConnectionAsync(peerAddress)
+                .thenApplyAsync(connection -> doPeerExchange(peerAddress, connection), NETWORK_IO_POOL)
+                .exceptionally(throwable -> false); // Expect ConnectException if peer is not available
     }
 
-    private boolean doPeerExchange(Address peerAddress) {
+    private boolean doPeerExchange(Address peerAddress, Connection connection) {
         String key = null;
         try {
-            Connection connection = node.getConnection(peerAddress);
             key = connection.getId();
             if (requestHandlerMap.containsKey(key)) {
                 log.warn("Node {} : requestHandlerMap contains already {}. " +
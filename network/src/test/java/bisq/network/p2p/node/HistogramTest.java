@@ -0,0 +1,54 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.node;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HistogramTest {
+    @Test
+    public void testBucketBounds() {
+        for (long value = 0; value < 100_000; value++) {
+            int index = Histogram.getBucketIndex(value);
+            long upperBound = Histogram.getBucketUpperBound(index);
+            assertTrue(value <= upperBound, "value=" + value + ", upperBound=" + upperBound);
+            // Relative error is bounded by the sub bucket resolution
+            assertTrue(upperBound - value <= value / 8, "value=" + value + ", upperBound=" + upperBound);
+        }
+        assertEquals(Histogram.NUM_BUCKETS - 1, Histogram.getBucketIndex(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testSnapshot() {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.getSnapshot().getP99());
+
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+        Histogram.Snapshot snapshot = histogram.getSnapshot();
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(1000, snapshot.getMax());
+        assertEquals(500.5, snapshot.getMean());
+        assertTrue(snapshot.getP50() >= 500 && snapshot.getP50() <= 500 * 1.125);
+        assertTrue(snapshot.getP90() >= 900 && snapshot.getP90() <= 1000);
+        assertEquals(1000, snapshot.getP99());
+    }
+}
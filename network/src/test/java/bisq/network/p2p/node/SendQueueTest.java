@@ -0,0 +1,110 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.network.p2p.node;
+
+import bisq.network.p2p.message.NetworkEnvelope;
+import bisq.network.p2p.services.peergroup.keepalive.Ping;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SendQueueTest {
+    private final List<List<NetworkEnvelope>> batches = new ArrayList<>();
+    private final List<CompletableFuture<Void>> writeFutures = new ArrayList<>();
+    private final Metrics metrics = new Metrics(new NodeMetrics());
+    // We run the writer on the calling thread and complete the writes manually
+    private final SendQueue sendQueue = new SendQueue(batch -> {
+        batches.add(batch);
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        writeFutures.add(future);
+        return future;
+    }, metrics, Runnable::run, 2, 100);
+
+    @Test
+    public void testBatching() {
+        CompletableFuture<Void> future1 = sendQueue.enqueue(envelope(1));
+        CompletableFuture<Void> future2 = sendQueue.enqueue(envelope(2));
+        CompletableFuture<Void> future3 = sendQueue.enqueue(envelope(3));
+        // Only one batch in flight
+        assertEquals(1, batches.size());
+        assertEquals(2, sendQueue.size());
+
+        writeFutures.get(0).complete(null);
+        assertTrue(future1.isDone());
+        assertFalse(future2.isDone());
+        assertEquals(2, batches.size());
+        assertEquals(2, batches.get(1).size());
+
+        writeFutures.get(1).complete(null);
+        assertTrue(future2.isDone());
+        assertTrue(future3.isDone());
+        assertEquals(2, metrics.getNumFlushes().get());
+        assertEquals(1.5, metrics.getAverageFlushSize(), 1e-9);
+    }
+
+    @Test
+    public void testQueueFull() {
+        sendQueue.enqueue(envelope(1));
+        sendQueue.enqueue(envelope(2));
+        sendQueue.enqueue(envelope(3));
+        CompletableFuture<Void> rejected = sendQueue.enqueue(envelope(4));
+        assertThrows(SendQueueFullException.class, rejected::join);
+        assertEquals(1, metrics.getNumSendQueueRejections().get());
+
+        // Once drained we accept messages again
+        writeFutures.get(0).complete(null);
+        CompletableFuture<Void> future = sendQueue.enqueue(envelope(5));
+        assertFalse(future.isCompletedExceptionally());
+    }
+
+    @Test
+    public void testWriteFailure() {
+        CompletableFuture<Void> future = sendQueue.enqueue(envelope(1));
+        RuntimeException exception = new RuntimeException("test");
+        writeFutures.get(0).completeExceptionally(exception);
+        assertTrue(future.isCompletedExceptionally());
+        assertSame(exception, future.handle((nil, throwable) -> throwable).join());
+    }
+
+    @Test
+    public void testClose() {
+        sendQueue.enqueue(envelope(1));
+        CompletableFuture<Void> pending = sendQueue.enqueue(envelope(2));
+        ConnectionException cause = new ConnectionException("closed");
+        sendQueue.close(cause);
+        assertThrows(ConnectionException.class, pending::join);
+        assertEquals(0, sendQueue.size());
+
+        CompletableFuture<Void> afterClose = sendQueue.enqueue(envelope(3));
+        assertTrue(afterClose.isCompletedExceptionally());
+        assertFalse(afterClose.handle((nil, throwable) -> throwable instanceof SendQueueFullException).join());
+    }
+
+    private static NetworkEnvelope envelope(int nonce) {
+        return new NetworkEnvelope(NetworkEnvelope.VERSION, null, new Ping(nonce));
+    }
+}
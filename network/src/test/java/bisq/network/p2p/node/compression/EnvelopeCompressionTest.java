@@ -0,0 +1,52 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.node.compression;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class EnvelopeCompressionTest {
+    @Test
+    public void testDeflateInflate() throws IOException {
+        byte[] input = "type.googleapis.com/chat.PublicTradeChatMessage some text ".repeat(100)
+                .getBytes(StandardCharsets.UTF_8);
+        byte[] compressed = EnvelopeCompression.deflate(input);
+        assertTrue(compressed.length < input.length / 10);
+        assertArrayEquals(input, EnvelopeCompression.inflate(compressed, input.length));
+
+        // Incompressible data must not break the output buffer handling
+        byte[] random = new byte[10_000];
+        new Random(1).nextBytes(random);
+        assertArrayEquals(random, EnvelopeCompression.inflate(EnvelopeCompression.deflate(random), random.length));
+    }
+
+    @Test
+    public void testInflateRejectsWrongSize() {
+        byte[] input = "abc".repeat(1000).getBytes(StandardCharsets.UTF_8);
+        byte[] compressed = EnvelopeCompression.deflate(input);
+        assertThrows(IOException.class, () -> EnvelopeCompression.inflate(compressed, input.length - 1));
+        assertThrows(IOException.class, () -> EnvelopeCompression.inflate(compressed, input.length + 1));
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.network.p2p.node.nio;
+
+import bisq.network.p2p.node.Address;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class FrameCodecTest {
+    @Test
+    public void testDecodeFragmentedFrames() throws IOException {
+        bisq.network.protobuf.Address proto1 = new Address("127.0.0.1", 8000).toProto();
+        bisq.network.protobuf.Address proto2 = new Address("127.0.0.1", 8001).toProto();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        proto1.writeDelimitedTo(outputStream);
+        proto2.writeDelimitedTo(outputStream);
+        byte[] bytes = outputStream.toByteArray();
+
+        // Feed byte by byte to simulate the worst case of fragmentation
+        FrameCodec frameCodec = new FrameCodec();
+        List<byte[]> frames = new ArrayList<>();
+        for (byte b : bytes) {
+            frameCodec.decode(ByteBuffer.wrap(new byte[]{b}), frames::add);
+        }
+
+        assertEquals(2, frames.size());
+        assertEquals(proto1, bisq.network.protobuf.Address.parseFrom(frames.get(0)));
+        assertEquals(proto2, bisq.network.protobuf.Address.parseFrom(frames.get(1)));
+        assertEquals(0, frameCodec.getNumBufferedBytes());
+    }
+
+    @Test
+    public void testEncodeIsCompatibleWithWriteDelimitedTo() throws IOException {
+        bisq.network.protobuf.Address proto = new Address("127.0.0.1", 8000).toProto();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        proto.writeDelimitedTo(outputStream);
+
+        ByteBuffer encoded = FrameCodec.encode(proto);
+        byte[] bytes = new byte[encoded.remaining()];
+        encoded.get(bytes);
+        assertArrayEquals(outputStream.toByteArray(), bytes);
+    }
+
+    @Test
+    public void testMaxFrameSize() {
+        FrameCodec frameCodec = new FrameCodec(10);
+        // varint 11
+        assertThrows(IOException.class, () -> frameCodec.decode(ByteBuffer.wrap(new byte[]{11}), frame -> {
+        }));
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.network.p2p.services.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class DataServiceTest {
+    @Test
+    public void testSmallCollectionIsNotVerifiedInParallel() {
+        List<Integer> requests = range(DataService.MIN_REQUESTS_FOR_PARALLEL_VERIFICATION - 1);
+        CompletableFuture<Void> future = DataService.verifyInParallel(requests,
+                request -> fail("Must not verify"),
+                command -> fail("Must not use executor"));
+
+        assertTrue(future.isDone());
+    }
+
+    @Test
+    public void testVerifyInParallelDoesNotBlockCaller() {
+        List<Runnable> tasks = new ArrayList<>();
+        Set<Integer> verified = ConcurrentHashMap.newKeySet();
+        List<Integer> requests = range(100);
+        CompletableFuture<Void> future = DataService.verifyInParallel(requests, verified::add, tasks::add);
+
+        // The caller returns before any verification happened
+        assertFalse(future.isDone());
+        assertTrue(verified.isEmpty());
+        int numBatches = (requests.size() + DataService.VERIFICATION_BATCH_SIZE - 1) / DataService.VERIFICATION_BATCH_SIZE;
+        assertEquals(numBatches, tasks.size());
+
+        tasks.forEach(Runnable::run);
+        assertTrue(future.isDone());
+        assertEquals(Set.copyOf(requests), verified);
+    }
+
+    @Test
+    public void testVerifyInParallelOnPool() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            Set<Integer> verified = ConcurrentHashMap.newKeySet();
+            Set<Thread> threads = ConcurrentHashMap.newKeySet();
+            List<Integer> requests = range(1000);
+            DataService.verifyInParallel(requests, request -> {
+                        threads.add(Thread.currentThread());
+                        verified.add(request);
+                    }, pool)
+                    .get(10, TimeUnit.SECONDS);
+
+            assertEquals(Set.copyOf(requests), verified);
+            assertFalse(threads.contains(Thread.currentThread()));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFailedBatchDoesNotFailVerification() {
+        Set<Integer> verified = ConcurrentHashMap.newKeySet();
+        List<Integer> requests = range(100);
+        CompletableFuture<Void> future = DataService.verifyInParallel(requests, request -> {
+            if (request == 0) {
+                throw new IllegalStateException("Verification failed");
+            }
+            verified.add(request);
+        }, Runnable::run);
+
+        // Failures are not critical, as the requests get verified again when they are applied
+        assertTrue(future.isDone());
+        assertFalse(future.isCompletedExceptionally());
+        // Only the first batch stopped at the failing request
+        assertEquals(requests.size() - DataService.VERIFICATION_BATCH_SIZE, verified.size());
+    }
+
+    private static List<Integer> range(int size) {
+        return IntStream.range(0, size).boxed().collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.network.p2p.services.data;
+
+import bisq.network.p2p.services.data.storage.DistributedData;
+import bisq.network.p2p.services.data.storage.MetaData;
+import bisq.network.p2p.services.data.storage.StorageData;
+import bisq.network.p2p.services.data.storage.auth.AuthenticatedData;
+import bisq.network.p2p.services.data.storage.auth.DefaultAuthenticatedData;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.protobuf.Message;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SubscriptionRouterTest {
+    @Test
+    public void testRouting() {
+        SubscriptionRouter router = new SubscriptionRouter();
+        RecordingSubscriber byClass = new RecordingSubscriber();
+        RecordingSubscriber bySubClass = new RecordingSubscriber();
+        RecordingSubscriber byFileName = new RecordingSubscriber();
+        RecordingSubscriber byClassAndFileName = new RecordingSubscriber();
+        router.subscribe(TestData.class, byClass, MoreExecutors.directExecutor());
+        router.subscribe(SubTestData.class, bySubClass, MoreExecutors.directExecutor());
+        router.subscribe("file2", byFileName, MoreExecutors.directExecutor());
+        router.subscribe(TestData.class, byClassAndFileName, MoreExecutors.directExecutor());
+        router.subscribe("file2", byClassAndFileName, MoreExecutors.directExecutor());
+
+        AuthenticatedData data1 = new DefaultAuthenticatedData(new TestData("file1"));
+        AuthenticatedData data2 = new DefaultAuthenticatedData(new SubTestData("file2"));
+        router.onAdded(data1);
+        router.onAdded(data2);
+        router.onRemoved(data1);
+
+        assertEquals(List.of(data1, data2), byClass.added);
+        assertEquals(List.of(data1), byClass.removed);
+        assertEquals(List.of(data2), bySubClass.added);
+        assertTrue(bySubClass.removed.isEmpty());
+        assertEquals(List.of(data2), byFileName.added);
+        // Notified once, though both subscriptions match
+        assertEquals(List.of(data1, data2), byClassAndFileName.added);
+
+        router.unsubscribe(byClass);
+        router.onAdded(data1);
+        assertEquals(2, byClass.added.size());
+        assertEquals(3, byClassAndFileName.added.size());
+    }
+
+    @Test
+    public void testBatchRouting() {
+        SubscriptionRouter router = new SubscriptionRouter();
+        List<Collection<? extends StorageData>> batchesOfSubClass = new ArrayList<>();
+        router.subscribe(SubTestData.class, new DataService.Listener() {
+            @Override
+            public void onBatchAdded(Collection<? extends StorageData> batch) {
+                batchesOfSubClass.add(batch);
+            }
+        }, MoreExecutors.directExecutor());
+        RecordingSubscriber byClass = new RecordingSubscriber();
+        router.subscribe(TestData.class, byClass, MoreExecutors.directExecutor());
+
+        AuthenticatedData data1 = new DefaultAuthenticatedData(new TestData("file1"));
+        AuthenticatedData data2 = new DefaultAuthenticatedData(new SubTestData("file2"));
+        AuthenticatedData data3 = new DefaultAuthenticatedData(new SubTestData("file2"));
+        router.onBatchAdded(List.of(data1, data2, data3));
+
+        // One notification with the matching data only
+        assertEquals(List.of(List.of(data2, data3)), batchesOfSubClass);
+        // The default implementation calls the single callback for each item
+        assertEquals(List.of(data1, data2, data3), byClass.added);
+    }
+
+    @Test
+    public void testBatchRemovedRouting() {
+        SubscriptionRouter router = new SubscriptionRouter();
+        List<Collection<? extends StorageData>> removedBatchesOfSubClass = new ArrayList<>();
+        router.subscribe(SubTestData.class, new DataService.Listener() {
+            @Override
+            public void onBatchRemoved(Collection<? extends StorageData> batch) {
+                removedBatchesOfSubClass.add(batch);
+            }
+        }, MoreExecutors.directExecutor());
+        RecordingSubscriber byFileName = new RecordingSubscriber();
+        router.subscribe("file1", byFileName, MoreExecutors.directExecutor());
+
+        AuthenticatedData data1 = new DefaultAuthenticatedData(new TestData("file1"));
+        AuthenticatedData data2 = new DefaultAuthenticatedData(new SubTestData("file2"));
+        AuthenticatedData data3 = new DefaultAuthenticatedData(new SubTestData("file2"));
+        router.onBatchRemoved(List.of(data1, data2, data3));
+
+        // One notification with the matching data only
+        assertEquals(List.of(List.of(data2, data3)), removedBatchesOfSubClass);
+        // The default implementation calls the single callback for each item
+        assertEquals(List.of(data1), byFileName.removed);
+        assertTrue(byFileName.added.isEmpty());
+    }
+
+    @Test
+    public void testSlowSubscriberDoesNotDelayOthers() throws InterruptedException {
+        SubscriptionRouter router = new SubscriptionRouter();
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch notified = new CountDownLatch(1);
+        router.subscribe(TestData.class, new DataService.Listener() {
+            @Override
+            public void onAuthenticatedDataAdded(AuthenticatedData authenticatedData) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, SubscriptionRouter.newSequentialExecutor());
+        router.subscribe(TestData.class, new DataService.Listener() {
+            @Override
+            public void onAuthenticatedDataAdded(AuthenticatedData authenticatedData) {
+                notified.countDown();
+            }
+        }, SubscriptionRouter.newSequentialExecutor());
+
+        router.onAdded(new DefaultAuthenticatedData(new TestData("file1")));
+        assertTrue(notified.await(10, TimeUnit.SECONDS));
+        release.countDown();
+    }
+
+    private static final class RecordingSubscriber implements DataService.Listener {
+        private final List<AuthenticatedData> added = new ArrayList<>();
+        private final List<AuthenticatedData> removed = new ArrayList<>();
+
+        @Override
+        public void onAuthenticatedDataAdded(AuthenticatedData authenticatedData) {
+            added.add(authenticatedData);
+        }
+
+        @Override
+        public void onAuthenticatedDataRemoved(AuthenticatedData authenticatedData) {
+            removed.add(authenticatedData);
+        }
+    }
+
+    private static class TestData implements DistributedData {
+        private final MetaData metaData;
+
+        private TestData(String fileName) {
+            metaData = new MetaData(100000, fileName);
+        }
+
+        @Override
+        public Message toProto() {
+            return metaData.toProto();
+        }
+
+        @Override
+        public MetaData getMetaData() {
+            return metaData;
+        }
+
+        @Override
+        public boolean isDataInvalid(byte[] pubKeyHash) {
+            return false;
+        }
+    }
+
+    private static final class SubTestData extends TestData {
+        private SubTestData(String fileName) {
+            super(fileName);
+        }
+    }
+}
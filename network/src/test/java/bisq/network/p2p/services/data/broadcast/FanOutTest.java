@@ -0,0 +1,101 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.network.p2p.services.data.broadcast;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FanOutTest {
+    private static final long TIMEOUT_MS = 10_000;
+
+    @Test
+    public void testMaxInFlightAndPriority() {
+        FanOut fanOut = new FanOut(2);
+        List<String> started = new ArrayList<>();
+        List<CompletableFuture<String>> sends = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            sends.add(new CompletableFuture<>());
+        }
+        CompletableFuture<String> result0 = submit(fanOut, started, sends.get(0), "normal0", BroadcastPolicy.Priority.NORMAL);
+        submit(fanOut, started, sends.get(1), "normal1", BroadcastPolicy.Priority.NORMAL);
+        submit(fanOut, started, sends.get(2), "low", BroadcastPolicy.Priority.LOW);
+        submit(fanOut, started, sends.get(3), "normal2", BroadcastPolicy.Priority.NORMAL);
+        submit(fanOut, started, sends.get(4), "high", BroadcastPolicy.Priority.HIGH);
+
+        assertEquals(List.of("normal0", "normal1"), started);
+        assertEquals(2, fanOut.getNumInFlight());
+        assertEquals(3, fanOut.getNumPending());
+
+        sends.get(0).complete("normal0");
+        assertEquals("normal0", result0.join());
+        assertEquals(List.of("normal0", "normal1", "high"), started);
+
+        sends.get(1).completeExceptionally(new RuntimeException());
+        sends.get(4).complete("high");
+        assertEquals(List.of("normal0", "normal1", "high", "normal2", "low"), started);
+    }
+
+    @Test
+    public void testSynchronousCompletion() {
+        FanOut fanOut = new FanOut(1);
+        List<CompletableFuture<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            int value = i;
+            results.add(fanOut.submit(() -> CompletableFuture.completedFuture(value), BroadcastPolicy.Priority.NORMAL, TIMEOUT_MS));
+        }
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i, results.get(i).join());
+        }
+        assertEquals(0, fanOut.getNumInFlight());
+    }
+
+    @Test
+    public void testTimeoutFreesSlot() throws Exception {
+        FanOut fanOut = new FanOut(1);
+        CompletableFuture<String> stuck = fanOut.submit(CompletableFuture::new, BroadcastPolicy.Priority.NORMAL, 50);
+        CompletableFuture<String> next = fanOut.submit(() -> CompletableFuture.completedFuture("next"),
+                BroadcastPolicy.Priority.NORMAL,
+                TIMEOUT_MS);
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> stuck.get(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        assertTrue(exception.getCause() instanceof TimeoutException);
+        assertEquals("next", next.get(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    }
+
+    private static CompletableFuture<String> submit(FanOut fanOut,
+                                                    List<String> started,
+                                                    CompletableFuture<String> send,
+                                                    String name,
+                                                    BroadcastPolicy.Priority priority) {
+        return fanOut.submit(() -> {
+            started.add(name);
+            return send;
+        }, priority, TIMEOUT_MS);
+    }
+}
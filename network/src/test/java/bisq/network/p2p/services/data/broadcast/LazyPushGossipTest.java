@@ -0,0 +1,163 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.network.p2p.services.data.broadcast;
+
+import bisq.network.p2p.message.NetworkMessage;
+import bisq.network.p2p.node.Address;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LazyPushGossipTest {
+    private static final class SentMessage {
+        private final NetworkMessage networkMessage;
+        private final String peer;
+
+        private SentMessage(NetworkMessage networkMessage, String peer) {
+            this.networkMessage = networkMessage;
+            this.peer = peer;
+        }
+    }
+
+    private final AtomicLong now = new AtomicLong(0);
+    private final List<SentMessage> sentMessages = new ArrayList<>();
+    private final SeenMessageCache seenMessageCache = new SeenMessageCache(60_000, 4, 1000, now::get);
+    private final LazyPushGossip<String> gossip = new LazyPushGossip<>(seenMessageCache,
+            (networkMessage, peer) -> {
+                sentMessages.add(new SentMessage(networkMessage, peer));
+                return CompletableFuture.completedFuture(null);
+            },
+            peer -> new Address(peer, 1000),
+            now::get);
+
+    private CompletableFuture<Void> announce(TestMessage message, String peer) {
+        return gossip.announce(message, SeenMessageCache.getDigest(message), peer);
+    }
+
+    @Test
+    public void testAnnouncementBatching() {
+        TestMessage message1 = new TestMessage(1);
+        TestMessage message2 = new TestMessage(2);
+        CompletableFuture<Void> future = announce(message1, "a");
+        announce(message2, "a");
+        announce(message1, "b");
+        assertTrue(sentMessages.isEmpty());
+        assertFalse(future.isDone());
+
+        gossip.sendPendingBatches();
+        assertTrue(future.isDone());
+        Map<String, SentMessage> sentByPeer = sentMessages.stream()
+                .collect(Collectors.toMap(sentMessage -> sentMessage.peer, sentMessage -> sentMessage));
+        assertEquals(2, sentByPeer.size());
+        List<byte[]> digestsToA = ((IHaveMessage) sentByPeer.get("a").networkMessage).getDigests();
+        assertEquals(2, digestsToA.size());
+        assertArrayEquals(SeenMessageCache.getDigest(message1), digestsToA.get(0));
+        assertArrayEquals(SeenMessageCache.getDigest(message2), digestsToA.get(1));
+        assertEquals(1, ((IHaveMessage) sentByPeer.get("b").networkMessage).getDigests().size());
+
+        // A full batch is sent at once
+        sentMessages.clear();
+        for (int i = 0; i < LazyPushGossip.MAX_DIGESTS_PER_MESSAGE; i++) {
+            announce(new TestMessage(100 + i), "a");
+        }
+        assertEquals(1, sentMessages.size());
+        assertEquals(LazyPushGossip.MAX_DIGESTS_PER_MESSAGE,
+                ((IHaveMessage) sentMessages.get(0).networkMessage).getDigests().size());
+    }
+
+    @Test
+    public void testPull() {
+        TestMessage missing = new TestMessage(1);
+        TestMessage seen = new TestMessage(2);
+        seenMessageCache.onBroadcast(SeenMessageCache.getDigest(seen));
+
+        gossip.onIHaveMessage(new IHaveMessage(List.of(SeenMessageCache.getDigest(missing),
+                SeenMessageCache.getDigest(seen))), "a");
+        assertEquals(1, sentMessages.size());
+        assertEquals("a", sentMessages.get(0).peer);
+        List<byte[]> wanted = ((IWantMessage) sentMessages.get(0).networkMessage).getDigests();
+        assertEquals(1, wanted.size());
+        assertArrayEquals(SeenMessageCache.getDigest(missing), wanted.get(0));
+        assertTrue(seenMessageCache.getPeersHavingMessage(SeenMessageCache.getDigest(missing)).contains(new Address("a", 1000)));
+    }
+
+    @Test
+    public void testDeliverOnlyAnnouncedMessages() {
+        TestMessage message = new TestMessage(1);
+        IWantMessage iWantMessage = new IWantMessage(List.of(SeenMessageCache.getDigest(message)));
+        announce(message, "a");
+        gossip.sendPendingBatches();
+        sentMessages.clear();
+
+        // Not announced to b
+        gossip.onIWantMessage(iWantMessage, "b");
+        assertTrue(sentMessages.isEmpty());
+        assertTrue(seenMessageCache.getPeersHavingMessage(SeenMessageCache.getDigest(message)).isEmpty());
+
+        gossip.onIWantMessage(iWantMessage, "a");
+        assertEquals(1, sentMessages.size());
+        assertEquals(message, sentMessages.get(0).networkMessage);
+        assertTrue(seenMessageCache.getPeersHavingMessage(SeenMessageCache.getDigest(message)).contains(new Address("a", 1000)));
+
+        // Delivered only once
+        gossip.onIWantMessage(iWantMessage, "a");
+        assertEquals(1, sentMessages.size());
+    }
+
+    @Test
+    public void testPullTimeout() {
+        IHaveMessage iHaveMessage = new IHaveMessage(List.of(SeenMessageCache.getDigest(new TestMessage(1))));
+        gossip.onIHaveMessage(iHaveMessage, "a");
+        assertEquals(1, sentMessages.size());
+
+        // Pulled from a already
+        now.set(LazyPushGossip.PULL_TIMEOUT_MS - 1);
+        gossip.onIHaveMessage(iHaveMessage, "b");
+        assertEquals(1, sentMessages.size());
+
+        // a did not deliver in time
+        now.set(LazyPushGossip.PULL_TIMEOUT_MS);
+        gossip.onIHaveMessage(iHaveMessage, "b");
+        assertEquals(2, sentMessages.size());
+        assertEquals("b", sentMessages.get(1).peer);
+    }
+
+    private static final class TestMessage implements BroadcastMessage {
+        private final int nonce;
+
+        private TestMessage(int nonce) {
+            this.nonce = nonce;
+        }
+
+        @Override
+        public bisq.network.protobuf.NetworkMessage toProto() {
+            return getNetworkMessageBuilder().setPing(bisq.network.protobuf.Ping.newBuilder().setNonce(nonce)).build();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.network.p2p.services.data.broadcast;
+
+import bisq.network.p2p.node.Address;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SeenMessageCacheTest {
+    private static final Address PEER_1 = new Address("127.0.0.1", 1000);
+    private static final Address PEER_2 = new Address("127.0.0.1", 1001);
+
+    @Test
+    public void testDuplicates() {
+        AtomicLong now = new AtomicLong(0);
+        SeenMessageCache cache = new SeenMessageCache(1000, 4, 1000, now::get);
+        TestMessage message1 = new TestMessage(1);
+        TestMessage message2 = new TestMessage(2);
+
+        assertFalse(cache.onReceived(message1, PEER_1));
+        assertTrue(cache.onReceived(message1, PEER_2));
+        assertFalse(cache.onReceived(message2, PEER_1));
+        assertEquals(Set.of(PEER_1, PEER_2), cache.getPeersHavingMessage(SeenMessageCache.getDigest(message1)));
+        assertEquals(Set.of(PEER_1), cache.getPeersHavingMessage(SeenMessageCache.getDigest(message2)));
+        assertEquals(1 / 3d, cache.getDuplicateRatioByMessageType().get(TestMessage.class.getSimpleName()), 1e-9);
+
+        cache.onBroadcast(SeenMessageCache.getDigest(new TestMessage(3)));
+        assertTrue(cache.onReceived(new TestMessage(3), PEER_1));
+    }
+
+    @Test
+    public void testExpiry() {
+        AtomicLong now = new AtomicLong(0);
+        SeenMessageCache cache = new SeenMessageCache(1000, 4, 1000, now::get);
+        TestMessage message = new TestMessage(1);
+        assertFalse(cache.onReceived(message, PEER_1));
+
+        // Still within the window after 3 rotations
+        now.set(750);
+        assertTrue(cache.onReceived(message, PEER_1));
+
+        // The generation holding the message gets dropped with the 4th rotation
+        now.set(1000);
+        assertFalse(cache.onReceived(message, PEER_1));
+
+        // After a long pause all generations are outdated
+        now.set(100_000);
+        assertFalse(cache.onReceived(message, PEER_1));
+    }
+
+    private static final class TestMessage implements BroadcastMessage {
+        private final int nonce;
+
+        private TestMessage(int nonce) {
+            this.nonce = nonce;
+        }
+
+        @Override
+        public bisq.network.protobuf.NetworkMessage toProto() {
+            return getNetworkMessageBuilder().setPing(bisq.network.protobuf.Ping.newBuilder().setNonce(nonce)).build();
+        }
+    }
+}
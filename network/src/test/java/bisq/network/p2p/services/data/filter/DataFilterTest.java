@@ -0,0 +1,73 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.services.data.filter;
+
+import bisq.common.data.ByteArray;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DataFilterTest {
+    @Test
+    public void testContains() {
+        byte[] hash1 = new byte[]{1, 2, 3};
+        byte[] hash2 = new byte[]{4, 5, 6};
+        DataFilter dataFilter = new DataFilter(Set.of(new FilterEntry(hash1, 0), new FilterEntry(hash2, 3)));
+
+        assertTrue(dataFilter.contains(new ByteArray(new byte[]{1, 2, 3}), 0));
+        assertTrue(dataFilter.contains(new ByteArray(hash2), 3));
+        // Other sequence number
+        assertFalse(dataFilter.contains(new ByteArray(hash2), 2));
+        assertFalse(dataFilter.contains(new ByteArray(hash2), 4));
+        // Unknown hash
+        assertFalse(dataFilter.contains(new ByteArray(new byte[]{7}), 0));
+    }
+
+    @Test
+    public void testIncludesStore() {
+        DataFilter allStores = new DataFilter(Set.of());
+        assertTrue(allStores.includesStore("AuthenticatedDataStore", "ChatMessageStore"));
+
+        DataFilter byStoreType = new DataFilter(Set.of(), Set.of("AuthenticatedDataStore"));
+        assertTrue(byStoreType.includesStore("AuthenticatedDataStore", "ChatMessageStore"));
+        assertFalse(byStoreType.includesStore("MailboxDataStore", "MailboxMessageStore"));
+
+        DataFilter byFileName = new DataFilter(Set.of(), Set.of("ChatMessageStore"));
+        assertTrue(byFileName.includesStore("AuthenticatedDataStore", "ChatMessageStore"));
+        assertFalse(byFileName.includesStore("AuthenticatedDataStore", "OfferStore"));
+    }
+
+    @Test
+    public void testSketchFilterKeepsStores() {
+        DataFilter dataFilter = new DataFilter(Set.of(new FilterEntry(new byte[]{1}, 0)), Set.of("ChatMessageStore"));
+        DataFilter sketchFilter = dataFilter.toSketchFilter(InventorySketch.getNumCellsForDifference(10));
+
+        assertTrue(sketchFilter.getFilterEntries().isEmpty());
+        assertTrue(sketchFilter.getInventorySketch().isPresent());
+        assertEquals(Set.of("ChatMessageStore"), sketchFilter.getStoreNames());
+        DataFilter fromProto = DataFilter.fromProto(sketchFilter.toProto());
+        assertEquals(sketchFilter.getStoreNames(), fromProto.getStoreNames());
+        assertEquals(sketchFilter.getInventorySketch(), fromProto.getInventorySketch());
+        assertEquals(Optional.empty(), DataFilter.fromProto(dataFilter.toProto()).getInventorySketch());
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.services.data.filter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class InventorySketchTest {
+    @Test
+    public void testDecodeDifference() {
+        Random random = new Random(1);
+        InventorySketch mine = new InventorySketch();
+        InventorySketch theirs = new InventorySketch();
+        for (int i = 0; i < 10_000; i++) {
+            long key = random.nextLong();
+            mine.add(key);
+            theirs.add(key);
+        }
+        Set<Long> onlyMine = new HashSet<>();
+        Set<Long> onlyTheirs = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            long key = random.nextLong();
+            if (i % 3 == 0) {
+                theirs.add(key);
+                onlyTheirs.add(key);
+            } else {
+                mine.add(key);
+                onlyMine.add(key);
+            }
+        }
+
+        Optional<InventorySketch.Difference> difference = mine.subtract(theirs).decode();
+        assertTrue(difference.isPresent());
+        assertEquals(onlyMine, difference.get().getOnlyInThis());
+        assertEquals(onlyTheirs, difference.get().getOnlyInOther());
+
+        // Equal sets have an empty difference
+        difference = mine.subtract(mine).decode();
+        assertTrue(difference.isPresent());
+        assertTrue(difference.get().getOnlyInThis().isEmpty());
+        assertTrue(difference.get().getOnlyInOther().isEmpty());
+    }
+
+    @Test
+    public void testDecodeFailsIfTooManyDifferences() {
+        Random random = new Random(2);
+        InventorySketch mine = new InventorySketch();
+        InventorySketch theirs = new InventorySketch();
+        for (int i = 0; i < InventorySketch.DEFAULT_NUM_CELLS * 2; i++) {
+            mine.add(random.nextLong());
+        }
+        assertTrue(mine.subtract(theirs).decode().isEmpty());
+    }
+
+    @Test
+    public void testNumCellsForDifference() {
+        for (int expectedDifference : new int[]{0, 10, 300, 5000}) {
+            int numCells = InventorySketch.getNumCellsForDifference(expectedDifference);
+            assertEquals(0, numCells % 3);
+            assertTrue(numCells >= 2 * expectedDifference);
+
+            Random random = new Random(expectedDifference);
+            InventorySketch mine = new InventorySketch(numCells);
+            InventorySketch theirs = new InventorySketch(numCells);
+            for (int i = 0; i < 10_000; i++) {
+                long key = random.nextLong();
+                mine.add(key);
+                theirs.add(key);
+            }
+            for (int i = 0; i < expectedDifference; i++) {
+                mine.add(random.nextLong());
+            }
+            Optional<InventorySketch.Difference> difference = mine.subtract(theirs).decode();
+            assertTrue(difference.isPresent());
+            assertEquals(expectedDifference, difference.get().getOnlyInThis().size());
+        }
+
+        // Capped at the max. size a peer accepts
+        int numCells = InventorySketch.getNumCellsForDifference(Integer.MAX_VALUE);
+        assertTrue(numCells <= InventorySketch.MAX_NUM_CELLS);
+        new InventorySketch(numCells);
+    }
+
+    @Test
+    public void testToKey() {
+        byte[] hash = new byte[20];
+        new Random(3).nextBytes(hash);
+        assertEquals(InventorySketch.toKey(new FilterEntry(hash, 1)), InventorySketch.toKey(hash, 1));
+        assertNotEquals(InventorySketch.toKey(hash, 1), InventorySketch.toKey(hash, 2));
+    }
+
+    @Test
+    public void testProtoRoundTrip() {
+        Random random = new Random(4);
+        InventorySketch sketch = new InventorySketch();
+        for (int i = 0; i < 1000; i++) {
+            sketch.add(random.nextLong());
+        }
+        assertEquals(sketch, InventorySketch.fromProto(sketch.toProto()));
+
+        assertThrows(IllegalArgumentException.class, () -> new InventorySketch(100));
+        assertThrows(IllegalArgumentException.class, () -> sketch.subtract(new InventorySketch(9)));
+    }
+}
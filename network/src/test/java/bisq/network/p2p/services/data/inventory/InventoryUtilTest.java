@@ -0,0 +1,194 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.services.data.inventory;
+
+import bisq.common.data.ByteArray;
+import bisq.network.p2p.services.data.DataRequest;
+import bisq.network.p2p.services.data.storage.auth.AuthenticatedDataRequest;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedOutputStream;
+import org.junit.jupiter.api.Test;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class InventoryUtilTest {
+    @Test
+    public void testCompareNewestFirst() {
+        byte[] hash1 = new byte[]{1, 2};
+        byte[] hash2 = new byte[]{(byte) 0xFF, 0};
+
+        // Newer first
+        assertTrue(InventoryUtil.compareNewestFirst(200, hash1, 100, hash1) < 0);
+        assertTrue(InventoryUtil.compareNewestFirst(100, hash1, 200, hash1) > 0);
+        // Data without creation date last
+        assertTrue(InventoryUtil.compareNewestFirst(0, hash1, 100, hash2) > 0);
+        // Same created: unsigned order of the hash
+        assertTrue(InventoryUtil.compareNewestFirst(100, hash1, 100, hash2) < 0);
+        assertTrue(InventoryUtil.compareNewestFirst(100, hash2, 100, hash1) > 0);
+        assertEquals(0, InventoryUtil.compareNewestFirst(100, hash1, 100, new byte[]{1, 2}));
+    }
+
+    @Test
+    public void testChunksInNewestFirstOrder() {
+        List<Map.Entry<ByteArray, ? extends DataRequest>> entries = getEntries(10);
+        Inventory chunk = InventoryUtil.getChunk(shuffled(entries), Optional.empty(), 3 * getEntrySize());
+
+        assertEquals(Set.of(entries.get(9).getValue(), entries.get(8).getValue(), entries.get(7).getValue()),
+                chunk.getEntries());
+        assertEquals(7, chunk.getNumDropped());
+        InventoryContinuationToken token = chunk.getContinuationToken().orElseThrow();
+        assertEquals(8, token.getCreated());
+        assertEquals(entries.get(7).getKey(), new ByteArray(token.getHash()));
+    }
+
+    @Test
+    public void testContinuationToken() {
+        List<Map.Entry<ByteArray, ? extends DataRequest>> entries = getEntries(10);
+        Set<DataRequest> received = new HashSet<>();
+        Optional<InventoryContinuationToken> token = Optional.empty();
+        long lastCreated = Long.MAX_VALUE;
+        int numChunks = 0;
+        do {
+            Inventory chunk = InventoryUtil.getChunk(shuffled(entries), token, 3 * getEntrySize());
+            numChunks++;
+            for (DataRequest dataRequest : chunk.getEntries()) {
+                // No entry is sent twice and each chunk only contains entries older than the previous one
+                assertTrue(received.add(dataRequest));
+                assertTrue(InventoryUtil.getCreated(dataRequest) < lastCreated);
+            }
+            lastCreated = chunk.getEntries().stream().mapToLong(InventoryUtil::getCreated).min().orElseThrow();
+            assertEquals(entries.size() - received.size(), chunk.getNumDropped());
+            token = chunk.getContinuationToken();
+        } while (token.isPresent());
+
+        assertEquals(4, numChunks);
+        assertEquals(entries.size(), received.size());
+    }
+
+    @Test
+    public void testContinuationTokenWithSameCreated() {
+        // Entries created at the same time are ordered by the hash, so the token still marks a unique position
+        List<Map.Entry<ByteArray, ? extends DataRequest>> entries = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            entries.add(new AbstractMap.SimpleImmutableEntry<>(new ByteArray(new byte[]{(byte) i}), new TestRequest(100)));
+        }
+        Set<DataRequest> received = new HashSet<>();
+        Optional<InventoryContinuationToken> token = Optional.empty();
+        do {
+            Inventory chunk = InventoryUtil.getChunk(shuffled(entries), token, getEntrySize());
+            assertEquals(1, chunk.getEntries().size());
+            assertTrue(received.addAll(chunk.getEntries()));
+            token = chunk.getContinuationToken();
+        } while (token.isPresent());
+
+        assertEquals(entries.size(), received.size());
+    }
+
+    @Test
+    public void testOversizedEntry() {
+        List<Map.Entry<ByteArray, ? extends DataRequest>> entries = getEntries(2);
+        Inventory chunk = InventoryUtil.getChunk(shuffled(entries), Optional.empty(), 1);
+
+        // At least one entry is returned, even if it is larger than the max. size
+        assertEquals(Set.of(entries.get(1).getValue()), chunk.getEntries());
+        assertEquals(1, chunk.getNumDropped());
+        assertTrue(chunk.getContinuationToken().isPresent());
+    }
+
+    @Test
+    public void testLastChunk() {
+        List<Map.Entry<ByteArray, ? extends DataRequest>> entries = getEntries(3);
+        Inventory chunk = InventoryUtil.getChunk(shuffled(entries), Optional.empty(), 3 * getEntrySize());
+
+        assertEquals(3, chunk.getEntries().size());
+        assertEquals(0, chunk.getNumDropped());
+        assertFalse(chunk.getContinuationToken().isPresent());
+    }
+
+    // Entry i was created at i + 1
+    private static List<Map.Entry<ByteArray, ? extends DataRequest>> getEntries(int numEntries) {
+        List<Map.Entry<ByteArray, ? extends DataRequest>> entries = new ArrayList<>();
+        for (int i = 0; i < numEntries; i++) {
+            entries.add(new AbstractMap.SimpleImmutableEntry<>(new ByteArray(new byte[]{(byte) i}), new TestRequest(i + 1)));
+        }
+        return entries;
+    }
+
+    // The entries of the stores are in no particular order
+    private static List<Map.Entry<ByteArray, ? extends DataRequest>> shuffled(List<Map.Entry<ByteArray, ? extends DataRequest>> entries) {
+        List<Map.Entry<ByteArray, ? extends DataRequest>> shuffled = new ArrayList<>(entries);
+        Collections.shuffle(shuffled);
+        return shuffled;
+    }
+
+    private static int getEntrySize() {
+        return CodedOutputStream.computeMessageSize(1, new TestRequest(1).toDataRequestProto());
+    }
+
+    private static final class TestRequest implements AuthenticatedDataRequest {
+        private final long created;
+
+        private TestRequest(long created) {
+            this.created = created;
+        }
+
+        @Override
+        public bisq.network.protobuf.DataRequest toDataRequestProto() {
+            return bisq.network.protobuf.DataRequest.newBuilder()
+                    .setRemoveMailboxRequest(bisq.network.protobuf.RemoveMailboxRequest.newBuilder()
+                            .setHash(ByteString.copyFrom(new byte[100])))
+                    .build();
+        }
+
+        @Override
+        public bisq.network.protobuf.NetworkMessage toProto() {
+            return getNetworkMessageBuilder().setDataRequest(toDataRequestProto()).build();
+        }
+
+        @Override
+        public boolean isExpired() {
+            return false;
+        }
+
+        @Override
+        public long getExpirationDate() {
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public int getSequenceNumber() {
+            return 0;
+        }
+
+        @Override
+        public long getCreated() {
+            return created;
+        }
+    }
+}
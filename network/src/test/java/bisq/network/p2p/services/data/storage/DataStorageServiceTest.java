@@ -0,0 +1,196 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.network.p2p.services.data.storage;
+
+import bisq.common.data.ByteArray;
+import bisq.network.p2p.services.data.RemoveDataRequest;
+import bisq.network.p2p.services.data.storage.auth.AuthenticatedDataRequest;
+import bisq.persistence.PersistenceService;
+import com.google.protobuf.ByteString;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DataStorageServiceTest {
+    private static final int PAYLOAD_SIZE = 100;
+    private static final MetaData META_DATA = new MetaData(100_000, "TestStore");
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testReject() {
+        TestStorageService service = createService(StoreQuota.EvictionPolicy.REJECT);
+        for (int i = 0; i < 5; i++) {
+            service.getPersistableStore().put(hash(i), new TestRequest(i, i));
+        }
+
+        assertFalse(service.reserveQuota(hash(5), new TestRequest(5, 5), META_DATA).isPresent());
+        assertEquals(5, service.getPersistableStore().getMap().size());
+
+        // Replacing an existing entry does not increase the size
+        assertEquals(Optional.of(Set.of()), service.reserveQuota(hash(4), new TestRequest(5, 5), META_DATA));
+    }
+
+    @Test
+    public void testOldestFirst() {
+        TestStorageService service = createService(StoreQuota.EvictionPolicy.OLDEST_FIRST);
+        DataStore<AuthenticatedDataRequest> store = service.getPersistableStore();
+        // The tombstone is the oldest entry, but must not be evicted
+        store.put(hash(0), new TestRemoveRequest(0, 0));
+        store.put(hash(1), new TestRequest(4, 1));
+        store.put(hash(2), new TestRequest(2, 2));
+        store.put(hash(3), new TestRequest(1, 3));
+        store.put(hash(4), new TestRequest(3, 4));
+
+        // We have to free 1.5 entries to get below 90% of the quota
+        Optional<Set<Map.Entry<ByteArray, AuthenticatedDataRequest>>> evicted =
+                service.reserveQuota(hash(5), new TestRequest(5, 5), META_DATA);
+        assertEquals(Optional.of(Set.of(hash(2), hash(3))), evicted.map(DataStorageServiceTest::getKeys));
+        assertEquals(Set.of(hash(0), hash(1), hash(4)), store.getMap().keySet());
+    }
+
+    @Test
+    public void testLeastTtlLeft() {
+        TestStorageService service = createService(StoreQuota.EvictionPolicy.LEAST_TTL_LEFT);
+        DataStore<AuthenticatedDataRequest> store = service.getPersistableStore();
+        // The tombstone expires first, but must not be evicted
+        store.put(hash(0), new TestRemoveRequest(0, 0));
+        store.put(hash(1), new TestRequest(0, 4));
+        store.put(hash(2), new TestRequest(0, 2));
+        store.put(hash(3), new TestRequest(0, 1));
+        store.put(hash(4), new TestRequest(0, 3));
+
+        Optional<Set<Map.Entry<ByteArray, AuthenticatedDataRequest>>> evicted =
+                service.reserveQuota(hash(5), new TestRequest(0, 5), META_DATA);
+        assertEquals(Optional.of(Set.of(hash(2), hash(3))), evicted.map(DataStorageServiceTest::getKeys));
+        assertEquals(Set.of(hash(0), hash(1), hash(4)), store.getMap().keySet());
+    }
+
+    @Test
+    public void testRejectIfTombstonesCannotBeEvicted() {
+        TestStorageService service = createService(StoreQuota.EvictionPolicy.OLDEST_FIRST);
+        for (int i = 0; i < 5; i++) {
+            service.getPersistableStore().put(hash(i), new TestRemoveRequest(i, i));
+        }
+
+        assertFalse(service.reserveQuota(hash(5), new TestRequest(5, 5), META_DATA).isPresent());
+        assertEquals(5, service.getPersistableStore().getMap().size());
+    }
+
+    @Test
+    public void testMaxSizePerRequest() {
+        TestStorageService service = createService(StoreQuota.EvictionPolicy.REJECT);
+        TestRequest request = new TestRequest(0, 0);
+        assertTrue(service.reserveQuota(hash(0), request, META_DATA).isPresent());
+
+        // The limit of the MetaData applies
+        MetaData metaData = new MetaData(getSize() - 1, "TestStore");
+        assertFalse(service.reserveQuota(hash(0), request, metaData).isPresent());
+
+        // A larger limit in the MetaData does not raise the limit of the store
+        StoreQuota quota = new StoreQuota(5L * getSize(), Long.MAX_VALUE, getSize() - 1,
+                StoreQuota.EvictionPolicy.REJECT);
+        TestStorageService limitedService = new TestStorageService(new PersistenceService(tempDir.toString()), quota);
+        assertFalse(limitedService.reserveQuota(hash(0), request, META_DATA).isPresent());
+    }
+
+    // Quota for 5 entries
+    private TestStorageService createService(StoreQuota.EvictionPolicy evictionPolicy) {
+        StoreQuota quota = new StoreQuota(5L * getSize(), Long.MAX_VALUE, 100_000, evictionPolicy);
+        return new TestStorageService(new PersistenceService(tempDir.toString()), quota);
+    }
+
+    private static int getSize() {
+        return new TestRequest(0, 0).toDataRequestProto().getSerializedSize();
+    }
+
+    private static ByteArray hash(int value) {
+        return new ByteArray(new byte[]{(byte) value});
+    }
+
+    private static Set<ByteArray> getKeys(Set<Map.Entry<ByteArray, AuthenticatedDataRequest>> entries) {
+        return entries.stream().map(Map.Entry::getKey).collect(Collectors.toSet());
+    }
+
+    private static final class TestStorageService extends DataStorageService<AuthenticatedDataRequest> {
+        private TestStorageService(PersistenceService persistenceService, StoreQuota quota) {
+            super(persistenceService, "test", "TestStore", quota);
+        }
+    }
+
+    private static class TestRequest implements AuthenticatedDataRequest {
+        private final long created;
+        private final long expirationDate;
+
+        private TestRequest(long created, int ttlRank) {
+            this.created = created;
+            // Entries with a lower rank expire earlier
+            expirationDate = System.currentTimeMillis() + 60_000 + ttlRank * 1000L;
+        }
+
+        @Override
+        public bisq.network.protobuf.DataRequest toDataRequestProto() {
+            return bisq.network.protobuf.DataRequest.newBuilder()
+                    .setRemoveMailboxRequest(bisq.network.protobuf.RemoveMailboxRequest.newBuilder()
+                            .setHash(ByteString.copyFrom(new byte[PAYLOAD_SIZE])))
+                    .build();
+        }
+
+        @Override
+        public bisq.network.protobuf.NetworkMessage toProto() {
+            return getNetworkMessageBuilder().setDataRequest(toDataRequestProto()).build();
+        }
+
+        @Override
+        public boolean isExpired() {
+            return expirationDate < System.currentTimeMillis();
+        }
+
+        @Override
+        public long getExpirationDate() {
+            return expirationDate;
+        }
+
+        @Override
+        public int getSequenceNumber() {
+            return 0;
+        }
+
+        @Override
+        public long getCreated() {
+            return created;
+        }
+    }
+
+    private static final class TestRemoveRequest extends TestRequest implements RemoveDataRequest {
+        private TestRemoveRequest(long created, int ttlRank) {
+            super(created, ttlRank);
+        }
+    }
+}
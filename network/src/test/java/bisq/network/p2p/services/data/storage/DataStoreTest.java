@@ -0,0 +1,273 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.services.data.storage;
+
+import bisq.common.data.ByteArray;
+import bisq.network.p2p.services.data.DataRequest;
+import com.google.protobuf.Any;
+import com.google.protobuf.ByteString;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DataStoreTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testGetExpiredHashes() {
+        long now = System.currentTimeMillis();
+        DataStore<TestDataRequest> store = new DataStore<>();
+        ByteArray hash1 = new ByteArray(new byte[]{1});
+        ByteArray hash2 = new ByteArray(new byte[]{2});
+        ByteArray hash3 = new ByteArray(new byte[]{3});
+        ByteArray hash4 = new ByteArray(new byte[]{4});
+        store.put(hash1, new TestDataRequest(now - 1000));
+        store.put(hash2, new TestDataRequest(now - 2000));
+        store.put(hash3, new TestDataRequest(now + 60_000));
+        // Never expires
+        store.put(hash4, new TestDataRequest(Long.MAX_VALUE));
+
+        assertEquals(List.of(hash2, hash1), store.getExpiredHashes(now));
+        assertTrue(store.getExpiredHashes(now - 2000).isEmpty());
+
+        // Replaced entry is indexed by its new expiration date
+        store.put(hash1, new TestDataRequest(now + 60_000));
+        assertEquals(List.of(hash2), store.getExpiredHashes(now));
+        assertNull(store.removeIfExpired(hash1));
+        assertEquals(4, store.getMap().size());
+
+        store.removeIfExpired(hash2);
+        assertTrue(store.getExpiredHashes(now).isEmpty());
+        assertEquals(List.of(hash1, hash3), store.getExpiredHashes(now + 120_000));
+
+        store.remove(hash3);
+        assertEquals(List.of(hash1), store.getExpiredHashes(now + 120_000));
+    }
+
+    @Test
+    public void testJournal() {
+        DataStore<TestDataRequest> store = new DataStore<>();
+        ByteArray hash1 = new ByteArray(new byte[]{1});
+        ByteArray hash2 = new ByteArray(new byte[]{2});
+        store.put(hash1, new TestDataRequest(Long.MAX_VALUE));
+        assertFalse(store.isJournalStarted());
+        assertTrue(store.drainJournal().isEmpty());
+
+        store.startJournal();
+        store.put(hash2, new TestDataRequest(Long.MAX_VALUE));
+        store.remove(hash1);
+        // No record if nothing was removed
+        store.remove(new ByteArray(new byte[]{3}));
+
+        List<bisq.network.protobuf.DataStoreLogRecord> records = store.drainJournal();
+        assertEquals(2, records.size());
+        assertEquals(hash2, ByteArray.fromProto(records.get(0).getKey()));
+        assertTrue(records.get(0).hasDataRequest());
+        assertEquals(hash1, ByteArray.fromProto(records.get(1).getKey()));
+        assertFalse(records.get(1).hasDataRequest());
+        assertTrue(store.drainJournal().isEmpty());
+    }
+
+    @Test
+    public void testClone() {
+        DataStore<TestDataRequest> store = new DataStore<>();
+        ByteArray hash1 = new ByteArray(new byte[]{1});
+        ByteArray hash2 = new ByteArray(new byte[]{2});
+        store.put(hash1, new TestDataRequest(Long.MAX_VALUE));
+        Map<ByteArray, TestDataRequest> snapshot = store.getSnapshot();
+        DataStore<TestDataRequest> clone = store.getClone();
+
+        store.put(hash2, new TestDataRequest(Long.MAX_VALUE));
+        store.remove(hash1);
+        // The live view reflects the changes, snapshot and clone do not
+        assertEquals(Set.of(hash2), store.getMap().keySet());
+        assertEquals(Set.of(hash1), snapshot.keySet());
+        assertEquals(Set.of(hash1), clone.getMap().keySet());
+        assertEquals(1, clone.getFilterEntries().size());
+
+        clone.put(hash2, new TestDataRequest(System.currentTimeMillis() - 1000));
+        assertEquals(List.of(hash2), clone.getExpiredHashes(System.currentTimeMillis()));
+        assertTrue(store.getExpiredHashes(System.currentTimeMillis()).isEmpty());
+    }
+
+    @Test
+    public void testSizeInBytes() {
+        DataStore<TestDataRequest> store = new DataStore<>();
+        ByteArray hash1 = new ByteArray(new byte[]{1});
+        ByteArray hash2 = new ByteArray(new byte[]{2});
+        TestDataRequest request1 = new TestDataRequest(Long.MAX_VALUE, 100);
+        TestDataRequest request2 = new TestDataRequest(Long.MAX_VALUE, 1000);
+        int size1 = request1.toDataRequestProto().getSerializedSize();
+        int size2 = request2.toDataRequestProto().getSerializedSize();
+        store.put(hash1, request1);
+        store.put(hash2, request2);
+        assertEquals(size1 + size2, store.getSizeInBytes());
+        assertEquals(size2, store.getSizeInBytes(hash2));
+        DataStore<TestDataRequest> clone = store.getClone();
+
+        // Replacing an entry accounts only the new size
+        store.put(hash1, request2);
+        assertEquals(2L * size2, store.getSizeInBytes());
+        store.remove(hash2);
+        assertEquals(size2, store.getSizeInBytes());
+        assertEquals(0, store.getSizeInBytes(hash2));
+        assertEquals(size1 + size2, clone.getSizeInBytes());
+
+        store.clear();
+        assertEquals(0, store.getSizeInBytes());
+    }
+
+    @Test
+    public void testVersion() {
+        DataStore<TestDataRequest> store = new DataStore<>();
+        ByteArray hash = new ByteArray(new byte[]{1});
+        long version = store.getVersion();
+
+        store.put(hash, new TestDataRequest(Long.MAX_VALUE));
+        assertEquals(version + 1, store.getVersion());
+
+        // Replacing an entry is a change as well
+        store.put(hash, new TestDataRequest(Long.MAX_VALUE, 100));
+        assertEquals(version + 2, store.getVersion());
+
+        // Removing a missing entry is no change
+        store.remove(new ByteArray(new byte[]{2}));
+        assertEquals(version + 2, store.getVersion());
+
+        store.remove(hash);
+        assertEquals(version + 3, store.getVersion());
+    }
+
+    @Test
+    public void testIndexedFile() throws IOException {
+        long now = System.currentTimeMillis();
+        DataStore<TestDataRequest> store = new DataStore<>();
+        ByteArray hash1 = new ByteArray(new byte[]{1});
+        ByteArray hash2 = new ByteArray(new byte[]{2, 2});
+        store.put(hash1, new TestDataRequest(now - 1000));
+        store.put(hash2, new TestDataRequest(Long.MAX_VALUE));
+
+        IndexedDataStoreFile.write(store, tempDir.toString(), "store", 3);
+        File file = tempDir.resolve("store").toFile();
+        assertTrue(IndexedDataStoreFile.isIndexedFile(file));
+        assertEquals(3, IndexedDataStoreFile.readGeneration(file));
+
+        DataStore<TestDataRequest> persisted = IndexedDataStoreFile.read(file);
+        assertEquals(store.getMap().keySet(), persisted.getMap().keySet());
+        assertEquals(2, persisted.getFilterEntries().size());
+        // The indexes are built without decoding the entries
+        assertEquals(List.of(hash1), persisted.getExpiredHashes(now));
+        List<ByteArray> hashesByCreated = new ArrayList<>();
+        persisted.getHashesByCreated().forEachRemaining(hashesByCreated::add);
+        assertEquals(List.of(hash1, hash2), hashesByCreated);
+        assertFalse(persisted.getEntries().get(hash1).isDecoded());
+        assertEquals(store.getEntries().get(hash2).getSerialized(), persisted.getEntries().get(hash2).getSerialized());
+
+        // Undecoded entries are written with their bytes from the read file
+        IndexedDataStoreFile.write(persisted.getClone(), tempDir.toString(), "store2", 3);
+        assertArrayEquals(Files.readAllBytes(file.toPath()), Files.readAllBytes(tempDir.resolve("store2")));
+        assertFalse(persisted.getEntries().get(hash2).isDecoded());
+    }
+
+    @Test
+    public void testCorruptedEntryIsDropped() throws IOException {
+        DataStore<TestDataRequest> store = new DataStore<>();
+        store.put(new ByteArray(new byte[]{1}), new TestDataRequest(Long.MAX_VALUE, 10));
+        store.put(new ByteArray(new byte[]{2}), new TestDataRequest(Long.MAX_VALUE, 20));
+        IndexedDataStoreFile.write(store, tempDir.toString(), "store", 1);
+
+        // Flip the last byte, which belongs to the value of the last entry
+        Path path = tempDir.resolve("store");
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(path, bytes);
+
+        DataStore<TestDataRequest> persisted = IndexedDataStoreFile.read(path.toFile());
+        assertEquals(1, persisted.getMap().size());
+        ByteArray remaining = persisted.getMap().keySet().iterator().next();
+        assertEquals(store.getEntries().get(remaining).getSerialized(), persisted.getEntries().get(remaining).getSerialized());
+    }
+
+    @Test
+    public void testIsIndexedFile() throws IOException {
+        File file = tempDir.resolve("legacy").toFile();
+        try (FileOutputStream outputStream = new FileOutputStream(file)) {
+            Any.newBuilder().setTypeUrl("type.googleapis.com/network.DataStore").build().writeDelimitedTo(outputStream);
+        }
+        assertFalse(IndexedDataStoreFile.isIndexedFile(file));
+        assertFalse(IndexedDataStoreFile.isIndexedFile(tempDir.resolve("missing").toFile()));
+        assertEquals(0, IndexedDataStoreFile.readGeneration(file));
+        assertEquals(0, IndexedDataStoreFile.readGeneration(tempDir.resolve("missing").toFile()));
+    }
+
+    private static final class TestDataRequest implements DataRequest {
+        private final long expirationDate;
+        private final int payloadSize;
+
+        private TestDataRequest(long expirationDate) {
+            this(expirationDate, 0);
+        }
+
+        private TestDataRequest(long expirationDate, int payloadSize) {
+            this.expirationDate = expirationDate;
+            this.payloadSize = payloadSize;
+        }
+
+        @Override
+        public bisq.network.protobuf.DataRequest toDataRequestProto() {
+            if (payloadSize == 0) {
+                return bisq.network.protobuf.DataRequest.getDefaultInstance();
+            }
+            return bisq.network.protobuf.DataRequest.newBuilder()
+                    .setRemoveMailboxRequest(bisq.network.protobuf.RemoveMailboxRequest.newBuilder()
+                            .setHash(ByteString.copyFrom(new byte[payloadSize])))
+                    .build();
+        }
+
+        @Override
+        public bisq.network.protobuf.NetworkMessage toProto() {
+            return getNetworkMessageBuilder().setDataRequest(toDataRequestProto()).build();
+        }
+
+        @Override
+        public boolean isExpired() {
+            return expirationDate < System.currentTimeMillis();
+        }
+
+        @Override
+        public long getExpirationDate() {
+            return expirationDate;
+        }
+    }
+}
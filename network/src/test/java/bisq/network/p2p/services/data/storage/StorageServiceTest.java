@@ -0,0 +1,208 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.network.p2p.services.data.storage;
+
+import bisq.network.p2p.services.data.AddDataRequest;
+import bisq.network.p2p.services.data.filter.DataFilter;
+import bisq.network.p2p.services.data.inventory.Inventory;
+import bisq.network.p2p.services.data.storage.auth.AddAuthenticatedDataRequest;
+import bisq.network.p2p.services.data.storage.auth.AuthenticatedData;
+import bisq.network.p2p.services.data.storage.auth.AuthenticatedDataStorageService;
+import bisq.network.p2p.services.data.storage.auth.DefaultAuthenticatedData;
+import bisq.persistence.PersistenceService;
+import bisq.security.KeyGeneration;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Message;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StorageServiceTest {
+    @TempDir
+    Path tempDir;
+
+    private StorageService storageService;
+    private KeyPair keyPair;
+
+    @BeforeEach
+    public void setUp() throws GeneralSecurityException {
+        storageService = new StorageService(new PersistenceService(tempDir.toString()));
+        keyPair = KeyGeneration.generateKeyPair();
+    }
+
+    @Test
+    public void testBatchAddNotifiesOncePerStore() throws GeneralSecurityException {
+        AuthenticatedDataStorageService store1 = getStore("store1");
+        AuthenticatedDataStorageService store2 = getStore("store2");
+        List<AddDataRequest> requests = List.of(createRequest(store1, "data1"),
+                createRequest(store2, "data2"),
+                createRequest(store1, "data3"));
+        TestListener listener = new TestListener();
+        storageService.addListener(listener);
+
+        List<StorageData> added = storageService.onAddDataRequests(requests).join();
+
+        assertEquals(Set.of(getData(requests.get(0)), getData(requests.get(1)), getData(requests.get(2))),
+                new HashSet<>(added));
+        assertEquals(0, listener.added.size());
+        assertEquals(2, listener.batches.size());
+        Set<Set<StorageData>> batches = listener.batches.stream()
+                .map(Set::copyOf)
+                .collect(Collectors.toSet());
+        assertEquals(Set.of(Set.of(getData(requests.get(0)), getData(requests.get(2))),
+                        Set.of(getData(requests.get(1)))),
+                batches);
+        assertEquals(2, store1.getPersistableStore().getMap().size());
+        assertEquals(1, store2.getPersistableStore().getMap().size());
+    }
+
+    @Test
+    public void testBatchAddOfKnownDataDoesNotNotify() throws GeneralSecurityException {
+        AuthenticatedDataStorageService store = getStore("store1");
+        List<AddDataRequest> requests = List.of(createRequest(store, "data1"), createRequest(store, "data2"));
+        storageService.onAddDataRequests(requests).join();
+        TestListener listener = new TestListener();
+        storageService.addListener(listener);
+
+        List<StorageData> added = storageService.onAddDataRequests(requests).join();
+
+        assertTrue(added.isEmpty());
+        assertTrue(listener.batches.isEmpty());
+        assertTrue(listener.added.isEmpty());
+    }
+
+    @Test
+    public void testInventoryCache() throws GeneralSecurityException {
+        AuthenticatedDataStorageService store = getStore("store1");
+        store.add(createRequest(store, "data1"));
+
+        DataFilter dataFilter = new DataFilter(new HashSet<>());
+        Inventory inventory = storageService.getInventoryOfAllStores(dataFilter);
+        assertEquals(1, inventory.getEntries().size());
+        assertSame(inventory, storageService.getInventoryOfAllStores(dataFilter));
+
+        // A change of any store invalidates the cached inventory
+        AddAuthenticatedDataRequest request = createRequest(store, "data2");
+        store.add(request);
+        Inventory changed = storageService.getInventoryOfAllStores(dataFilter);
+        assertNotSame(inventory, changed);
+        assertEquals(2, changed.getEntries().size());
+        assertTrue(changed.getEntries().contains(request));
+        assertSame(changed, storageService.getInventoryOfAllStores(dataFilter));
+
+        // Requests for other stores get their own inventory
+        Inventory ofOtherStore = storageService.getInventoryOfAllStores(new DataFilter(new HashSet<>(), Set.of("store2")));
+        assertTrue(ofOtherStore.getEntries().isEmpty());
+    }
+
+    @Test
+    public void testFullFilterIsNotCached() throws GeneralSecurityException {
+        AuthenticatedDataStorageService store = getStore("store1");
+        store.add(createRequest(store, "data1"));
+        AddAuthenticatedDataRequest request = createRequest(store, "data2");
+        store.add(request);
+
+        DataFilter dataFilter = new DataFilter(storageService.getFilterEntries("store1"));
+        Inventory inventory = storageService.getInventoryOfAllStores(dataFilter);
+        assertTrue(inventory.getEntries().isEmpty());
+        assertNotSame(inventory, storageService.getInventoryOfAllStores(dataFilter));
+    }
+
+    @Test
+    public void testDataRequestProtoIsEncodedOnce() throws GeneralSecurityException {
+        AuthenticatedDataStorageService store = getStore("store1");
+        AddAuthenticatedDataRequest request = createRequest(store, "data1");
+        assertSame(request.toDataRequestProto(), request.toDataRequestProto());
+    }
+
+    private AuthenticatedDataStorageService getStore(String fileName) {
+        return storageService.getOrCreateAuthenticatedDataStore(new MetaData(100_000, fileName)).join();
+    }
+
+    private AddAuthenticatedDataRequest createRequest(AuthenticatedDataStorageService store,
+                                                      String content) throws GeneralSecurityException {
+        TestData data = new TestData(store.getFileName(), content);
+        return AddAuthenticatedDataRequest.from(store, new DefaultAuthenticatedData(data), keyPair);
+    }
+
+    private static AuthenticatedData getData(AddDataRequest request) {
+        return ((AddAuthenticatedDataRequest) request).getAuthenticatedSequentialData().getAuthenticatedData();
+    }
+
+    private static final class TestListener implements StorageService.Listener {
+        private final List<StorageData> added = new ArrayList<>();
+        private final List<Collection<StorageData>> batches = new ArrayList<>();
+
+        @Override
+        public void onAdded(StorageData storageData) {
+            added.add(storageData);
+        }
+
+        @Override
+        public void onRemoved(StorageData storageData) {
+        }
+
+        @Override
+        public void onBatchAdded(Collection<StorageData> batch) {
+            batches.add(List.copyOf(batch));
+        }
+    }
+
+    private static final class TestData implements DistributedData {
+        private final MetaData metaData;
+        private final String content;
+
+        private TestData(String fileName, String content) {
+            metaData = new MetaData(100_000, fileName);
+            this.content = content;
+        }
+
+        @Override
+        public Message toProto() {
+            return bisq.network.protobuf.RemoveMailboxRequest.newBuilder()
+                    .setHash(ByteString.copyFromUtf8(content))
+                    .build();
+        }
+
+        @Override
+        public MetaData getMetaData() {
+            return metaData;
+        }
+
+        @Override
+        public boolean isDataInvalid(byte[] pubKeyHash) {
+            return false;
+        }
+    }
+}
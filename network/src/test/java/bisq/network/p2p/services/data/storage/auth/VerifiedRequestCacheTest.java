@@ -0,0 +1,86 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.services.data.storage.auth;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class VerifiedRequestCacheTest {
+    @Test
+    public void testCachesValidAndInvalidOutcomes() {
+        VerifiedRequestCache cache = new VerifiedRequestCache();
+        AtomicInteger numVerifications = new AtomicInteger();
+        byte[] data = new byte[]{1, 2, 3};
+        byte[] signature = new byte[]{4, 5};
+        byte[] publicKey = new byte[]{6};
+
+        assertFalse(cache.isSignatureInvalid(data, signature, publicKey, () -> verify(numVerifications, false)));
+        assertFalse(cache.isSignatureInvalid(data, signature, publicKey, () -> verify(numVerifications, true)));
+        assertEquals(1, numVerifications.get());
+
+        byte[] otherSignature = new byte[]{4, 6};
+        assertTrue(cache.isSignatureInvalid(data, otherSignature, publicKey, () -> verify(numVerifications, true)));
+        assertTrue(cache.isSignatureInvalid(data, otherSignature, publicKey, () -> verify(numVerifications, false)));
+        assertEquals(2, numVerifications.get());
+
+        VerifiedRequestCache.Snapshot snapshot = cache.getSnapshot();
+        assertEquals(2, snapshot.getNumHits());
+        assertEquals(2, snapshot.getNumMisses());
+        assertEquals(2, snapshot.getSize());
+        assertEquals(0.5, snapshot.getHitRate());
+    }
+
+    @Test
+    public void testBytesMovedBetweenFieldsDoNotHit() {
+        VerifiedRequestCache cache = new VerifiedRequestCache();
+        AtomicInteger numVerifications = new AtomicInteger();
+        cache.isSignatureInvalid(new byte[]{1, 2, 3}, new byte[]{4, 5}, new byte[]{6}, () -> verify(numVerifications, false));
+        assertTrue(cache.isSignatureInvalid(new byte[]{1, 2}, new byte[]{3, 4, 5}, new byte[]{6},
+                () -> verify(numVerifications, true)));
+        assertEquals(2, numVerifications.get());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        VerifiedRequestCache cache = new VerifiedRequestCache(2);
+        AtomicInteger numVerifications = new AtomicInteger();
+        byte[] publicKey = new byte[]{0};
+        cache.isSignatureInvalid(new byte[]{1}, new byte[]{1}, publicKey, () -> verify(numVerifications, false));
+        cache.isSignatureInvalid(new byte[]{2}, new byte[]{2}, publicKey, () -> verify(numVerifications, false));
+        // Access first one, so the second one is the least recently used
+        cache.isSignatureInvalid(new byte[]{1}, new byte[]{1}, publicKey, () -> verify(numVerifications, false));
+        cache.isSignatureInvalid(new byte[]{3}, new byte[]{3}, publicKey, () -> verify(numVerifications, false));
+        assertEquals(3, numVerifications.get());
+        assertEquals(2, cache.getSnapshot().getSize());
+
+        cache.isSignatureInvalid(new byte[]{1}, new byte[]{1}, publicKey, () -> verify(numVerifications, false));
+        assertEquals(3, numVerifications.get());
+        cache.isSignatureInvalid(new byte[]{2}, new byte[]{2}, publicKey, () -> verify(numVerifications, false));
+        assertEquals(4, numVerifications.get());
+    }
+
+    private static boolean verify(AtomicInteger numVerifications, boolean signatureInvalid) {
+        numVerifications.incrementAndGet();
+        return signatureInvalid;
+    }
+}
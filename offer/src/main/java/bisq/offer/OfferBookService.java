@@ -20,10 +20,12 @@ package bisq.offer;
 import bisq.common.observable.ObservableSet;
 import bisq.network.NetworkService;
 import bisq.network.p2p.services.data.DataService;
+import bisq.network.p2p.services.data.storage.StorageData;
 import bisq.network.p2p.services.data.storage.auth.AuthenticatedData;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.Collection;
 import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
@@ -39,7 +41,7 @@ public class OfferBookService {
         checkArgument(networkService.getDataService().isPresent(),
                 "networkService.getDataService() is expected to be present if OfferBookService is used");
         dataService = networkService.getDataService().get();
-        dataService.addListener(new DataService.Listener() {
+        dataService.subscribe(Offer.class, new DataService.Listener() {
             @Override
             public void onAuthenticatedDataAdded(AuthenticatedData authenticatedData) {
                 if (authenticatedData.getDistributedData() instanceof Offer) {
@@ -47,12 +49,33 @@ public class OfferBookService {
                 }
             }
 
+            @Override
+            public void onBatchAdded(Collection<? extends StorageData> batch) {
+                // Observers get notified once about all offers of an inventory
+                offers.addAll(batch.stream()
+                        .filter(storageData -> storageData instanceof AuthenticatedData)
+                        .map(storageData -> ((AuthenticatedData) storageData).getDistributedData())
+                        .filter(distributedData -> distributedData instanceof Offer)
+                        .map(distributedData -> (Offer) distributedData)
+                        .collect(Collectors.toList()));
+            }
+
             @Override
             public void onAuthenticatedDataRemoved(AuthenticatedData authenticatedData) {
                 if (authenticatedData.getDistributedData() instanceof Offer) {
                     offers.remove((Offer) authenticatedData.getDistributedData());
                 }
             }
+
+            @Override
+            public void onBatchRemoved(Collection<? extends StorageData> batch) {
+                // Observers get notified once about all expired offers
+                offers.removeAll(batch.stream()
+                        .filter(storageData -> storageData instanceof AuthenticatedData)
+                        .map(storageData -> ((AuthenticatedData) storageData).getDistributedData())
+                        .filter(distributedData -> distributedData instanceof Offer)
+                        .collect(Collectors.toList()));
+            }
         });
     }
 
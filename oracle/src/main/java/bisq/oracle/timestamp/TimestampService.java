@@ -82,7 +82,7 @@ public class TimestampService implements Service, PersistenceClient<TimestampSto
     @Override
     public CompletableFuture<Boolean> initialize() {
         networkService.addMessageListener(this);
-        networkService.addDataServiceListener(this);
+        networkService.subscribeToDataService(AuthorizedTimestampData.class, this);
         networkService.getDataService().ifPresent(service -> service.getAllAuthenticatedPayload().forEach(this::processAuthenticatedData));
 
         identityService.getOrCreateIdentity(IdentityService.DEFAULT)
@@ -97,7 +97,7 @@ public class TimestampService implements Service, PersistenceClient<TimestampSto
     @Override
     public CompletableFuture<Boolean> shutdown() {
         networkService.removeMessageListener(this);
-        networkService.removeDataServiceListener(this);
+        networkService.unsubscribeFromDataService(this);
         return CompletableFuture.completedFuture(true);
     }
 
@@ -0,0 +1,138 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.persistence;
+
+import bisq.common.util.FileUtils;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * File of records which only gets appended to. Used next to a snapshot written by Persistence, so that a change
+ * does not require to rewrite the whole snapshot.
+ * <p>
+ * Each record is written as its length, a CRC32 checksum and the payload. A record which was not completely written
+ * (e.g. at a crash) fails the check at read. We ignore it and all following bytes and truncate the file, so that
+ * new records are appended after the last valid one.
+ */
+@Slf4j
+public class AppendOnlyLog {
+    // Guards against allocating huge buffers if the length field is corrupted
+    private static final int MAX_RECORD_SIZE = 64 * 1024 * 1024;
+
+    @Getter
+    private final String path;
+    private final File file;
+
+    public AppendOnlyLog(String path) {
+        this.path = path;
+        file = new File(path);
+    }
+
+    public synchronized List<byte[]> readAll() {
+        List<byte[]> records = new ArrayList<>();
+        if (!file.exists()) {
+            return records;
+        }
+        long validLength = 0;
+        try (DataInputStream inputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                int length;
+                try {
+                    length = inputStream.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                if (length < 0 || length > MAX_RECORD_SIZE) {
+                    log.warn("Invalid record length {} in {}. We ignore the remaining data.", length, path);
+                    break;
+                }
+                long checksum = inputStream.readInt() & 0xFFFFFFFFL;
+                byte[] payload = new byte[length];
+                inputStream.readFully(payload);
+                if (getChecksum(payload) != checksum) {
+                    log.warn("Invalid checksum of record in {}. We ignore the remaining data.", path);
+                    break;
+                }
+                records.add(payload);
+                validLength += 8 + length;
+            }
+        } catch (EOFException e) {
+            log.warn("Last record in {} is incomplete. We ignore it.", path);
+        } catch (IOException e) {
+            log.error("Error at reading " + path, e);
+        }
+
+        if (validLength < file.length()) {
+            truncate(validLength);
+        }
+        return records;
+    }
+
+    /**
+     * Appends the records and syncs the file to disk.
+     */
+    public synchronized void append(List<byte[]> records) throws IOException {
+        if (records.isEmpty()) {
+            return;
+        }
+        FileUtils.makeDirs(file.getParentFile());
+        try (FileOutputStream fileOutputStream = new FileOutputStream(file, true)) {
+            DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(fileOutputStream));
+            for (byte[] record : records) {
+                outputStream.writeInt(record.length);
+                outputStream.writeInt((int) getChecksum(record));
+                outputStream.write(record);
+            }
+            outputStream.flush();
+            fileOutputStream.getFD().sync();
+        }
+    }
+
+    /**
+     * Removes all records. To be called after a snapshot containing their changes has been written.
+     */
+    public synchronized void clear() {
+        if (file.exists()) {
+            truncate(0);
+        }
+    }
+
+    public long getSize() {
+        return file.length();
+    }
+
+    private void truncate(long length) {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.setLength(length);
+            randomAccessFile.getFD().sync();
+        } catch (IOException e) {
+            log.error("Error at truncating " + path, e);
+        }
+    }
+
+    private static long getChecksum(byte[] payload) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(payload);
+        return crc32.getValue();
+    }
+}
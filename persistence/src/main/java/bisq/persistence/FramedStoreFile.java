@@ -0,0 +1,228 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.persistence;
+
+import bisq.common.util.OsUtils;
+import com.google.protobuf.Any;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.UnsafeByteOperations;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+
+/**
+ * File format used by Persistence. The header (magic, version, type url of the store, number of records) is followed
+ * by the records, each written as its length, a CRC32 checksum and the payload.
+ * <p>
+ * The serialized store is split at the boundaries of its top level fields, so that each record is a valid serialized
+ * message of the store type. SplittablePersistableStores are split into records of about RECORD_SIZE bytes, which get
+ * decoded in parallel at read and merged. If a record fails the checksum we keep the store from the records before.
+ * <p>
+ * Files of earlier versions contain the delimited Any message of the store. They start with its varint length
+ * followed by the type url tag, so they cannot be mistaken for a framed file.
+ */
+@Slf4j
+final class FramedStoreFile {
+    // "BQFS"
+    private static final int MAGIC = 0x42514653;
+    private static final int VERSION = 1;
+    private static final int RECORD_SIZE = 1024 * 1024;
+    // Guards against allocating huge buffers if the length field is corrupted
+    private static final int MAX_RECORD_SIZE = 256 * 1024 * 1024;
+
+    private FramedStoreFile() {
+    }
+
+    static boolean isFramedFile(File file) {
+        if (file.length() < 2 * Integer.BYTES) {
+            return false;
+        }
+        try (DataInputStream inputStream = new DataInputStream(new FileInputStream(file))) {
+            return inputStream.readInt() == MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    static void write(PersistableStore<?> persistableStore, OutputStream outputStream) throws IOException {
+        // We use an Any container (byte blob) as we do not have the dependencies to the
+        // external PersistableStore implementations (at deserialization we would have an issue otherwise as
+        // it requires static access).
+        Any any = persistableStore.toAny();
+        List<ByteString> records = persistableStore instanceof SplittablePersistableStore ?
+                split(any.getValue(), RECORD_SIZE) :
+                List.of(any.getValue());
+
+        DataOutputStream dataOutputStream = new DataOutputStream(new BufferedOutputStream(outputStream));
+        dataOutputStream.writeInt(MAGIC);
+        dataOutputStream.writeInt(VERSION);
+        dataOutputStream.writeUTF(any.getTypeUrl());
+        dataOutputStream.writeInt(records.size());
+        for (ByteString record : records) {
+            dataOutputStream.writeInt(record.size());
+            dataOutputStream.writeInt((int) getChecksum(record));
+            record.writeTo(dataOutputStream);
+        }
+        dataOutputStream.flush();
+    }
+
+    static PersistableStore<?> read(File file) throws IOException {
+        return read(file, PersistableStore::fromAny);
+    }
+
+    static PersistableStore<?> read(File file, Function<Any, PersistableStore<?>> resolver) throws IOException {
+        String typeUrl;
+        List<byte[]> records = new ArrayList<>();
+        try (DataInputStream inputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (inputStream.readInt() != MAGIC) {
+                throw new IOException("Not a framed store file: " + file);
+            }
+            int version = inputStream.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported version " + version + " of " + file);
+            }
+            typeUrl = inputStream.readUTF();
+            int numRecords = inputStream.readInt();
+            try {
+                for (int i = 0; i < numRecords; i++) {
+                    int length = inputStream.readInt();
+                    if (length < 0 || length > MAX_RECORD_SIZE) {
+                        throw new IOException("Invalid record length " + length);
+                    }
+                    long checksum = inputStream.readInt() & 0xFFFFFFFFL;
+                    byte[] payload = new byte[length];
+                    inputStream.readFully(payload);
+                    if (getChecksum(UnsafeByteOperations.unsafeWrap(payload)) != checksum) {
+                        throw new IOException("Invalid checksum");
+                    }
+                    records.add(payload);
+                }
+            } catch (IOException e) {
+                if (records.isEmpty()) {
+                    throw e;
+                }
+                String reason = e instanceof EOFException ? "Incomplete record" : e.getMessage();
+                log.warn("{} in {}. We ignore the last {} of {} records.",
+                        reason, file, numRecords - records.size(), numRecords);
+            }
+        }
+
+        List<PersistableStore<?>> parts = decode(typeUrl, records, resolver);
+        PersistableStore<?> persistableStore = parts.get(0);
+        if (parts.size() > 1) {
+            if (!(persistableStore instanceof SplittablePersistableStore)) {
+                throw new IOException(persistableStore.getClass().getSimpleName() + " is not splittable but " +
+                        file + " contains " + parts.size() + " records");
+            }
+            for (int i = 1; i < parts.size(); i++) {
+                //noinspection unchecked,rawtypes
+                ((SplittablePersistableStore) persistableStore).merge(parts.get(i));
+            }
+        }
+        return persistableStore;
+    }
+
+    /**
+     * Splits the serialized message at the boundaries of its top level fields. Each part is a valid serialized
+     * message, and merging the parsed parts results in the original message.
+     */
+    static List<ByteString> split(ByteString message, int recordSize) throws IOException {
+        List<ByteString> records = new ArrayList<>();
+        CodedInputStream inputStream = message.newCodedInput();
+        int recordStart = 0;
+        while (!inputStream.isAtEnd()) {
+            inputStream.skipField(inputStream.readTag());
+            int position = inputStream.getTotalBytesRead();
+            if (position - recordStart >= recordSize) {
+                records.add(message.substring(recordStart, position));
+                recordStart = position;
+            }
+        }
+        if (recordStart < message.size() || records.isEmpty()) {
+            records.add(message.substring(recordStart));
+        }
+        return records;
+    }
+
+    private static List<PersistableStore<?>> decode(String typeUrl,
+                                                    List<byte[]> records,
+                                                    Function<Any, PersistableStore<?>> resolver) throws IOException {
+        int numRecords = records.size();
+        PersistableStore<?>[] parts = new PersistableStore<?>[numRecords];
+        AtomicInteger nextIndex = new AtomicInteger();
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        CountDownLatch decoded = new CountDownLatch(numRecords);
+        Runnable decoder = () -> {
+            int index;
+            while ((index = nextIndex.getAndIncrement()) < numRecords) {
+                try {
+                    Any any = Any.newBuilder()
+                            .setTypeUrl(typeUrl)
+                            .setValue(UnsafeByteOperations.unsafeWrap(records.get(index)))
+                            .build();
+                    parts[index] = resolver.apply(any);
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    decoded.countDown();
+                }
+            }
+        };
+
+        // We are usually called from a thread of the PERSISTENCE_IO_POOL. As we take part in decoding and only wait
+        // for records already taken by other threads, we cannot block if all threads of the pool are reading.
+        int numHelpers = Math.min(numRecords, OsUtils.availableProcessors()) - 1;
+        for (int i = 0; i < numHelpers; i++) {
+            Persistence.PERSISTENCE_IO_POOL.execute(decoder);
+        }
+        decoder.run();
+        try {
+            decoded.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted at decoding records");
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        return List.of(parts);
+    }
+
+    private static long getChecksum(ByteString payload) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(payload.asReadOnlyByteBuffer());
+        return crc32.getValue();
+    }
+}
@@ -37,6 +37,7 @@ import java.util.function.Consumer;
 public class Persistence<T extends PersistableStore<T>> {
     public static final ExecutorService PERSISTENCE_IO_POOL = ExecutorFactory.newFixedThreadPool("Persistence-io-pool");
 
+    @Getter
     private final String directory;
     @Getter
     private final String fileName;
@@ -67,9 +68,13 @@ public class Persistence<T extends PersistableStore<T>> {
         try (FileInputStream fileInputStream = new FileInputStream(storagePath)) {
             PersistableStore<?> persistableStore;
             synchronized (lock) {
-                // The data we get is of type Any
-                Any any = Any.parseDelimitedFrom(fileInputStream);
-                persistableStore = PersistableStore.fromAny(any);
+                if (FramedStoreFile.isFramedFile(storageFile)) {
+                    persistableStore = FramedStoreFile.read(storageFile);
+                } else {
+                    // Written by an earlier version. The data we get is of type Any. At the next write we convert it.
+                    Any any = Any.parseDelimitedFrom(fileInputStream);
+                    persistableStore = PersistableStore.fromAny(any);
+                }
             }
             //noinspection unchecked,rawtypes
             return (Optional) Optional.of(persistableStore);
@@ -110,11 +115,7 @@ public class Persistence<T extends PersistableStore<T>> {
                 storageFile = new File(storagePath);
                 fileOutputStream = new FileOutputStream(tempFile);
 
-                // We use an Any container (byte blob) as we do not have the dependencies to the 
-                // external PersistableStore implementations (at deserialization we would have an issue otherwise as
-                // it requires static access).
-                Any any = persistableStore.toAny();
-                any.writeDelimitedTo(fileOutputStream);
+                FramedStoreFile.write(persistableStore, fileOutputStream);
                 fileOutputStream.flush();
                 fileOutputStream.getFD().sync();
 
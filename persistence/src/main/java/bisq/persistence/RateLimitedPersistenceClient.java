@@ -17,25 +17,29 @@
 
 package bisq.persistence;
 
-import lombok.Getter;
+import bisq.common.timer.Scheduler;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 
 /**
- * This implementation of PersistenceClient drops persist requests if they happen too frequently.
- * It registers a shutdown hook and persists at shutdown. If the JVM got terminated non-gracefully
- * (e.g. kill signal or JVM crash) the shutdown hook is not executed (but any other approach to write in such cases
- * would fail as well).
- * As there is no guarantee that the last data are persisted in case of such unexpected terminations, it should be only
- * used if data loss is not critical (e.g. network data) and when write frequency is rather high.
+ * This implementation of PersistenceClient coalesces persist requests. The first request after a write marks the
+ * store as dirty and schedules a write after getMaxWriteRateInMs. All requests until the write starts are served by
+ * that write. Requests arriving while a write is in progress get a trailing write, so no change remains unwritten.
+ * <p>
+ * Critical changes can be written immediately with flush. At shutdown pending changes are written by a shutdown hook.
+ * If the JVM got terminated non-gracefully (e.g. kill signal or JVM crash) the changes of the last write window are
+ * lost.
  */
 @Slf4j
 public abstract class RateLimitedPersistenceClient<T extends PersistableStore<T>> implements PersistenceClient<T> {
-    private volatile long lastWrite;
-    @Getter
-    private volatile boolean dropped;
-    private volatile boolean writeInProgress;
+    private final Object lock = new Object();
+    // Completes with the write which contains all changes requested so far. Null if there are no unwritten changes.
+    private CompletableFuture<Boolean> nextWrite;
+    private Optional<Scheduler> scheduledWrite = Optional.empty();
+    private boolean writeInProgress;
+    private boolean flushRequested;
 
     public RateLimitedPersistenceClient() {
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
@@ -46,15 +50,32 @@ public abstract class RateLimitedPersistenceClient<T extends PersistableStore<T>
 
     @Override
     public CompletableFuture<Boolean> persist() {
-        boolean tooFast = System.currentTimeMillis() - lastWrite < getMaxWriteRateInMs();
-        dropped = tooFast || writeInProgress;
-        if (dropped) {
-            return CompletableFuture.completedFuture(false);
-        } else {
-            lastWrite = System.currentTimeMillis();
-            writeInProgress = true;
-            dropped = false;
-            return getPersistence().persistAsync(getPersistableStore().getClone()).whenComplete((r, t) -> writeInProgress = false);
+        synchronized (lock) {
+            if (nextWrite == null) {
+                nextWrite = new CompletableFuture<>();
+                if (!writeInProgress) {
+                    scheduleWrite(getMaxWriteRateInMs());
+                }
+            }
+            return nextWrite;
+        }
+    }
+
+    /**
+     * Writes all changes without waiting for the end of the write window.
+     *
+     * @return Future completing when all changes requested before the call are written.
+     */
+    public CompletableFuture<Boolean> flush() {
+        synchronized (lock) {
+            CompletableFuture<Boolean> future = persist();
+            if (writeInProgress) {
+                // The trailing write gets scheduled without delay
+                flushRequested = true;
+            } else {
+                scheduleWrite(0);
+            }
+            return future;
         }
     }
 
@@ -62,10 +83,67 @@ public abstract class RateLimitedPersistenceClient<T extends PersistableStore<T>
         return 1000;
     }
 
-    private void persistOnShutdown() {
-        if (dropped) {
-            dropped = false;
-            getPersistence().persist(getPersistableStore().getClone());
+    /**
+     * Writes the current state of the store. Called from the persistence IO pool, never concurrently.
+     */
+    protected boolean write() {
+        return getPersistence().persist(getPersistableStore().getClone());
+    }
+
+    protected void persistOnShutdown() {
+        synchronized (lock) {
+            scheduledWrite.ifPresent(Scheduler::stop);
+            scheduledWrite = Optional.empty();
+            while (writeInProgress) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            if (nextWrite == null) {
+                return;
+            }
+        }
+        runWrite();
+    }
+
+    private void scheduleWrite(long delayMs) {
+        scheduledWrite.ifPresent(Scheduler::stop);
+        scheduledWrite = Optional.of(Scheduler.run(() -> CompletableFuture.runAsync(this::runWrite, Persistence.PERSISTENCE_IO_POOL))
+                .name("RateLimitedPersistenceClient.write")
+                .after(delayMs));
+    }
+
+    private void runWrite() {
+        CompletableFuture<Boolean> future;
+        synchronized (lock) {
+            if (nextWrite == null || writeInProgress) {
+                // Written already by a flush or at shutdown
+                return;
+            }
+            future = nextWrite;
+            nextWrite = null;
+            scheduledWrite = Optional.empty();
+            writeInProgress = true;
+        }
+
+        boolean success = false;
+        try {
+            success = write();
+        } catch (Exception e) {
+            log.error("Error at writing " + getPersistence().getStoragePath(), e);
+        } finally {
+            synchronized (lock) {
+                writeInProgress = false;
+                if (nextWrite != null) {
+                    scheduleWrite(flushRequested ? 0 : getMaxWriteRateInMs());
+                }
+                flushRequested = false;
+                lock.notifyAll();
+            }
+            future.complete(success);
         }
     }
-}
\ No newline at end of file
+}
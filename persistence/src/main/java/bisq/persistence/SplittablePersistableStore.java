@@ -0,0 +1,33 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.persistence;
+
+/**
+ * A PersistableStore which can be persisted as multiple records, so that the records get decoded in parallel at read.
+ * Each record contains a part of the top level fields of the store. Stores where a field must not be split (e.g. a
+ * scalar which is only valid together with a collection) must not implement this interface.
+ * <p>
+ * The snapshots of the network data stores are not written by Persistence but as IndexedDataStoreFile, which decodes
+ * the entries lazily at their first access, so they do not need to be split.
+ */
+public interface SplittablePersistableStore<T> extends PersistableStore<T> {
+    /**
+     * Adds the content of a part decoded from a later record to this store.
+     */
+    void merge(T part);
+}
@@ -0,0 +1,73 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.persistence;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AppendOnlyLogTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testAppendAndRead() throws IOException {
+        AppendOnlyLog log = new AppendOnlyLog(tempDir.resolve("sub").resolve("log").toString());
+        assertTrue(log.readAll().isEmpty());
+
+        log.append(List.of(new byte[]{1, 2, 3}, new byte[0]));
+        log.append(List.of(new byte[]{4}));
+        List<byte[]> records = new AppendOnlyLog(log.getPath()).readAll();
+        assertEquals(3, records.size());
+        assertArrayEquals(new byte[]{1, 2, 3}, records.get(0));
+        assertArrayEquals(new byte[0], records.get(1));
+        assertArrayEquals(new byte[]{4}, records.get(2));
+
+        log.clear();
+        assertEquals(0, log.getSize());
+        assertTrue(log.readAll().isEmpty());
+    }
+
+    @Test
+    public void testIncompleteRecordIsTruncated() throws IOException {
+        AppendOnlyLog log = new AppendOnlyLog(tempDir.resolve("log").toString());
+        log.append(List.of(new byte[]{1, 2, 3}));
+        long validSize = log.getSize();
+        // Simulate a record which was not completely written
+        try (FileOutputStream outputStream = new FileOutputStream(new File(log.getPath()), true)) {
+            outputStream.write(new byte[]{0, 0, 0, 10, 1, 2});
+        }
+
+        assertEquals(1, log.readAll().size());
+        assertEquals(validSize, log.getSize());
+
+        log.append(List.of(new byte[]{4}));
+        List<byte[]> records = log.readAll();
+        assertEquals(2, records.size());
+        assertArrayEquals(new byte[]{4}, records.get(1));
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.persistence;
+
+import bisq.common.proto.ProtoResolver;
+import com.google.protobuf.Any;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.ListValue;
+import com.google.protobuf.Value;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FramedStoreFileTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testSplit() throws IOException {
+        ListValue message = new MockStore(createValues(1000)).toProto();
+        List<ByteString> records = FramedStoreFile.split(message.toByteString(), 1000);
+        assertTrue(records.size() > 1);
+
+        ListValue.Builder merged = ListValue.newBuilder();
+        for (ByteString record : records) {
+            merged.mergeFrom(ListValue.parseFrom(record));
+        }
+        assertEquals(message, merged.build());
+    }
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        // Larger than a record, so it gets decoded in parallel
+        List<String> values = createValues(100_000);
+        File file = write(new MockStore(values));
+        assertTrue(FramedStoreFile.isFramedFile(file));
+
+        MockStore persisted = (MockStore) FramedStoreFile.read(file, MockStore::fromAny);
+        assertEquals(values, persisted.values);
+    }
+
+    @Test
+    public void testCorruptTail() throws IOException {
+        List<String> values = createValues(100_000);
+        File file = write(new MockStore(values));
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.seek(file.length() - 10);
+            int value = randomAccessFile.read();
+            randomAccessFile.seek(file.length() - 10);
+            randomAccessFile.write(~value);
+        }
+
+        // The records before the corrupted one are kept
+        MockStore persisted = (MockStore) FramedStoreFile.read(file, MockStore::fromAny);
+        assertFalse(persisted.values.isEmpty());
+        assertTrue(persisted.values.size() < values.size());
+        assertEquals(values.subList(0, persisted.values.size()), persisted.values);
+    }
+
+    private File write(MockStore store) throws IOException {
+        File file = tempDir.resolve("store").toFile();
+        try (FileOutputStream outputStream = new FileOutputStream(file)) {
+            FramedStoreFile.write(store, outputStream);
+        }
+        return file;
+    }
+
+    private static List<String> createValues(int numValues) {
+        return IntStream.range(0, numValues)
+                .mapToObj(i -> "value-" + i)
+                .collect(Collectors.toList());
+    }
+
+    private static final class MockStore implements SplittablePersistableStore<MockStore> {
+        private final List<String> values = new ArrayList<>();
+
+        private MockStore(List<String> values) {
+            this.values.addAll(values);
+        }
+
+        @Override
+        public ListValue toProto() {
+            return ListValue.newBuilder()
+                    .addAllValues(values.stream()
+                            .map(value -> Value.newBuilder().setStringValue(value).build())
+                            .collect(Collectors.toList()))
+                    .build();
+        }
+
+        private static MockStore fromAny(Any any) {
+            try {
+                return new MockStore(any.unpack(ListValue.class).getValuesList().stream()
+                        .map(Value::getStringValue)
+                        .collect(Collectors.toList()));
+            } catch (InvalidProtocolBufferException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public ProtoResolver<PersistableStore<?>> getResolver() {
+            return MockStore::fromAny;
+        }
+
+        @Override
+        public MockStore getClone() {
+            return new MockStore(values);
+        }
+
+        @Override
+        public void applyPersisted(MockStore persisted) {
+            values.clear();
+            values.addAll(persisted.values);
+        }
+
+        @Override
+        public void merge(MockStore part) {
+            values.addAll(part.values);
+        }
+    }
+}
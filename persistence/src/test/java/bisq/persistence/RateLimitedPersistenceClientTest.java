@@ -0,0 +1,136 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.persistence;
+
+import bisq.common.proto.ProtoResolver;
+import com.google.protobuf.Message;
+import lombok.Getter;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RateLimitedPersistenceClientTest {
+    @Test
+    public void testCoalescing() {
+        MockPersistenceClient client = new MockPersistenceClient(200, 0);
+        CompletableFuture<Boolean> first = null;
+        for (int i = 0; i < 10; i++) {
+            client.getPersistableStore().value = i;
+            CompletableFuture<Boolean> future = client.persist();
+            if (first == null) {
+                first = future;
+            }
+            // All requests inside the write window are served by the same write
+            assertSame(first, future);
+        }
+        assertTrue(first.join());
+        assertEquals(List.of(9), client.writtenValues);
+    }
+
+    @Test
+    public void testTrailingWrite() throws InterruptedException {
+        MockPersistenceClient client = new MockPersistenceClient(10, 200);
+        client.getPersistableStore().value = 1;
+        client.persist();
+        assertTrue(client.writeStarted.await(5, TimeUnit.SECONDS));
+
+        // Changes while the write is in progress must not get dropped
+        client.getPersistableStore().value = 2;
+        CompletableFuture<Boolean> trailingWrite = client.persist();
+        assertTrue(trailingWrite.join());
+        assertEquals(List.of(1, 2), client.writtenValues);
+    }
+
+    @Test
+    public void testFlush() {
+        MockPersistenceClient client = new MockPersistenceClient(60_000, 0);
+        client.getPersistableStore().value = 1;
+        CompletableFuture<Boolean> future = client.persist();
+        // Without the flush the write would happen after 1 minute
+        assertSame(future, client.flush());
+        assertTrue(future.orTimeout(5, TimeUnit.SECONDS).join());
+        assertEquals(List.of(1), client.writtenValues);
+    }
+
+    static final class MockStore implements PersistableStore<MockStore> {
+        private volatile int value;
+
+        @Override
+        public Message toProto() {
+            return null;
+        }
+
+        @Override
+        public MockStore getClone() {
+            MockStore clone = new MockStore();
+            clone.value = value;
+            return clone;
+        }
+
+        @Override
+        public void applyPersisted(MockStore persisted) {
+            value = persisted.value;
+        }
+
+        @Override
+        public ProtoResolver<PersistableStore<?>> getResolver() {
+            return null;
+        }
+    }
+
+    private static final class MockPersistenceClient extends RateLimitedPersistenceClient<MockStore> {
+        @Getter
+        private final Persistence<MockStore> persistence = new Persistence<>("", "MockStore");
+        @Getter
+        private final MockStore persistableStore = new MockStore();
+        private final List<Integer> writtenValues = new CopyOnWriteArrayList<>();
+        private final CountDownLatch writeStarted = new CountDownLatch(1);
+        private final long maxWriteRateInMs;
+        private final long writeDurationInMs;
+
+        private MockPersistenceClient(long maxWriteRateInMs, long writeDurationInMs) {
+            this.maxWriteRateInMs = maxWriteRateInMs;
+            this.writeDurationInMs = writeDurationInMs;
+        }
+
+        @Override
+        protected long getMaxWriteRateInMs() {
+            return maxWriteRateInMs;
+        }
+
+        @Override
+        protected boolean write() {
+            int value = persistableStore.getClone().value;
+            writeStarted.countDown();
+            try {
+                Thread.sleep(writeDurationInMs);
+            } catch (InterruptedException ignore) {
+            }
+            writtenValues.add(value);
+            return true;
+        }
+    }
+}
@@ -19,6 +19,7 @@ package bisq.restApi;
 import bisq.application.DefaultApplicationService;
 import bisq.restApi.endpoints.ChatApi;
 import bisq.restApi.endpoints.KeyPairApi;
+import bisq.restApi.endpoints.NetworkApi;
 import bisq.restApi.error.CustomExceptionMapper;
 import bisq.restApi.error.StatusException;
 import bisq.restApi.util.StaticFileHandler;
@@ -57,6 +58,7 @@ public class RestApiApplication extends ResourceConfig {
                 .register(StatusException.StatusExceptionMapper.class)
                 .register(KeyPairApi.class)
                 .register(ChatApi.class)
+                .register(NetworkApi.class)
                 .register(SwaggerResolution.class);
 
         httpServer = JdkHttpServerFactory.createHttpServer(URI.create(BASE_URL), app);
@@ -0,0 +1,89 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.restApi.dto;
+
+import bisq.network.p2p.node.Connection;
+import bisq.network.p2p.node.Metrics;
+import bisq.network.p2p.node.transport.Transport;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@Getter
+@Schema(name = "Connections")
+public final class ConnectionsDto {
+    private int numNioChannels;
+    private List<ConnectionMetricsDto> connections;
+
+    public static ConnectionsDto from(int numNioChannels, Map<Transport.Type, List<Connection>> connectionsByTransportType) {
+        ConnectionsDto dto = new ConnectionsDto();
+        dto.numNioChannels = numNioChannels;
+        dto.connections = connectionsByTransportType.entrySet().stream()
+                .flatMap(entry -> entry.getValue().stream()
+                        .map(connection -> ConnectionMetricsDto.from(entry.getKey(), connection)))
+                .collect(Collectors.toList());
+        return dto;
+    }
+
+    @Getter
+    @Schema(name = "ConnectionMetrics")
+    public static final class ConnectionMetricsDto {
+        private String transportType;
+        private String id;
+        private String peerAddress;
+        private boolean outbound;
+        private long created;
+        private long sentBytes;
+        private long receivedBytes;
+        private long numMessagesSent;
+        private long numMessagesReceived;
+        private double averageRtt;
+        private int sendQueueSize;
+        private long maxSendQueueSize;
+        private long numSendQueueRejections;
+        private double averageFlushSize;
+        private long maxFlushSize;
+        private long numDispatchRejections;
+
+        public static ConnectionMetricsDto from(Transport.Type transportType, Connection connection) {
+            Metrics metrics = connection.getMetrics();
+            ConnectionMetricsDto dto = new ConnectionMetricsDto();
+            dto.transportType = transportType.name();
+            dto.id = connection.getId();
+            dto.peerAddress = connection.getPeerAddress().getFullAddress();
+            dto.outbound = connection.isOutboundConnection();
+            dto.created = metrics.getCreated();
+            dto.sentBytes = metrics.getSentBytes().get();
+            dto.receivedBytes = metrics.getReceivedBytes().get();
+            dto.numMessagesSent = metrics.getNumMessagesSent().get();
+            dto.numMessagesReceived = metrics.getNumMessagesReceived().get();
+            dto.averageRtt = metrics.getAverageRtt();
+            dto.sendQueueSize = connection.getSendQueueSize();
+            dto.maxSendQueueSize = metrics.getMaxSendQueueSize().get();
+            dto.numSendQueueRejections = metrics.getNumSendQueueRejections().get();
+            dto.averageFlushSize = metrics.getAverageFlushSize();
+            dto.maxFlushSize = metrics.getMaxFlushSize().get();
+            dto.numDispatchRejections = metrics.getNumDispatchRejections().get();
+            return dto;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+package bisq.restApi.dto;
+
+import bisq.network.p2p.node.Histogram;
+import bisq.network.p2p.node.MessageTypeMetrics;
+import bisq.network.p2p.node.NodeMetrics;
+import bisq.network.p2p.node.transport.Transport;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Getter
+@Schema(name = "NodeMetrics")
+public final class NodeMetricsDto {
+    private String transportType;
+    private long created;
+    private long numConnectionsCreated;
+    private long sentBytes;
+    private long receivedBytes;
+    private long numMessagesSent;
+    private long numMessagesReceived;
+    private HistogramDto rtt;
+    private List<MessageTypeMetricsDto> messageTypes;
+
+    public static NodeMetricsDto from(Transport.Type transportType, NodeMetrics.Snapshot snapshot) {
+        NodeMetricsDto dto = new NodeMetricsDto();
+        dto.transportType = transportType.name();
+        dto.created = snapshot.getCreated();
+        dto.numConnectionsCreated = snapshot.getNumConnectionsCreated();
+        dto.sentBytes = snapshot.getSentBytes();
+        dto.receivedBytes = snapshot.getReceivedBytes();
+        dto.numMessagesSent = snapshot.getNumMessagesSent();
+        dto.numMessagesReceived = snapshot.getNumMessagesReceived();
+        dto.rtt = HistogramDto.from(snapshot.getRtt());
+        dto.messageTypes = snapshot.getMessageTypes().stream()
+                .map(MessageTypeMetricsDto::from)
+                .collect(Collectors.toList());
+        return dto;
+    }
+
+    @Getter
+    @Schema(name = "MessageTypeMetrics")
+    public static final class MessageTypeMetricsDto {
+        private String messageType;
+        private long numMessagesSent;
+        private long numMessagesReceived;
+        private long sentBytes;
+        private long receivedBytes;
+        private HistogramDto sentSizes;
+        private HistogramDto receivedSizes;
+        private long numCompressed;
+        private double compressionRatio;
+        private long compressionNanos;
+        private long numDecompressed;
+        private long decompressionNanos;
+
+        public static MessageTypeMetricsDto from(MessageTypeMetrics.Snapshot snapshot) {
+            MessageTypeMetricsDto dto = new MessageTypeMetricsDto();
+            dto.messageType = snapshot.getMessageType();
+            dto.numMessagesSent = snapshot.getNumMessagesSent();
+            dto.numMessagesReceived = snapshot.getNumMessagesReceived();
+            dto.sentBytes = snapshot.getSentBytes();
+            dto.receivedBytes = snapshot.getReceivedBytes();
+            dto.sentSizes = HistogramDto.from(snapshot.getSentSizes());
+            dto.receivedSizes = HistogramDto.from(snapshot.getReceivedSizes());
+            dto.numCompressed = snapshot.getNumCompressed();
+            dto.compressionRatio = snapshot.getCompressionRatio();
+            dto.compressionNanos = snapshot.getCompressionNanos();
+            dto.numDecompressed = snapshot.getNumDecompressed();
+            dto.decompressionNanos = snapshot.getDecompressionNanos();
+            return dto;
+        }
+    }
+
+    @Getter
+    @Schema(name = "Histogram")
+    public static final class HistogramDto {
+        private long count;
+        private double mean;
+        private long max;
+        private long p50;
+        private long p90;
+        private long p99;
+
+        public static HistogramDto from(Histogram.Snapshot snapshot) {
+            HistogramDto dto = new HistogramDto();
+            dto.count = snapshot.getCount();
+            dto.mean = snapshot.getMean();
+            dto.max = snapshot.getMax();
+            dto.p50 = snapshot.getP50();
+            dto.p90 = snapshot.getP90();
+            dto.p99 = snapshot.getP99();
+            return dto;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.restApi.dto;
+
+import bisq.network.p2p.services.data.storage.auth.VerifiedRequestCache;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Getter;
+
+@Getter
+@Schema(name = "VerifiedRequestCache")
+public final class VerifiedRequestCacheDto {
+    private long numHits;
+    private long numMisses;
+    private int size;
+    private double hitRate;
+
+    public static VerifiedRequestCacheDto from(VerifiedRequestCache.Snapshot snapshot) {
+        VerifiedRequestCacheDto dto = new VerifiedRequestCacheDto();
+        dto.numHits = snapshot.getNumHits();
+        dto.numMisses = snapshot.getNumMisses();
+        dto.size = snapshot.getSize();
+        dto.hitRate = snapshot.getHitRate();
+        return dto;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.restApi.endpoints;
+
+import bisq.network.NetworkService;
+import bisq.restApi.RestApiApplication;
+import bisq.restApi.dto.ConnectionsDto;
+import bisq.restApi.dto.NodeMetricsDto;
+import bisq.restApi.dto.VerifiedRequestCacheDto;
+import bisq.restApi.error.StatusException;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.Application;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Path("/network")
+@Produces(MediaType.APPLICATION_JSON)
+@Tag(name = "Network API")
+public class NetworkApi {
+    private final NetworkService networkService;
+
+    public NetworkApi(@Context Application application) {
+        networkService = ((RestApiApplication) application).getApplicationService().getNetworkService();
+    }
+
+    @GET
+    @Path("/metrics")
+    @Operation(description = "Get the traffic metrics of the default node for each transport type.")
+    @ApiResponse(responseCode = "200", description = "request successful.",
+            content = {
+                    @Content(
+                            mediaType = MediaType.APPLICATION_JSON,
+                            schema = @Schema(implementation = NodeMetricsDto.class)
+                    )}
+    )
+    public List<NodeMetricsDto> getNodeMetrics() {
+        return networkService.getNodeMetricsSnapshotByTransportType().entrySet().stream()
+                .map(entry -> NodeMetricsDto.from(entry.getKey(), entry.getValue()))
+                .collect(Collectors.toList());
+    }
+
+    @GET
+    @Path("/connections")
+    @Operation(description = "Get the metrics of the send queues and dispatching of the connections of the default node " +
+            "for each transport type.")
+    @ApiResponse(responseCode = "200", description = "request successful.",
+            content = {
+                    @Content(
+                            mediaType = MediaType.APPLICATION_JSON,
+                            schema = @Schema(implementation = ConnectionsDto.class)
+                    )}
+    )
+    public ConnectionsDto getConnections() {
+        return ConnectionsDto.from(networkService.getNumNioChannels(), networkService.getConnectionsByTransportType());
+    }
+
+    @GET
+    @Path("/verified-request-cache")
+    @Operation(description = "Get the hit rate of the cache of signature verifications of received data.")
+    @ApiResponse(responseCode = "404", description = "the data service is not enabled")
+    @ApiResponse(responseCode = "200", description = "request successful.",
+            content = {
+                    @Content(
+                            mediaType = MediaType.APPLICATION_JSON,
+                            schema = @Schema(implementation = VerifiedRequestCacheDto.class)
+                    )}
+    )
+    public VerifiedRequestCacheDto getVerifiedRequestCache() {
+        return networkService.getVerifiedRequestCacheSnapshot()
+                .map(VerifiedRequestCacheDto::from)
+                .orElseThrow(() -> new StatusException(Response.Status.NOT_FOUND, "The data service is not enabled"));
+    }
+}
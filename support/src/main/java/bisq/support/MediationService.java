@@ -73,14 +73,14 @@ public class MediationService implements Service, DataService.Listener, MessageL
     @Override
     public CompletableFuture<Boolean> initialize() {
         networkService.addMessageListener(this);
-        networkService.addDataServiceListener(this);
+        networkService.subscribeToDataService(AuthorizedRoleRegistrationData.class, this);
         networkService.getDataService().ifPresent(service -> service.getAllAuthenticatedPayload().forEach(this::processAuthenticatedData));
         return CompletableFuture.completedFuture(true);
     }
 
     @Override
     public CompletableFuture<Boolean> shutdown() {
-        networkService.removeDataServiceListener(this);
+        networkService.unsubscribeFromDataService(this);
         return CompletableFuture.completedFuture(true);
     }
 
@@ -59,14 +59,14 @@ public class UserProfileService implements PersistenceClient<UserProfileStore>,
 
     public CompletableFuture<Boolean> initialize() {
         log.info("initialize");
-        networkService.addDataServiceListener(this);
+        networkService.subscribeToDataService(UserProfile.class, this);
         networkService.getDataService().ifPresent(ds -> ds.getAllAuthenticatedPayload().forEach(this::onAuthenticatedDataAdded));
         return CompletableFuture.completedFuture(true);
     }
 
     public CompletableFuture<Boolean> shutdown() {
         log.info("shutdown");
-        networkService.removeDataServiceListener(this);
+        networkService.unsubscribeFromDataService(this);
         return CompletableFuture.completedFuture(true);
     }
 
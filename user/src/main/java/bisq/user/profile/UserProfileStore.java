@@ -21,6 +21,7 @@ import bisq.common.observable.ObservableSet;
 import bisq.common.proto.ProtoResolver;
 import bisq.common.proto.UnresolvableProtobufMessageException;
 import bisq.persistence.PersistableStore;
+import bisq.persistence.SplittablePersistableStore;
 import com.google.protobuf.InvalidProtocolBufferException;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
@@ -37,7 +38,7 @@ import java.util.stream.Collectors;
  */
 @Slf4j
 @Getter
-public final class UserProfileStore implements PersistableStore<UserProfileStore> {
+public final class UserProfileStore implements SplittablePersistableStore<UserProfileStore> {
     private final Map<String, Set<String>> nymsByNickName = new HashMap<>();
     private final ObservableSet<String> ignoredUserProfileIds = new ObservableSet<>();
     private final Map<String, UserProfile> userProfileById = new ConcurrentHashMap<>();
@@ -102,4 +103,12 @@ public final class UserProfileStore implements PersistableStore<UserProfileStore
         ignoredUserProfileIds.addAll(persisted.getIgnoredUserProfileIds());
         userProfileById.putAll(persisted.getUserProfileById());
     }
+
+    @Override
+    public void merge(UserProfileStore part) {
+        part.getNymsByNickName().forEach((nickName, nyms) ->
+                nymsByNickName.computeIfAbsent(nickName, key -> new HashSet<>()).addAll(nyms));
+        ignoredUserProfileIds.addAll(part.getIgnoredUserProfileIds());
+        userProfileById.putAll(part.getUserProfileById());
+    }
 }
\ No newline at end of file
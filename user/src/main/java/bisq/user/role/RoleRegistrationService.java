@@ -66,14 +66,14 @@ public class RoleRegistrationService implements PersistenceClient<RoleRegistrati
         networkService.getDataService()
                 .ifPresent(dataService -> dataService.getAllAuthenticatedPayload()
                         .forEach(this::processAuthenticatedData));
-        networkService.addDataServiceListener(this);
+        networkService.subscribeToDataService(AuthorizedRoleRegistrationData.class, this);
         return CompletableFuture.completedFuture(true);
     }
 
 
     @Override
     public CompletableFuture<Boolean> shutdown() {
-        networkService.removeDataServiceListener(this);
+        networkService.unsubscribeFromDataService(this);
         return CompletableFuture.completedFuture(true);
     }
 